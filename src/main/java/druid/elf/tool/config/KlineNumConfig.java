@@ -0,0 +1,27 @@
+package druid.elf.tool.config;
+
+import druid.elf.tool.enums.KlineNumType;
+import druid.elf.tool.service.kline.KlineBars;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * K线数值类型配置类
+ */
+@Slf4j
+@Configuration
+public class KlineNumConfig {
+
+    @Value("${kline.num-type:double}")
+    private String numType; // double：基本类型，计算快；decimal：BigDecimal，精度高
+    @Value("${kline.columnar:true}")
+    private boolean columnar; // double 类型是否使用列式序列存储
+
+    @PostConstruct
+    public void init() {
+        KlineBars.configure(KlineNumType.valueOf(numType.trim().toUpperCase()), columnar);
+        log.info("K线数值类型: {}, 列式序列: {}", KlineBars.getNumType(), columnar);
+    }
+}
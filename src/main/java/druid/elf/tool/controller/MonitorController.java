@@ -0,0 +1,109 @@
+package druid.elf.tool.controller;
+
+import druid.elf.tool.dto.CircuitBreakerStatusDTO;
+import druid.elf.tool.dto.KlineIntegrityDTO;
+import druid.elf.tool.service.exchangedata.KlineCache;
+import druid.elf.tool.service.exchangedata.KlineRequestCoalescer;
+import druid.elf.tool.service.exchangedata.circuit.CircuitBreakerRegistry;
+import druid.elf.tool.service.exchangedata.ratelimit.ExchangeRateLimiterRegistry;
+import druid.elf.tool.service.kline.KlineIntegrityScanner;
+import druid.elf.tool.service.task.PairPriorityScheduler;
+import druid.elf.tool.service.task.SignalCycleRegistry;
+import druid.elf.tool.service.task.SignalPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态监控接口
+ */
+@RestController
+@RequestMapping("/api/monitor")
+public class MonitorController {
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    @Autowired
+    private ExchangeRateLimiterRegistry rateLimiterRegistry;
+    @Autowired
+    private KlineRequestCoalescer requestCoalescer;
+    @Autowired
+    private KlineCache klineCache;
+    @Autowired
+    private KlineIntegrityScanner klineIntegrityScanner;
+    @Autowired
+    private SignalPipeline signalPipeline;
+    @Autowired
+    private SignalCycleRegistry signalCycleRegistry;
+    @Autowired
+    private PairPriorityScheduler pairPriorityScheduler;
+
+    /**
+     * 各 交易所×代理 的熔断器状态
+     */
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<List<CircuitBreakerStatusDTO>> circuitBreakers() {
+        return ResponseEntity.ok(circuitBreakerRegistry.snapshot());
+    }
+
+    /**
+     * 各 交易所×代理 的限流预算剩余比例
+     */
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Double>> rateLimits() {
+        return ResponseEntity.ok(rateLimiterRegistry.snapshot());
+    }
+
+    /**
+     * K线请求合并统计：进入合并层的请求数、复用在途请求的次数和当前在途请求数
+     */
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Long>> coalescing() {
+        return ResponseEntity.ok(requestCoalescer.snapshot());
+    }
+
+    /**
+     * 最新K线缓存统计：条目数、估算占用、命中率和淘汰次数
+     */
+    @GetMapping("/kline-cache")
+    public ResponseEntity<Map<String, Object>> klineCache() {
+        return ResponseEntity.ok(klineCache.snapshot());
+    }
+
+    /**
+     * 各K线序列的完整性：缺失、重复条数、完整度和补拉统计
+     */
+    @GetMapping("/kline-integrity")
+    public ResponseEntity<List<KlineIntegrityDTO>> klineIntegrity() {
+        return ResponseEntity.ok(klineIntegrityScanner.snapshot());
+    }
+
+    /**
+     * 信号流水线各阶段的队列深度、忙碌线程数和处理统计
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Map<String, Object>>> pipeline() {
+        return ResponseEntity.ok(signalPipeline.snapshot());
+    }
+
+    /**
+     * 各交易所信号生成轮次的执行状态、耗时和超过期限丢弃的交易对数
+     */
+    @GetMapping("/cycles")
+    public ResponseEntity<Map<String, Map<String, Object>>> cycles() {
+        return ResponseEntity.ok(signalCycleRegistry.snapshot());
+    }
+
+    /**
+     * 各交易所交易对活跃度统计和上一轮降频跳过的交易对数
+     */
+    @GetMapping("/pair-priority")
+    public ResponseEntity<Map<String, Map<String, Object>>> pairPriority() {
+        return ResponseEntity.ok(pairPriorityScheduler.snapshot());
+    }
+}
@@ -0,0 +1,17 @@
+package druid.elf.tool.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 熔断器状态
+ */
+@Data
+@Accessors(chain = true)
+public class CircuitBreakerStatusDTO {
+    private String key;                // 交易所×代理
+    private String state;              // CLOSED / OPEN / HALF_OPEN
+    private int consecutiveFailures;   // 连续失败次数
+    private long remainingOpenMillis;  // 距离熔断到期的剩余时间
+    private String lastError;          // 最近一次计入熔断的错误
+}
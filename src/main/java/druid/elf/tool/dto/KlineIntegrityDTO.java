@@ -0,0 +1,21 @@
+package druid.elf.tool.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 单个K线序列的完整性扫描结果
+ */
+@Data
+@Accessors(chain = true)
+public class KlineIntegrityDTO {
+    private String key;              // 交易所|交易对|周期
+    private int bars;                // 内存序列中的K线条数
+    private int missingBars;         // 内存序列中缺失的K线条数
+    private int duplicateBars;       // 内存序列中开盘时间重复或倒序的K线条数
+    private double completeness;     // 内存序列完整度 = 实际条数 / (实际条数 + 缺失条数)
+    private int storeGapBars;        // 存储扫描窗口内尚未补齐的缺失条数
+    private int unrepairableBars;    // 补拉后交易所仍未返回的缺失条数（停机维护等），不再重复请求
+    private long repairedBars;       // 累计补拉写入的K线条数
+    private long lastScanTime;       // 最近一次扫描时间（毫秒）
+}
@@ -0,0 +1,19 @@
+package druid.elf.tool.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+/**
+ * 交易对24小时行情
+ */
+@Data
+@Accessors(chain = true)
+public class TickerDTO {
+    private String symbol;                // 交易对，与交易所交易对信息中的名称一致
+    private BigDecimal lastPrice;         // 最新成交价
+    private BigDecimal priceChangePercent; // 24小时涨跌幅（百分比，例如 1.5 表示 1.5%）
+    private BigDecimal baseVolume;        // 24小时成交量（基础货币）
+    private BigDecimal quoteVolume;       // 24小时成交额（计价货币）
+}
@@ -4,19 +4,27 @@ import druid.elf.tool.enums.exchange.BinanceKlineInterval;
 import druid.elf.tool.enums.exchange.BybitKlineInterval;
 import druid.elf.tool.enums.exchange.GateIoKlineInterval;
 import druid.elf.tool.enums.exchange.OkxKlineInterval;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
 
 /**
  * K线时间周期主枚举，提供统一的周期名称，并根据交易所类型返回对应的符号
  */
+@Getter
+@AllArgsConstructor
 public enum KlineInterval {
-    _1M,   // 1 minute
-    _5M,   // 5 minutes
-    _15M,  // 15 minutes
-    _30M,  // 30 minutes
-    _1H,   // 1 hour
-    _4H,   // 4 hours
-    _1D,   // 1 day
-    _1W;   // 1 week
+    _1M(Duration.ofMinutes(1)),    // 1 minute
+    _5M(Duration.ofMinutes(5)),    // 5 minutes
+    _15M(Duration.ofMinutes(15)),  // 15 minutes
+    _30M(Duration.ofMinutes(30)),  // 30 minutes
+    _1H(Duration.ofHours(1)),      // 1 hour
+    _4H(Duration.ofHours(4)),      // 4 hours
+    _1D(Duration.ofDays(1)),       // 1 day
+    _1W(Duration.ofDays(7));       // 1 week
+
+    private final Duration duration; // 单根K线的时长
 
     /**
      * 根据交易所类型返回对应的时间周期符号
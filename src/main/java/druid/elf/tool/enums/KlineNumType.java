@@ -0,0 +1,21 @@
+package druid.elf.tool.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+
+import java.util.function.Function;
+
+/**
+ * K线数值类型：决定 BarSeries 及其上的 ta4j 指标使用的数值实现
+ */
+@Getter
+@AllArgsConstructor
+public enum KlineNumType {
+    DOUBLE(DoubleNum::valueOf),    // 基本类型 double，指标计算快、几乎不产生垃圾，信号生成默认使用
+    DECIMAL(DecimalNum::valueOf);  // 32位精度 BigDecimal，需要精确小数运算时使用
+
+    private final Function<Number, Num> numFunction; // 数值构造函数，同一序列内的K线必须使用同一种
+}
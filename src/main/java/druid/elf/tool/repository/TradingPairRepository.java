@@ -3,10 +3,14 @@ package druid.elf.tool.repository;
 import druid.elf.tool.entity.TradingPair;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.Optional;
 
 public interface TradingPairRepository extends JpaRepository<TradingPair, String> {
 
     // 按交易所查找交易对
     List<TradingPair> findByExchange(String exchange);
 
+    // 最早保存的交易对，用于判断上次同步时间
+    Optional<TradingPair> findFirstByOrderByCreatedAtAsc();
+
 }
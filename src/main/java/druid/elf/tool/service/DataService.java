@@ -22,17 +22,20 @@ public class DataService {
      * @return ExchangeDataService 实例
      */
     public ExchangeDataService createExchangeDataService(ExchangeType exchangeType, SettingsProxy proxySettings) {
-        // 使用获取到的配置构建 ExchangeDataServiceBuilder
-        ExchangeDataServiceBuilder builder = exchangeDataServiceBuilder
-                .withExchangeType(exchangeType)
-                .withProxySettings(proxySettings);
+        // 构造者为单例且带状态，多个代理线程并发调用时需要串行化
+        synchronized (exchangeDataServiceBuilder) {
+            // 使用获取到的配置构建 ExchangeDataServiceBuilder
+            ExchangeDataServiceBuilder builder = exchangeDataServiceBuilder
+                    .withExchangeType(exchangeType)
+                    .withProxySettings(proxySettings);
 
-        // 构建并返回 ExchangeDataService 实例
-        try {
-            return builder.build();
-        } catch (Exception e) {
-            log.error("创建交易所数据服务失败, exchangeType: {}", exchangeType, e);
-            throw e;
+            // 构建并返回 ExchangeDataService 实例（按 交易所×代理 复用）
+            try {
+                return builder.build();
+            } catch (Exception e) {
+                log.error("创建交易所数据服务失败, exchangeType: {}", exchangeType, e);
+                throw e;
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package druid.elf.tool.service;
+
+import druid.elf.tool.dto.TickerDTO;
+import druid.elf.tool.entity.Settings;
+import druid.elf.tool.entity.TradingPair;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 交易对行情预筛选：每个交易所一次请求拉取全量24小时行情，
+ * 只让成交额、涨跌幅达标的交易对进入K线拉取流程，避免为大量无成交的交易对逐个请求K线。
+ * 成交额按同一批行情中的价格折算为美元稳定币后比较，BTC、ETH、BNB 等计价的交易对与 USDT 计价的使用同一下限
+ */
+@Slf4j
+@Service
+public class TickerPrefilterService {
+
+    @Value("${kline.prefilter.enabled:true}")
+    private boolean enabled;                         // 是否启用预筛选
+    @Value("${kline.prefilter.min-quote-volume:100000}")
+    private BigDecimal minQuoteVolume;               // 24小时成交额下限（折算为美元稳定币）
+    @Value("${kline.prefilter.usd-quotes:USDT,USDC,FDUSD,BUSD,TUSD,DAI,USD}")
+    private String usdQuoteConfig;                   // 视为 1 美元的计价货币，逗号分隔
+    @Value("${kline.prefilter.min-abs-change-percent:0}")
+    private BigDecimal minAbsChangePercent;          // 24小时涨跌幅绝对值下限（%），0 表示不限制
+    @Value("${kline.prefilter.max-abs-change-percent:0}")
+    private BigDecimal maxAbsChangePercent;          // 24小时涨跌幅绝对值上限（%），0 表示不限制
+
+    private final Set<String> usdQuotes = new HashSet<>();
+
+    @PostConstruct
+    public void init() {
+        for (String quote : usdQuoteConfig.split(",")) {
+            if (!quote.isBlank()) usdQuotes.add(quote.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * 按行情筛选交易对。只在 cryptoMode 为 all 时生效，custom 模式下的交易对由用户指定，原样返回；
+     * 行情拉取失败时同样原样返回，不影响本轮信号生成
+     * @param exchangeType 交易所类型
+     * @param service 交易所数据服务
+     * @param settings 设置
+     * @param pairs 待筛选的交易对
+     * @return 通过筛选的交易对
+     */
+    public List<TradingPair> filter(ExchangeType exchangeType, ExchangeDataService service,
+                                    Settings settings, List<TradingPair> pairs) {
+        if (!enabled || !"all".equals(settings.getCryptoMode())) {
+            return pairs;
+        }
+        Map<String, TickerDTO> tickers;
+        try {
+            tickers = service.getTickers().stream()
+                    .collect(Collectors.toMap(TickerDTO::getSymbol, Function.identity(), (existing, replacement) -> existing));
+        } catch (Exception e) {
+            log.warn("获取 {} 的24小时行情失败，跳过预筛选: {}", exchangeType, e.getMessage());
+            return pairs;
+        }
+
+        Map<String, BigDecimal> usdRates = usdRates(pairs, tickers);
+        List<TradingPair> passed = pairs.stream()
+                .filter(pair -> accept(tickers.get(pair.getSymbol()), usdRate(pair, usdRates)))
+                .toList();
+        log.info("{} 行情预筛选: {} 个交易对中 {} 个进入K线拉取", exchangeType, pairs.size(), passed.size());
+        return passed;
+    }
+
+    /**
+     * 各计价货币折算为美元的价格：美元稳定币为 1，其余取该币种对稳定币交易对的最新成交价，
+     * 只有稳定币计价该币种的交易对（如 USDT/TRY）时取倒数
+     */
+    private Map<String, BigDecimal> usdRates(List<TradingPair> pairs, Map<String, TickerDTO> tickers) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        usdQuotes.forEach(quote -> rates.put(quote, BigDecimal.ONE));
+        Map<String, BigDecimal> inverse = new HashMap<>();
+        for (TradingPair pair : pairs) {
+            TickerDTO ticker = tickers.get(pair.getSymbol());
+            if (ticker == null || ticker.getLastPrice() == null || ticker.getLastPrice().signum() <= 0
+                    || pair.getBaseCurrency() == null || pair.getQuoteCurrency() == null) {
+                continue;
+            }
+            String base = pair.getBaseCurrency().toUpperCase(Locale.ROOT);
+            String quote = pair.getQuoteCurrency().toUpperCase(Locale.ROOT);
+            if (isUsd(quote) && !isUsd(base)) {
+                rates.putIfAbsent(base, ticker.getLastPrice());
+            } else if (isUsd(base) && !isUsd(quote)) {
+                inverse.putIfAbsent(quote, BigDecimal.ONE.divide(ticker.getLastPrice(), MathContext.DECIMAL64));
+            }
+        }
+        inverse.forEach(rates::putIfAbsent);
+        return rates;
+    }
+
+    /**
+     * 交易对计价货币的美元价格，无法折算时返回 null
+     */
+    private BigDecimal usdRate(TradingPair pair, Map<String, BigDecimal> usdRates) {
+        String quote = pair.getQuoteCurrency();
+        return quote == null ? null : usdRates.get(quote.toUpperCase(Locale.ROOT));
+    }
+
+    private boolean isUsd(String currency) {
+        return usdQuotes.contains(currency);
+    }
+
+    /**
+     * 判断行情是否达标，没有行情或没有成交价的交易对视为已停止交易；
+     * 计价货币无法折算为美元时按原始成交额比较
+     * @param usdRate 计价货币的美元价格
+     */
+    private boolean accept(TickerDTO ticker, BigDecimal usdRate) {
+        if (ticker == null || ticker.getLastPrice() == null || ticker.getLastPrice().signum() <= 0) {
+            return false;
+        }
+        if (ticker.getQuoteVolume() == null) {
+            return false;
+        }
+        BigDecimal volume = usdRate == null ? ticker.getQuoteVolume() : ticker.getQuoteVolume().multiply(usdRate);
+        if (volume.compareTo(minQuoteVolume) < 0) {
+            return false;
+        }
+        if (minAbsChangePercent.signum() <= 0 && maxAbsChangePercent.signum() <= 0) {
+            return true;
+        }
+        if (ticker.getPriceChangePercent() == null) {
+            return false;
+        }
+        BigDecimal absChange = ticker.getPriceChangePercent().abs();
+        return absChange.compareTo(minAbsChangePercent) >= 0
+                && (maxAbsChangePercent.signum() <= 0 || absChange.compareTo(maxAbsChangePercent) <= 0);
+    }
+}
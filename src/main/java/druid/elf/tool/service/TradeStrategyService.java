@@ -1,5 +1,6 @@
 package druid.elf.tool.service;
 
+import druid.elf.tool.enums.KlineInterval;
 import druid.elf.tool.service.strategy.AbstractTradeStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +11,13 @@ import org.ta4j.core.BarSeries;
 import druid.elf.tool.entity.TradeSignal;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class TradeStrategyService {
@@ -25,20 +30,60 @@ public class TradeStrategyService {
      * 生成交易信号
      */
     public List<TradeSignal> generateSignal(Map<String,BarSeries> seriesMap, String symbol) {
-        Map<String, AbstractTradeStrategy> strategyBeans = applicationContext.getBeansOfType(AbstractTradeStrategy.class);
+        return generateSignal(strategiesFor(null), seriesMap, symbol);
+    }
 
-        return strategyBeans.values().stream()
-                .map(strategy -> {
-                    try {
-                        return strategy.execute(seriesMap,symbol);
-                    } catch (Exception e) {
-                        log.error("策略执行异常",e);
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
+    /**
+     * 使用指定的策略生成交易信号
+     */
+    public List<TradeSignal> generateSignal(Collection<AbstractTradeStrategy> strategies, Map<String,BarSeries> seriesMap, String symbol) {
+        return actionable(execute(strategies, seriesMap, symbol).values());
+    }
+
+    /**
+     * 逐个执行策略，执行异常或没有返回结果的策略不在结果中
+     * @return 执行完成的策略及其原始信号
+     */
+    public Map<AbstractTradeStrategy, TradeSignal> execute(Collection<AbstractTradeStrategy> strategies, Map<String,BarSeries> seriesMap, String symbol) {
+        Map<AbstractTradeStrategy, TradeSignal> results = new LinkedHashMap<>();
+        for (AbstractTradeStrategy strategy : strategies) {
+            try {
+                TradeSignal signal = strategy.execute(seriesMap, symbol);
+                if (signal != null) results.put(strategy, signal);
+            } catch (Exception e) {
+                log.error("策略执行异常",e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 只保留价格有效的买卖信号
+     */
+    public static List<TradeSignal> actionable(Collection<TradeSignal> signals) {
+        return signals.stream()
                 .filter(tradeSignal -> "BUY".equals(tradeSignal.getSignal()) || "SELL".equals(tradeSignal.getSignal()) )
                 .filter(tradeSignal -> tradeSignal.getPrice() != null && tradeSignal.getPrice().compareTo(BigDecimal.ZERO) > 0)
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * 依赖任一已收盘周期的策略
+     * @param closed 刚收盘的周期，为 null 时返回全部策略
+     */
+    public List<AbstractTradeStrategy> strategiesFor(Set<KlineInterval> closed) {
+        Map<String, AbstractTradeStrategy> strategyBeans = applicationContext.getBeansOfType(AbstractTradeStrategy.class);
+        return strategyBeans.values().stream()
+                .filter(strategy -> closed == null || strategy.getRequiredIntervals().stream().anyMatch(closed::contains))
+                .toList();
+    }
+
+    /**
+     * 一组策略依赖的全部周期，按周期从小到大
+     */
+    public static List<KlineInterval> requiredIntervals(Collection<AbstractTradeStrategy> strategies) {
+        Set<KlineInterval> intervals = EnumSet.noneOf(KlineInterval.class);
+        strategies.forEach(strategy -> intervals.addAll(strategy.getRequiredIntervals()));
+        return intervals.stream().sorted(Comparator.comparing(KlineInterval::getDuration)).toList();
+    }
+}
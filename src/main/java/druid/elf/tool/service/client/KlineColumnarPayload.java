@@ -0,0 +1,139 @@
+package druid.elf.tool.service.client;
+
+import druid.elf.tool.dto.KlineDataDTO;
+import druid.elf.tool.service.kline.ColumnarBarSeries;
+import druid.elf.tool.service.kline.KlineBars;
+import org.springframework.http.MediaType;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发送给Python策略服务的K线数据：列式二进制格式和JSON兼容格式。
+ * 二进制格式按列连续存放，Python端可直接用 numpy.frombuffer 按偏移读取，不需要逐条解析对象。
+ * <pre>
+ * 全部为小端序，字符串为 长度(int32) + UTF-8
+ * magic(int32 "KLC1") version(int32) symbol strategyName seriesCount(int32)
+ * 每个序列: interval barCount(int32)
+ *   openTime int64[n] closeTime int64[n]
+ *   open/high/low/close/volume/amount float64[n]
+ *   trades int64[n]
+ * </pre>
+ * 开盘/收盘时间取自K线本身（毫秒）
+ */
+public final class KlineColumnarPayload {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-kline-columns");
+
+    private static final int MAGIC = 0x4B4C4331; // "KLC1"
+    private static final int VERSION = 1;
+    private static final int BYTES_PER_BAR = 9 * 8;
+
+    private KlineColumnarPayload() {
+    }
+
+    /**
+     * 编码为列式二进制
+     * @param symbol 交易对
+     * @param strategyName 策略名称
+     * @param seriesMap 周期 -> K线序列
+     */
+    public static byte[] encode(String symbol, String strategyName, Map<String, BarSeries> seriesMap) {
+        byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+        byte[] strategyBytes = strategyName.getBytes(StandardCharsets.UTF_8);
+        int size = 16 + symbolBytes.length + 4 + strategyBytes.length;
+        Map<byte[], BarSeries> named = new LinkedHashMap<>();
+        for (Map.Entry<String, BarSeries> entry : seriesMap.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            named.put(name, entry.getValue());
+            size += 8 + name.length + barCount(entry.getValue()) * BYTES_PER_BAR;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(symbolBytes.length).put(symbolBytes);
+        buffer.putInt(strategyBytes.length).put(strategyBytes);
+        buffer.putInt(named.size());
+        for (Map.Entry<byte[], BarSeries> entry : named.entrySet()) {
+            BarSeries series = entry.getValue();
+            buffer.putInt(entry.getKey().length).put(entry.getKey());
+            buffer.putInt(barCount(series));
+            if (series instanceof ColumnarBarSeries columnar) {
+                // 列式序列直接整段复制各列
+                columnar.putColumns(buffer);
+            } else {
+                putBars(buffer, series);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 逐列写出普通序列，每根K线只取一次
+     */
+    private static void putBars(ByteBuffer buffer, BarSeries series) {
+        Bar[] bars = new Bar[barCount(series)];
+        for (int i = 0; i < bars.length; i++) bars[i] = series.getBar(KlineBars.firstIndex(series) + i);
+        for (Bar bar : bars) buffer.putLong(KlineBars.openTimeMillis(bar));
+        for (Bar bar : bars) buffer.putLong(bar.getEndTime().toInstant().toEpochMilli());
+        for (Bar bar : bars) buffer.putDouble(bar.getOpenPrice().doubleValue());
+        for (Bar bar : bars) buffer.putDouble(bar.getHighPrice().doubleValue());
+        for (Bar bar : bars) buffer.putDouble(bar.getLowPrice().doubleValue());
+        for (Bar bar : bars) buffer.putDouble(bar.getClosePrice().doubleValue());
+        for (Bar bar : bars) buffer.putDouble(doubleOf(bar.getVolume()));
+        for (Bar bar : bars) buffer.putDouble(doubleOf(bar.getAmount()));
+        for (Bar bar : bars) buffer.putLong(bar.getTrades());
+    }
+
+    /**
+     * 转换为JSON格式的K线列表，用于不支持列式格式的Python服务
+     * @param seriesMap 周期 -> K线序列
+     * @param defaultTrades K线没有成交笔数时填充的默认值
+     * @param takerBuyRatio 主动买入量按成交量的该比例估算（交易所K线接口未提供）
+     */
+    public static Map<String, List<KlineDataDTO>> toKlineData(Map<String, BarSeries> seriesMap,
+                                                              int defaultTrades, double takerBuyRatio) {
+        Map<String, List<KlineDataDTO>> klineData = new LinkedHashMap<>();
+        for (Map.Entry<String, BarSeries> entry : seriesMap.entrySet()) {
+            BarSeries series = entry.getValue();
+            List<KlineDataDTO> klineList = new ArrayList<>(barCount(series));
+            for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+                Bar bar = series.getBar(i);
+                double volume = doubleOf(bar.getVolume());
+                double amount = doubleOf(bar.getAmount());
+                KlineDataDTO klineDto = new KlineDataDTO();
+                klineDto.setOpenTime(KlineBars.openTimeMillis(bar));
+                klineDto.setCloseTime(bar.getEndTime().toInstant().toEpochMilli());
+                klineDto.setOpenPrice(BigDecimal.valueOf(bar.getOpenPrice().doubleValue()));
+                klineDto.setHighPrice(BigDecimal.valueOf(bar.getHighPrice().doubleValue()));
+                klineDto.setLowPrice(BigDecimal.valueOf(bar.getLowPrice().doubleValue()));
+                klineDto.setClosePrice(BigDecimal.valueOf(bar.getClosePrice().doubleValue()));
+                klineDto.setVolume(BigDecimal.valueOf(volume));
+                klineDto.setQuoteAssetVolume(BigDecimal.valueOf(amount > 0 ? amount : volume));
+                klineDto.setNumberOfTrades(bar.getTrades() > 0 ? (int) bar.getTrades() : defaultTrades);
+                klineDto.setTakerBuyBaseAssetVolume(BigDecimal.valueOf(volume * takerBuyRatio));
+                klineDto.setTakerBuyQuoteAssetVolume(BigDecimal.valueOf(volume * takerBuyRatio));
+                klineList.add(klineDto);
+            }
+            klineData.put(entry.getKey(), klineList);
+        }
+        return klineData;
+    }
+
+    private static int barCount(BarSeries series) {
+        return series.isEmpty() ? 0 : series.getEndIndex() - KlineBars.firstIndex(series) + 1;
+    }
+
+    private static double doubleOf(Num num) {
+        return num == null ? 0 : num.doubleValue();
+    }
+}
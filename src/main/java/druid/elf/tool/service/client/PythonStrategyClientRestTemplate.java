@@ -1,5 +1,6 @@
 package druid.elf.tool.service.client;
 
+import druid.elf.tool.dto.KlineDataDTO;
 import druid.elf.tool.dto.PythonTradeSignalDTO;
 import druid.elf.tool.dto.StrategyRequestDTO;
 import druid.elf.tool.dto.StrategyResponseDTO;
@@ -7,11 +8,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 使用RestTemplate实现的Python策略客户端
@@ -23,8 +28,14 @@ public class PythonStrategyClientRestTemplate {
 
     private final RestTemplate restTemplate;
     
+    private static final long COLUMNAR_RETRY_MS = 10 * 60 * 1000L; // 服务端不支持列式格式后，间隔该时长再尝试
+
     @Value("${python.strategy.service.url:http://localhost:8001}")
     private String pythonServiceUrl;
+    @Value("${python.strategy.transport:columnar}")
+    private String transport; // columnar：列式二进制，不支持时回退 JSON；json：始终发送 JSON
+
+    private volatile long columnarRejectedAt = -1L; // 服务端最近一次拒绝列式格式的时间
 
     public PythonStrategyClientRestTemplate(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
@@ -52,16 +63,8 @@ public class PythonStrategyClientRestTemplate {
             );
             
             log.info("Python策略服务响应状态：{}", response.getStatusCode());
-            log.info("Python策略服务响应：{}", response.getBody());
             
-            StrategyResponseDTO responseBody = response.getBody();
-            if (responseBody != null && responseBody.isSuccess()) {
-                return responseBody.getData();
-            } else {
-                log.info("Python策略服务未生成交易信号或执行失败: {}", 
-                    responseBody != null ? responseBody.getMessage() : "响应为空");
-                return null;
-            }
+            return signalOf(response.getBody());
             
         } catch (RestClientException e) {
             log.error("调用Python策略服务失败", e);
@@ -72,6 +75,48 @@ public class PythonStrategyClientRestTemplate {
         }
     }
 
+    /**
+     * 执行策略，K线优先以列式二进制发送（{@link KlineColumnarPayload}），
+     * 服务端返回 415/422/400 表示不支持该格式时回退为 JSON，并在一段时间内直接使用 JSON
+     * @param symbol 交易对
+     * @param strategyName 策略名称
+     * @param seriesMap 周期 -> K线序列
+     * @param jsonKlineData 回退为 JSON 时才构建的K线列表
+     * @return 交易信号，未生成或调用失败时返回 null
+     */
+    public PythonTradeSignalDTO executeStrategy(String symbol, String strategyName, Map<String, BarSeries> seriesMap,
+                                                Supplier<Map<String, List<KlineDataDTO>>> jsonKlineData) {
+        if (useColumnar()) {
+            try {
+                byte[] payload = KlineColumnarPayload.encode(symbol, strategyName, seriesMap);
+                log.info("调用Python策略服务（列式格式），策略：{}，交易对：{}，{} 字节", strategyName, symbol, payload.length);
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(KlineColumnarPayload.MEDIA_TYPE);
+                headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+                ResponseEntity<StrategyResponseDTO> response = restTemplate.exchange(
+                        pythonServiceUrl + "/api/strategy/execute", HttpMethod.POST,
+                        new HttpEntity<>(payload, headers), StrategyResponseDTO.class);
+                return signalOf(response.getBody());
+            } catch (HttpClientErrorException e) {
+                HttpStatusCode status = e.getStatusCode();
+                if (status.value() != 415 && status.value() != 422 && status.value() != 400) {
+                    log.error("调用Python策略服务失败，HTTP状态码：{}", status, e);
+                    return null;
+                }
+                columnarRejectedAt = System.currentTimeMillis();
+                log.warn("Python策略服务不支持列式格式（HTTP {}），回退为 JSON", status.value());
+            } catch (RestClientException e) {
+                log.error("调用Python策略服务失败", e);
+                return null;
+            }
+        }
+        StrategyRequestDTO request = new StrategyRequestDTO();
+        request.setSymbol(symbol);
+        request.setStrategyName(strategyName);
+        request.setKlineData(jsonKlineData.get());
+        return executeStrategy(request);
+    }
+
     public boolean isHealthy() {
         try {
             String url = pythonServiceUrl + "/api/strategy/health";
@@ -116,4 +161,20 @@ public class PythonStrategyClientRestTemplate {
             return new String[0];
         }
     }
-}
\ No newline at end of file
+
+    private boolean useColumnar() {
+        if (!"columnar".equalsIgnoreCase(transport)) return false;
+        long rejectedAt = columnarRejectedAt;
+        return rejectedAt < 0 || System.currentTimeMillis() - rejectedAt > COLUMNAR_RETRY_MS;
+    }
+
+    private static PythonTradeSignalDTO signalOf(StrategyResponseDTO responseBody) {
+        log.info("Python策略服务响应：{}", responseBody);
+        if (responseBody != null && responseBody.isSuccess()) {
+            return responseBody.getData();
+        }
+        log.info("Python策略服务未生成交易信号或执行失败: {}",
+                responseBody != null ? responseBody.getMessage() : "响应为空");
+        return null;
+    }
+}
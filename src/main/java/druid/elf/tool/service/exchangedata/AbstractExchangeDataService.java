@@ -1,248 +1,352 @@
 package druid.elf.tool.service.exchangedata;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.circuit.CircuitBreaker;
+import druid.elf.tool.service.exchangedata.circuit.CircuitBreakerRegistry;
+import druid.elf.tool.service.exchangedata.circuit.CircuitState;
+import druid.elf.tool.service.exchangedata.error.ExchangeRequestException;
+import druid.elf.tool.service.exchangedata.ratelimit.ExchangeRateLimiter;
+import druid.elf.tool.service.exchangedata.ratelimit.ExchangeRateLimiterRegistry;
+import druid.elf.tool.service.exchangedata.ratelimit.RequestType;
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.kline.store.KlineStore;
+import druid.elf.tool.util.UtilForData;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBar;
-import org.ta4j.core.num.DecimalNum;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class AbstractExchangeDataService implements ExchangeDataService {
-    protected final OkHttpClient client;                    // HTTP客户端，用于发送网络请求
+    protected OkHttpClient client;                          // HTTP客户端，由注册中心按 交易所×代理 共享
+    protected final SettingsProxy proxySettings;            // 代理设置，可能为空
     protected final ObjectMapper objectMapper = new ObjectMapper(); // JSON解析工具
     private static final Random RANDOM = new Random();      // 随机数生成器，用于生成随机延迟和IP
     private static final int MAX_RETRIES = 4;               // 最大重试次数
-    private static final int BASE_DELAY_MS = 500;           // 基础延迟时间（毫秒）
-    private static final int RANDOM_DELAY_RANGE = 1500;     // 随机延迟范围（毫秒）
+    protected ExchangeRateLimiter rateLimiter;              // 当前出口IP的限流器
+    protected CircuitBreaker circuitBreaker;                // 当前出口的熔断器
+
+    @Autowired
+    private OkHttpClientRegistry clientRegistry;            // 共享客户端注册中心
+    @Autowired
+    private ExchangeRateLimiterRegistry rateLimiterRegistry; // 限流器注册中心
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;  // 熔断器注册中心
+    @Autowired
+    private ScheduledExecutorService exchangeRequestTimer;  // 限流等待与重试退避使用的定时器
+    @Autowired
+    private KlineRequestCoalescer requestCoalescer;         // 跨代理合并相同的在途K线请求
+    @Autowired
+    private KlineCache klineCache;                          // 最新K线缓存，下一根K线收盘前直接命中
+    @Autowired
+    private KlineStore klineStore;                          // K线持久化存储，区间回填优先读取
 
     /**
-     * 构造函数，初始化HTTP客户端并配置代理和TLS
+     * 构造函数，仅记录代理设置，HTTP客户端在依赖注入完成后从注册中心获取
      * @param proxySettings 代理设置，可能为空
      */
     protected AbstractExchangeDataService(SettingsProxy proxySettings) {
-        OkHttpClient.Builder builder = createBaseClientBuilder();
-
-        // 检查是否有有效的代理设置
-        if (proxySettings != null && isValidProxy(proxySettings)) {
-            log.debug("配置代理: {}:{}", proxySettings.getIp(), proxySettings.getPort());
-            configureProxy(builder, proxySettings); // 配置代理
-            configureTLS(builder);                  // 配置TLS加密
-        } else {
-            log.debug("未提供有效代理，使用默认配置");
-        }
-
-        this.client = builder.build();
-        log.debug("OkHttpClient 初始化完成");
+        this.proxySettings = proxySettings;
     }
 
     /**
-     * 创建基础的OkHttpClient构建器，设定超时和连接池
-     * @return 配置好的构建器
+     * 从注册中心获取 交易所×代理 对应的共享客户端和限流器
      */
-    private OkHttpClient.Builder createBaseClientBuilder() {
-        return new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)       // 连接超时60秒
-                .readTimeout(60, TimeUnit.SECONDS)          // 读取超时60秒
-                .writeTimeout(60, TimeUnit.SECONDS)         // 写入超时60秒
-                .retryOnConnectionFailure(true)             // 连接失败时自动重试
-                .connectionPool(new ConnectionPool(10, 5, TimeUnit.MINUTES)); // 连接池配置
+    @PostConstruct
+    protected void initClient() {
+        this.client = clientRegistry.getClient(getExchangeType(), proxySettings);
+        this.rateLimiter = rateLimiterRegistry.getLimiter(getExchangeType(), proxySettings);
+        this.circuitBreaker = circuitBreakerRegistry.getBreaker(getExchangeType(), proxySettings);
+        log.debug("{} 已绑定共享 OkHttpClient", getExchangeType());
     }
 
-    /**
-     * 验证代理设置是否有效
-     * @param proxySettings 代理设置
-     * @return 是否有效
-     */
-    private boolean isValidProxy(SettingsProxy proxySettings) {
-        if (proxySettings.getIp() == null || proxySettings.getPort() == null) {
-            log.warn("代理IP或端口为空");
-            return false;
-        }
-        try {
-            java.net.InetAddress.getByName(proxySettings.getIp()); // 检查IP是否可解析
-            return proxySettings.getPort() > 0 && proxySettings.getPort() <= 65535; // 验证端口范围
-        } catch (java.net.UnknownHostException e) {
-            log.warn("代理IP无效: {}", proxySettings.getIp());
-            return false;
-        }
+    @Override
+    public BarSeries getKlineData(String symbol, KlineInterval interval, int dataCount) throws IOException {
+        return await(getKlineDataAsync(symbol, interval, dataCount));
     }
 
-    /**
-     * 配置代理，包括类型和认证
-     * @param builder HTTP客户端构建器
-     * @param proxySettings 代理设置
-     */
-    private void configureProxy(OkHttpClient.Builder builder, SettingsProxy proxySettings) {
-        Proxy.Type proxyType = determineProxyType(proxySettings.getType()); // 确定代理类型
-        Proxy proxy = new Proxy(proxyType, new InetSocketAddress(proxySettings.getIp(), proxySettings.getPort()));
-        builder.proxy(proxy); // 设置代理
+    @Override
+    public BarSeries getKlineDataSince(String symbol, KlineInterval interval, long sinceOpenTime, int maxCount) throws IOException {
+        return await(getKlineDataSinceAsync(symbol, interval, sinceOpenTime, maxCount));
+    }
 
-        if (hasValidCredentials(proxySettings)) {
-            configureProxyAuthentication(builder, proxySettings); // 配置代理认证
-        }
+    @Override
+    public BarSeries getKlineRange(String symbol, KlineInterval interval, long from, long to) throws IOException {
+        return getKlineRange(new KlineRange(symbol, interval, from, to));
     }
 
-    /**
-     * 根据代理类型字符串确定代理类型
-     * @param type 代理类型字符串
-     * @return Proxy.Type 枚举值
-     */
-    private Proxy.Type determineProxyType(String type) {
-        if (type == null) return Proxy.Type.HTTP;
-        switch (type.toUpperCase()) {
-            case "SOCKET":
-            case "SOCKS":
-            case "SOCKS5":
-                return Proxy.Type.SOCKS;
-            case "HTTP":
-            case "HTTPS":
-                return Proxy.Type.HTTP;
-            default:
-                log.warn("不支持的代理类型: {}, 默认使用HTTP代理", type);
-                return Proxy.Type.HTTP;
+    @Override
+    public BarSeries getKlineRange(KlineRange range) throws IOException {
+        return await(getKlineRangeAsync(range));
+    }
+
+    @Override
+    public List<TradingPair> getTradingPairs() throws IOException {
+        return await(getTradingPairsAsync());
+    }
+
+    @Override
+    public List<TickerDTO> getTickers() throws IOException {
+        return await(getTickersAsync());
+    }
+
+    @Override
+    public CompletableFuture<BarSeries> getKlineDataAsync(String symbol, KlineInterval interval, int dataCount) {
+        BarSeries cached = klineCache.get(getExchangeType(), symbol, interval, dataCount);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
+        return requestCoalescer.latest(getExchangeType(), symbol, interval, dataCount, () -> {
+            CompletableFuture<BarSeries> request = fetchKlineData(symbol, interval, dataCount);
+            return UtilForData.propagateCancel(request.thenApply(series -> {
+                klineCache.put(getExchangeType(), symbol, interval, dataCount, series);
+                return series;
+            }), request);
+        });
     }
 
-    /**
-     * 检查代理是否需要认证
-     * @param proxySettings 代理设置
-     * @return 是否有有效的用户名和密码
-     */
-    private boolean hasValidCredentials(SettingsProxy proxySettings) {
-        return proxySettings.getUsername() != null && !proxySettings.getUsername().isEmpty() &&
-                proxySettings.getPassword() != null && !proxySettings.getPassword().isEmpty();
+    @Override
+    public CompletableFuture<BarSeries> getKlineDataSinceAsync(String symbol, KlineInterval interval, long sinceOpenTime, int maxCount) {
+        return requestCoalescer.since(getExchangeType(), symbol, interval, sinceOpenTime, maxCount,
+                () -> fetchKlineDataSince(symbol, interval, sinceOpenTime, maxCount));
     }
 
     /**
-     * 配置代理认证
-     * @param builder HTTP客户端构建器
-     * @param proxySettings 代理设置
+     * 实际发出最新K线请求，不经过请求合并
      */
-    private void configureProxyAuthentication(OkHttpClient.Builder builder, SettingsProxy proxySettings) {
-        log.debug("配置代理认证: 用户名 {}", proxySettings.getUsername().substring(0, Math.min(2, proxySettings.getUsername().length())) + "***");
-        builder.proxyAuthenticator((route, response) -> {
-            String credential = Credentials.basic(proxySettings.getUsername(), proxySettings.getPassword());
-            return response.request().newBuilder()
-                    .header("Proxy-Authorization", credential)
-                    .build();
-        });
+    private CompletableFuture<BarSeries> fetchKlineData(String symbol, KlineInterval interval, int dataCount) {
+        String intervalSymbol = interval.getInterval(this.getExchangeType());
+        String url = buildUrl(symbol, intervalSymbol, dataCount);
+        CompletableFuture<KlineBuffer> request = executeRequestAsync(url, RequestType.KLINE,
+                body -> parseKlineData(body.byteStream(), dataCount));
+        return UtilForData.propagateCancel(request.thenApply(buffer -> toBarSeries(buffer, interval)), request);
     }
 
     /**
-     * 配置TLS加密
-     * @param builder HTTP客户端构建器
+     * 实际发出增量K线请求，不经过请求合并
      */
-    private void configureTLS(OkHttpClient.Builder builder) {
-        try {
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            X509TrustManager trustManager = getDefaultTrustManager();
-            sslContext.init(null, new TrustManager[]{trustManager}, new SecureRandom());
-            builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager);
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            log.error("TLS配置失败: {}", e.getMessage(), e);
-            throw new RuntimeException("无法初始化TLS配置", e);
+    private CompletableFuture<BarSeries> fetchKlineDataSince(String symbol, KlineInterval interval, long sinceOpenTime, int maxCount) {
+        String intervalSymbol = interval.getInterval(this.getExchangeType());
+        String url = buildSinceUrl(symbol, intervalSymbol, sinceOpenTime, maxCount);
+        CompletableFuture<KlineBuffer> request = executeRequestAsync(url, RequestType.KLINE,
+                body -> parseKlineData(body.byteStream(), maxCount));
+        return UtilForData.propagateCancel(request.thenApply(buffer -> toBarSeries(buffer, interval, sinceOpenTime)), request);
+    }
+
+    @Override
+    public CompletableFuture<BarSeries> getKlineRangeAsync(KlineRange range) {
+        String intervalSymbol = range.getInterval().getInterval(this.getExchangeType());
+        int pageSize = getRangePageSize();
+        List<long[]> chunks = new ArrayList<>();
+        int stored = 0;
+        for (long[] chunk : range.pendingChunks(pageSize)) {
+            // 已连续保存在K线存储中的分页直接读取，不再请求交易所
+            if (klineStore.covers(getExchangeType(), range.getSymbol(), range.getInterval(), chunk[0], chunk[1])) {
+                range.complete(chunk[0], chunk[1],
+                        klineStore.readRange(getExchangeType(), range.getSymbol(), range.getInterval(), chunk[0], chunk[1]));
+                stored++;
+            } else {
+                chunks.add(chunk);
+            }
+        }
+        log.info("{} 区间K线回填: {} {}, 待拉取分页 {} 个，存储命中 {} 个",
+                getExchangeType(), range.getSymbol(), range.getInterval(), chunks.size(), stored);
+
+        // 各分页同时发出，实际发送节奏由限流器的预算预留控制
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunks.size());
+        BarSeries[] fetched = new BarSeries[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            int index = i;
+            long start = chunks.get(i)[0];
+            long end = chunks.get(i)[1];
+            String url = buildRangeUrl(range.getSymbol(), intervalSymbol, start, end - 1, pageSize);
+            futures.add(executeRequestAsync(url, RequestType.KLINE, body -> parseKlineData(body.byteStream(), pageSize))
+                    .thenAccept(buffer -> {
+                        BarSeries series = toBarSeries(buffer, range.getInterval(), start);
+                        range.complete(start, end, series);
+                        fetched[index] = series;
+                    }));
         }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((ignored, error) -> {
+            storeChunks(range, chunks, fetched);
+            if (error == null) return range.toBarSeries();
+            int failed = (int) futures.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            throw new CompletionException(new KlineRangeIncompleteException(range, failed, cause));
+        });
     }
 
     /**
-     * 获取默认的X509信任管理器
-     * @return X509TrustManager
-     * @throws NoSuchAlgorithmException 如果算法不可用
+     * 把拉取成功的分页按开盘时间升序合并后一次写入K线存储。
+     * 分页完成顺序不确定，逐页写入时早于已保存部分的分页每次都会触发段文件重写
+     * @param chunks 按时间升序排列的分页
+     * @param fetched 与分页对应的K线，拉取失败的为 null
      */
-    private X509TrustManager getDefaultTrustManager() throws NoSuchAlgorithmException {
-        javax.net.ssl.TrustManagerFactory tmf = javax.net.ssl.TrustManagerFactory
-                .getInstance(javax.net.ssl.TrustManagerFactory.getDefaultAlgorithm());
-        try {
-            tmf.init((java.security.KeyStore) null);
-            for (TrustManager tm : tmf.getTrustManagers()) {
-                if (tm instanceof X509TrustManager) {
-                    log.debug("成功获取默认X509TrustManager");
-                    return (X509TrustManager) tm;
-                }
+    private void storeChunks(KlineRange range, List<long[]> chunks, BarSeries[] fetched) {
+        List<Bar> bars = new ArrayList<>();
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < fetched.length; i++) {
+            BarSeries series = fetched[i];
+            if (series == null || series.isEmpty()) continue;
+            for (int j = KlineBars.firstIndex(series); j <= series.getEndIndex(); j++) {
+                Bar bar = series.getBar(j);
+                long openTime = KlineBars.openTimeMillis(bar);
+                if (openTime < chunks.get(i)[0] || openTime >= chunks.get(i)[1] || openTime <= last) continue;
+                bars.add(bar);
+                last = openTime;
             }
-            throw new NoSuchAlgorithmException("No X509TrustManager found");
-        } catch (Exception e) {
-            log.error("获取TrustManager失败: {}", e.getMessage(), e);
-            throw new RuntimeException(e);
         }
+        if (bars.isEmpty()) return;
+        klineStore.append(getExchangeType(), range.getSymbol(), range.getInterval(),
+                KlineBars.newSeries(range.getSymbol() + "|" + range.getInterval().name(), bars));
     }
 
     @Override
-    public BarSeries getKlineData(String symbol, KlineInterval interval, int dataCount) throws IOException {
-        String intervalSymbol = interval.getInterval(this.getExchangeType());
-        String url = buildUrl(symbol, intervalSymbol, dataCount);
-        return parseKlineData(executeRequest(url));
+    public CompletableFuture<List<TradingPair>> getTradingPairsAsync() {
+        String url = buildTradingPairsUrl();
+        return executeRequestAsync(url, RequestType.TRADING_PAIRS, body -> fetchTradingPairs(body.string()));
     }
 
     @Override
-    public List<TradingPair> getTradingPairs() throws IOException {
-        String url = buildTradingPairsUrl();
-        return fetchTradingPairs(executeRequest(url));
+    public CompletableFuture<List<TickerDTO>> getTickersAsync() {
+        String url = buildTickersUrl();
+        return executeRequestAsync(url, RequestType.TICKERS, body -> fetchTickers(body.string()));
     }
 
     /**
-     * 执行HTTP请求，包含重试逻辑
+     * 执行HTTP请求，包含限流和重试逻辑，阻塞等待结果
      * @param url 请求地址
-     * @return 响应体的字符串形式
+     * @param requestType 请求类型，决定限流权重
+     * @param reader 响应体读取器，在响应关闭前直接消费响应流
+     * @return 读取器的结果
      * @throws IOException 如果请求失败
      */
-    protected String executeRequest(String url) throws IOException {
-        applyRandomDelay(); // 应用随机延迟
+    protected <T> T executeRequest(String url, RequestType requestType, ResponseReader<T> reader) throws IOException {
+        return await(executeRequestAsync(url, requestType, reader));
+    }
+
+    /**
+     * 异步执行HTTP请求：通过 OkHttp enqueue 发送，限流等待与重试退避都交给定时器调度，不占用调用线程。
+     * 取消返回的 Future 会同时取消正在进行的请求和尚未执行的重试
+     * @param url 请求地址
+     * @param requestType 请求类型，决定限流权重
+     * @param reader 响应体读取器，在响应关闭前直接消费响应流
+     * @return 读取器结果的 Future
+     */
+    protected <T> CompletableFuture<T> executeRequestAsync(String url, RequestType requestType, ResponseReader<T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
         Request request = buildRequest(url); // 构建请求
         log.info("{}请求地址: {}", getExchangeType(), url);
+        scheduleAttempt(request, requestType, reader, 1, 0L, result);
+        return result;
+    }
+
+    /**
+     * 按限流预算安排一次请求尝试：预算充足时立即发送，否则在定时器上延后发送
+     */
+    private <T> void scheduleAttempt(Request request, RequestType requestType, ResponseReader<T> reader,
+                                     int attempt, long delay, CompletableFuture<T> result) {
+        if (result.isDone()) return; // 已被取消
+        Runnable attemptTask = () -> {
+            if (result.isDone()) return;
+            long wait = rateLimiter.reserve(requestType); // 按权重占用限流预算，预算充足时不等待
+            if (wait > 0) {
+                log.debug("{} 限流预算不足，{}ms 后发送", getExchangeType(), wait);
+                exchangeRequestTimer.schedule(() -> sendAttempt(request, requestType, reader, attempt, result), wait, TimeUnit.MILLISECONDS);
+            } else {
+                sendAttempt(request, requestType, reader, attempt, result);
+            }
+        };
+        if (delay > 0) {
+            exchangeRequestTimer.schedule(attemptTask, delay, TimeUnit.MILLISECONDS);
+        } else {
+            attemptTask.run();
+        }
+    }
+
+    /**
+     * 发送一次请求，失败时根据错误类型安排重试
+     */
+    private <T> void sendAttempt(Request request, RequestType requestType, ResponseReader<T> reader,
+                                 int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) return;
+        if (!circuitBreaker.tryAcquire()) {
+            // 该出口已熔断，不再发出请求
+            result.completeExceptionally(ExchangeRequestException.circuitOpen(
+                    getExchangeType(), circuitBreaker.getKey(), circuitBreaker.remainingOpenMillis()));
+            return;
+        }
+        Call call = client.newCall(request);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) call.cancel(); // 取消传递到正在进行的请求
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    log.debug("收到响应，状态码: {}", response.code());
+                    rateLimiter.onResponse(response); // 根据用量响应头校正预算
+                    if (response.isSuccessful()) circuitBreaker.onSuccess();
+                    result.complete(processResponse(response, reader)); // 处理响应
+                } catch (IOException e) {
+                    onFailure(call, e);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
 
-        IOException lastException = null;
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try (Response response = client.newCall(request).execute()) {
-                log.debug("收到响应，状态码: {}", response.code());
-                return processResponse(response, attempt); // 处理响应
-            } catch (IOException e) {
-                lastException = e;
-                if (!shouldRetry(e, attempt)) {
-                    log.error("非可重试错误: {}", e.getMessage(), e);
-                    throw e;
+            @Override
+            public void onFailure(Call call, IOException e) {
+                ExchangeRequestException error = ExchangeRequestException.classify(getExchangeType(), e);
+                circuitBreaker.onFailure(error);
+                if (result.isDone()) return;
+                if (!shouldRetry(error, attempt)) {
+                    log.error("请求失败，不再重试: {}", error.getMessage());
+                    result.completeExceptionally(error);
+                    return;
                 }
-                long retryDelay = calculateRetryDelay(attempt, e); // 计算重试延迟
+                long retryDelay = calculateRetryDelay(attempt, error); // 计算重试延迟
                 log.warn("请求失败，第 {} 次重试，等待 {}ms: {}", attempt, retryDelay, e.getMessage());
-                sleep(retryDelay); // 执行延迟
+                scheduleAttempt(request, requestType, reader, attempt + 1, retryDelay, result);
             }
-        }
-        throw new IOException("请求失败，超出重试次数", lastException);
+        });
     }
 
     /**
-     * 在请求前应用随机延迟
-     * @throws IOException 如果线程中断
+     * 阻塞等待异步结果，并还原为同步接口的异常语义
+     * @throws IOException 如果请求失败或等待被中断
      */
-    private void applyRandomDelay() throws IOException {
-        int delay = BASE_DELAY_MS + RANDOM.nextInt(RANDOM_DELAY_RANGE);
-        log.debug("请求前随机等待 {}ms", delay);
+    private <T> T await(CompletableFuture<T> future) throws IOException {
         try {
-            Thread.sleep(delay);
+            return future.get();
         } catch (InterruptedException e) {
+            future.cancel(true);
             Thread.currentThread().interrupt();
-            throw new IOException("随机延迟被中断", e);
+            throw new IOException("请求等待被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) throw ioException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(cause);
         }
     }
 
@@ -267,98 +371,48 @@ public abstract class AbstractExchangeDataService implements ExchangeDataService
     /**
      * 处理HTTP响应
      * @param response 响应对象
-     * @param attempt 当前尝试次数
-     * @return 响应体的字符串形式
-     * @throws IOException 如果响应处理失败
+     * @param reader 响应体读取器
+     * @return 读取器的结果
+     * @throws ExchangeRequestException 如果响应状态码表示失败
+     * @throws IOException 如果响应体读取失败
      */
-    private String processResponse(Response response, int attempt) throws IOException {
+    private <T> T processResponse(Response response, ResponseReader<T> reader) throws IOException {
         if (!response.isSuccessful()) {
-            handleUnsuccessfulResponse(response, attempt); // 处理失败响应
+            throw ExchangeRequestException.fromResponse(getExchangeType(), response); // 按状态码分类
         }
         ResponseBody responseBody = response.body();
         if (responseBody == null) {
             throw new IOException("响应体为空");
         }
-        String bodyString = responseBody.string();
-        log.info("Response from {}: {}", response.request().url(), truncateResponse(bodyString));
-        return bodyString;
-    }
-
-    /**
-     * 处理不成功的响应
-     * @param response 响应对象
-     * @param attempt 当前尝试次数
-     * @throws IOException 根据状态码抛出异常
-     */
-    private void handleUnsuccessfulResponse(Response response, int attempt) throws IOException {
-        int code = response.code();
-        if (code == 429 && attempt < MAX_RETRIES) {
-            throw new IOException("Too Many Requests (429)");
-        }
-        if (code == 403 || code == 409) {
-            throw new IOException("Forbidden or Conflict (" + code + ")");
-        }
-        throw new IOException("请求失败: " + code + " " + response.message());
+        log.info("Response from {}: {} bytes", response.request().url(), responseBody.contentLength());
+        return reader.read(responseBody);
     }
 
     /**
-     * 判断是否需要重试
-     * @param e 异常对象
+     * 判断是否需要重试：按错误分类决定，熔断打开后不再重试
+     * @param e 已分类的异常
      * @param attempt 当前尝试次数
      * @return 是否继续重试
      */
-    private boolean shouldRetry(IOException e, int attempt) {
-        if (attempt >= MAX_RETRIES) return false;
-        String errorMsg = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
-        return errorMsg.contains("remote host terminated the handshake") || // 远程主机终止握手
-                errorMsg.contains("ssl peer shut down incorrectly") ||      // SSL异常
-                e instanceof java.net.SocketTimeoutException ||             // 超时
-                e instanceof java.net.ConnectException ||                   // 连接异常
-                errorMsg.contains("(429)") ||                               // 限流
-                errorMsg.contains("(403)") ||                               // 禁止访问
-                errorMsg.contains("(409)");                                 // 冲突
+    private boolean shouldRetry(ExchangeRequestException e, int attempt) {
+        return attempt < MAX_RETRIES
+                && e.getCategory().isRetryable()
+                && circuitBreaker.getState() != CircuitState.OPEN;
     }
 
     /**
-     * 计算重试延迟时间
+     * 计算重试延迟时间。限流的暂停由限流器按 Retry-After 处理，这里只做短暂退避
      * @param attempt 当前尝试次数
-     * @param e 异常对象
+     * @param e 已分类的异常
      * @return 延迟时间（毫秒）
      */
-    private long calculateRetryDelay(int attempt, IOException e) {
+    private long calculateRetryDelay(int attempt, ExchangeRequestException e) {
         double factor = 1 + 0.5 * (attempt - 1); // 指数退避因子：1, 1.5, 2, 2.5
-        String errorMsg = e.getMessage().toLowerCase();
-        if (errorMsg.contains("remote host terminated the handshake") ||
-                errorMsg.contains("(403)") || errorMsg.contains("(409)")) {
-            return (long) ((10000 + RANDOM.nextInt(20000)) * factor); // 10-30秒
-        }
-        if (errorMsg.contains("(429)")) {
-            return (long) ((500 + RANDOM.nextInt(1000)) * factor); // 0.5-1.5秒
-        }
-        return (long) ((1000 + RANDOM.nextInt(2000)) * factor); // 1-3秒
-    }
-
-    /**
-     * 执行线程睡眠
-     * @param delay 睡眠时间（毫秒）
-     * @throws IOException 如果睡眠被中断
-     */
-    private void sleep(long delay) throws IOException {
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            log.error("重试等待被中断: {}", e.getMessage(), e);
-            throw new IOException("重试等待被中断", e);
-        }
-    }
-
-    /**
-     * 截断响应字符串，便于日志记录
-     * @param response 响应字符串
-     * @return 截断后的字符串
-     */
-    private String truncateResponse(String response) {
-        return response.length() > 200 ? response.substring(0, 200) + "..." : response;
+        return switch (e.getCategory()) {
+            case RATE_LIMITED -> (long) ((500 + RANDOM.nextInt(1000)) * factor);   // 0.5-1.5秒
+            case TRANSPORT -> (long) ((2000 + RANDOM.nextInt(4000)) * factor);     // 2-6秒
+            default -> (long) ((1000 + RANDOM.nextInt(2000)) * factor);            // 1-3秒
+        };
     }
 
     /**
@@ -374,26 +428,54 @@ public abstract class AbstractExchangeDataService implements ExchangeDataService
     }
 
     protected abstract String buildUrl(String symbol, String interval, int dataCount);
-    protected abstract BarSeries parseKlineData(String responseBody) throws IOException;
+    protected abstract String buildSinceUrl(String symbol, String interval, long sinceOpenTime, int maxCount);
+    protected abstract String buildRangeUrl(String symbol, String interval, long startOpenTime, long endOpenTime, int limit);
+    protected abstract KlineBuffer parseKlineData(InputStream in, int expectedCount) throws IOException;
     protected abstract String buildTradingPairsUrl();
     protected abstract List<TradingPair> fetchTradingPairs(String responseBody) throws IOException;
+    protected abstract String buildTickersUrl();
+    protected abstract List<TickerDTO> fetchTickers(String responseBody) throws IOException;
+
+    /**
+     * 读取行情中的数值字段，字段缺失或为空时返回 null
+     */
+    protected static BigDecimal decimalOf(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        String text = node.asText();
+        return text.isEmpty() ? null : new BigDecimal(text);
+    }
+
+    /**
+     * 区间回填时单页最多K线条数
+     */
+    protected int getRangePageSize() {
+        return 1000;
+    }
 
     /**
-     * 构建K线数据条目
-     * @param timestamp 时间戳
-     * @param open 开盘价
-     * @param high 最高价
-     * @param low 最低价
-     * @param close 收盘价
-     * @param volume 交易量
-     * @return BaseBar对象
+     * 将列式缓冲区转换为 BarSeries
+     * @param buffer 按时间从旧到新排列的K线缓冲区
+     * @param interval K线周期
+     * @return BarSeries 对象
      */
-    protected BaseBar buildBar(long timestamp, double open, double high, double low, double close, double volume) {
-        ZonedDateTime endTime = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault());
-        return new BaseBar(
-                Duration.ofMinutes(1), endTime,
-                DecimalNum.valueOf(open), DecimalNum.valueOf(high), DecimalNum.valueOf(low),
-                DecimalNum.valueOf(close), DecimalNum.valueOf(volume), DecimalNum.valueOf(0.0), 0L
-        );
+    protected BarSeries toBarSeries(KlineBuffer buffer, KlineInterval interval) {
+        return toBarSeries(buffer, interval, Long.MIN_VALUE);
+    }
+
+    /**
+     * 将列式缓冲区中开盘时间不早于指定时间的K线转换为 BarSeries
+     * @param buffer 按时间从旧到新排列的K线缓冲区
+     * @param interval K线周期
+     * @param sinceOpenTime 起始开盘时间（毫秒，包含）
+     * @return BarSeries 对象
+     */
+    protected BarSeries toBarSeries(KlineBuffer buffer, KlineInterval interval, long sinceOpenTime) {
+        BarSeries series = KlineBars.newSeries("unnamed_series");
+        for (int i = 0; i < buffer.size(); i++) {
+            if (buffer.getOpenTime(i) < sinceOpenTime) continue; // 部分交易所的起始参数为开区间或按窗口对齐，这里统一过滤
+            KlineBars.append(series, buffer.getOpenTime(i), interval.getDuration(), buffer.getOpen(i), buffer.getHigh(i),
+                    buffer.getLow(i), buffer.getClose(i), buffer.getVolume(i));
+        }
+        return series;
     }
 }
\ No newline at end of file
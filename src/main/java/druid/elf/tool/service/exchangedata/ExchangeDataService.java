@@ -1,10 +1,12 @@
 package druid.elf.tool.service.exchangedata;
 
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.KlineInterval;
 import org.ta4j.core.BarSeries;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import druid.elf.tool.enums.ExchangeType;
 
@@ -23,11 +25,86 @@ public interface ExchangeDataService {
      */
     BarSeries getKlineData(String symbol, KlineInterval interval, int dataCount) throws IOException;
 
+    /**
+     * 获取指定开盘时间（包含）之后的K线数据，用于增量更新已持有的序列
+     *
+     * @param symbol        交易对，例如 "BTC-USDT"
+     * @param interval      K线时间周期
+     * @param sinceOpenTime 起始开盘时间（毫秒，包含）
+     * @param maxCount      最多返回的数据条数
+     * @return BarSeries 对象，按时间从旧到新排列
+     * @throws IOException 如果网络请求或解析失败，则抛出异常
+     */
+    BarSeries getKlineDataSince(String symbol, KlineInterval interval, long sinceOpenTime, int maxCount) throws IOException;
+
+    /**
+     * 获取开盘时间在 [from, to) 内的历史K线，区间按单页条数切分后在限流预算内并发拉取，按开盘时间拼接去重
+     *
+     * @param symbol   交易对，例如 "BTC-USDT"
+     * @param interval K线时间周期
+     * @param from     起始开盘时间（毫秒，包含）
+     * @param to       结束开盘时间（毫秒，不包含）
+     * @return BarSeries 对象，按时间从旧到新排列
+     * @throws KlineRangeIncompleteException 如果部分分页失败，异常中携带可续传的进度
+     * @throws IOException 如果网络请求或解析失败，则抛出异常
+     */
+    BarSeries getKlineRange(String symbol, KlineInterval interval, long from, long to) throws IOException;
+
+    /**
+     * 拉取区间中尚未完成的分页，用于部分失败后的续传
+     *
+     * @see #getKlineRange(String, KlineInterval, long, long)
+     */
+    BarSeries getKlineRange(KlineRange range) throws IOException;
+
     /**
      * 获取交易所的交易对信息
      */
     List<TradingPair> getTradingPairs() throws IOException;
 
+    /**
+     * 一次请求获取全部现货交易对的24小时行情
+     *
+     * @return 行情列表，交易对名称与 {@link #getTradingPairs()} 一致
+     * @throws IOException 如果网络请求或解析失败，则抛出异常
+     */
+    List<TickerDTO> getTickers() throws IOException;
+
+    /**
+     * 异步获取K线数据，请求通过回调完成，限流等待与重试退避在定时器上调度，不占用调用线程
+     *
+     * @see #getKlineData(String, KlineInterval, int)
+     */
+    CompletableFuture<BarSeries> getKlineDataAsync(String symbol, KlineInterval interval, int dataCount);
+
+    /**
+     * 异步获取指定开盘时间之后的K线数据
+     *
+     * @see #getKlineDataSince(String, KlineInterval, long, int)
+     */
+    CompletableFuture<BarSeries> getKlineDataSinceAsync(String symbol, KlineInterval interval, long sinceOpenTime, int maxCount);
+
+    /**
+     * 异步拉取区间中尚未完成的分页
+     *
+     * @see #getKlineRange(KlineRange)
+     */
+    CompletableFuture<BarSeries> getKlineRangeAsync(KlineRange range);
+
+    /**
+     * 异步获取交易所的交易对信息
+     *
+     * @see #getTradingPairs()
+     */
+    CompletableFuture<List<TradingPair>> getTradingPairsAsync();
+
+    /**
+     * 异步获取全部现货交易对的24小时行情
+     *
+     * @see #getTickers()
+     */
+    CompletableFuture<List<TickerDTO>> getTickersAsync();
+
     /**
      * 获取交易所类型
      *
@@ -3,12 +3,15 @@ package druid.elf.tool.service.exchangedata;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.enums.ExchangeType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 交易所数据服务构造者，使用构造者模式动态创建服务实例
+ * 交易所数据服务构造者，使用构造者模式动态创建服务实例。
+ * 实例按 交易所×代理 缓存复用，其HTTP客户端来自 {@link OkHttpClientRegistry}
  */
 @Component
 public class ExchangeDataServiceBuilder {
@@ -18,6 +21,8 @@ public class ExchangeDataServiceBuilder {
     @Autowired
     private ApplicationContext applicationContext; // Spring 上下文，用于获取容器中的实例
 
+    private final Map<String, ExchangeDataService> instances = new ConcurrentHashMap<>(); // 交易所×代理 -> 服务实例
+
     /**
      * 默认构造函数
      */
@@ -59,15 +64,27 @@ public class ExchangeDataServiceBuilder {
             throw new IllegalArgumentException("交易所类型不能为空");
         }
 
+        return instances.computeIfAbsent(OkHttpClientRegistry.keyOf(exchangeType, proxySettings),
+                key -> createInstance(exchangeType, proxySettings));
+    }
+
+    /**
+     * 使用反射创建新实例，并交给Spring完成依赖注入和初始化（绑定共享客户端）
+     */
+    private ExchangeDataService createInstance(ExchangeType exchangeType, SettingsProxy proxySettings) {
         // 从Spring容器中获取所有实现了ExchangeDataService的实例
         Map<String, ExchangeDataService> services = applicationContext.getBeansOfType(ExchangeDataService.class);
-        for (ExchangeDataService service : services.values()) {
+        for (Map.Entry<String, ExchangeDataService> entry : services.entrySet()) {
+            ExchangeDataService service = entry.getValue();
             if (service.getExchangeType() == exchangeType) {
                 // 使用反射创建新实例，传入SettingsProxy参数
                 try {
-                    return service.getClass()
+                    ExchangeDataService instance = service.getClass()
                             .getConstructor(SettingsProxy.class)
                             .newInstance(proxySettings);
+                    AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+                    beanFactory.autowireBean(instance);
+                    return (ExchangeDataService) beanFactory.initializeBean(instance, entry.getKey() + "#" + OkHttpClientRegistry.keyOf(exchangeType, proxySettings));
                 } catch (Exception e) {
                     throw new RuntimeException("创建 " + exchangeType + " 服务实例失败", e);
                 }
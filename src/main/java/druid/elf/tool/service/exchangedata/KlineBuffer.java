@@ -0,0 +1,129 @@
+package druid.elf.tool.service.exchangedata;
+
+import java.util.Arrays;
+
+/**
+ * 列式K线缓冲区，按 开盘时间/开/高/低/收/量 分列存放在基本类型数组中，按时间从旧到新排列。
+ * 倒序模式用于"最新在前"的交易所响应：数据从数组尾部向前填充，解析完成后无需再反转
+ */
+public class KlineBuffer {
+    private long[] openTime;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int start;               // 有效数据起始下标（包含）
+    private int end;                 // 有效数据结束下标（不包含）
+    private final boolean reversed;  // 是否从尾部向前填充
+
+    private KlineBuffer(int capacity, boolean reversed) {
+        int size = Math.max(capacity, 1);
+        this.openTime = new long[size];
+        this.open = new double[size];
+        this.high = new double[size];
+        this.low = new double[size];
+        this.close = new double[size];
+        this.volume = new double[size];
+        this.reversed = reversed;
+        this.start = reversed ? size : 0;
+        this.end = reversed ? size : 0;
+    }
+
+    /**
+     * 顺序填充的缓冲区，适用于"最旧在前"的数据
+     */
+    public static KlineBuffer ascending(int capacity) {
+        return new KlineBuffer(capacity, false);
+    }
+
+    /**
+     * 倒序填充的缓冲区，适用于"最新在前"的数据
+     */
+    public static KlineBuffer descending(int capacity) {
+        return new KlineBuffer(capacity, true);
+    }
+
+    /**
+     * 按到达顺序追加一条K线
+     */
+    public void add(long time, double o, double h, double l, double c, double v) {
+        int index;
+        if (reversed) {
+            if (start == 0) grow();
+            index = --start;
+        } else {
+            if (end == openTime.length) grow();
+            index = end++;
+        }
+        openTime[index] = time;
+        open[index] = o;
+        high[index] = h;
+        low[index] = l;
+        close[index] = c;
+        volume[index] = v;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    public boolean isEmpty() {
+        return end == start;
+    }
+
+    public long getOpenTime(int i) {
+        return openTime[start + i];
+    }
+
+    public double getOpen(int i) {
+        return open[start + i];
+    }
+
+    public double getHigh(int i) {
+        return high[start + i];
+    }
+
+    public double getLow(int i) {
+        return low[start + i];
+    }
+
+    public double getClose(int i) {
+        return close[start + i];
+    }
+
+    public double getVolume(int i) {
+        return volume[start + i];
+    }
+
+    /**
+     * 容量翻倍；倒序模式下保持数据靠右对齐
+     */
+    private void grow() {
+        int oldLength = openTime.length;
+        int newLength = oldLength * 2;
+        int shift = reversed ? newLength - oldLength : 0;
+        openTime = copy(openTime, newLength, shift);
+        open = copy(open, newLength, shift);
+        high = copy(high, newLength, shift);
+        low = copy(low, newLength, shift);
+        close = copy(close, newLength, shift);
+        volume = copy(volume, newLength, shift);
+        start += shift;
+        end += shift;
+    }
+
+    private long[] copy(long[] source, int newLength, int shift) {
+        if (shift == 0) return Arrays.copyOf(source, newLength);
+        long[] target = new long[newLength];
+        System.arraycopy(source, 0, target, shift, source.length);
+        return target;
+    }
+
+    private double[] copy(double[] source, int newLength, int shift) {
+        if (shift == 0) return Arrays.copyOf(source, newLength);
+        double[] target = new double[newLength];
+        System.arraycopy(source, 0, target, shift, source.length);
+        return target;
+    }
+}
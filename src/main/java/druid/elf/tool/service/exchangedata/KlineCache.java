@@ -0,0 +1,155 @@
+package druid.elf.tool.service.exchangedata;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.ColumnarBarSeries;
+import druid.elf.tool.service.kline.KlineBars;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.BarSeries;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最新K线读穿缓存：按 交易所×交易对×周期 缓存 {@link ExchangeDataService#getKlineData} 的结果，
+ * 条目在该周期下一根K线收盘时过期，而不是固定TTL，收盘前重复的请求（看板、手动重跑、重叠的任务周期）直接命中。
+ * 缓存按估算内存占用设置上限，由 Caffeine 按 W-TinyLFU 淘汰
+ */
+@Slf4j
+@Component
+public class KlineCache {
+
+    private static final long COLUMNAR_BYTES_PER_BAR = 56L;  // 列式序列每根K线的占用：long + 6 个 double
+    private static final long OBJECT_BYTES_PER_BAR = 400L;   // BaseBar 对象及其 Num、时间对象的估算占用
+
+    @Value("${kline.cache.enabled:true}")
+    private boolean enabled;        // 是否启用缓存
+    @Value("${kline.cache.max-memory-mb:64}")
+    private long maxMemoryMb;       // 缓存估算内存上限（MB）
+
+    private Clock clock = Clock.systemUTC(); // 时间来源，测试中可替换
+    private final StatsCounter stats = new ConcurrentStatsCounter(); // 深度不足的查询也计为未命中
+    private Cache<String, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .maximumWeight(maxMemoryMb * 1024 * 1024)
+                .weigher((String key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, entry.weight))
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expireAt - clock.millis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats(() -> stats)
+                .build();
+    }
+
+    /**
+     * 查询缓存，缓存的条数不少于所需条数时返回最新 dataCount 根K线的副本
+     * @return 命中时返回序列副本，未命中返回 null
+     */
+    public BarSeries get(ExchangeType exchangeType, String symbol, KlineInterval interval, int dataCount) {
+        if (!enabled) return null;
+        String key = keyOf(exchangeType, symbol, interval);
+        Entry cached = cache.asMap().get(key); // 不计入命中统计
+        if (cached == null || cached.requestedCount < dataCount) {
+            stats.recordMisses(1);
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key); // 计入命中并更新访问频率
+        if (entry == null || entry.requestedCount < dataCount) return null;
+        return KlineBars.tail(entry.series, dataCount);
+    }
+
+    /**
+     * 写入缓存，条目在最后一根K线所在周期收盘时过期。序列写入后不应再被修改
+     * @param dataCount 请求的K线条数
+     * @param series 请求结果，最后一根可能是仍在形成中的K线
+     */
+    public void put(ExchangeType exchangeType, String symbol, KlineInterval interval, int dataCount, BarSeries series) {
+        if (!enabled || series.isEmpty()) return;
+        String key = keyOf(exchangeType, symbol, interval);
+        Entry existing = cache.asMap().get(key); // 不计入命中统计
+        if (existing != null && existing.requestedCount > dataCount
+                && KlineBars.lastOpenTimeMillis(existing.series) >= KlineBars.lastOpenTimeMillis(series)) {
+            return; // 已缓存更深的同一周期结果
+        }
+        long expireAt = nextCloseTime(KlineBars.lastOpenTimeMillis(series), interval.getDuration().toMillis(), clock.millis());
+        long bytesPerBar = series instanceof ColumnarBarSeries ? COLUMNAR_BYTES_PER_BAR : OBJECT_BYTES_PER_BAR;
+        cache.put(key, new Entry(series, dataCount, expireAt, series.getBarCount() * bytesPerBar));
+    }
+
+    /**
+     * 缓存统计，供监控接口展示
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        if (cache == null) return result;
+        CacheStats stats = cache.stats();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxWeightBytes", maxMemoryMb * 1024 * 1024);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * 最后一根K线之后第一个晚于当前时间的收盘时间
+     */
+    static long nextCloseTime(long lastOpenTime, long intervalMillis, long now) {
+        long closeTime = lastOpenTime + intervalMillis;
+        if (closeTime <= now) {
+            closeTime += ((now - closeTime) / intervalMillis + 1) * intervalMillis;
+        }
+        return closeTime;
+    }
+
+    private static String keyOf(ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        return exchangeType.name() + "|" + symbol + "|" + interval.name();
+    }
+
+    /**
+     * 缓存条目：请求结果、请求条数、过期时间和估算占用
+     */
+    private static final class Entry {
+        private final BarSeries series;
+        private final int requestedCount;
+        private final long expireAt;
+        private final long weight;
+
+        private Entry(BarSeries series, int requestedCount, long expireAt, long weight) {
+            this.series = series;
+            this.requestedCount = requestedCount;
+            this.expireAt = expireAt;
+            this.weight = weight;
+        }
+    }
+}
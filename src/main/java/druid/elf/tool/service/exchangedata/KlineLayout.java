@@ -0,0 +1,46 @@
+package druid.elf.tool.service.exchangedata;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 交易所K线响应的结构描述，供 {@link KlineStreamDecoder} 流式解析使用
+ */
+@Data
+@Accessors(chain = true)
+public class KlineLayout {
+    private String[] path = new String[0];  // 从根对象到K线数组的字段路径，为空表示根节点即为数组
+    private boolean newestFirst;            // 数组是否按时间倒序（最新在前）
+    private int timeColumn = 0;             // 开盘时间所在列
+    private int openColumn = 1;             // 开盘价所在列
+    private int highColumn = 2;             // 最高价所在列
+    private int lowColumn = 3;              // 最低价所在列
+    private int closeColumn = 4;            // 收盘价所在列
+    private int volumeColumn = 5;           // 交易量所在列
+    private long timeMultiplier = 1;        // 时间戳换算为毫秒的倍数（秒级时间戳为1000）
+    private String codeField;               // 根对象中的返回码字段，为空表示不校验
+    private String successCode;             // 表示成功的返回码
+    private String messageField;            // 根对象中的错误信息字段
+
+    public KlineLayout setPath(String... path) {
+        this.path = path;
+        return this;
+    }
+
+    public KlineLayout setColumns(int time, int open, int high, int low, int close, int volume) {
+        this.timeColumn = time;
+        this.openColumn = open;
+        this.highColumn = high;
+        this.lowColumn = low;
+        this.closeColumn = close;
+        this.volumeColumn = volume;
+        return this;
+    }
+
+    public KlineLayout setErrorCheck(String codeField, String successCode, String messageField) {
+        this.codeField = codeField;
+        this.successCode = successCode;
+        this.messageField = messageField;
+        return this;
+    }
+}
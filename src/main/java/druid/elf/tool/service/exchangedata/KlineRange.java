@@ -0,0 +1,83 @@
+package druid.elf.tool.service.exchangedata;
+
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import lombok.Getter;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 区间K线回填任务：把 [from, to) 按交易所单页条数切分为分页，记录已完成的分页和已拉取的K线。
+ * 部分分页失败时保留已完成的结果，用同一对象再次调用 {@link ExchangeDataService#getKlineRange(KlineRange)} 只请求未完成的分页
+ */
+@Getter
+public class KlineRange {
+
+    private final String symbol;           // 交易对
+    private final KlineInterval interval;  // K线周期
+    private final long from;               // 起始开盘时间（毫秒，包含）
+    private final long to;                 // 结束开盘时间（毫秒，不包含）
+
+    private final NavigableMap<Long, Bar> bars = new TreeMap<>(); // 开盘时间 -> K线，重叠分页按开盘时间去重
+    private final Set<Long> completedChunks = new HashSet<>();      // 已完成分页的起始时间
+
+    public KlineRange(String symbol, KlineInterval interval, long from, long to) {
+        if (from >= to) {
+            throw new IllegalArgumentException("K线区间无效: from=" + from + ", to=" + to);
+        }
+        this.symbol = symbol;
+        this.interval = interval;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * 按单页条数切分区间，返回尚未完成的分页
+     * @param pageSize 单页最多K线条数
+     * @return 每个元素为 {分页起始时间（包含）, 分页结束时间（不包含）}
+     */
+    public synchronized List<long[]> pendingChunks(int pageSize) {
+        long span = interval.getDuration().toMillis() * pageSize;
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = from; start < to; start += span) {
+            if (!completedChunks.contains(start)) {
+                chunks.add(new long[]{start, Math.min(to, start + span)});
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 记录一个已完成的分页，只保留开盘时间落在分页内的K线
+     */
+    public synchronized void complete(long chunkStart, long chunkEnd, BarSeries chunk) {
+        if (!chunk.isEmpty()) {
+            for (int i = KlineBars.firstIndex(chunk); i <= chunk.getEndIndex(); i++) {
+                Bar bar = chunk.getBar(i);
+                long openTime = KlineBars.openTimeMillis(bar);
+                if (openTime >= chunkStart && openTime < chunkEnd) {
+                    bars.put(openTime, bar);
+                }
+            }
+        }
+        completedChunks.add(chunkStart);
+    }
+
+    public synchronized int getCompletedChunkCount() {
+        return completedChunks.size();
+    }
+
+    /**
+     * 已拉取的K线按时间从旧到新拼接为序列
+     */
+    public synchronized BarSeries toBarSeries() {
+        return KlineBars.newSeries(symbol + "@" + interval.name(), new ArrayList<>(bars.values()));
+    }
+}
@@ -0,0 +1,22 @@
+package druid.elf.tool.service.exchangedata;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * 区间K线回填部分分页失败，已完成的分页保留在 {@link KlineRange} 中，可据此续传
+ */
+@Getter
+public class KlineRangeIncompleteException extends IOException {
+
+    private final transient KlineRange range; // 回填进度
+    private final int failedChunks;           // 失败的分页数
+
+    public KlineRangeIncompleteException(KlineRange range, int failedChunks, Throwable cause) {
+        super(String.format("区间K线回填未完成: %s %s, 失败分页 %d 个, 已完成 %d 个",
+                range.getSymbol(), range.getInterval(), failedChunks, range.getCompletedChunkCount()), cause);
+        this.range = range;
+        this.failedChunks = failedChunks;
+    }
+}
@@ -0,0 +1,176 @@
+package druid.elf.tool.service.exchangedata;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.BarSeries;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * K线请求合并（single-flight）：同一 交易所×交易对×周期 的K线请求在途时，
+ * 后到的调用方直接复用在途请求的结果，不再重复发出HTTP请求。
+ * 合并键不包含代理，不同代理的服务实例之间同样共享在途请求；请求完成后立即移除，不做结果缓存
+ */
+@Slf4j
+@Component
+public class KlineRequestCoalescer {
+
+    @Value("${exchange.coalescing.enabled:true}")
+    private boolean enabled;  // 是否启用请求合并
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>(); // 合并键 -> 在途请求
+    private final AtomicLong requests = new AtomicLong();   // 进入合并层的请求数
+    private final AtomicLong coalesced = new AtomicLong();  // 复用在途请求的次数
+
+    /**
+     * 最新K线请求：在途请求的条数不少于本次所需时复用，结果截取最新的 dataCount 根
+     * @param exchangeType 交易所类型
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param dataCount 所需K线条数
+     * @param loader 无可复用请求时发出实际请求
+     * @return 调用方独占的K线序列
+     */
+    public CompletableFuture<BarSeries> latest(ExchangeType exchangeType, String symbol, KlineInterval interval,
+                                               int dataCount, Supplier<CompletableFuture<BarSeries>> loader) {
+        return coalesce(exchangeType + "|" + symbol + "|" + interval.name() + "|latest", dataCount, loader);
+    }
+
+    /**
+     * 增量K线请求：起始时间和条数都相同时复用
+     * @param exchangeType 交易所类型
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param sinceOpenTime 起始开盘时间（毫秒）
+     * @param maxCount 最多返回的K线条数
+     * @param loader 无可复用请求时发出实际请求
+     * @return 调用方独占的K线序列
+     */
+    public CompletableFuture<BarSeries> since(ExchangeType exchangeType, String symbol, KlineInterval interval,
+                                              long sinceOpenTime, int maxCount, Supplier<CompletableFuture<BarSeries>> loader) {
+        return coalesce(exchangeType + "|" + symbol + "|" + interval.name() + "|since|" + sinceOpenTime + "|" + maxCount,
+                maxCount, loader);
+    }
+
+    /**
+     * 合并统计，供监控接口展示
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("requests", requests.get());
+        result.put("coalesced", coalesced.get());
+        result.put("inFlight", (long) inFlight.size());
+        return result;
+    }
+
+    private CompletableFuture<BarSeries> coalesce(String key, int count, Supplier<CompletableFuture<BarSeries>> loader) {
+        if (!enabled) return loader.get();
+        requests.incrementAndGet();
+
+        InFlight existing = inFlight.get(key);
+        if (existing != null && existing.count >= count && existing.join()) {
+            coalesced.incrementAndGet();
+            log.debug("复用在途K线请求: {}", key);
+            return view(existing, count);
+        }
+
+        // 没有在途请求或在途请求条数不足时发出新请求，后续调用方复用条数更多的一方
+        InFlight created = new InFlight(count);
+        InFlight current = inFlight.merge(key, created, (old, fresh) -> old.count >= fresh.count ? old : fresh);
+        if (current != created && current.join()) {
+            coalesced.incrementAndGet();
+            return view(current, count);
+        }
+        if (current != created) {
+            // 在途请求已被全部调用方取消，不再复用，单独发出请求
+            return loader.get();
+        }
+        created.join();
+        CompletableFuture<BarSeries> request;
+        try {
+            request = loader.get();
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        created.start(request);
+        request.whenComplete((series, error) -> {
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.future.completeExceptionally(error);
+            } else {
+                created.future.complete(series);
+            }
+        });
+        return view(created, count);
+    }
+
+    /**
+     * 每个调用方拿到独立的序列副本，修改自己的结果不影响其他调用方；
+     * 取消只影响自己，所有调用方都取消后才取消实际请求
+     */
+    private CompletableFuture<BarSeries> view(InFlight shared, int count) {
+        CompletableFuture<BarSeries> view = shared.future.thenApply(series -> KlineBars.tail(series, count));
+        view.whenComplete((series, error) -> {
+            if (view.isCancelled()) shared.leave();
+        });
+        return view;
+    }
+
+    /**
+     * 在途请求及其请求的K线条数
+     */
+    static final class InFlight {
+        private final int count;
+        private final CompletableFuture<BarSeries> future = new CompletableFuture<>();
+        private CompletableFuture<BarSeries> request; // 实际请求
+        private int waiters;                          // 尚未取消的调用方数量
+        private boolean abandoned;                    // 调用方已全部取消
+
+        InFlight(int count) {
+            this.count = count;
+        }
+
+        /**
+         * 加入在途请求，已被全部调用方取消时返回 false
+         */
+        synchronized boolean join() {
+            if (abandoned) return false;
+            waiters++;
+            return true;
+        }
+
+        /**
+         * 记录实际请求，调用方在请求发出前已全部取消时立即取消，不为无人等待的请求消耗限流额度
+         */
+        void start(CompletableFuture<BarSeries> request) {
+            boolean cancel;
+            synchronized (this) {
+                this.request = request;
+                cancel = abandoned;
+            }
+            if (cancel) request.cancel(true);
+        }
+
+        /**
+         * 调用方取消，最后一个调用方取消时取消实际请求；实际请求尚未发出时由 {@link #start} 取消
+         */
+        void leave() {
+            CompletableFuture<BarSeries> current;
+            synchronized (this) {
+                if (--waiters > 0 || future.isDone()) return;
+                abandoned = true;
+                current = request;
+            }
+            if (current != null) current.cancel(true);
+        }
+    }
+}
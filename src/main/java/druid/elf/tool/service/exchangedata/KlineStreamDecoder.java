@@ -0,0 +1,144 @@
+package druid.elf.tool.service.exchangedata;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * K线流式解码器：直接从响应流按令牌读取，写入 {@link KlineBuffer} 的基本类型数组，
+ * 不构建 JsonNode 树，不创建中间列表，字符串数值直接从解析器的字符缓冲区转换
+ */
+public final class KlineStreamDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private KlineStreamDecoder() {
+    }
+
+    /**
+     * 解码K线响应
+     * @param in 响应流
+     * @param layout 响应结构描述
+     * @param expectedCount 预期条数，用于预分配数组
+     * @return 按时间从旧到新排列的K线缓冲区
+     * @throws IOException 如果JSON格式错误或交易所返回错误码
+     */
+    public static KlineBuffer decode(InputStream in, KlineLayout layout, int expectedCount) throws IOException {
+        KlineBuffer buffer = layout.isNewestFirst()
+                ? KlineBuffer.descending(expectedCount)
+                : KlineBuffer.ascending(expectedCount);
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (layout.getPath().length == 0) {
+                expect(token, JsonToken.START_ARRAY, "K线数据");
+                readRows(parser, layout, buffer);
+                return buffer;
+            }
+            expect(token, JsonToken.START_OBJECT, "响应");
+            String[] status = new String[2]; // 返回码、错误信息
+            boolean found = readObject(parser, layout, buffer, 0, status);
+            if (layout.getCodeField() != null && status[0] != null && !layout.getSuccessCode().equals(status[0])) {
+                throw new IOException("API返回错误: " + status[1]);
+            }
+            if (!found) {
+                throw new IOException("响应中缺少K线数据: " + String.join(".", layout.getPath()));
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 沿字段路径查找K线数组，同时在根对象上收集返回码和错误信息
+     */
+    private static boolean readObject(JsonParser parser, KlineLayout layout, KlineBuffer buffer,
+                                      int depth, String[] status) throws IOException {
+        boolean found = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals(layout.getPath()[depth])) {
+                if (depth == layout.getPath().length - 1) {
+                    if (value == JsonToken.START_ARRAY) {
+                        readRows(parser, layout, buffer);
+                        found = true;
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else if (value == JsonToken.START_OBJECT) {
+                    found = readObject(parser, layout, buffer, depth + 1, status);
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (depth == 0 && field.equals(layout.getCodeField())) {
+                status[0] = parser.getValueAsString();
+            } else if (depth == 0 && field.equals(layout.getMessageField())) {
+                status[1] = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 读取K线二维数组，每行按列下标取值
+     */
+    private static void readRows(JsonParser parser, KlineLayout layout, KlineBuffer buffer) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_ARRAY) {
+            long time = 0;
+            double open = 0, high = 0, low = 0, close = 0, volume = 0;
+            int column = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("K线数据不完整");
+                }
+                if (column == layout.getTimeColumn()) {
+                    time = readLong(parser) * layout.getTimeMultiplier();
+                } else if (column == layout.getOpenColumn()) {
+                    open = readDouble(parser);
+                } else if (column == layout.getHighColumn()) {
+                    high = readDouble(parser);
+                } else if (column == layout.getLowColumn()) {
+                    low = readDouble(parser);
+                } else if (column == layout.getCloseColumn()) {
+                    close = readDouble(parser);
+                } else if (column == layout.getVolumeColumn()) {
+                    volume = readDouble(parser);
+                } else {
+                    parser.skipChildren();
+                }
+                column++;
+            }
+            buffer.add(time, open, high, low, close, volume);
+        }
+        expect(token, JsonToken.END_ARRAY, "K线数组");
+    }
+
+    private static long readLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        return NumberInput.parseLong(parser.getText());
+    }
+
+    private static double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new IOException("K线字段不是数值: " + token);
+        }
+        return NumberInput.parseDouble(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), true);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, String what) throws IOException {
+        if (actual != expected) {
+            throw new IOException(what + "格式错误，期望 " + expected + "，实际 " + actual);
+        }
+    }
+}
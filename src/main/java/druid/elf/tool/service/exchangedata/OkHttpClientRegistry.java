@@ -0,0 +1,254 @@
+package druid.elf.tool.service.exchangedata;
+
+import druid.elf.tool.entity.SettingsProxy;
+import druid.elf.tool.enums.ExchangeType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Credentials;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttpClient 注册中心，按 交易所×代理 维度缓存客户端。
+ * 所有客户端由同一个基础客户端派生，共享连接池、调度器和TLS上下文，
+ * 跨任务周期复用，使 keep-alive 与 TLS 会话复用真正生效，并在容器关闭时统一释放。
+ */
+@Slf4j
+@Component
+public class OkHttpClientRegistry {
+
+    private final ConnectionPool connectionPool = new ConnectionPool(50, 5, TimeUnit.MINUTES); // 共享连接池
+    private final Dispatcher dispatcher = new Dispatcher();                                   // 共享调度器
+    private final OkHttpClient baseClient;                                                    // 基础客户端
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();              // 交易所×代理 -> 客户端
+    private volatile SSLContext sslContext;                                                   // 共享TLS上下文
+    private volatile X509TrustManager trustManager;                                           // 默认信任管理器
+
+    public OkHttpClientRegistry() {
+        dispatcher.setMaxRequests(128);
+        dispatcher.setMaxRequestsPerHost(16);
+        this.baseClient = new OkHttpClient.Builder()
+                .connectTimeout(60, TimeUnit.SECONDS)       // 连接超时60秒
+                .readTimeout(60, TimeUnit.SECONDS)          // 读取超时60秒
+                .writeTimeout(60, TimeUnit.SECONDS)         // 写入超时60秒
+                .retryOnConnectionFailure(true)             // 连接失败时自动重试
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    /**
+     * 获取指定 交易所×代理 对应的客户端，不存在时创建并缓存
+     * @param exchangeType 交易所类型
+     * @param proxySettings 代理设置，可能为空
+     * @return 共享的 OkHttpClient
+     */
+    public OkHttpClient getClient(ExchangeType exchangeType, SettingsProxy proxySettings) {
+        return clients.computeIfAbsent(keyOf(exchangeType, proxySettings), key -> createClient(key, proxySettings));
+    }
+
+    /**
+     * 生成 交易所×代理 的缓存键，代理按 类型/地址/端口/账号 区分
+     * @param exchangeType 交易所类型
+     * @param proxySettings 代理设置，可能为空
+     * @return 缓存键
+     */
+    public static String keyOf(ExchangeType exchangeType, SettingsProxy proxySettings) {
+        if (proxySettings == null || proxySettings.getIp() == null || proxySettings.getPort() == null) {
+            return exchangeType.name() + "|DIRECT";
+        }
+        return exchangeType.name() + "|" + proxySettings.getType() + "://"
+                + (proxySettings.getUsername() != null
+                    ? proxySettings.getUsername() + "#" + Objects.hashCode(proxySettings.getPassword()) + "@" : "")
+                + proxySettings.getIp() + ":" + proxySettings.getPort();
+    }
+
+    /**
+     * 当前缓存的客户端数量
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * 共享连接池中的连接数
+     */
+    public int getConnectionCount() {
+        return connectionPool.connectionCount();
+    }
+
+    private OkHttpClient createClient(String key, SettingsProxy proxySettings) {
+        OkHttpClient.Builder builder = baseClient.newBuilder(); // 派生客户端，沿用共享的连接池和调度器
+
+        // 检查是否有有效的代理设置
+        if (proxySettings != null && isValidProxy(proxySettings)) {
+            log.debug("配置代理: {}:{}", proxySettings.getIp(), proxySettings.getPort());
+            configureProxy(builder, proxySettings); // 配置代理
+            configureTLS(builder);                  // 配置TLS加密
+        } else {
+            log.debug("未提供有效代理，使用默认配置");
+        }
+
+        log.info("创建共享 OkHttpClient: {}", maskKey(key));
+        return builder.build();
+    }
+
+    /**
+     * 验证代理设置是否有效
+     * @param proxySettings 代理设置
+     * @return 是否有效
+     */
+    private boolean isValidProxy(SettingsProxy proxySettings) {
+        if (proxySettings.getIp() == null || proxySettings.getPort() == null) {
+            log.warn("代理IP或端口为空");
+            return false;
+        }
+        try {
+            java.net.InetAddress.getByName(proxySettings.getIp()); // 检查IP是否可解析
+            return proxySettings.getPort() > 0 && proxySettings.getPort() <= 65535; // 验证端口范围
+        } catch (java.net.UnknownHostException e) {
+            log.warn("代理IP无效: {}", proxySettings.getIp());
+            return false;
+        }
+    }
+
+    /**
+     * 配置代理，包括类型和认证
+     * @param builder HTTP客户端构建器
+     * @param proxySettings 代理设置
+     */
+    private void configureProxy(OkHttpClient.Builder builder, SettingsProxy proxySettings) {
+        Proxy.Type proxyType = determineProxyType(proxySettings.getType()); // 确定代理类型
+        Proxy proxy = new Proxy(proxyType, new InetSocketAddress(proxySettings.getIp(), proxySettings.getPort()));
+        builder.proxy(proxy); // 设置代理
+
+        if (hasValidCredentials(proxySettings)) {
+            configureProxyAuthentication(builder, proxySettings); // 配置代理认证
+        }
+    }
+
+    /**
+     * 根据代理类型字符串确定代理类型
+     * @param type 代理类型字符串
+     * @return Proxy.Type 枚举值
+     */
+    private Proxy.Type determineProxyType(String type) {
+        if (type == null) return Proxy.Type.HTTP;
+        switch (type.toUpperCase()) {
+            case "SOCKET":
+            case "SOCKS":
+            case "SOCKS5":
+                return Proxy.Type.SOCKS;
+            case "HTTP":
+            case "HTTPS":
+                return Proxy.Type.HTTP;
+            default:
+                log.warn("不支持的代理类型: {}, 默认使用HTTP代理", type);
+                return Proxy.Type.HTTP;
+        }
+    }
+
+    /**
+     * 检查代理是否需要认证
+     * @param proxySettings 代理设置
+     * @return 是否有有效的用户名和密码
+     */
+    private boolean hasValidCredentials(SettingsProxy proxySettings) {
+        return proxySettings.getUsername() != null && !proxySettings.getUsername().isEmpty() &&
+                proxySettings.getPassword() != null && !proxySettings.getPassword().isEmpty();
+    }
+
+    /**
+     * 配置代理认证
+     * @param builder HTTP客户端构建器
+     * @param proxySettings 代理设置
+     */
+    private void configureProxyAuthentication(OkHttpClient.Builder builder, SettingsProxy proxySettings) {
+        log.debug("配置代理认证: 用户名 {}", proxySettings.getUsername().substring(0, Math.min(2, proxySettings.getUsername().length())) + "***");
+        builder.proxyAuthenticator((route, response) -> {
+            String credential = Credentials.basic(proxySettings.getUsername(), proxySettings.getPassword());
+            return response.request().newBuilder()
+                    .header("Proxy-Authorization", credential)
+                    .build();
+        });
+    }
+
+    /**
+     * 配置TLS加密，所有代理客户端共用同一个SSLContext以复用TLS会话缓存
+     * @param builder HTTP客户端构建器
+     */
+    private void configureTLS(OkHttpClient.Builder builder) {
+        if (sslContext == null) {
+            synchronized (this) {
+                if (sslContext == null) {
+                    try {
+                        X509TrustManager defaultTrustManager = getDefaultTrustManager();
+                        SSLContext context = SSLContext.getInstance("TLS");
+                        context.init(null, new TrustManager[]{defaultTrustManager}, new SecureRandom());
+                        trustManager = defaultTrustManager;
+                        sslContext = context;
+                    } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
+                        log.error("TLS配置失败: {}", e.getMessage(), e);
+                        throw new RuntimeException("无法初始化TLS配置", e);
+                    }
+                }
+            }
+        }
+        builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager);
+    }
+
+    /**
+     * 获取默认的X509信任管理器
+     * @return X509TrustManager
+     */
+    private X509TrustManager getDefaultTrustManager() throws NoSuchAlgorithmException, KeyStoreException {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init((KeyStore) null);
+        for (TrustManager tm : tmf.getTrustManagers()) {
+            if (tm instanceof X509TrustManager) {
+                log.debug("成功获取默认X509TrustManager");
+                return (X509TrustManager) tm;
+            }
+        }
+        throw new NoSuchAlgorithmException("No X509TrustManager found");
+    }
+
+    /**
+     * 日志和监控中隐藏代理账号
+     */
+    public static String maskKey(String key) {
+        int at = key.indexOf('@');
+        int scheme = key.indexOf("://");
+        return at > 0 && scheme > 0 ? key.substring(0, scheme + 3) + "***" + key.substring(at) : key;
+    }
+
+    /**
+     * 容器关闭时释放调度器线程和连接池
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("正在关闭共享 OkHttpClient，客户端数量: {}, 连接数: {}", clients.size(), connectionPool.connectionCount());
+        clients.clear();
+        dispatcher.cancelAll();
+        dispatcher.executorService().shutdown();
+        connectionPool.evictAll();
+    }
+}
@@ -0,0 +1,14 @@
+package druid.elf.tool.service.exchangedata;
+
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+
+/**
+ * 响应体读取器，在响应关闭前直接消费响应体，避免先缓冲为字符串
+ * @param <T> 读取结果类型
+ */
+@FunctionalInterface
+public interface ResponseReader<T> {
+    T read(ResponseBody body) throws IOException;
+}
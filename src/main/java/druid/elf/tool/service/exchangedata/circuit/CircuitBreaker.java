@@ -0,0 +1,101 @@
+package druid.elf.tool.service.exchangedata.circuit;
+
+import druid.elf.tool.service.exchangedata.error.ExchangeErrorCategory;
+import druid.elf.tool.service.exchangedata.error.ExchangeRequestException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+
+/**
+ * 单个 交易所×代理 的熔断器：连续失败达到阈值或明确被封禁时打开，期间请求快速失败；
+ * 到期后进入半开状态放行一个试探请求，成功则关闭，失败则再次打开
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    @Getter
+    private final String key;             // 交易所×代理 键（已隐藏代理账号）
+    private final int failureThreshold;   // 连续失败阈值
+    private final long openMillis;        // 默认熔断时长
+    private final Clock clock;            // 时间来源，测试中可替换
+
+    @Getter
+    private volatile CircuitState state = CircuitState.CLOSED;
+    @Getter
+    private volatile int consecutiveFailures; // 连续失败次数
+    @Getter
+    private volatile String lastError;        // 最近一次计入熔断的错误
+    private long openUntil;               // 熔断到期时间
+    private boolean trialInFlight;        // 半开状态下是否已有试探请求
+
+    public CircuitBreaker(String key, int failureThreshold, long openMillis) {
+        this(key, failureThreshold, openMillis, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String key, int failureThreshold, long openMillis, Clock clock) {
+        this.key = key;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 请求发送前调用，返回是否放行
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == CircuitState.CLOSED) return true;
+        if (state == CircuitState.OPEN) {
+            if (clock.millis() < openUntil) return false;
+            state = CircuitState.HALF_OPEN;
+            log.info("{} 熔断到期，放行试探请求", key);
+        }
+        if (trialInFlight) return false; // 半开状态只放行一个试探请求
+        trialInFlight = true;
+        return true;
+    }
+
+    /**
+     * 收到成功响应
+     */
+    public synchronized void onSuccess() {
+        if (state != CircuitState.CLOSED) {
+            log.info("{} 试探请求成功，熔断关闭", key);
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * 请求失败。不计入熔断的错误（参数错误、被取消等）只释放试探名额，
+     * 其中收到了交易所响应的视为连接可用并关闭熔断
+     */
+    public synchronized void onFailure(ExchangeRequestException e) {
+        if (!e.getCategory().isTripsBreaker()) {
+            trialInFlight = false;
+            if (state == CircuitState.HALF_OPEN && e.getStatusCode() > 0) {
+                onSuccess();
+            }
+            return;
+        }
+        consecutiveFailures++;
+        lastError = e.getMessage();
+        trialInFlight = false;
+        if (state == CircuitState.HALF_OPEN
+                || e.getCategory() == ExchangeErrorCategory.BANNED
+                || consecutiveFailures >= failureThreshold) {
+            long duration = Math.max(openMillis, e.getRetryAfterMillis());
+            openUntil = clock.millis() + duration;
+            state = CircuitState.OPEN;
+            log.warn("{} 熔断打开 {}ms，连续失败 {} 次: {}", key, duration, consecutiveFailures, e.getMessage());
+        }
+    }
+
+    /**
+     * 距离熔断到期的剩余时间，未打开时为 0
+     */
+    public synchronized long remainingOpenMillis() {
+        return state == CircuitState.OPEN ? Math.max(0, openUntil - clock.millis()) : 0;
+    }
+}
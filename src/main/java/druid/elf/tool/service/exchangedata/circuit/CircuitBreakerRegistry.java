@@ -0,0 +1,48 @@
+package druid.elf.tool.service.exchangedata.circuit;
+
+import druid.elf.tool.dto.CircuitBreakerStatusDTO;
+import druid.elf.tool.entity.SettingsProxy;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.OkHttpClientRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器注册中心，与 {@link OkHttpClientRegistry} 使用相同的 交易所×代理 键，
+ * 某个出口被封禁或交易所不可用时，只影响经过该出口的请求
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+    @Value("${exchange.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;  // 连续失败阈值
+    @Value("${exchange.circuit-breaker.open-seconds:60}")
+    private long openSeconds;      // 默认熔断时长
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreaker getBreaker(ExchangeType exchangeType, SettingsProxy proxySettings) {
+        return breakers.computeIfAbsent(OkHttpClientRegistry.keyOf(exchangeType, proxySettings),
+                key -> new CircuitBreaker(OkHttpClientRegistry.maskKey(key), failureThreshold, openSeconds * 1000L));
+    }
+
+    /**
+     * 各熔断器当前状态
+     */
+    public List<CircuitBreakerStatusDTO> snapshot() {
+        return breakers.values().stream()
+                .map(breaker -> new CircuitBreakerStatusDTO()
+                        .setKey(breaker.getKey())
+                        .setState(breaker.getState().name())
+                        .setConsecutiveFailures(breaker.getConsecutiveFailures())
+                        .setRemainingOpenMillis(breaker.remainingOpenMillis())
+                        .setLastError(breaker.getLastError()))
+                .sorted(Comparator.comparing(CircuitBreakerStatusDTO::getKey))
+                .toList();
+    }
+}
@@ -0,0 +1,10 @@
+package druid.elf.tool.service.exchangedata.circuit;
+
+/**
+ * 熔断器状态
+ */
+public enum CircuitState {
+    CLOSED,     // 正常放行
+    OPEN,       // 熔断中，全部请求快速失败
+    HALF_OPEN   // 熔断到期，放行一个试探请求
+}
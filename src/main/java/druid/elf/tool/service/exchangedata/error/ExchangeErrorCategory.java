@@ -0,0 +1,23 @@
+package druid.elf.tool.service.exchangedata.error;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 交易所请求错误分类，决定是否重试以及是否计入熔断
+ */
+@Getter
+@AllArgsConstructor
+public enum ExchangeErrorCategory {
+    RATE_LIMITED(true, false, "触发限流"),            // 429，由限流器暂停预算后重试
+    BANNED(false, true, "访问被拒绝或IP被封禁"),       // 403/418/451，重试无意义，直接熔断
+    SERVER_ERROR(true, true, "交易所服务异常"),        // 5xx/409
+    CLIENT_ERROR(false, false, "请求无效"),           // 其余 4xx
+    TRANSPORT(true, true, "网络或TLS连接异常"),        // 超时、连接失败、握手中断
+    CIRCUIT_OPEN(false, false, "熔断中，快速失败"),    // 未发出请求
+    UNKNOWN(false, false, "未知错误");                // 解析失败、请求被取消等
+
+    private final boolean retryable;     // 是否值得重试
+    private final boolean tripsBreaker;  // 是否计入熔断失败次数
+    private final String description;
+}
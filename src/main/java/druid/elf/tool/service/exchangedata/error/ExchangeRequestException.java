@@ -0,0 +1,93 @@
+package druid.elf.tool.service.exchangedata.error;
+
+import druid.elf.tool.enums.ExchangeType;
+import lombok.Getter;
+import okhttp3.Response;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * 交易所请求异常，携带错误分类、HTTP状态码和 Retry-After，供重试、限流和熔断判断使用
+ */
+@Getter
+public class ExchangeRequestException extends IOException {
+
+    private final ExchangeType exchangeType;
+    private final ExchangeErrorCategory category;
+    private final int statusCode;         // HTTP状态码，未收到响应时为 0
+    private final long retryAfterMillis;  // 交易所建议的等待时间，未提供时为 -1
+
+    public ExchangeRequestException(ExchangeType exchangeType, ExchangeErrorCategory category, int statusCode,
+                                    long retryAfterMillis, String message, Throwable cause) {
+        super(message, cause);
+        this.exchangeType = exchangeType;
+        this.category = category;
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * 由失败的HTTP响应构建异常
+     */
+    public static ExchangeRequestException fromResponse(ExchangeType exchangeType, Response response) {
+        int code = response.code();
+        ExchangeErrorCategory category;
+        if (code == 429) {
+            category = ExchangeErrorCategory.RATE_LIMITED;
+        } else if (code == 403 || code == 418 || code == 451) {
+            category = ExchangeErrorCategory.BANNED;
+        } else if (code >= 500 || code == 409) {
+            category = ExchangeErrorCategory.SERVER_ERROR;
+        } else {
+            category = ExchangeErrorCategory.CLIENT_ERROR;
+        }
+        return new ExchangeRequestException(exchangeType, category, code,
+                parseRetryAfter(response.header("Retry-After")),
+                String.format("%s %s (%d %s)", exchangeType, category.getDescription(), code, response.message()), null);
+    }
+
+    /**
+     * 对未收到响应的异常分类，已分类的异常原样返回
+     */
+    public static ExchangeRequestException classify(ExchangeType exchangeType, IOException e) {
+        if (e instanceof ExchangeRequestException classified) {
+            return classified;
+        }
+        String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
+        boolean transport = e instanceof SocketTimeoutException
+                || e instanceof ConnectException
+                || e instanceof UnknownHostException
+                || e instanceof SSLException
+                || message.contains("remote host terminated the handshake")
+                || message.contains("unexpected end of stream");
+        ExchangeErrorCategory category = transport ? ExchangeErrorCategory.TRANSPORT : ExchangeErrorCategory.UNKNOWN;
+        return new ExchangeRequestException(exchangeType, category, 0, -1,
+                String.format("%s %s: %s", exchangeType, category.getDescription(), e.getMessage()), e);
+    }
+
+    /**
+     * 熔断打开时的快速失败
+     */
+    public static ExchangeRequestException circuitOpen(ExchangeType exchangeType, String key, long remainingMillis) {
+        return new ExchangeRequestException(exchangeType, ExchangeErrorCategory.CIRCUIT_OPEN, 0, remainingMillis,
+                String.format("%s 熔断中，%dms 后允许试探请求", key, remainingMillis), null);
+    }
+
+    /**
+     * 解析秒数形式的 Retry-After，缺失或无法解析时返回 -1
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package druid.elf.tool.service.exchangedata.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.ExchangeType;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
 import druid.elf.tool.service.exchangedata.AbstractExchangeDataService;
+import druid.elf.tool.service.exchangedata.KlineBuffer;
+import druid.elf.tool.service.exchangedata.KlineLayout;
+import druid.elf.tool.service.exchangedata.KlineStreamDecoder;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +21,9 @@ import java.util.List;
 @Component
 public class BinanceDataService extends AbstractExchangeDataService {
 
+    // K线响应：根节点为数组，最旧在前，[开盘时间, 开, 高, 低, 收, 量, ...]
+    private static final KlineLayout KLINE_LAYOUT = new KlineLayout();
+
     public BinanceDataService() {
         this(null);
     }
@@ -33,21 +39,22 @@ public class BinanceDataService extends AbstractExchangeDataService {
     }
 
     @Override
-    protected BarSeries parseKlineData(String responseBody) throws IOException {
-        JsonNode dataNode = objectMapper.readTree(responseBody);
-        BarSeries series = new BaseBarSeries();
-
-        for (JsonNode klineNode : dataNode) {
-            long timestamp = klineNode.get(0).asLong();
-            double open = klineNode.get(1).asDouble();
-            double high = klineNode.get(2).asDouble();
-            double low = klineNode.get(3).asDouble();
-            double close = klineNode.get(4).asDouble();
-            double volume = klineNode.get(5).asDouble();
-
-            series.addBar(buildBar(timestamp, open, high, low, close, volume));
-        }
-        return series;
+    protected KlineBuffer parseKlineData(InputStream in, int expectedCount) throws IOException {
+        return KlineStreamDecoder.decode(in, KLINE_LAYOUT, expectedCount);
+    }
+
+    @Override
+    protected String buildSinceUrl(String symbol, String interval, long sinceOpenTime, int maxCount) {
+        // startTime 为包含边界，返回从该时间起最旧在前的数据
+        return String.format("https://api.binance.com/api/v3/klines?symbol=%s&interval=%s&startTime=%s&limit=%s",
+                symbol.replace("-", ""), interval.toLowerCase(), sinceOpenTime, maxCount);
+    }
+
+    @Override
+    protected String buildRangeUrl(String symbol, String interval, long startOpenTime, long endOpenTime, int limit) {
+        // startTime 与 endTime 均为包含边界
+        return String.format("https://api.binance.com/api/v3/klines?symbol=%s&interval=%s&startTime=%s&endTime=%s&limit=%s",
+                symbol.replace("-", ""), interval.toLowerCase(), startOpenTime, endOpenTime, limit);
     }
 
     @Override
@@ -97,4 +104,27 @@ public class BinanceDataService extends AbstractExchangeDataService {
         }
         return tradingPairs;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected String buildTickersUrl() {
+        return "https://api.binance.com/api/v3/ticker/24hr";
+    }
+
+    /**
+     * 解析Binance全量24小时行情：[{"symbol":"BTCUSDT","lastPrice":"..","priceChangePercent":"..","volume":"..","quoteVolume":".."}]
+     */
+    @Override
+    protected List<TickerDTO> fetchTickers(String responseBody) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(responseBody);
+        List<TickerDTO> tickers = new ArrayList<>(rootNode.size());
+        for (JsonNode tickerNode : rootNode) {
+            tickers.add(new TickerDTO()
+                    .setSymbol(tickerNode.path("symbol").asText())
+                    .setLastPrice(decimalOf(tickerNode.get("lastPrice")))
+                    .setPriceChangePercent(decimalOf(tickerNode.get("priceChangePercent")))
+                    .setBaseVolume(decimalOf(tickerNode.get("volume")))
+                    .setQuoteVolume(decimalOf(tickerNode.get("quoteVolume"))));
+        }
+        return tickers;
+    }
+}
@@ -1,17 +1,20 @@
 package druid.elf.tool.service.exchangedata.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.ExchangeType;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
 import druid.elf.tool.service.exchangedata.AbstractExchangeDataService;
+import druid.elf.tool.service.exchangedata.KlineBuffer;
+import druid.elf.tool.service.exchangedata.KlineLayout;
+import druid.elf.tool.service.exchangedata.KlineStreamDecoder;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.net.Proxy;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -20,6 +23,12 @@ import java.util.List;
 @Component
 public class BybitDataService extends AbstractExchangeDataService {
 
+    // K线响应：{"retCode":0,"result":{"list":[[开盘时间, 开, 高, 低, 收, 量, 成交额]]}}，最新在前
+    private static final KlineLayout KLINE_LAYOUT = new KlineLayout()
+            .setPath("result", "list")
+            .setNewestFirst(true)
+            .setErrorCheck("retCode", "0", "retMsg");
+
     public BybitDataService() {
         this(null);
     }
@@ -30,38 +39,43 @@ public class BybitDataService extends AbstractExchangeDataService {
 
     @Override
     protected String buildUrl(String symbol, String interval, int dataCount) {
+        return String.format("https://api.bybit.com/v5/market/kline?category=spot&symbol=%s&interval=%s&limit=%s",
+                symbol.replace("-", ""), resolveInterval(interval), dataCount);
+    }
+
+    /**
+     * 转换为Bybit的周期参数：已是Bybit格式（分钟数或 D/W/M）时直接使用，"1h" 形式换算为分钟数
+     */
+    private String resolveInterval(String interval) {
+        if (interval.matches("\\d+|[DWM]")) {
+            return interval;
+        }
         String intervalNum = interval.replaceAll("[^0-9]", "");
         String unit = interval.replaceAll("[0-9]", "").toLowerCase();
         String bybitInterval = intervalNum.isEmpty() ? "1" : intervalNum;
         if ("h".equals(unit)) {
             bybitInterval = String.valueOf(Integer.parseInt(intervalNum) * 60);
         }
-        return String.format("https://api.bybit.com/v5/market/kline?category=spot&symbol=%s&interval=%s&limit=%s",
-                symbol.replace("-", ""), bybitInterval, dataCount);
+        return bybitInterval;
     }
 
     @Override
-    protected BarSeries parseKlineData(String responseBody) throws IOException {
-        JsonNode rootNode = objectMapper.readTree(responseBody);
-        JsonNode dataNode = rootNode.get("result").get("list");
-        BarSeries series = new BaseBarSeries();
-
-        // 将数据转换为列表并反转顺序
-        List<JsonNode> klineList = new ArrayList<>();
-        dataNode.forEach(klineList::add);
-        Collections.reverse(klineList); // 反转顺序，从最旧到最新
-
-        for (JsonNode klineNode : klineList) {
-            long timestamp = Long.parseLong(klineNode.get(0).asText());
-            double open = Double.parseDouble(klineNode.get(1).asText());
-            double high = Double.parseDouble(klineNode.get(2).asText());
-            double low = Double.parseDouble(klineNode.get(3).asText());
-            double close = Double.parseDouble(klineNode.get(4).asText());
-            double volume = Double.parseDouble(klineNode.get(5).asText());
-
-            series.addBar(buildBar(timestamp, open, high, low, close, volume));
-        }
-        return series;
+    protected KlineBuffer parseKlineData(InputStream in, int expectedCount) throws IOException {
+        return KlineStreamDecoder.decode(in, KLINE_LAYOUT, expectedCount);
+    }
+
+    @Override
+    protected String buildSinceUrl(String symbol, String interval, long sinceOpenTime, int maxCount) {
+        // start 为包含边界
+        return String.format("https://api.bybit.com/v5/market/kline?category=spot&symbol=%s&interval=%s&start=%s&limit=%s",
+                symbol.replace("-", ""), resolveInterval(interval), sinceOpenTime, maxCount);
+    }
+
+    @Override
+    protected String buildRangeUrl(String symbol, String interval, long startOpenTime, long endOpenTime, int limit) {
+        // start 与 end 均为包含边界
+        return String.format("https://api.bybit.com/v5/market/kline?category=spot&symbol=%s&interval=%s&start=%s&end=%s&limit=%s",
+                symbol.replace("-", ""), resolveInterval(interval), startOpenTime, endOpenTime, limit);
     }
 
     @Override
@@ -111,4 +125,33 @@ public class BybitDataService extends AbstractExchangeDataService {
         }
         return tradingPairs;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected String buildTickersUrl() {
+        return "https://api.bybit.com/v5/market/tickers?category=spot";
+    }
+
+    /**
+     * 解析Bybit全量24小时行情：{"retCode":0,"result":{"list":[{"symbol":"BTCUSDT","lastPrice":"..","price24hPcnt":"..","volume24h":"..","turnover24h":".."}]}}，
+     * price24hPcnt 为小数形式的涨跌幅
+     */
+    @Override
+    protected List<TickerDTO> fetchTickers(String responseBody) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(responseBody);
+        if (rootNode.path("retCode").asInt() != 0) {
+            throw new IOException("API返回错误: " + rootNode.path("retMsg").asText());
+        }
+        JsonNode listNode = rootNode.path("result").path("list");
+        List<TickerDTO> tickers = new ArrayList<>(listNode.size());
+        for (JsonNode tickerNode : listNode) {
+            BigDecimal changeRatio = decimalOf(tickerNode.get("price24hPcnt"));
+            tickers.add(new TickerDTO()
+                    .setSymbol(tickerNode.path("symbol").asText())
+                    .setLastPrice(decimalOf(tickerNode.get("lastPrice")))
+                    .setPriceChangePercent(changeRatio != null ? changeRatio.movePointRight(2) : null)
+                    .setBaseVolume(decimalOf(tickerNode.get("volume24h")))
+                    .setQuoteVolume(decimalOf(tickerNode.get("turnover24h"))));
+        }
+        return tickers;
+    }
+}
@@ -1,14 +1,17 @@
 package druid.elf.tool.service.exchangedata.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.ExchangeType;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
 import druid.elf.tool.service.exchangedata.AbstractExchangeDataService;
+import druid.elf.tool.service.exchangedata.KlineBuffer;
+import druid.elf.tool.service.exchangedata.KlineLayout;
+import druid.elf.tool.service.exchangedata.KlineStreamDecoder;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Proxy;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +22,11 @@ import java.util.List;
 @Component
 public class GateIoDataService extends AbstractExchangeDataService {
 
+    // K线响应：根节点为数组，最旧在前，[秒级时间戳, 成交额, 收, 高, 低, 开, ...]
+    private static final KlineLayout KLINE_LAYOUT = new KlineLayout()
+            .setColumns(0, 5, 3, 4, 2, 1)
+            .setTimeMultiplier(1000);
+
     public GateIoDataService() {
         this(null);
     }
@@ -34,21 +42,23 @@ public class GateIoDataService extends AbstractExchangeDataService {
     }
 
     @Override
-    protected BarSeries parseKlineData(String responseBody) throws IOException {
-        JsonNode dataNode = objectMapper.readTree(responseBody);
-        BarSeries series = new BaseBarSeries();
-
-        for (JsonNode klineNode : dataNode) {
-            long timestamp = Long.parseLong(klineNode.get(0).asText()) * 1000;
-            double volume = Double.parseDouble(klineNode.get(1).asText());
-            double close = Double.parseDouble(klineNode.get(2).asText());
-            double high = Double.parseDouble(klineNode.get(3).asText());
-            double low = Double.parseDouble(klineNode.get(4).asText());
-            double open = Double.parseDouble(klineNode.get(5).asText());
-
-            series.addBar(buildBar(timestamp, open, high, low, close, volume));
-        }
-        return series;
+    protected KlineBuffer parseKlineData(InputStream in, int expectedCount) throws IOException {
+        return KlineStreamDecoder.decode(in, KLINE_LAYOUT, expectedCount);
+    }
+
+    @Override
+    protected String buildSinceUrl(String symbol, String interval, long sinceOpenTime, int maxCount) {
+        // Gate.io 的 limit 与 from/to 互斥，使用秒级 from/to 指定区间
+        long to = Math.max(System.currentTimeMillis(), sinceOpenTime) / 1000;
+        return String.format("https://api.gateio.ws/api/v4/spot/candlesticks?currency_pair=%s&interval=%s&from=%s&to=%s",
+                symbol.replace("-", "_"), interval.toLowerCase(), sinceOpenTime / 1000, to);
+    }
+
+    @Override
+    protected String buildRangeUrl(String symbol, String interval, long startOpenTime, long endOpenTime, int limit) {
+        // from/to 为秒级包含边界，单次最多返回 1000 条，不能与 limit 同时使用
+        return String.format("https://api.gateio.ws/api/v4/spot/candlesticks?currency_pair=%s&interval=%s&from=%s&to=%s",
+                symbol.replace("-", "_"), interval.toLowerCase(), startOpenTime / 1000, endOpenTime / 1000);
     }
 
     @Override
@@ -97,4 +107,27 @@ public class GateIoDataService extends AbstractExchangeDataService {
         }
         return tradingPairs;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected String buildTickersUrl() {
+        return "https://api.gateio.ws/api/v4/spot/tickers";
+    }
+
+    /**
+     * 解析Gate.io全量24小时行情：[{"currency_pair":"BTC_USDT","last":"..","change_percentage":"..","base_volume":"..","quote_volume":".."}]
+     */
+    @Override
+    protected List<TickerDTO> fetchTickers(String responseBody) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(responseBody);
+        List<TickerDTO> tickers = new ArrayList<>(rootNode.size());
+        for (JsonNode tickerNode : rootNode) {
+            tickers.add(new TickerDTO()
+                    .setSymbol(tickerNode.path("currency_pair").asText())
+                    .setLastPrice(decimalOf(tickerNode.get("last")))
+                    .setPriceChangePercent(decimalOf(tickerNode.get("change_percentage")))
+                    .setBaseVolume(decimalOf(tickerNode.get("base_volume")))
+                    .setQuoteVolume(decimalOf(tickerNode.get("quote_volume"))));
+        }
+        return tickers;
+    }
+}
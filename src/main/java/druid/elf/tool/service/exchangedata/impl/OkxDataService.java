@@ -1,20 +1,24 @@
 package druid.elf.tool.service.exchangedata.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import druid.elf.tool.dto.TickerDTO;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradingPair;
 import druid.elf.tool.enums.ExchangeType;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
 import druid.elf.tool.service.exchangedata.AbstractExchangeDataService;
+import druid.elf.tool.service.exchangedata.KlineBuffer;
+import druid.elf.tool.service.exchangedata.KlineLayout;
+import druid.elf.tool.service.exchangedata.KlineStreamDecoder;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.Proxy;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -23,6 +27,12 @@ import java.util.List;
 @Component
 public class OkxDataService extends AbstractExchangeDataService {
 
+    // K线响应：{"code":"0","msg":"","data":[[开盘时间, 开, 高, 低, 收, 量, ...]]}，最新在前
+    private static final KlineLayout KLINE_LAYOUT = new KlineLayout()
+            .setPath("data")
+            .setNewestFirst(true)
+            .setErrorCheck("code", "0", "msg");
+
     public OkxDataService() {
         this(null);
     }
@@ -38,31 +48,27 @@ public class OkxDataService extends AbstractExchangeDataService {
     }
 
     @Override
-    protected BarSeries parseKlineData(String responseBody) throws IOException {
-        JsonNode rootNode = objectMapper.readTree(responseBody);
-        if (!"0".equals(rootNode.get("code").asText())) {
-            throw new RuntimeException("API返回错误: " + rootNode.get("msg").asText());
-        }
+    protected KlineBuffer parseKlineData(InputStream in, int expectedCount) throws IOException {
+        return KlineStreamDecoder.decode(in, KLINE_LAYOUT, expectedCount);
+    }
 
-        JsonNode dataNode = rootNode.get("data");
-        BarSeries series = new BaseBarSeries();
-        List<JsonNode> klineList = new ArrayList<>();
-        for (JsonNode klineNode : dataNode) {
-            klineList.add(klineNode);
-        }
-        Collections.reverse(klineList);
+    @Override
+    protected String buildSinceUrl(String symbol, String interval, long sinceOpenTime, int maxCount) {
+        // before 返回比该时间戳更新的数据（不包含），因此减 1 使起始K线包含在内
+        return String.format("https://www.okx.com/api/v5/market/candles?instId=%s&bar=%s&before=%s&limit=%s",
+                symbol, interval, sinceOpenTime - 1, maxCount);
+    }
 
-        for (JsonNode klineNode : klineList) {
-            long timestamp = Long.parseLong(klineNode.get(0).asText());
-            double open = Double.parseDouble(klineNode.get(1).asText());
-            double high = Double.parseDouble(klineNode.get(2).asText());
-            double low = Double.parseDouble(klineNode.get(3).asText());
-            double close = Double.parseDouble(klineNode.get(4).asText());
-            double volume = Double.parseDouble(klineNode.get(5).asText());
+    @Override
+    protected String buildRangeUrl(String symbol, String interval, long startOpenTime, long endOpenTime, int limit) {
+        // 历史K线接口，after 返回早于该时间戳的数据、before 返回晚于该时间戳的数据（均不包含），单页最多 100 条
+        return String.format("https://www.okx.com/api/v5/market/history-candles?instId=%s&bar=%s&after=%s&before=%s&limit=%s",
+                symbol, interval, endOpenTime + 1, startOpenTime - 1, limit);
+    }
 
-            series.addBar(buildBar(timestamp, open, high, low, close, volume));
-        }
-        return series;
+    @Override
+    protected int getRangePageSize() {
+        return 100;
     }
 
     @Override
@@ -132,4 +138,37 @@ public class OkxDataService extends AbstractExchangeDataService {
         }
         return tradingPairs;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected String buildTickersUrl() {
+        return "https://www.okx.com/api/v5/market/tickers?instType=SPOT";
+    }
+
+    /**
+     * 解析OKX全量24小时行情：{"code":"0","data":[{"instId":"BTC-USDT","last":"..","open24h":"..","vol24h":"..","volCcy24h":".."}]}，
+     * 现货的 volCcy24h 为计价货币成交额，涨跌幅由 open24h 计算
+     */
+    @Override
+    protected List<TickerDTO> fetchTickers(String responseBody) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(responseBody);
+        if (!"0".equals(rootNode.path("code").asText())) {
+            throw new IOException("API返回错误: " + rootNode.path("msg").asText());
+        }
+        JsonNode dataNode = rootNode.path("data");
+        List<TickerDTO> tickers = new ArrayList<>(dataNode.size());
+        for (JsonNode tickerNode : dataNode) {
+            BigDecimal last = decimalOf(tickerNode.get("last"));
+            BigDecimal open = decimalOf(tickerNode.get("open24h"));
+            BigDecimal changePercent = last != null && open != null && open.signum() != 0
+                    ? last.subtract(open).multiply(BigDecimal.valueOf(100)).divide(open, 4, RoundingMode.HALF_UP)
+                    : null;
+            tickers.add(new TickerDTO()
+                    .setSymbol(tickerNode.path("instId").asText())
+                    .setLastPrice(last)
+                    .setPriceChangePercent(changePercent)
+                    .setBaseVolume(decimalOf(tickerNode.get("vol24h")))
+                    .setQuoteVolume(decimalOf(tickerNode.get("volCcy24h"))));
+        }
+        return tickers;
+    }
+}
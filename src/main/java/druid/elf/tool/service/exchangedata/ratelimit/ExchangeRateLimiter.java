@@ -0,0 +1,66 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.error.ExchangeRequestException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+
+import java.time.Clock;
+
+/**
+ * 单个 交易所×代理（即单个出口IP）的限流器，
+ * 请求前按权重预约令牌，响应后根据用量响应头和限流状态码校正预算
+ */
+@Slf4j
+public class ExchangeRateLimiter {
+    private static final long DEFAULT_PENALTY_MS = 60_000L; // 429/418 未携带 Retry-After 时的暂停时长
+
+    @Getter
+    private final String key;                // 交易所×代理 键
+    @Getter
+    private final RateLimitProfile profile;  // 交易所限额配置
+    private final TokenBucket bucket;        // 令牌桶
+
+    public ExchangeRateLimiter(String key, ExchangeType exchangeType, double safetyFactor) {
+        this(key, exchangeType, safetyFactor, Clock.systemUTC());
+    }
+
+    ExchangeRateLimiter(String key, ExchangeType exchangeType, double safetyFactor, Clock clock) {
+        this.key = key;
+        this.profile = RateLimitProfile.of(exchangeType);
+        this.bucket = new TokenBucket(profile.getLimit(), profile.getWindow().toMillis(), safetyFactor, clock);
+    }
+
+    /**
+     * 预约令牌，返回需要等待的毫秒数
+     */
+    public long reserve(RequestType type) {
+        return bucket.reserve(profile.weightOf(type));
+    }
+
+    /**
+     * 根据响应校正预算：读取实时用量响应头，遇到 429/418 时按 Retry-After 暂停
+     */
+    public void onResponse(Response response) {
+        profile.syncFromHeaders(response, bucket);
+        int code = response.code();
+        if (code == 429 || code == 418) {
+            long pause = parseRetryAfter(response.header("Retry-After"));
+            log.warn("{} 触发交易所限流({})，暂停 {}ms", key, code, pause);
+            bucket.penalize(pause);
+        }
+    }
+
+    /**
+     * 当前剩余预算占容量的比例
+     */
+    public double availableRatio() {
+        return bucket.available() / bucket.getCapacity();
+    }
+
+    private long parseRetryAfter(String retryAfter) {
+        long millis = ExchangeRequestException.parseRetryAfter(retryAfter);
+        return millis > 0 ? millis : DEFAULT_PENALTY_MS;
+    }
+}
@@ -0,0 +1,38 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import druid.elf.tool.entity.SettingsProxy;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.OkHttpClientRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限流器注册中心，与 {@link OkHttpClientRegistry} 使用相同的 交易所×代理 键，
+ * 同一出口IP的所有请求共享一个预算
+ */
+@Component
+public class ExchangeRateLimiterRegistry {
+
+    @Value("${exchange.rate-limit.safety-factor:0.8}")
+    private double safetyFactor; // 只使用文档限额的该比例
+
+    private final Map<String, ExchangeRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ExchangeRateLimiter getLimiter(ExchangeType exchangeType, SettingsProxy proxySettings) {
+        return limiters.computeIfAbsent(OkHttpClientRegistry.keyOf(exchangeType, proxySettings),
+                key -> new ExchangeRateLimiter(key, exchangeType, safetyFactor));
+    }
+
+    /**
+     * 各限流器当前剩余预算比例
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> result = new TreeMap<>();
+        limiters.forEach((key, limiter) -> result.put(OkHttpClientRegistry.maskKey(key), limiter.availableRatio()));
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import druid.elf.tool.enums.ExchangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import okhttp3.Response;
+
+import java.time.Duration;
+
+/**
+ * 各交易所公开行情接口的文档限额（按IP计算）及实时用量响应头解析
+ */
+@Getter
+@AllArgsConstructor
+public enum RateLimitProfile {
+    // OKX：行情K线 40次/2秒，交易对信息 20次/2秒，不返回用量响应头
+    OKX(ExchangeType.OKX, 40, Duration.ofSeconds(2)),
+    // Binance：REQUEST_WEIGHT 6000/分钟，K线权重2，exchangeInfo权重20，全量24小时行情权重80
+    BINANCE(ExchangeType.BINANCE, 6000, Duration.ofMinutes(1)),
+    // Gate.io：现货公开接口 200次/10秒
+    GATE_IO(ExchangeType.GATE_IO, 200, Duration.ofSeconds(10)),
+    // Bybit：HTTP 接口 600次/5秒
+    BYBIT(ExchangeType.BYBIT, 600, Duration.ofSeconds(5));
+
+    private final ExchangeType exchangeType;
+    private final int limit;        // 窗口限额
+    private final Duration window;  // 窗口长度
+
+    public static RateLimitProfile of(ExchangeType exchangeType) {
+        return valueOf(exchangeType.name());
+    }
+
+    /**
+     * 请求在限额中占用的权重
+     */
+    public int weightOf(RequestType type) {
+        return switch (this) {
+            case BINANCE -> switch (type) {
+                case KLINE -> 2;
+                case TRADING_PAIRS -> 20;
+                case TICKERS -> 80;
+            };
+            case OKX -> type == RequestType.KLINE ? 1 : 2;
+            case GATE_IO, BYBIT -> 1;
+        };
+    }
+
+    /**
+     * 读取响应头中的实时用量并校正令牌桶，没有相关响应头时不做处理
+     */
+    public void syncFromHeaders(Response response, TokenBucket bucket) {
+        switch (this) {
+            case BINANCE -> {
+                Double used = headerAsDouble(response, "X-MBX-USED-WEIGHT-1M");
+                if (used != null) {
+                    long windowMillis = window.toMillis();
+                    long resetAt = (bucket.now() / windowMillis + 1) * windowMillis;
+                    bucket.sync(limit - used, resetAt);
+                }
+            }
+            case BYBIT -> syncFromRemaining(bucket, response,
+                    "X-Bapi-Limit-Status", "X-Bapi-Limit", "X-Bapi-Limit-Reset-Timestamp");
+            case GATE_IO -> syncFromRemaining(bucket, response,
+                    "X-Gate-RateLimit-Requests-Remain", "X-Gate-RateLimit-Limit", "X-Gate-RateLimit-Reset-Timestamp");
+            case OKX -> {
+                // OKX 不返回用量响应头，完全依赖本地令牌桶
+            }
+        }
+    }
+
+    /**
+     * 按 剩余/上限 的比例折算到文档限额后校正令牌桶
+     */
+    private void syncFromRemaining(TokenBucket bucket, Response response,
+                                   String remainingHeader, String limitHeader, String resetHeader) {
+        Double remaining = headerAsDouble(response, remainingHeader);
+        Double headerLimit = headerAsDouble(response, limitHeader);
+        if (remaining == null || headerLimit == null || headerLimit <= 0) {
+            return;
+        }
+        Double resetAt = headerAsDouble(response, resetHeader);
+        long resetAtMillis = resetAt == null ? 0L : resetAt < 1e12 ? (long) (resetAt * 1000) : resetAt.longValue(); // 兼容秒级时间戳
+        bucket.sync(remaining / headerLimit * limit, resetAtMillis);
+    }
+
+    private static Double headerAsDouble(Response response, String name) {
+        String value = response.header(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+/**
+ * 交易所请求类型，用于确定请求在限流预算中的权重
+ */
+public enum RequestType {
+    KLINE,          // K线数据
+    TRADING_PAIRS,  // 交易对信息
+    TICKERS         // 全部交易对的24小时行情
+}
@@ -0,0 +1,104 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import java.time.Clock;
+
+/**
+ * 按权重扣减的令牌桶。
+ * 采用预约模式：令牌允许透支，透支部分按补充速率换算为调用方需要等待的时间，
+ * 因此并发请求会被自然地均匀排开，而预算充足时请求无需任何等待。
+ */
+public class TokenBucket {
+    private final double capacity;        // 桶容量（已按安全系数折算）
+    private final double reserve;         // 为服务端窗口保留的余量
+    private final double refillPerMilli;  // 每毫秒补充的令牌数
+    private double tokens;                // 当前令牌数，可为负数（表示已被预约）
+    private long lastRefillTime;          // 上次补充时间
+    private long blockedUntil;            // 被服务端限流时的解除时间
+    private final Clock clock;            // 时间来源，测试中可替换
+
+    /**
+     * @param limit 交易所文档给出的窗口限额
+     * @param windowMillis 窗口长度（毫秒）
+     * @param safetyFactor 安全系数，只使用限额的该比例
+     */
+    public TokenBucket(double limit, long windowMillis, double safetyFactor) {
+        this(limit, windowMillis, safetyFactor, Clock.systemUTC());
+    }
+
+    TokenBucket(double limit, long windowMillis, double safetyFactor, Clock clock) {
+        this.capacity = limit * safetyFactor;
+        this.reserve = limit - capacity;
+        this.refillPerMilli = capacity / windowMillis;
+        this.tokens = capacity;
+        this.clock = clock;
+        this.lastRefillTime = clock.millis();
+    }
+
+    /**
+     * 预约指定权重的令牌
+     * @param weight 请求权重
+     * @return 调用方需要等待的毫秒数，0 表示可以立即发送
+     */
+    public synchronized long reserve(double weight) {
+        long now = clock.millis();
+        refill(now);
+        tokens -= weight;
+        long wait = tokens < 0 ? (long) Math.ceil(-tokens / refillPerMilli) : 0L;
+        return Math.max(wait, blockedUntil - now);
+    }
+
+    /**
+     * 根据服务端返回的实时用量校正令牌数
+     * @param remaining 服务端窗口剩余额度（按文档限额的单位）
+     * @param resetAtMillis 窗口重置时间，未知时为 0
+     */
+    public synchronized void sync(double remaining, long resetAtMillis) {
+        long now = clock.millis();
+        refill(now);
+        double available = remaining - reserve;
+        if (available < tokens) {
+            tokens = available;
+        }
+        if (available <= 0 && resetAtMillis > now) {
+            blockedUntil = Math.max(blockedUntil, resetAtMillis);
+        }
+    }
+
+    /**
+     * 服务端明确限流（429/418）时暂停发送
+     * @param pauseMillis 暂停时长（毫秒）
+     */
+    public synchronized void penalize(long pauseMillis) {
+        long now = clock.millis();
+        refill(now);
+        tokens = Math.min(tokens, 0);
+        blockedUntil = Math.max(blockedUntil, now + pauseMillis);
+    }
+
+    /**
+     * 当前可用令牌数
+     */
+    public synchronized double available() {
+        refill(clock.millis());
+        return tokens;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 令牌桶使用的当前时间，用于换算服务端窗口的重置时间
+     */
+    long now() {
+        return clock.millis();
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillTime;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerMilli);
+            lastRefillTime = now;
+        }
+    }
+}
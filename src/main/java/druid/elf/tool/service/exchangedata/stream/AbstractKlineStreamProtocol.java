@@ -0,0 +1,85 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import druid.elf.tool.enums.ExchangeType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易所K线推送协议：连接地址、订阅报文、心跳和推送消息的解析。
+ * 子类只描述各交易所的报文格式，连接管理与重连由 {@link KlineStreamConnection} 负责
+ */
+public abstract class AbstractKlineStreamProtocol {
+
+    protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(); // JSON解析工具
+
+    private final String url; // 推送地址
+
+    protected AbstractKlineStreamProtocol(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 生成订阅或取消订阅报文，按单条报文允许的主题数分批
+     * @param topics 订阅主题
+     * @param subscribe true 为订阅，false 为取消订阅
+     * @return 待发送的报文
+     */
+    public List<String> buildMessages(List<KlineStreamTopic> topics, boolean subscribe) {
+        List<String> messages = new ArrayList<>();
+        int batch = getMaxTopicsPerMessage();
+        for (int i = 0; i < topics.size(); i += batch) {
+            messages.add(buildMessage(topics.subList(i, Math.min(topics.size(), i + batch)), subscribe));
+        }
+        return messages;
+    }
+
+    /**
+     * 解析推送消息，非K线消息（订阅回执、心跳响应等）返回空列表
+     * @param text 推送的文本消息
+     * @return 消息中的K线
+     * @throws IOException 如果消息无法解析或交易所返回错误
+     */
+    public List<StreamedKline> parse(String text) throws IOException {
+        if (!text.startsWith("{")) return List.of(); // 纯文本心跳响应
+        return parse(OBJECT_MAPPER.readTree(text));
+    }
+
+    public abstract ExchangeType getExchangeType();
+
+    /**
+     * 主题在交易所推送消息中的唯一标识，必须与 {@link #parse} 中解析出的 topicKey 一致
+     */
+    public abstract String topicKey(KlineStreamTopic topic);
+
+    /**
+     * 单个连接最多承载的主题数
+     */
+    public abstract int getMaxTopicsPerConnection();
+
+    /**
+     * 单条订阅报文最多包含的主题数
+     */
+    protected abstract int getMaxTopicsPerMessage();
+
+    /**
+     * 连续发送报文的最小间隔（毫秒），避免触发交易所的入站消息限频
+     */
+    public abstract long getMessageIntervalMillis();
+
+    /**
+     * 应用层心跳报文，交易所只依赖协议层 ping 时返回 null
+     */
+    public abstract String pingMessage();
+
+    protected abstract String buildMessage(List<KlineStreamTopic> topics, boolean subscribe);
+
+    protected abstract List<StreamedKline> parse(JsonNode root) throws IOException;
+}
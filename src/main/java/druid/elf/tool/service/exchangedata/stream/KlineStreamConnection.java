@@ -0,0 +1,211 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个K线推送连接：在一条 WebSocket 上复用多个订阅主题，
+ * 断线后按指数退避重连并重新订阅全部主题，长时间收不到消息时主动断开重连
+ */
+@Slf4j
+public class KlineStreamConnection extends WebSocketListener {
+
+    private static final long PING_INTERVAL_MILLIS = 20_000L;    // 心跳间隔
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000L;     // 超过该时间无消息视为连接失效
+    private static final long MIN_RECONNECT_MILLIS = 1_000L;     // 最小重连等待
+    private static final long MAX_RECONNECT_MILLIS = 60_000L;    // 最大重连等待
+
+    private final String name;
+    private final AbstractKlineStreamProtocol protocol;
+    private final OkHttpClient client;
+    private final ScheduledExecutorService timer;
+    private final KlineStreamListener listener;
+    private final Map<String, KlineStreamTopic> topics = new ConcurrentHashMap<>(); // 主题标识 -> 主题
+
+    private WebSocket webSocket;                  // 当前连接，断开期间为 null
+    private boolean open;                         // 当前连接是否已握手成功
+    private ScheduledFuture<?> heartbeat;         // 心跳与空闲检测任务
+    private volatile long lastMessageAt;          // 最近收到消息的时间
+    private long reconnectDelay = MIN_RECONNECT_MILLIS;
+    private boolean stopped;
+
+    public KlineStreamConnection(String name, AbstractKlineStreamProtocol protocol, OkHttpClient client,
+                                 ScheduledExecutorService timer, KlineStreamListener listener) {
+        this.name = name;
+        this.protocol = protocol;
+        this.client = client;
+        this.timer = timer;
+        this.listener = listener;
+    }
+
+    /**
+     * 建立连接，连接成功后自动订阅已登记的主题
+     */
+    public synchronized void start() {
+        if (stopped || webSocket != null) return;
+        log.info("{} 正在连接 {}，主题数: {}", name, protocol.getUrl(), topics.size());
+        webSocket = client.newWebSocket(new Request.Builder().url(protocol.getUrl()).build(), this);
+    }
+
+    /**
+     * 关闭连接，不再重连
+     */
+    public synchronized void stop() {
+        stopped = true;
+        cancelHeartbeat();
+        if (webSocket != null) {
+            webSocket.close(1000, "shutdown");
+            webSocket = null;
+        }
+        open = false;
+    }
+
+    /**
+     * 登记并订阅主题，已连接时立即发送订阅报文
+     */
+    public synchronized void subscribe(Collection<KlineStreamTopic> added) {
+        List<KlineStreamTopic> fresh = new ArrayList<>();
+        for (KlineStreamTopic topic : added) {
+            if (topics.putIfAbsent(protocol.topicKey(topic), topic) == null) fresh.add(topic);
+        }
+        if (open && !fresh.isEmpty()) {
+            sendPaced(webSocket, protocol.buildMessages(fresh, true));
+        }
+    }
+
+    /**
+     * 取消订阅主题
+     */
+    public synchronized void unsubscribe(Collection<KlineStreamTopic> removed) {
+        List<KlineStreamTopic> stale = new ArrayList<>();
+        for (KlineStreamTopic topic : removed) {
+            if (topics.remove(protocol.topicKey(topic)) != null) stale.add(topic);
+        }
+        if (open && !stale.isEmpty()) {
+            sendPaced(webSocket, protocol.buildMessages(stale, false));
+        }
+    }
+
+    public int getTopicCount() {
+        return topics.size();
+    }
+
+    public int getRemainingCapacity() {
+        return protocol.getMaxTopicsPerConnection() - topics.size();
+    }
+
+    public synchronized boolean isConnected() {
+        return open;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        synchronized (this) {
+            if (webSocket != this.webSocket) return;
+            log.info("{} 已连接，重新订阅 {} 个主题", name, topics.size());
+            open = true;
+            lastMessageAt = System.currentTimeMillis();
+            reconnectDelay = MIN_RECONNECT_MILLIS;
+            sendPaced(webSocket, protocol.buildMessages(new ArrayList<>(topics.values()), true));
+            cancelHeartbeat();
+            heartbeat = timer.scheduleWithFixedDelay(() -> heartbeat(webSocket),
+                    PING_INTERVAL_MILLIS, PING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        lastMessageAt = System.currentTimeMillis();
+        List<StreamedKline> klines;
+        try {
+            klines = protocol.parse(text);
+        } catch (IOException e) {
+            log.warn("{} 推送消息处理失败: {}", name, e.getMessage());
+            return;
+        }
+        for (StreamedKline kline : klines) {
+            KlineStreamTopic topic = topics.get(kline.getTopicKey());
+            if (topic != null && kline.isClosed()) {
+                listener.onClosedKline(protocol.getExchangeType(), topic, kline);
+            }
+        }
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+        log.info("{} 连接已关闭: {} {}", name, code, reason);
+        scheduleReconnect(webSocket);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+        log.warn("{} 连接异常: {}", name, t.getMessage());
+        scheduleReconnect(webSocket);
+    }
+
+    /**
+     * 发送心跳，并检测连接是否已长时间无消息
+     */
+    private void heartbeat(WebSocket webSocket) {
+        if (System.currentTimeMillis() - lastMessageAt > IDLE_TIMEOUT_MILLIS) {
+            log.warn("{} 超过 {}ms 未收到消息，断开重连", name, IDLE_TIMEOUT_MILLIS);
+            webSocket.cancel(); // 触发 onFailure 进入重连
+            return;
+        }
+        String ping = protocol.pingMessage();
+        if (ping != null) webSocket.send(ping);
+    }
+
+    /**
+     * 按交易所的入站限频间隔依次发送报文
+     */
+    private void sendPaced(WebSocket webSocket, List<String> messages) {
+        long interval = protocol.getMessageIntervalMillis();
+        for (int i = 0; i < messages.size(); i++) {
+            String message = messages.get(i);
+            if (i == 0) {
+                webSocket.send(message);
+            } else {
+                timer.schedule(() -> webSocket.send(message), i * interval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private synchronized void scheduleReconnect(WebSocket closed) {
+        if (closed != webSocket) return; // 旧连接的回调
+        cancelHeartbeat();
+        webSocket = null;
+        open = false;
+        if (stopped) return;
+        long delay = reconnectDelay;
+        reconnectDelay = Math.min(MAX_RECONNECT_MILLIS, reconnectDelay * 2);
+        log.info("{} 将在 {}ms 后重连", name, delay);
+        timer.schedule(this::start, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import druid.elf.tool.enums.ExchangeType;
+
+/**
+ * K线推送回调
+ */
+@FunctionalInterface
+public interface KlineStreamListener {
+
+    /**
+     * 收到一根已收盘的K线，在连接的读线程上回调，实现不应阻塞
+     */
+    void onClosedKline(ExchangeType exchangeType, KlineStreamTopic topic, StreamedKline kline);
+}
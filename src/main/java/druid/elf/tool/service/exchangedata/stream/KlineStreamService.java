@@ -0,0 +1,148 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import druid.elf.tool.entity.SettingsProxy;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.OkHttpClientRegistry;
+import druid.elf.tool.service.exchangedata.stream.impl.BinanceKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.impl.BybitKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.impl.GateIoKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.impl.OkxKlineStreamProtocol;
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.kline.RollingKlineService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * K线推送接入服务：kline.ingestion.mode 为 stream 时，按交易所维护 WebSocket 连接，
+ * 订阅交易对×周期的K线频道，把收盘K线写入 {@link RollingKlineService} 持有的序列。
+ * 序列的首次历史深度以及断流期间的缺口仍由REST接口补齐
+ */
+@Slf4j
+@Service
+public class KlineStreamService implements KlineStreamListener {
+
+    @Value("${kline.ingestion.mode:poll}")
+    private String ingestionMode;  // poll：定时轮询REST；stream：WebSocket推送 + REST补齐
+    @Autowired
+    private RollingKlineService rollingKlineService;
+    @Autowired
+    private OkHttpClientRegistry clientRegistry;
+    @Autowired
+    private ScheduledExecutorService exchangeRequestTimer;
+
+    private final Map<ExchangeType, List<KlineStreamConnection>> connections = new ConcurrentHashMap<>();
+    private final Map<ExchangeType, Set<KlineStreamTopic>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<ExchangeType, String> proxyKeys = new ConcurrentHashMap<>(); // 交易所 -> 连接使用的代理
+
+    /**
+     * 是否启用推送接入
+     */
+    public boolean isEnabled() {
+        return "stream".equalsIgnoreCase(ingestionMode);
+    }
+
+    /**
+     * 同步交易所的订阅：新增的主题分配到有剩余容量的连接，不再需要的主题取消订阅。
+     * 代理与已有连接使用的不同时，断开已有连接并通过新代理重新订阅全部主题
+     * @param exchangeType 交易所类型
+     * @param proxy 连接使用的代理，与REST请求和行情预筛选相同，可能为空
+     * @param symbols 交易对
+     * @param intervals K线周期
+     */
+    public synchronized void syncSubscriptions(ExchangeType exchangeType, SettingsProxy proxy, Collection<String> symbols,
+                                               Collection<KlineInterval> intervals) {
+        String proxyKey = OkHttpClientRegistry.keyOf(exchangeType, proxy);
+        String previous = proxyKeys.put(exchangeType, proxyKey);
+        if (previous != null && !previous.equals(proxyKey)) {
+            List<KlineStreamConnection> stale = connections.remove(exchangeType);
+            if (stale != null) stale.forEach(KlineStreamConnection::stop);
+            subscriptions.remove(exchangeType);
+            log.info("{} K线推送代理已变更，断开 {} 个连接后重新订阅", exchangeType, stale == null ? 0 : stale.size());
+        }
+        Set<KlineStreamTopic> wanted = new HashSet<>();
+        for (String symbol : symbols) {
+            for (KlineInterval interval : intervals) {
+                wanted.add(new KlineStreamTopic(symbol, interval));
+            }
+        }
+        Set<KlineStreamTopic> current = subscriptions.computeIfAbsent(exchangeType, k -> new HashSet<>());
+        List<KlineStreamTopic> removed = current.stream().filter(topic -> !wanted.contains(topic)).toList();
+        List<KlineStreamTopic> added = wanted.stream().filter(topic -> !current.contains(topic)).toList();
+        if (removed.isEmpty() && added.isEmpty()) return;
+
+        List<KlineStreamConnection> pool = connections.computeIfAbsent(exchangeType, k -> new ArrayList<>());
+        if (!removed.isEmpty()) {
+            pool.forEach(connection -> connection.unsubscribe(removed));
+        }
+        assign(exchangeType, proxy, pool, added);
+        current.removeAll(removed);
+        current.addAll(added);
+        log.info("{} K线推送订阅已同步: 新增 {}, 取消 {}, 当前 {} 个主题 / {} 个连接",
+                exchangeType, added.size(), removed.size(), current.size(), pool.size());
+    }
+
+    @Override
+    public void onClosedKline(ExchangeType exchangeType, KlineStreamTopic topic, StreamedKline kline) {
+        rollingKlineService.accept(exchangeType, topic.getSymbol(), topic.getInterval(),
+                KlineBars.bar(kline.getOpenTime(), topic.getInterval().getDuration(), kline.getOpen(), kline.getHigh(), kline.getLow(),
+                        kline.getClose(), kline.getVolume()));
+    }
+
+    /**
+     * 把主题依次填入有剩余容量的连接，不足时新建连接
+     */
+    private void assign(ExchangeType exchangeType, SettingsProxy proxy, List<KlineStreamConnection> pool,
+                        List<KlineStreamTopic> added) {
+        int index = 0;
+        for (KlineStreamConnection connection : pool) {
+            int take = Math.min(connection.getRemainingCapacity(), added.size() - index);
+            if (take <= 0) continue;
+            connection.subscribe(added.subList(index, index + take));
+            index += take;
+        }
+        while (index < added.size()) {
+            AbstractKlineStreamProtocol protocol = protocolOf(exchangeType);
+            KlineStreamConnection connection = new KlineStreamConnection(
+                    exchangeType + "-stream-" + pool.size(), protocol, clientRegistry.getClient(exchangeType, proxy),
+                    exchangeRequestTimer, this);
+            int take = Math.min(protocol.getMaxTopicsPerConnection(), added.size() - index);
+            connection.subscribe(added.subList(index, index + take));
+            connection.start();
+            pool.add(connection);
+            index += take;
+        }
+    }
+
+    static AbstractKlineStreamProtocol protocolOf(ExchangeType exchangeType) {
+        return switch (exchangeType) {
+            case OKX -> new OkxKlineStreamProtocol();
+            case BINANCE -> new BinanceKlineStreamProtocol();
+            case GATE_IO -> new GateIoKlineStreamProtocol();
+            case BYBIT -> new BybitKlineStreamProtocol();
+        };
+    }
+
+    /**
+     * 容器关闭时断开全部推送连接
+     */
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(pool -> pool.forEach(KlineStreamConnection::stop));
+        connections.clear();
+        subscriptions.clear();
+        proxyKeys.clear();
+    }
+}
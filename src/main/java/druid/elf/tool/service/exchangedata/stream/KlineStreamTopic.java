@@ -0,0 +1,14 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import druid.elf.tool.enums.KlineInterval;
+import lombok.Data;
+
+/**
+ * K线推送订阅主题：交易对×周期
+ */
+@Data
+public class KlineStreamTopic {
+
+    private final String symbol;           // 交易对，与REST接口一致，例如：BTC-USDT
+    private final KlineInterval interval;  // K线周期
+}
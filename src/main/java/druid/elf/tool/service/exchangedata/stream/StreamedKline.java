@@ -0,0 +1,21 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 推送流中解析出的一根K线
+ */
+@Data
+@Accessors(chain = true)
+public class StreamedKline {
+
+    private String topicKey;   // 交易所原生的主题标识，用于映射回订阅主题
+    private long openTime;     // 开盘时间（毫秒）
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double volume;
+    private boolean closed;    // 是否已收盘
+}
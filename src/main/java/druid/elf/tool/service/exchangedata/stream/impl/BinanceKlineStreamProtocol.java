@@ -0,0 +1,88 @@
+package druid.elf.tool.service.exchangedata.stream.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.stream.AbstractKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamTopic;
+import druid.elf.tool.service.exchangedata.stream.StreamedKline;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 币安K线推送协议，主题形如 btcusdt@kline_15m，心跳由服务端的协议层 ping 完成
+ */
+public class BinanceKlineStreamProtocol extends AbstractKlineStreamProtocol {
+
+    private static final String DEFAULT_URL = "wss://stream.binance.com:9443/ws";
+
+    private final AtomicLong requestId = new AtomicLong(); // 订阅请求ID
+
+    public BinanceKlineStreamProtocol() {
+        this(DEFAULT_URL);
+    }
+
+    public BinanceKlineStreamProtocol(String url) {
+        super(url);
+    }
+
+    @Override
+    public ExchangeType getExchangeType() {
+        return ExchangeType.BINANCE;
+    }
+
+    @Override
+    public String topicKey(KlineStreamTopic topic) {
+        return topic.getSymbol().replace("-", "").toLowerCase()
+                + "@kline_" + topic.getInterval().getInterval(ExchangeType.BINANCE).toLowerCase();
+    }
+
+    @Override
+    public int getMaxTopicsPerConnection() {
+        return 1000; // 文档上限 1024
+    }
+
+    @Override
+    protected int getMaxTopicsPerMessage() {
+        return 200;
+    }
+
+    @Override
+    public long getMessageIntervalMillis() {
+        return 250; // 入站消息上限 5 条/秒
+    }
+
+    @Override
+    public String pingMessage() {
+        return null;
+    }
+
+    @Override
+    protected String buildMessage(List<KlineStreamTopic> topics, boolean subscribe) {
+        // {"method":"SUBSCRIBE","params":["btcusdt@kline_15m"],"id":1}
+        ObjectNode message = OBJECT_MAPPER.createObjectNode()
+                .put("method", subscribe ? "SUBSCRIBE" : "UNSUBSCRIBE");
+        ArrayNode params = message.putArray("params");
+        topics.forEach(topic -> params.add(topicKey(topic)));
+        message.put("id", requestId.incrementAndGet());
+        return message.toString();
+    }
+
+    @Override
+    protected List<StreamedKline> parse(JsonNode root) {
+        // {"e":"kline","s":"BTCUSDT","k":{"t":开盘时间,"i":"15m","o":"..","h":"..","l":"..","c":"..","v":"..","x":是否收盘}}
+        if (!"kline".equals(root.path("e").asText())) return List.of();
+        JsonNode k = root.path("k");
+        return List.of(new StreamedKline()
+                .setTopicKey(k.path("s").asText().toLowerCase() + "@kline_" + k.path("i").asText())
+                .setOpenTime(k.path("t").asLong())
+                .setOpen(k.path("o").asDouble())
+                .setHigh(k.path("h").asDouble())
+                .setLow(k.path("l").asDouble())
+                .setClose(k.path("c").asDouble())
+                .setVolume(k.path("v").asDouble())
+                .setClosed(k.path("x").asBoolean()));
+    }
+}
@@ -0,0 +1,93 @@
+package druid.elf.tool.service.exchangedata.stream.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.stream.AbstractKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamTopic;
+import druid.elf.tool.service.exchangedata.stream.StreamedKline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bybit 现货K线推送协议，主题形如 kline.15.BTCUSDT，需要每 20 秒发送一次 ping
+ */
+public class BybitKlineStreamProtocol extends AbstractKlineStreamProtocol {
+
+    private static final String DEFAULT_URL = "wss://stream.bybit.com/v5/public/spot";
+
+    public BybitKlineStreamProtocol() {
+        this(DEFAULT_URL);
+    }
+
+    public BybitKlineStreamProtocol(String url) {
+        super(url);
+    }
+
+    @Override
+    public ExchangeType getExchangeType() {
+        return ExchangeType.BYBIT;
+    }
+
+    @Override
+    public String topicKey(KlineStreamTopic topic) {
+        return "kline." + topic.getInterval().getInterval(ExchangeType.BYBIT) + "." + topic.getSymbol().replace("-", "");
+    }
+
+    @Override
+    public int getMaxTopicsPerConnection() {
+        return 500;
+    }
+
+    @Override
+    protected int getMaxTopicsPerMessage() {
+        return 10; // 现货单次订阅最多 10 个主题
+    }
+
+    @Override
+    public long getMessageIntervalMillis() {
+        return 50;
+    }
+
+    @Override
+    public String pingMessage() {
+        return "{\"op\":\"ping\"}";
+    }
+
+    @Override
+    protected String buildMessage(List<KlineStreamTopic> topics, boolean subscribe) {
+        // {"op":"subscribe","args":["kline.15.BTCUSDT"]}
+        ObjectNode message = OBJECT_MAPPER.createObjectNode()
+                .put("op", subscribe ? "subscribe" : "unsubscribe");
+        ArrayNode args = message.putArray("args");
+        topics.forEach(topic -> args.add(topicKey(topic)));
+        return message.toString();
+    }
+
+    @Override
+    protected List<StreamedKline> parse(JsonNode root) throws IOException {
+        // {"topic":"kline.15.BTCUSDT","data":[{"start":开盘时间,"open":"..","close":"..","high":"..","low":"..","volume":"..","confirm":true}]}
+        if (root.has("success") && !root.path("success").asBoolean()) {
+            throw new IOException("Bybit 推送返回错误: " + root.path("ret_msg").asText());
+        }
+        String topicKey = root.path("topic").asText();
+        JsonNode data = root.path("data");
+        if (!topicKey.startsWith("kline.") || !data.isArray()) return List.of();
+        List<StreamedKline> klines = new ArrayList<>(data.size());
+        for (JsonNode item : data) {
+            klines.add(new StreamedKline()
+                    .setTopicKey(topicKey)
+                    .setOpenTime(item.path("start").asLong())
+                    .setOpen(item.path("open").asDouble())
+                    .setHigh(item.path("high").asDouble())
+                    .setLow(item.path("low").asDouble())
+                    .setClose(item.path("close").asDouble())
+                    .setVolume(item.path("volume").asDouble())
+                    .setClosed(item.path("confirm").asBoolean()));
+        }
+        return klines;
+    }
+}
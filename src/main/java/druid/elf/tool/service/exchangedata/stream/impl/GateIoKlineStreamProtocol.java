@@ -0,0 +1,100 @@
+package druid.elf.tool.service.exchangedata.stream.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.stream.AbstractKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamTopic;
+import druid.elf.tool.service.exchangedata.stream.StreamedKline;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Gate.io 现货K线推送协议，每条订阅报文只能包含一个 周期×交易对，主题形如 15m_BTC_USDT
+ */
+public class GateIoKlineStreamProtocol extends AbstractKlineStreamProtocol {
+
+    private static final String DEFAULT_URL = "wss://api.gateio.ws/ws/v4/";
+    private static final String CHANNEL = "spot.candlesticks";
+
+    public GateIoKlineStreamProtocol() {
+        this(DEFAULT_URL);
+    }
+
+    public GateIoKlineStreamProtocol(String url) {
+        super(url);
+    }
+
+    @Override
+    public ExchangeType getExchangeType() {
+        return ExchangeType.GATE_IO;
+    }
+
+    @Override
+    public String topicKey(KlineStreamTopic topic) {
+        return intervalOf(topic) + "_" + pairOf(topic);
+    }
+
+    @Override
+    public int getMaxTopicsPerConnection() {
+        return 500;
+    }
+
+    @Override
+    protected int getMaxTopicsPerMessage() {
+        return 1;
+    }
+
+    @Override
+    public long getMessageIntervalMillis() {
+        return 20;
+    }
+
+    @Override
+    public String pingMessage() {
+        return "{\"time\":" + System.currentTimeMillis() / 1000 + ",\"channel\":\"spot.ping\"}";
+    }
+
+    @Override
+    protected String buildMessage(List<KlineStreamTopic> topics, boolean subscribe) {
+        // {"time":秒,"channel":"spot.candlesticks","event":"subscribe","payload":["15m","BTC_USDT"]}
+        KlineStreamTopic topic = topics.get(0);
+        ObjectNode message = OBJECT_MAPPER.createObjectNode()
+                .put("time", System.currentTimeMillis() / 1000)
+                .put("channel", CHANNEL)
+                .put("event", subscribe ? "subscribe" : "unsubscribe");
+        message.putArray("payload").add(intervalOf(topic)).add(pairOf(topic));
+        return message.toString();
+    }
+
+    @Override
+    protected List<StreamedKline> parse(JsonNode root) throws IOException {
+        // {"channel":"spot.candlesticks","event":"update","result":{"t":"开盘时间(秒)","v":"计价货币成交额","c":"..","h":"..","l":"..","o":"..","n":"15m_BTC_USDT","w":是否收盘}}
+        if (root.hasNonNull("error")) {
+            throw new IOException("Gate.io 推送返回错误: " + root.path("error").path("message").asText());
+        }
+        if (!CHANNEL.equals(root.path("channel").asText()) || !"update".equals(root.path("event").asText())) {
+            return List.of();
+        }
+        JsonNode result = root.path("result");
+        // 与REST接口保持一致，成交量取计价货币成交额
+        return List.of(new StreamedKline()
+                .setTopicKey(result.path("n").asText())
+                .setOpenTime(result.path("t").asLong() * 1000)
+                .setOpen(result.path("o").asDouble())
+                .setHigh(result.path("h").asDouble())
+                .setLow(result.path("l").asDouble())
+                .setClose(result.path("c").asDouble())
+                .setVolume(result.path("v").asDouble())
+                .setClosed(result.path("w").asBoolean()));
+    }
+
+    private String intervalOf(KlineStreamTopic topic) {
+        return topic.getInterval().getInterval(ExchangeType.GATE_IO).toLowerCase();
+    }
+
+    private String pairOf(KlineStreamTopic topic) {
+        return topic.getSymbol().replace("-", "_");
+    }
+}
@@ -0,0 +1,100 @@
+package druid.elf.tool.service.exchangedata.stream.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.stream.AbstractKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamTopic;
+import druid.elf.tool.service.exchangedata.stream.StreamedKline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OKX K线推送协议，K线频道位于 business 端点，主题形如 candle15m:BTC-USDT，心跳为纯文本 ping/pong
+ */
+public class OkxKlineStreamProtocol extends AbstractKlineStreamProtocol {
+
+    private static final String DEFAULT_URL = "wss://ws.okx.com:8443/ws/v5/business";
+
+    public OkxKlineStreamProtocol() {
+        this(DEFAULT_URL);
+    }
+
+    public OkxKlineStreamProtocol(String url) {
+        super(url);
+    }
+
+    @Override
+    public ExchangeType getExchangeType() {
+        return ExchangeType.OKX;
+    }
+
+    @Override
+    public String topicKey(KlineStreamTopic topic) {
+        return channelOf(topic) + ":" + topic.getSymbol();
+    }
+
+    @Override
+    public int getMaxTopicsPerConnection() {
+        return 500;
+    }
+
+    @Override
+    protected int getMaxTopicsPerMessage() {
+        return 100;
+    }
+
+    @Override
+    public long getMessageIntervalMillis() {
+        return 100;
+    }
+
+    @Override
+    public String pingMessage() {
+        return "ping"; // 30 秒内无消息服务端会断开连接
+    }
+
+    @Override
+    protected String buildMessage(List<KlineStreamTopic> topics, boolean subscribe) {
+        // {"op":"subscribe","args":[{"channel":"candle15m","instId":"BTC-USDT"}]}
+        ObjectNode message = OBJECT_MAPPER.createObjectNode()
+                .put("op", subscribe ? "subscribe" : "unsubscribe");
+        ArrayNode args = message.putArray("args");
+        topics.forEach(topic -> args.addObject()
+                .put("channel", channelOf(topic))
+                .put("instId", topic.getSymbol()));
+        return message.toString();
+    }
+
+    @Override
+    protected List<StreamedKline> parse(JsonNode root) throws IOException {
+        // {"arg":{"channel":"candle15m","instId":"BTC-USDT"},"data":[["开盘时间","开","高","低","收","量",...,"confirm"]]}
+        if ("error".equals(root.path("event").asText())) {
+            throw new IOException("OKX 推送返回错误: " + root.path("msg").asText());
+        }
+        JsonNode data = root.path("data");
+        if (!data.isArray()) return List.of();
+        JsonNode arg = root.path("arg");
+        String topicKey = arg.path("channel").asText() + ":" + arg.path("instId").asText();
+        List<StreamedKline> klines = new ArrayList<>(data.size());
+        for (JsonNode row : data) {
+            klines.add(new StreamedKline()
+                    .setTopicKey(topicKey)
+                    .setOpenTime(row.path(0).asLong())
+                    .setOpen(row.path(1).asDouble())
+                    .setHigh(row.path(2).asDouble())
+                    .setLow(row.path(3).asDouble())
+                    .setClose(row.path(4).asDouble())
+                    .setVolume(row.path(5).asDouble())
+                    .setClosed("1".equals(row.path(8).asText())));
+        }
+        return klines;
+    }
+
+    private String channelOf(KlineStreamTopic topic) {
+        return "candle" + topic.getInterval().getInterval(ExchangeType.OKX);
+    }
+}
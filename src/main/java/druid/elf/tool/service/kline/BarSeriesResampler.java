@@ -0,0 +1,131 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.num.Num;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * K线重采样：把低周期K线按 OHLCV 规则聚合为高周期K线。
+ * 周期边界与各交易所保持一致：日线及以下按 UTC 对齐（OKX 日线按香港时间），
+ * 周线按各交易所的周起始日对齐，保证派生结果与直接请求的K线逐根相同
+ */
+public final class BarSeriesResampler {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private BarSeriesResampler() {
+    }
+
+    /**
+     * 交易所K线周期相对 Unix 纪元（1970-01-01 周四 00:00 UTC）的对齐偏移
+     * @param exchangeType 交易所类型
+     * @param interval K线周期
+     * @return 偏移毫秒数，周期起点满足 (openTime - offset) % 周期 == 0
+     */
+    public static long alignmentOffset(ExchangeType exchangeType, KlineInterval interval) {
+        long hkOffset = exchangeType == ExchangeType.OKX ? -8 * HOUR_MILLIS : 0L; // OKX 日线及以上按香港时间（UTC+8）开盘
+        return switch (interval) {
+            case _1D -> hkOffset;
+            case _1W -> exchangeType == ExchangeType.GATE_IO
+                    ? 0L                          // Gate.io 周线按纪元对齐，起始于周四
+                    : 4 * DAY_MILLIS + hkOffset;  // 其余交易所周线起始于周一
+            default -> 0L;
+        };
+    }
+
+    /**
+     * 判断目标周期能否由源周期精确聚合：目标时长是源时长的整数倍，且目标周期边界都落在源周期边界上
+     */
+    public static boolean canDerive(ExchangeType exchangeType, KlineInterval source, KlineInterval target) {
+        long sourceMillis = source.getDuration().toMillis();
+        long targetMillis = target.getDuration().toMillis();
+        if (targetMillis <= sourceMillis || targetMillis % sourceMillis != 0) return false;
+        long shift = alignmentOffset(exchangeType, target) - alignmentOffset(exchangeType, source);
+        return Math.floorMod(shift, sourceMillis) == 0;
+    }
+
+    /**
+     * 将源序列聚合为目标周期。开头不完整的周期（窗口截断导致）被丢弃，最后一个周期与交易所一样保留为形成中的K线
+     * @param exchangeType 交易所类型，决定周期对齐方式
+     * @param source 按时间从旧到新排列的源序列
+     * @param target 目标周期
+     * @param maxBars 最多保留的K线条数（保留最新的）
+     * @return 目标周期序列
+     */
+    public static BarSeries resample(ExchangeType exchangeType, BarSeries source, KlineInterval target, int maxBars) {
+        long period = target.getDuration().toMillis();
+        long offset = alignmentOffset(exchangeType, target);
+        List<Bar> bars = new ArrayList<>();
+
+        Bucket bucket = null;
+        for (int i = KlineBars.firstIndex(source); i <= source.getEndIndex(); i++) {
+            Bar bar = source.getBar(i);
+            long openTime = KlineBars.openTimeMillis(bar);
+            long bucketStart = Math.floorDiv(openTime - offset, period) * period + offset;
+            if (bucket == null || bucket.start != bucketStart) {
+                if (bucket != null && bucket.complete) bars.add(bucket.toBar(target));
+                // 只有第一个周期可能被请求窗口截断；后续周期缺少开头的K线说明交易所本身无成交，照常聚合
+                bucket = new Bucket(bucketStart, bar, bucket != null || openTime == bucketStart);
+            } else {
+                bucket.add(bar);
+            }
+        }
+        if (bucket != null && bucket.complete) bars.add(bucket.toBar(target));
+
+        return KlineBars.newSeries(source.getName() + "@" + target.name(),
+                new ArrayList<>(bars.subList(Math.max(0, bars.size() - maxBars), bars.size())));
+    }
+
+    /**
+     * 聚合中的周期
+     */
+    private static final class Bucket {
+        private final long start;
+        private final boolean complete;
+        private final ZoneId zone;
+        private final Num open;
+        private Num high;
+        private Num low;
+        private Num close;
+        private Num volume;
+        private Num amount;
+        private long trades;
+
+        private Bucket(long start, Bar first, boolean complete) {
+            this.start = start;
+            this.complete = complete;
+            this.zone = first.getEndTime().getZone();
+            this.open = first.getOpenPrice();
+            this.high = first.getHighPrice();
+            this.low = first.getLowPrice();
+            this.close = first.getClosePrice();
+            this.volume = first.getVolume();
+            this.amount = first.getAmount();
+            this.trades = first.getTrades();
+        }
+
+        private void add(Bar bar) {
+            high = high.max(bar.getHighPrice());
+            low = low.min(bar.getLowPrice());
+            close = bar.getClosePrice();
+            volume = volume.plus(bar.getVolume());
+            amount = amount.plus(bar.getAmount());
+            trades += bar.getTrades();
+        }
+
+        private Bar toBar(KlineInterval target) {
+            // 与交易所数据构建的K线保持一致，endTime 为周期收盘时间
+            return new BaseBar(target.getDuration(), Instant.ofEpochMilli(start).plus(target.getDuration()).atZone(zone),
+                    open, high, low, close, volume, amount, trades);
+        }
+    }
+}
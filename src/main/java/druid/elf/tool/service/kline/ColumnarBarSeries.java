@@ -0,0 +1,470 @@
+package druid.elf.tool.service.kline;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 列式 BarSeries：开盘时间存放在 long[]，开/高/低/收/量/额 存放在 double[]，不为每根K线保留对象。
+ * {@link #getBar(int)} 按需生成只读的K线视图，数值在视图内复制一份，序列后续被覆盖也不影响已取出的视图。
+ * 设置最大条数后进入环形模式：数组容量固定，新K线覆盖最旧的一根，行为与 BaseBarSeries 的 maximumBarCount 一致。
+ * 所有K线共用序列的周期时长，数值类型固定为 DoubleNum
+ */
+public class ColumnarBarSeries implements BarSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String name;
+    private final transient Function<Number, Num> numFunction = DoubleNum::valueOf;
+    private Duration period;            // K线周期时长，首根K线加入时确定
+    private ZoneId zone;                // 生成视图时使用的时区
+    private long[] openTime;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private double[] amount;
+    private long[] trades;
+    private int head;                   // 最旧一根K线在数组中的位置
+    private int size;                   // 当前K线条数
+    private int maximumBarCount = Integer.MAX_VALUE;
+    private int removedBarsCount;       // 因超出最大条数被移除的K线数
+
+    public ColumnarBarSeries(String name) {
+        this(name, INITIAL_CAPACITY);
+    }
+
+    public ColumnarBarSeries(String name, int initialCapacity) {
+        this.name = name;
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * 固定容量的环形序列，超出容量时覆盖最旧的K线
+     * @param name 序列名称
+     * @param capacity 保留的K线条数
+     */
+    public static ColumnarBarSeries ring(String name, int capacity) {
+        ColumnarBarSeries series = new ColumnarBarSeries(name, capacity);
+        series.setMaximumBarCount(capacity);
+        return series;
+    }
+
+    /**
+     * 直接以基本类型追加一根K线，不创建任何中间对象
+     * @param openTime 开盘时间（毫秒），必须晚于最后一根K线
+     * @param period K线周期时长
+     */
+    public void append(long openTime, Duration period, double open, double high, double low, double close, double volume) {
+        append(openTime, period, open, high, low, close, volume, 0, 0L, false);
+    }
+
+    /**
+     * 以基本类型写入一根K线
+     * @param replace true 时替换最后一根K线
+     */
+    public void append(long openTime, Duration period, double open, double high, double low, double close,
+                       double volume, double amount, long trades, boolean replace) {
+        if (this.period == null) this.period = period;
+        if (replace && size > 0) {
+            write(physical(size - 1), openTime, open, high, low, close, volume, amount, trades);
+            return;
+        }
+        if (size > 0 && openTime <= this.openTime[physical(size - 1)]) {
+            throw new IllegalArgumentException(String.format("K线开盘时间 %d 不晚于序列最后一根K线 %d",
+                    openTime, this.openTime[physical(size - 1)]));
+        }
+        if (size == maximumBarCount) {
+            // 环形模式：覆盖最旧的一根
+            head = (head + 1) % this.openTime.length;
+            size--;
+            removedBarsCount++;
+        } else if (size == this.openTime.length) {
+            resize(Math.min(maximumBarCount, Math.max(size * 2, INITIAL_CAPACITY)));
+        }
+        size++;
+        write(physical(size - 1), openTime, open, high, low, close, volume, amount, trades);
+    }
+
+    /**
+     * K线的开盘时间（毫秒），无需生成视图
+     */
+    public long getOpenTime(int index) {
+        return openTime[physical(innerIndex(index))];
+    }
+
+    /**
+     * K线的收盘价，无需生成视图
+     */
+    public double getClose(int index) {
+        return close[physical(innerIndex(index))];
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    /**
+     * 按列批量写出全部K线，不生成K线视图：依次为 开盘时间、收盘时间、开/高/低/收/量/额、成交笔数，
+     * 每列按时间顺序连续存放，环形存储的两段分别整段复制
+     * @param buffer 目标缓冲区，字节序由调用方设置，需要 9 × 8 × 条数 字节的剩余空间
+     */
+    public void putColumns(ByteBuffer buffer) {
+        putColumn(buffer, openTime);
+        long periodMillis = period == null ? 0L : period.toMillis();
+        for (int i = 0; i < size; i++) buffer.putLong(openTime[physical(i)] + periodMillis);
+        putColumn(buffer, open);
+        putColumn(buffer, high);
+        putColumn(buffer, low);
+        putColumn(buffer, close);
+        putColumn(buffer, volume);
+        putColumn(buffer, amount);
+        putColumn(buffer, trades);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Bar getBar(int index) {
+        int p = physical(innerIndex(index));
+        return new BarView(period, zone, openTime[p], open[p], high[p], low[p], close[p], volume[p], amount[p], trades[p]);
+    }
+
+    @Override
+    public int getBarCount() {
+        return size;
+    }
+
+    @Override
+    public List<Bar> getBarData() {
+        return new AbstractList<>() {
+            @Override
+            public Bar get(int index) {
+                return getBar(removedBarsCount + index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public int getBeginIndex() {
+        return size == 0 ? -1 : removedBarsCount;
+    }
+
+    @Override
+    public int getEndIndex() {
+        return size == 0 ? -1 : removedBarsCount + size - 1;
+    }
+
+    @Override
+    public int getMaximumBarCount() {
+        return maximumBarCount;
+    }
+
+    @Override
+    public void setMaximumBarCount(int maximumBarCount) {
+        if (maximumBarCount <= 0) {
+            throw new IllegalArgumentException("最大K线条数必须为正数");
+        }
+        this.maximumBarCount = maximumBarCount;
+        int drop = Math.max(0, size - maximumBarCount);
+        head = (head + drop) % openTime.length;
+        size -= drop;
+        removedBarsCount += drop;
+        resize(Math.min(maximumBarCount, openTime.length)); // 只收缩不预分配，容量随追加增长到最大条数
+    }
+
+    @Override
+    public int getRemovedBarsCount() {
+        return removedBarsCount;
+    }
+
+    @Override
+    public void addBar(Bar bar, boolean replace) {
+        if (zone == null) zone = bar.getEndTime().getZone();
+        append(bar.getBeginTime().toInstant().toEpochMilli(), bar.getTimePeriod(),
+                bar.getOpenPrice().doubleValue(), bar.getHighPrice().doubleValue(), bar.getLowPrice().doubleValue(),
+                bar.getClosePrice().doubleValue(), doubleOf(bar.getVolume()), doubleOf(bar.getAmount()),
+                bar.getTrades(), replace);
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime) {
+        if (zone == null) zone = endTime.getZone();
+        long openTime = endTime.toInstant().minus(timePeriod).toEpochMilli();
+        append(openTime, timePeriod, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0, 0, 0L, false);
+    }
+
+    @Override
+    public void addBar(ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume, Num amount) {
+        addBar(period != null ? period : Duration.ofDays(1), endTime, openPrice, highPrice, lowPrice, closePrice, volume, amount);
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume) {
+        addBar(timePeriod, endTime, openPrice, highPrice, lowPrice, closePrice, volume, null);
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice,
+                       Num volume, Num amount) {
+        if (zone == null) zone = endTime.getZone();
+        append(endTime.toInstant().minus(timePeriod).toEpochMilli(), timePeriod,
+                openPrice.doubleValue(), highPrice.doubleValue(), lowPrice.doubleValue(), closePrice.doubleValue(),
+                doubleOf(volume), doubleOf(amount), 0L, false);
+    }
+
+    @Override
+    public void addTrade(Num tradeVolume, Num tradePrice) {
+        int p = physical(innerIndex(getEndIndex()));
+        double price = tradePrice.doubleValue();
+        volume[p] += tradeVolume.doubleValue();
+        amount[p] += tradeVolume.doubleValue() * price;
+        trades[p]++;
+        updatePrice(p, price);
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        updatePrice(physical(innerIndex(getEndIndex())), price.doubleValue());
+    }
+
+    @Override
+    public BarSeries getSubSeries(int startIndex, int endIndex) {
+        if (startIndex < 0) {
+            throw new IllegalArgumentException(String.format("起始下标 %d 不能为负数", startIndex));
+        }
+        if (startIndex >= endIndex) {
+            throw new IllegalArgumentException(String.format("结束下标 %d 必须大于起始下标 %d", endIndex, startIndex));
+        }
+        ColumnarBarSeries sub = new ColumnarBarSeries(name, endIndex - startIndex);
+        sub.period = period;
+        sub.zone = zone;
+        if (size == 0) return sub;
+        int from = Math.max(startIndex, getBeginIndex()) - removedBarsCount;
+        int to = Math.min(endIndex, getEndIndex() + 1) - removedBarsCount;
+        for (int i = from; i < to; i++) {
+            int p = physical(i);
+            sub.append(openTime[p], period, open[p], high[p], low[p], close[p], volume[p], amount[p], trades[p], false);
+        }
+        return sub;
+    }
+
+    @Override
+    public Num numOf(Number number) {
+        return numFunction.apply(number);
+    }
+
+    @Override
+    public Function<Number, Num> function() {
+        return numFunction;
+    }
+
+    /**
+     * 序列下标转换为有效数据内的下标，规则与 BaseBarSeries 一致：已移除的下标返回最旧一根
+     */
+    private int innerIndex(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(String.format("K线下标 %d 不能为负数", index));
+        }
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("序列为空: " + name);
+        }
+        int inner = index - removedBarsCount;
+        if (inner < 0) return 0;
+        if (inner >= size) {
+            throw new IndexOutOfBoundsException(String.format("K线下标 %d 超出序列范围 [%d, %d]",
+                    index, getBeginIndex(), getEndIndex()));
+        }
+        return inner;
+    }
+
+    private void putColumn(ByteBuffer buffer, long[] column) {
+        int first = Math.min(size, column.length - head);
+        buffer.asLongBuffer().put(column, head, first).put(column, 0, size - first);
+        buffer.position(buffer.position() + size * Long.BYTES);
+    }
+
+    private void putColumn(ByteBuffer buffer, double[] column) {
+        int first = Math.min(size, column.length - head);
+        buffer.asDoubleBuffer().put(column, head, first).put(column, 0, size - first);
+        buffer.position(buffer.position() + size * Double.BYTES);
+    }
+
+    private int physical(int inner) {
+        return (head + inner) % openTime.length;
+    }
+
+    private void write(int p, long openTime, double open, double high, double low, double close,
+                       double volume, double amount, long trades) {
+        this.openTime[p] = openTime;
+        this.open[p] = open;
+        this.high[p] = high;
+        this.low[p] = low;
+        this.close[p] = close;
+        this.volume[p] = volume;
+        this.amount[p] = amount;
+        this.trades[p] = trades;
+    }
+
+    private void updatePrice(int p, double price) {
+        if (Double.isNaN(open[p])) open[p] = price;
+        close[p] = price;
+        high[p] = Double.isNaN(high[p]) ? price : Math.max(high[p], price);
+        low[p] = Double.isNaN(low[p]) ? price : Math.min(low[p], price);
+    }
+
+    private void allocate(int capacity) {
+        openTime = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new double[capacity];
+        amount = new double[capacity];
+        trades = new long[capacity];
+        head = 0;
+    }
+
+    /**
+     * 调整数组容量，同时把数据整理为从下标 0 开始的顺序排列
+     */
+    private void resize(int capacity) {
+        if (capacity == openTime.length && head == 0) return;
+        long[] oldOpenTime = openTime;
+        double[] oldOpen = open, oldHigh = high, oldLow = low, oldClose = close, oldVolume = volume, oldAmount = amount;
+        long[] oldTrades = trades;
+        int oldHead = head;
+        int oldLength = oldOpenTime.length;
+        allocate(capacity);
+        for (int i = 0; i < size; i++) {
+            int p = (oldHead + i) % oldLength;
+            write(i, oldOpenTime[p], oldOpen[p], oldHigh[p], oldLow[p], oldClose[p], oldVolume[p], oldAmount[p], oldTrades[p]);
+        }
+    }
+
+    private static double doubleOf(Num num) {
+        return num == null ? 0 : num.doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarBarSeries{name=" + name + ", bars=" + size + ", removed=" + removedBarsCount
+                + ", capacity=" + openTime.length + ", period=" + period + "}";
+    }
+
+    /**
+     * 只读K线视图，数值在生成时复制，Num 对象在读取时才创建
+     */
+    private static final class BarView implements Bar {
+
+        private final Duration period;
+        private final ZoneId zone;
+        private final long openTime;
+        private final double open;
+        private final double high;
+        private final double low;
+        private final double close;
+        private final double volume;
+        private final double amount;
+        private final long trades;
+
+        private BarView(Duration period, ZoneId zone, long openTime, double open, double high, double low,
+                        double close, double volume, double amount, long trades) {
+            this.period = period;
+            this.zone = zone != null ? zone : ZoneId.systemDefault();
+            this.openTime = openTime;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+            this.amount = amount;
+            this.trades = trades;
+        }
+
+        @Override
+        public Num getOpenPrice() {
+            return DoubleNum.valueOf(open);
+        }
+
+        @Override
+        public Num getLowPrice() {
+            return DoubleNum.valueOf(low);
+        }
+
+        @Override
+        public Num getHighPrice() {
+            return DoubleNum.valueOf(high);
+        }
+
+        @Override
+        public Num getClosePrice() {
+            return DoubleNum.valueOf(close);
+        }
+
+        @Override
+        public Num getVolume() {
+            return DoubleNum.valueOf(volume);
+        }
+
+        @Override
+        public long getTrades() {
+            return trades;
+        }
+
+        @Override
+        public Num getAmount() {
+            return DoubleNum.valueOf(amount);
+        }
+
+        @Override
+        public Duration getTimePeriod() {
+            return period;
+        }
+
+        @Override
+        public ZonedDateTime getBeginTime() {
+            return Instant.ofEpochMilli(openTime).atZone(zone);
+        }
+
+        @Override
+        public ZonedDateTime getEndTime() {
+            return Instant.ofEpochMilli(openTime).plus(period).atZone(zone);
+        }
+
+        @Override
+        public void addTrade(Num tradeVolume, Num tradePrice) {
+            throw new UnsupportedOperationException("列式序列的K线视图为只读，请通过序列的 addTrade 更新");
+        }
+
+        @Override
+        public void addPrice(Num price) {
+            throw new UnsupportedOperationException("列式序列的K线视图为只读，请通过序列的 addPrice 更新");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{end time: %s, close price: %s, open price: %s, low price: %s, high price: %s, volume: %s}",
+                    getEndTime().withZoneSameInstant(ZoneId.systemDefault()), close, open, low, high, volume);
+        }
+    }
+}
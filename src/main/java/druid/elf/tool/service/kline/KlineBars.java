@@ -0,0 +1,197 @@
+package druid.elf.tool.service.kline;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeries;
+import druid.elf.tool.enums.KlineNumType;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * K线序列辅助方法。序列统一使用 {@link #getNumType()} 指定的数值类型创建，
+ * 数值类型为 DOUBLE 且启用列式存储时创建 {@link ColumnarBarSeries}。
+ * K线的 endTime 为收盘时间（开盘时间 + 周期时长）
+ */
+public final class KlineBars {
+
+    private static volatile KlineNumType numType = KlineNumType.DOUBLE; // 当前数值类型，由配置在启动时设置
+    private static volatile boolean columnar = true;                     // DOUBLE 类型是否使用列式序列
+    private static boolean configured;                                   // 是否已由配置设置
+
+    private KlineBars() {
+    }
+
+    public static KlineNumType getNumType() {
+        return numType;
+    }
+
+    public static boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * 设置新建K线和序列使用的数值类型及 DOUBLE 类型是否使用列式序列，由配置在启动时调用。
+     * 只能设置一次，运行中切换会使新旧序列的数值类型混用；以相同的值重复设置（如测试中重建容器）不受影响
+     * @throws IllegalStateException 如果已设置为不同的值
+     */
+    public static synchronized void configure(KlineNumType type, boolean useColumnar) {
+        if (configured && (type != numType || useColumnar != columnar)) {
+            throw new IllegalStateException(String.format("K线数值类型已设置为 %s（列式序列: %s），不能修改为 %s（列式序列: %s）",
+                    numType, columnar, type, useColumnar));
+        }
+        numType = type;
+        columnar = useColumnar;
+        configured = true;
+    }
+
+    /**
+     * 测试中切换数值类型，不受只能设置一次的限制
+     */
+    static void overrideNumType(KlineNumType type) {
+        numType = type;
+    }
+
+    /**
+     * 测试结束后恢复为未设置的默认状态，避免影响同一 JVM 中的其他测试
+     */
+    static synchronized void resetConfiguration() {
+        numType = KlineNumType.DOUBLE;
+        columnar = true;
+        configured = false;
+    }
+
+    /**
+     * 由交易所原始数据构建K线
+     * @param openTime 开盘时间（毫秒）
+     * @param duration K线周期时长
+     * @return BaseBar对象，endTime 为开盘时间 + 周期时长
+     */
+    public static BaseBar bar(long openTime, Duration duration, double open, double high, double low, double close, double volume) {
+        Function<Number, Num> num = numType.getNumFunction();
+        ZonedDateTime endTime = Instant.ofEpochMilli(openTime).plus(duration).atZone(ZoneId.systemDefault());
+        return new BaseBar(
+                duration, endTime,
+                num.apply(open), num.apply(high), num.apply(low),
+                num.apply(close), num.apply(volume), num.apply(0), 0L
+        );
+    }
+
+    /**
+     * 创建空序列，数值类型与当前配置一致
+     */
+    public static BarSeries newSeries(String name) {
+        if (useColumnar()) return new ColumnarBarSeries(name);
+        return new BaseBarSeries(name, numType.getNumFunction());
+    }
+
+    /**
+     * 由K线列表创建序列，数值类型跟随K线本身，避免与配置切换前创建的K线混用
+     */
+    public static BarSeries newSeries(String name, List<Bar> bars) {
+        if (bars.isEmpty()) return newSeries(name);
+        Num sample = bars.get(0).getClosePrice();
+        if (columnar && sample instanceof DoubleNum) {
+            ColumnarBarSeries series = new ColumnarBarSeries(name, bars.size());
+            bars.forEach(series::addBar);
+            return series;
+        }
+        return new BaseBarSeries(name, bars, sample.function());
+    }
+
+    /**
+     * 创建保留固定条数的滚动序列，数值类型与 like 一致；列式序列以环形模式复用数组
+     * @param name 序列名称
+     * @param capacity 保留的K线条数
+     * @param like 提供数值类型的序列
+     */
+    public static BarSeries newRollingSeries(String name, int capacity, BarSeries like) {
+        if (like instanceof ColumnarBarSeries || (columnar && like.numOf(0) instanceof DoubleNum)) {
+            return ColumnarBarSeries.ring(name, capacity);
+        }
+        BarSeries series = new BaseBarSeries(name, like.function());
+        series.setMaximumBarCount(capacity);
+        return series;
+    }
+
+    /**
+     * 以基本类型向序列追加一根K线，列式序列不创建 Bar 对象
+     * @param openTime 开盘时间（毫秒）
+     * @param duration K线周期时长
+     */
+    public static void append(BarSeries series, long openTime, Duration duration,
+                              double open, double high, double low, double close, double volume) {
+        if (series instanceof ColumnarBarSeries columnarSeries) {
+            columnarSeries.append(openTime, duration, open, high, low, close, volume);
+        } else {
+            series.addBar(bar(openTime, duration, open, high, low, close, volume));
+        }
+    }
+
+    /**
+     * K线的开盘时间（毫秒）
+     */
+    public static long openTimeMillis(Bar bar) {
+        return bar.getBeginTime().toInstant().toEpochMilli();
+    }
+
+    /**
+     * 序列最后一根K线的开盘时间，空序列返回 -1
+     */
+    public static long lastOpenTimeMillis(BarSeries series) {
+        if (series == null || series.isEmpty()) return -1L;
+        if (series instanceof ColumnarBarSeries columnarSeries) return columnarSeries.getOpenTime(series.getEndIndex());
+        return openTimeMillis(series.getLastBar());
+    }
+
+    /**
+     * 序列中第一根仍保留的K线下标。ta4j 的 BaseBarSeries 超出最大条数移除K线后 getBeginIndex 仍为 0，
+     * 对已移除的下标返回最旧的一根，遍历时须从该下标开始，否则会重复读取最旧的K线
+     */
+    public static int firstIndex(BarSeries series) {
+        return Math.max(series.getBeginIndex(), series.getRemovedBarsCount());
+    }
+
+    /**
+     * 复制序列的K线列表（K线对象共享），调用方可安全读取而不受后续合并影响
+     */
+    public static BarSeries copyOf(BarSeries series) {
+        if (series instanceof ColumnarBarSeries) {
+            return series.isEmpty() ? new ColumnarBarSeries(series.getName()) : series.getSubSeries(firstIndex(series), series.getEndIndex() + 1);
+        }
+        if (series.isEmpty()) return new BaseBarSeries(series.getName(), series.function());
+        List<Bar> bars = new ArrayList<>(series.getBarCount());
+        for (int i = firstIndex(series); i <= series.getEndIndex(); i++) {
+            bars.add(series.getBar(i));
+        }
+        return new BaseBarSeries(series.getName(), bars, series.function());
+    }
+
+    /**
+     * 序列最新的 count 根K线（K线对象共享）
+     */
+    public static BarSeries tail(BarSeries series, int count) {
+        int begin = Math.max(firstIndex(series), series.getEndIndex() - count + 1);
+        if (series instanceof ColumnarBarSeries) {
+            return series.isEmpty() ? new ColumnarBarSeries(series.getName()) : series.getSubSeries(begin, series.getEndIndex() + 1);
+        }
+        if (series.isEmpty()) return new BaseBarSeries(series.getName(), series.function());
+        List<Bar> bars = new ArrayList<>(Math.max(0, series.getEndIndex() - begin + 1));
+        for (int i = begin; i <= series.getEndIndex(); i++) {
+            bars.add(series.getBar(i));
+        }
+        return new BaseBarSeries(series.getName(), bars, series.function());
+    }
+
+    private static boolean useColumnar() {
+        return columnar && numType == KlineNumType.DOUBLE;
+    }
+}
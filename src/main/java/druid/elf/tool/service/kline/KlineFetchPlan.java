@@ -0,0 +1,48 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import lombok.Getter;
+import org.ta4j.core.BarSeries;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * K线拉取计划：需要向交易所请求的基础周期及其深度，以及由基础周期本地派生的目标周期
+ */
+@Getter
+public class KlineFetchPlan {
+
+    private final ExchangeType exchangeType;
+    private final int barCount;                             // 每个目标周期交给策略的K线条数
+    private final Map<KlineInterval, Integer> fetches;      // 请求的周期 -> 请求深度，按周期从小到大
+    private final Map<KlineInterval, KlineInterval> derived; // 派生的周期 -> 源周期
+
+    KlineFetchPlan(ExchangeType exchangeType, int barCount,
+                   Map<KlineInterval, Integer> fetches, Map<KlineInterval, KlineInterval> derived) {
+        this.exchangeType = exchangeType;
+        this.barCount = barCount;
+        this.fetches = Collections.unmodifiableMap(new LinkedHashMap<>(fetches));
+        this.derived = Collections.unmodifiableMap(new LinkedHashMap<>(derived));
+    }
+
+    /**
+     * 由已拉取的基础周期组装全部目标周期，基础周期缺失时对应的派生周期也一并缺失
+     * @param fetched 已拉取的周期序列
+     * @return 周期名称 -> 序列，每个序列最多 barCount 条
+     */
+    public Map<String, BarSeries> assemble(Map<KlineInterval, BarSeries> fetched) {
+        Map<String, BarSeries> series = new HashMap<>();
+        fetched.forEach((interval, bars) -> series.put(interval.name(), KlineBars.tail(bars, barCount)));
+        derived.forEach((target, source) -> {
+            BarSeries bars = fetched.get(source);
+            if (bars != null) {
+                series.put(target.name(), BarSeriesResampler.resample(exchangeType, bars, target, barCount));
+            }
+        });
+        return series;
+    }
+}
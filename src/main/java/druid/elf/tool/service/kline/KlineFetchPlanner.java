@@ -0,0 +1,86 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * K线拉取规划器：按周期从小到大决定每个目标周期是直接请求，还是由已请求的低周期在本地聚合。
+ * 只有当低周期单页深度足以聚合出至少 min-bars 根目标K线时才派生，否则仍直接请求，避免策略拿到过短的序列
+ */
+@Slf4j
+@Component
+public class KlineFetchPlanner {
+
+    @Value("${kline.resample.enabled:true}")
+    private boolean enabled;   // 是否启用本地重采样
+    @Value("${kline.resample.min-bars:100}")
+    private int minBars;       // 派生周期至少需要的K线条数
+
+    /**
+     * 为一组目标周期生成拉取计划
+     * @param exchangeType 交易所类型
+     * @param intervals 目标周期
+     * @param barCount 每个目标周期交给策略的K线条数
+     * @return 拉取计划
+     */
+    public KlineFetchPlan plan(ExchangeType exchangeType, List<KlineInterval> intervals, int barCount) {
+        int pageSize = maxPageSize(exchangeType);
+        Map<KlineInterval, Integer> fetches = new LinkedHashMap<>();
+        Map<KlineInterval, KlineInterval> derived = new LinkedHashMap<>();
+
+        List<KlineInterval> sorted = intervals.stream()
+                .sorted(Comparator.comparing(KlineInterval::getDuration))
+                .toList();
+        for (KlineInterval target : sorted) {
+            KlineInterval source = enabled ? findSource(exchangeType, fetches.keySet(), target, pageSize, barCount) : null;
+            if (source == null) {
+                fetches.put(target, Math.min(barCount, pageSize));
+                continue;
+            }
+            // 加深源周期的请求深度，使派生周期尽量凑满 barCount 条
+            int ratio = ratio(source, target);
+            fetches.merge(source, (int) Math.min(pageSize, (long) ratio * barCount), Math::max);
+            derived.put(target, source);
+        }
+
+        log.debug("{} K线拉取计划: 请求 {}, 派生 {}", exchangeType, fetches, derived);
+        return new KlineFetchPlan(exchangeType, barCount, fetches, derived);
+    }
+
+    /**
+     * 在已请求的周期中选出可派生目标周期且深度足够的源周期，优先选择最大的源周期以获得最深的派生序列
+     */
+    private KlineInterval findSource(ExchangeType exchangeType, Iterable<KlineInterval> fetched,
+                                     KlineInterval target, int pageSize, int barCount) {
+        int required = Math.min(minBars, barCount);
+        KlineInterval best = null;
+        for (KlineInterval source : fetched) {
+            if (!BarSeriesResampler.canDerive(exchangeType, source, target)) continue;
+            if (pageSize / ratio(source, target) < required) continue;
+            if (best == null || source.getDuration().compareTo(best.getDuration()) > 0) best = source;
+        }
+        return best;
+    }
+
+    private static int ratio(KlineInterval source, KlineInterval target) {
+        return (int) (target.getDuration().toMillis() / source.getDuration().toMillis());
+    }
+
+    /**
+     * 各交易所K线接口单页最大条数
+     */
+    static int maxPageSize(ExchangeType exchangeType) {
+        return switch (exchangeType) {
+            case OKX -> 300;
+            case BINANCE, GATE_IO, BYBIT -> 1000;
+        };
+    }
+}
@@ -0,0 +1,234 @@
+package druid.elf.tool.service.kline;
+
+import cn.hutool.core.collection.CollectionUtil;
+import druid.elf.tool.dto.KlineIntegrityDTO;
+import druid.elf.tool.entity.Settings;
+import druid.elf.tool.entity.SettingsProxy;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.DataService;
+import druid.elf.tool.service.TradeSignalService;
+import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import druid.elf.tool.service.exchangedata.ratelimit.ExchangeRateLimiterRegistry;
+import druid.elf.tool.service.kline.store.KlineStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K线完整性扫描：定期检查滚动序列中缺失、重复或倒序的开盘时间，以及 {@link KlineStore} 段文件扫描窗口内的缺口。
+ * 存储缺口在限流预算充足时按区间补拉，补拉后交易所仍未返回的部分（停机维护等）记为无法补齐，不再重复请求；
+ * 内存序列的缺口和重复K线就地修复，缺口从存储补上，已记为无法补齐的缺口不算缺失
+ */
+@Slf4j
+@Service
+public class KlineIntegrityScanner {
+
+    @Autowired
+    private RollingKlineService rollingKlineService;
+    @Autowired
+    private KlineStore klineStore;
+    @Autowired
+    private DataService dataService;
+    @Autowired
+    private TradeSignalService tradeSignalService;
+    @Autowired
+    private ExchangeRateLimiterRegistry rateLimiterRegistry;
+
+    @Value("${kline.integrity.enabled:true}")
+    private boolean enabled;             // 是否启用完整性扫描
+    @Value("${kline.integrity.lookback-bars:1000}")
+    private int lookbackBars;            // 存储扫描窗口：最后一根已保存K线之前的条数
+    @Value("${kline.integrity.max-repairs-per-run:20}")
+    private int maxRepairsPerRun;        // 每轮最多补拉的缺口数
+    @Value("${kline.integrity.min-budget-ratio:0.5}")
+    private double minBudgetRatio;       // 限流剩余预算低于该比例时本轮不补拉，优先保证信号生成的请求
+
+    private final Map<String, KlineIntegrityDTO> results = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Long, Long>> unrepairable = new ConcurrentHashMap<>(); // 序列键 -> 无法补齐的缺口
+
+    /**
+     * 定期扫描，间隔由 kline.integrity.interval-minutes 配置
+     */
+    @Scheduled(initialDelayString = "${kline.integrity.interval-minutes:30}",
+            fixedDelayString = "${kline.integrity.interval-minutes:30}", timeUnit = TimeUnit.MINUTES)
+    public void scheduledScan() {
+        if (enabled) scan();
+    }
+
+    /**
+     * 扫描全部已持有的序列并在预算内补拉存储缺口
+     */
+    public synchronized void scan() {
+        Settings settings = tradeSignalService.getSettings();
+        SettingsProxy proxy = settings != null && CollectionUtil.isNotEmpty(settings.getProxies()) ? settings.getProxies().get(0) : null;
+        int repairs = 0;
+        int incomplete = 0;
+        Set<String> keys = rollingKlineService.keys();
+        for (String key : keys) {
+            String[] parts = key.split("\\|");
+            if (parts.length != 3) continue;
+            ExchangeType exchangeType = ExchangeType.valueOf(parts[0]);
+            String symbol = parts[1];
+            KlineInterval interval = KlineInterval.valueOf(parts[2]);
+            KlineIntegrityDTO result = results.computeIfAbsent(key, k -> new KlineIntegrityDTO().setKey(k));
+
+            List<long[]> gaps = storeGaps(key, exchangeType, symbol, interval);
+            for (long[] gap : gaps) {
+                if (repairs >= maxRepairsPerRun
+                        || rateLimiterRegistry.getLimiter(exchangeType, proxy).availableRatio() < minBudgetRatio) {
+                    break;
+                }
+                repair(key, dataService.createExchangeDataService(exchangeType, proxy), exchangeType, symbol, interval, gap, result);
+                repairs++;
+            }
+            // 存储补拉之后再检查内存序列，本轮补上的K线可直接用于修复
+            checkSeries(key, exchangeType, symbol, interval, result);
+            gaps = storeGaps(key, exchangeType, symbol, interval);
+            result.setStoreGapBars(countBars(gaps, interval));
+            NavigableMap<Long, Long> skipped = unrepairable.get(key);
+            result.setUnrepairableBars(skipped == null ? 0 : countBars(skipped.entrySet().stream()
+                    .map(e -> new long[]{e.getKey(), e.getValue()}).toList(), interval));
+            result.setLastScanTime(System.currentTimeMillis());
+            if (result.getMissingBars() > 0 || result.getDuplicateBars() > 0 || result.getStoreGapBars() > 0) incomplete++;
+        }
+        results.keySet().retainAll(keys);
+        log.info("K线完整性扫描完成：{} 个序列，{} 个存在缺口或重复，补拉 {} 个缺口", results.size(), incomplete, repairs);
+    }
+
+    /**
+     * 各序列最近一次的扫描结果，完整度低的在前
+     */
+    public List<KlineIntegrityDTO> snapshot() {
+        return results.values().stream()
+                .sorted(Comparator.comparingDouble(KlineIntegrityDTO::getCompleteness)
+                        .thenComparing(KlineIntegrityDTO::getKey))
+                .toList();
+    }
+
+    /**
+     * 检查内存序列相邻K线的开盘时间间隔，有缺口或重复时从存储读取缺口内的K线就地修复序列
+     */
+    private void checkSeries(String key, ExchangeType exchangeType, String symbol, KlineInterval interval,
+                             KlineIntegrityDTO result) {
+        BarSeries series = rollingKlineService.get(exchangeType, symbol, interval);
+        if (series == null) return;
+        SeriesCheck check = inspect(key, series, interval);
+        if (!check.gaps.isEmpty() || check.duplicates > 0) {
+            List<Bar> fill = new ArrayList<>();
+            for (long[] gap : check.gaps) {
+                BarSeries stored = klineStore.readRange(exchangeType, symbol, interval, gap[0], gap[1]);
+                for (int i = KlineBars.firstIndex(stored); i <= stored.getEndIndex(); i++) fill.add(stored.getBar(i));
+            }
+            BarSeries repaired = rollingKlineService.repair(key, fill);
+            if (repaired != null) {
+                SeriesCheck after = inspect(key, repaired, interval);
+                log.warn("{} 内存序列缺失 {} 根、重复 {} 根K线，已就地修复，从存储补上 {} 根，仍缺失 {} 根", key,
+                        countBars(check.gaps, interval), check.duplicates, fill.size(), countBars(after.gaps, interval));
+                series = repaired;
+                check = after;
+            }
+            if (!check.gaps.isEmpty() && !klineStore.isEnabled()) {
+                // 没有存储可补时只能丢弃，由下次刷新全量拉取
+                rollingKlineService.invalidate(key);
+            }
+        }
+        int missing = countBars(check.gaps, interval);
+        int bars = series.getBarCount();
+        result.setBars(bars)
+                .setMissingBars(missing)
+                .setDuplicateBars(check.duplicates)
+                .setCompleteness(bars == 0 ? 1.0 : (double) bars / (bars + missing));
+    }
+
+    /**
+     * 序列中的缺口和重复（含倒序）K线数，已记为无法补齐的缺口不计入
+     */
+    private SeriesCheck inspect(String key, BarSeries series, KlineInterval interval) {
+        long intervalMillis = interval.getDuration().toMillis();
+        NavigableMap<Long, Long> skipped = unrepairable.get(key);
+        SeriesCheck check = new SeriesCheck();
+        long previous = -1L;
+        for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+            long openTime = KlineBars.openTimeMillis(series.getBar(i));
+            if (previous >= 0) {
+                if (openTime <= previous) {
+                    check.duplicates++;
+                    continue;
+                }
+                long gapStart = previous + intervalMillis;
+                if (openTime > gapStart && !knownUnrepairable(skipped, gapStart, openTime)) {
+                    check.gaps.add(new long[]{gapStart, openTime});
+                }
+            }
+            previous = openTime;
+        }
+        return check;
+    }
+
+    /**
+     * 缺口是否落在已记为无法补齐的区间内
+     */
+    private static boolean knownUnrepairable(NavigableMap<Long, Long> skipped, long from, long to) {
+        if (skipped == null) return false;
+        Map.Entry<Long, Long> entry = skipped.floorEntry(from);
+        return entry != null && entry.getValue() >= to;
+    }
+
+    /**
+     * 存储扫描窗口内尚未确认无法补齐的缺口
+     */
+    private List<long[]> storeGaps(String key, ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        long last = klineStore.lastOpenTime(exchangeType, symbol, interval);
+        if (last < 0) return List.of();
+        long intervalMillis = interval.getDuration().toMillis();
+        NavigableMap<Long, Long> skipped = unrepairable.get(key);
+        return klineStore.gaps(exchangeType, symbol, interval, last - lookbackBars * intervalMillis, last + intervalMillis)
+                .stream()
+                .filter(gap -> skipped == null || !skipped.containsKey(gap[0]))
+                .toList();
+    }
+
+    /**
+     * 补拉一个缺口：拉取到的K线由区间回填写入存储，补拉后仍缺失的部分记为无法补齐
+     */
+    private void repair(String key, ExchangeDataService service, ExchangeType exchangeType, String symbol,
+                        KlineInterval interval, long[] gap, KlineIntegrityDTO result) {
+        try {
+            BarSeries fetched = service.getKlineRange(symbol, interval, gap[0], gap[1]);
+            result.setRepairedBars(result.getRepairedBars() + fetched.getBarCount());
+            for (long[] remaining : klineStore.gaps(exchangeType, symbol, interval, gap[0], gap[1])) {
+                unrepairable.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(remaining[0], remaining[1]);
+            }
+            log.info("{} 补拉缺口 [{}, {})，写入 {} 根K线", key, gap[0], gap[1], fetched.getBarCount());
+        } catch (Exception e) {
+            log.warn("{} 补拉缺口 [{}, {}) 失败，下轮重试: {}", key, gap[0], gap[1], e.getMessage());
+        }
+    }
+
+    private static int countBars(List<long[]> gaps, KlineInterval interval) {
+        long intervalMillis = interval.getDuration().toMillis();
+        long total = 0;
+        for (long[] gap : gaps) total += (gap[1] - gap[0]) / intervalMillis;
+        return (int) total;
+    }
+
+    private static final class SeriesCheck {
+        private final List<long[]> gaps = new ArrayList<>(); // 需要修复的缺口 {首根开盘时间, 结束时间}
+        private int duplicates;                              // 重复或倒序的K线数
+    }
+}
@@ -0,0 +1,186 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.store.codec.KlineBlockCodec;
+import druid.elf.tool.service.kline.store.codec.KlineColumns;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 滚动序列快照：定期和关闭时把 {@link RollingKlineService} 持有的全部序列（含形成中的最后一根）压缩写入单个文件，
+ * 启动时在首次刷新前恢复，重启后只需请求快照之后的缺口。
+ * <pre>
+ * 文件: magic(int) version(int) createdAt(long) count(int)
+ * 每个序列: key(UTF) capacity(int) blockLength(int) block（{@link KlineBlockCodec} 编码）
+ * </pre>
+ */
+@Slf4j
+@Service
+public class KlineSnapshotService {
+
+    private static final int MAGIC = 0x4B534E31; // "KSN1"
+    private static final int VERSION = 1;
+
+    @Autowired
+    private RollingKlineService rollingKlineService;
+
+    @Value("${kline.snapshot.enabled:true}")
+    private boolean enabled;    // 是否启用快照
+    @Value("${kline.snapshot.path:./db/snapshot/rolling.snap}")
+    private String path;        // 快照文件
+
+    private final AtomicBoolean restored = new AtomicBoolean();
+
+    /**
+     * 从快照恢复滚动序列，只执行一次
+     * @return 恢复的序列数
+     */
+    public int restore() {
+        if (!enabled || !restored.compareAndSet(false, true)) return 0;
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            log.info("未找到滚动序列快照 {}，首次刷新将全量拉取", file);
+            return 0;
+        }
+        int restoredCount = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("滚动序列快照 {} 格式不匹配，忽略", file);
+                return 0;
+            }
+            long createdAt = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                int capacity = in.readInt();
+                byte[] block = new byte[in.readInt()];
+                in.readFully(block);
+                KlineInterval interval = intervalOf(key);
+                if (interval == null) continue;
+                if (rollingKlineService.seed(key, capacity, decode(key, interval, block))) {
+                    restoredCount++;
+                }
+            }
+            log.info("从快照恢复 {} 个滚动序列，快照时间距今 {} 分钟", restoredCount,
+                    TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - createdAt));
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取滚动序列快照 {} 失败，已恢复 {} 个序列: {}", file, restoredCount, e.getMessage());
+        }
+        return restoredCount;
+    }
+
+    /**
+     * 定期写入快照，间隔由 kline.snapshot.interval-seconds 配置
+     */
+    @Scheduled(initialDelayString = "${kline.snapshot.interval-seconds:300}",
+            fixedDelayString = "${kline.snapshot.interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void scheduledSnapshot() {
+        snapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    /**
+     * 写入快照：先写临时文件再原子替换，写入失败只记录日志
+     * @return 写入的序列数
+     */
+    public synchronized int snapshot() {
+        if (!enabled || rollingKlineService.size() == 0) return 0;
+        Path file = Paths.get(path);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int[] written = {0};
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                // 条目数在遍历结束后才知道，先写入内存再整体输出
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                DataOutputStream bodyOut = new DataOutputStream(body);
+                rollingKlineService.forEachSeries((key, capacity, bars) -> {
+                    if (bars.isEmpty()) return;
+                    try {
+                        KlineColumns columns = toColumns(bars);
+                        byte[] block = KlineBlockCodec.encode(columns, 0, columns.size());
+                        bodyOut.writeUTF(key);
+                        bodyOut.writeInt(capacity);
+                        bodyOut.writeInt(block.length);
+                        bodyOut.write(block);
+                        written[0]++;
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                out.writeInt(written[0]);
+                body.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("滚动序列快照已写入 {}，共 {} 个序列", file, written[0]);
+        } catch (IOException | RuntimeException e) {
+            log.warn("写入滚动序列快照 {} 失败: {}", file, e.getMessage());
+        }
+        return written[0];
+    }
+
+    private static KlineColumns toColumns(BarSeries bars) {
+        KlineColumns columns = new KlineColumns(bars.getBarCount());
+        for (int i = KlineBars.firstIndex(bars); i <= bars.getEndIndex(); i++) {
+            Bar bar = bars.getBar(i);
+            columns.add(KlineBars.openTimeMillis(bar), bar.getOpenPrice().doubleValue(), bar.getHighPrice().doubleValue(),
+                    bar.getLowPrice().doubleValue(), bar.getClosePrice().doubleValue(), bar.getVolume().doubleValue());
+        }
+        return columns;
+    }
+
+    private static BarSeries decode(String key, KlineInterval interval, byte[] block) {
+        ByteBuffer buffer = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+        KlineColumns columns = new KlineColumns(KlineBlockCodec.count(buffer, 0));
+        KlineBlockCodec.decode(buffer, 0, columns);
+        BarSeries series = KlineBars.newSeries(key);
+        Duration duration = interval.getDuration();
+        for (int i = 0; i < columns.size(); i++) {
+            KlineBars.append(series, columns.getOpenTime(i), duration, columns.getOpen(i), columns.getHigh(i),
+                    columns.getLow(i), columns.getClose(i), columns.getVolume(i));
+        }
+        return series;
+    }
+
+    /**
+     * 从序列键（交易所|交易对|周期）解析周期，无法识别时返回 null
+     */
+    private static KlineInterval intervalOf(String key) {
+        int split = key.lastIndexOf('|');
+        if (split < 0) return null;
+        try {
+            return KlineInterval.valueOf(key.substring(split + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import druid.elf.tool.service.kline.store.KlineStore;
+import druid.elf.tool.util.UtilForData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 滚动K线序列服务：按 交易所×交易对×周期 保留最近的K线，
+ * 每个周期只请求上次持有的最后一根K线之后的数据并合并，首次或缺口过大时才全量拉取。
+ * 拉取到的已收盘K线写入 {@link KlineStore}，重启后优先从存储恢复
+ */
+@Slf4j
+@Service
+public class RollingKlineService {
+
+    private static final int SINCE_MARGIN = 2; // 增量请求在估算条数之外多请求的条数
+
+    @Autowired
+    private KlineStore klineStore; // K线持久化存储，冷启动时恢复序列
+    @Autowired
+    private ScheduledExecutorService exchangeRequestTimer; // 多周期刷新的整组期限使用的定时器
+
+    private final Map<String, BarSeries> seriesMap = new ConcurrentHashMap<>();
+    private final Map<String, Long> streamUpdates = new ConcurrentHashMap<>(); // 由推送流更新的序列 -> 推送流最近送达的收盘K线开盘时间
+
+    /**
+     * 刷新并返回指定序列的快照
+     * @param service 交易所数据服务
+     * @param exchangeType 交易所类型
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param barCount 保留的K线条数
+     * @return 最新序列的只读快照
+     * @throws IOException 如果拉取失败
+     */
+    public BarSeries refresh(ExchangeDataService service, ExchangeType exchangeType, String symbol,
+                             KlineInterval interval, int barCount) throws IOException {
+        CompletableFuture<BarSeries> future = refreshAsync(service, exchangeType, symbol, interval, barCount);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("K线刷新等待被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) throw ioException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 异步刷新指定序列，取消返回的 Future 会取消正在进行的请求
+     * @see #refresh(ExchangeDataService, ExchangeType, String, KlineInterval, int)
+     */
+    public CompletableFuture<BarSeries> refreshAsync(ExchangeDataService service, ExchangeType exchangeType, String symbol,
+                                                     KlineInterval interval, int barCount) {
+        String key = keyOf(exchangeType, symbol, interval);
+        BarSeries held = seriesMap.get(key);
+        if (held == null) {
+            held = restore(key, exchangeType, symbol, interval, barCount);
+        }
+        long lastOpenTime = KlineBars.lastOpenTimeMillis(held);
+
+        if (lastOpenTime < 0) {
+            return fetchAll(service, key, exchangeType, symbol, interval, barCount);
+        }
+
+        long intervalMillis = interval.getDuration().toMillis();
+        Long streamed = streamUpdates.get(key);
+        if (streamed != null && streamed == lastOpenTime && System.currentTimeMillis() < streamed + 2 * intervalMillis) {
+            // 序列最后一根正是推送流送达的收盘K线，且其后至多一根尚未收盘，无需再请求
+            synchronized (held) {
+                return CompletableFuture.completedFuture(KlineBars.copyOf(held));
+            }
+        }
+
+        // 估算自上次最后一根K线以来新增的条数（包含仍在形成中的最后一根）
+        int expected = (int) ((System.currentTimeMillis() - lastOpenTime) / intervalMillis) + 1;
+        if (expected + SINCE_MARGIN >= barCount) {
+            log.debug("{} 缺口 {} 条超过保留条数，全量拉取", key, expected);
+            return fetchAll(service, key, exchangeType, symbol, interval, barCount);
+        }
+
+        int maxCount = expected + SINCE_MARGIN;
+        BarSeries target = held;
+        CompletableFuture<BarSeries> request = service.getKlineDataSinceAsync(symbol, interval, lastOpenTime, maxCount);
+        return UtilForData.propagateCancel(request.thenCompose(fresh -> {
+            if (fresh.getBarCount() >= maxCount) {
+                // 返回已满一页，可能被截断，改为全量拉取保证连续
+                log.debug("{} 增量结果已满一页，全量拉取", key);
+                return fetchAll(service, key, exchangeType, symbol, interval, barCount);
+            }
+            klineStore.append(exchangeType, symbol, interval, fresh);
+            synchronized (target) {
+                merge(target, fresh);
+                // 接口结果替换了最后一根（可能是形成中的K线），不再视为推送流送达的收盘K线
+                if (!fresh.isEmpty()) streamUpdates.remove(key);
+                log.debug("{} 增量合并 {} 条K线，当前 {} 条", key, fresh.getBarCount(), target.getBarCount());
+                return CompletableFuture.completedFuture(KlineBars.copyOf(target));
+            }
+        }), request);
+    }
+
+    /**
+     * 并发刷新同一交易对的多个周期，作为一个整体完成：任一周期失败或超过期限时取消其余周期，
+     * 返回的 Future 以该错误结束，调用方不会拿到缺少周期的结果
+     * @param fetches 周期 -> 保留的K线条数
+     * @param timeout 整组期限
+     * @return 周期 -> 序列快照，包含 fetches 中的全部周期
+     */
+    public CompletableFuture<Map<KlineInterval, BarSeries>> refreshAll(ExchangeDataService service, ExchangeType exchangeType,
+                                                                       String symbol, Map<KlineInterval, Integer> fetches,
+                                                                       Duration timeout) {
+        Map<KlineInterval, CompletableFuture<BarSeries>> group = new EnumMap<>(KlineInterval.class);
+        fetches.forEach((interval, barCount) -> {
+            try {
+                group.put(interval, refreshAsync(service, exchangeType, symbol, interval, barCount));
+            } catch (RuntimeException e) {
+                group.put(interval, CompletableFuture.failedFuture(e));
+            }
+        });
+
+        CompletableFuture<Map<KlineInterval, BarSeries>> result = new CompletableFuture<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        Consumer<Throwable> fail = error -> {
+            if (!failed.compareAndSet(false, true)) return; // 只处理第一个错误，被取消的周期不再重复触发
+            group.values().forEach(future -> future.cancel(true)); // 整组取消，已完成的不受影响
+            result.completeExceptionally(error);
+        };
+        group.values().forEach(future -> future.whenComplete((series, error) -> {
+            if (error != null) fail.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        }));
+        CompletableFuture.allOf(group.values().toArray(new CompletableFuture[0])).thenRun(() -> {
+            Map<KlineInterval, BarSeries> fetched = new EnumMap<>(KlineInterval.class);
+            group.forEach((interval, future) -> fetched.put(interval, future.join()));
+            result.complete(fetched);
+        });
+        ScheduledFuture<?> deadline = exchangeRequestTimer.schedule(() -> {
+            if (!result.isDone()) fail.accept(new TimeoutException(symbol + " 多周期刷新超过 " + timeout.toSeconds() + " 秒"));
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((fetched, error) -> deadline.cancel(false)); // 整组结束后移除期限任务
+        return result;
+    }
+
+    /**
+     * 接收推送流送达的收盘K线并合并进已持有的序列。序列尚未由 {@link #refresh} 建立时忽略，
+     * 首次的历史深度仍由接口拉取
+     * @return 是否已合并
+     */
+    public boolean accept(ExchangeType exchangeType, String symbol, KlineInterval interval, Bar bar) {
+        String key = keyOf(exchangeType, symbol, interval);
+        BarSeries held = seriesMap.get(key);
+        if (held == null) return false;
+        synchronized (held) {
+            long openTime = KlineBars.openTimeMillis(bar);
+            long lastOpenTime = KlineBars.lastOpenTimeMillis(held);
+            if (openTime > lastOpenTime + interval.getDuration().toMillis()) {
+                streamUpdates.remove(key); // 断流期间出现缺口，交给下次刷新通过接口补齐
+                return false;
+            }
+            if (openTime < lastOpenTime) return false;
+            held.addBar(bar, openTime == lastOpenTime);
+            streamUpdates.put(key, openTime);
+        }
+        klineStore.append(exchangeType, symbol, interval, KlineBars.newSeries(key, List.of(bar)));
+        return true;
+    }
+
+    /**
+     * 获取已持有的序列快照，不存在时返回 null
+     */
+    public BarSeries get(ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        BarSeries held = seriesMap.get(keyOf(exchangeType, symbol, interval));
+        if (held == null) return null;
+        synchronized (held) {
+            return KlineBars.copyOf(held);
+        }
+    }
+
+    /**
+     * 遍历全部已持有序列的快照，供定期落盘
+     */
+    void forEachSeries(SeriesVisitor visitor) {
+        seriesMap.forEach((key, held) -> {
+            BarSeries copy;
+            synchronized (held) {
+                copy = KlineBars.copyOf(held);
+            }
+            visitor.visit(key, held.getMaximumBarCount(), copy);
+        });
+    }
+
+    /**
+     * 用快照恢复的K线建立序列，已持有的序列不覆盖。之后的 {@link #refresh} 只请求快照之后的缺口
+     * @param capacity 序列保留的K线条数
+     * @return 是否已建立
+     */
+    boolean seed(String key, int capacity, BarSeries bars) {
+        if (bars.isEmpty() || seriesMap.containsKey(key)) return false;
+        BarSeries series = KlineBars.newRollingSeries(key, capacity, bars);
+        merge(series, bars);
+        return seriesMap.putIfAbsent(key, series) == null;
+    }
+
+    /**
+     * 就地修复已持有的序列：按开盘时间去重排序，并用给定的K线补上缺口，保留条数不变。
+     * 开盘时间相同的K线以序列中最后出现的为准
+     * @param fill 用于补缺口的K线，通常读取自K线存储
+     * @return 修复后的快照，序列不存在或修复期间已被替换时返回 null
+     */
+    public BarSeries repair(String key, List<Bar> fill) {
+        BarSeries held = seriesMap.get(key);
+        if (held == null) return null;
+        synchronized (held) {
+            TreeMap<Long, Bar> bars = new TreeMap<>();
+            for (int i = KlineBars.firstIndex(held); i <= held.getEndIndex(); i++) {
+                Bar bar = held.getBar(i);
+                bars.put(KlineBars.openTimeMillis(bar), bar);
+            }
+            long first = bars.isEmpty() ? Long.MIN_VALUE : bars.firstKey();
+            for (Bar bar : fill) {
+                long openTime = KlineBars.openTimeMillis(bar);
+                if (openTime >= first) bars.putIfAbsent(openTime, bar); // 早于序列首根的K线超出保留范围
+            }
+            BarSeries ordered = KlineBars.newSeries(key, new ArrayList<>(bars.values()));
+            BarSeries repaired = KlineBars.newRollingSeries(key, held.getMaximumBarCount(), ordered);
+            merge(repaired, ordered);
+            if (!seriesMap.replace(key, held, repaired)) return null;
+            return KlineBars.copyOf(repaired);
+        }
+    }
+
+    /**
+     * 丢弃已持有的序列，下次 {@link #refresh} 时从存储恢复或全量拉取
+     */
+    public void invalidate(String key) {
+        seriesMap.remove(key);
+        streamUpdates.remove(key);
+    }
+
+    /**
+     * 当前持有的序列键（交易所|交易对|周期）
+     */
+    public Set<String> keys() {
+        return Set.copyOf(seriesMap.keySet());
+    }
+
+    /**
+     * 当前持有的序列数量
+     */
+    public int size() {
+        return seriesMap.size();
+    }
+
+    /**
+     * 将新K线合并进已持有的序列：开盘时间相同则替换（更新形成中的K线），更新的则追加，更旧的忽略
+     */
+    static void merge(BarSeries held, BarSeries fresh) {
+        for (int i = KlineBars.firstIndex(fresh); i <= fresh.getEndIndex(); i++) {
+            Bar bar = fresh.getBar(i);
+            long openTime = KlineBars.openTimeMillis(bar);
+            long lastOpenTime = KlineBars.lastOpenTimeMillis(held);
+            if (openTime == lastOpenTime) {
+                held.addBar(bar, true);
+            } else if (openTime > lastOpenTime) {
+                held.addBar(bar);
+            }
+        }
+    }
+
+    /**
+     * 全量拉取并替换已持有的序列
+     */
+    private CompletableFuture<BarSeries> fetchAll(ExchangeDataService service, String key, ExchangeType exchangeType,
+                                                  String symbol, KlineInterval interval, int barCount) {
+        CompletableFuture<BarSeries> request = service.getKlineDataAsync(symbol, interval, barCount);
+        return UtilForData.propagateCancel(
+                request.thenApply(fetched -> replace(key, exchangeType, symbol, interval, fetched, barCount)), request);
+    }
+
+    /**
+     * 从持久化存储恢复序列：存储中最新一根K线距今不超过保留条数时，以其为基础增量拉取，否则返回 null 由调用方全量拉取
+     */
+    private BarSeries restore(String key, ExchangeType exchangeType, String symbol, KlineInterval interval, int barCount) {
+        BarSeries stored = klineStore.readLatest(exchangeType, symbol, interval, barCount);
+        long lastOpenTime = KlineBars.lastOpenTimeMillis(stored);
+        if (lastOpenTime < 0 || stored.getBarCount() < barCount) return null;
+        long gap = (System.currentTimeMillis() - lastOpenTime) / interval.getDuration().toMillis();
+        if (gap + SINCE_MARGIN >= barCount) return null;
+        BarSeries series = KlineBars.newRollingSeries(key, barCount, stored);
+        merge(series, stored);
+        BarSeries existing = seriesMap.putIfAbsent(key, series);
+        log.debug("{} 从K线存储恢复 {} 条", key, series.getBarCount());
+        return existing != null ? existing : series;
+    }
+
+    /**
+     * 用全量拉取的结果替换已持有的序列并写入存储，返回其快照
+     */
+    private BarSeries replace(String key, ExchangeType exchangeType, String symbol, KlineInterval interval,
+                              BarSeries fetched, int barCount) {
+        klineStore.append(exchangeType, symbol, interval, fetched);
+        BarSeries series = KlineBars.newRollingSeries(key, barCount, fetched);
+        merge(series, fetched);
+        streamUpdates.remove(key);
+        seriesMap.put(key, series);
+        return KlineBars.copyOf(series);
+    }
+
+    static String keyOf(ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        return exchangeType.name() + "|" + symbol + "|" + interval.name();
+    }
+
+    interface SeriesVisitor {
+        void visit(String key, int capacity, BarSeries bars);
+    }
+}
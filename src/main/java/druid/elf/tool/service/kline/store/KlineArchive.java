@@ -0,0 +1,319 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.service.kline.store.codec.KlineBlockCodec;
+import druid.elf.tool.service.kline.store.codec.KlineColumns;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 单个 交易所×交易对×周期 的压缩归档文件：段文件中较早的K线按固定条数封存为 {@link KlineBlockCodec} 块，
+ * 块之间互不依赖，内存中的块索引（首根开盘时间 -> 偏移）定位到块后只解码与区间相交的块。
+ * <pre>
+ * 文件头（32字节）: magic(int) version(int) blockBars(int) 保留(int) intervalMillis(long) committedLength(long)
+ * 块帧          : length(int) lastOpenTime(long) 块数据（length 字节）
+ * </pre>
+ * 追加块时先写块帧并刷盘，再更新文件头中的已提交长度，已提交长度之后的内容在打开时被忽略。
+ * 归档只在冷启动和区间回填时读取，按需打开通道做定位读取，不长期映射，替换文件时无需先释放映射
+ */
+@Slf4j
+public class KlineArchive {
+
+    private static final int MAGIC = 0x4B4C5A31;     // "KLZ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FRAME_HEADER_SIZE = 12;
+    private static final int LENGTH_OFFSET = 24;     // 文件头中已提交长度的位置
+
+    private final Path path;
+    private final long intervalMillis;
+    private final int blockBars;
+    private final TreeMap<Long, Block> blocks = new TreeMap<>(); // 块索引：首根开盘时间 -> 块
+    private long length;                                         // 已提交的文件长度
+    private TreeMap<Long, Long> runs;                            // 连续区间，首次查询时解码时间戳建立
+
+    /**
+     * 块索引项
+     * @param offset 块数据在文件中的偏移（不含帧头）
+     * @param length 块数据字节数
+     * @param count 块内K线条数
+     * @param lastOpenTime 块内最后一根K线的开盘时间
+     */
+    private record Block(long offset, int length, int count, long lastOpenTime) {
+    }
+
+    public KlineArchive(Path path, long intervalMillis, int blockBars) throws IOException {
+        this.path = path;
+        this.intervalMillis = intervalMillis;
+        this.blockBars = blockBars;
+        if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+            open();
+        } else {
+            length = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * 把开盘时间晚于归档末尾的K线按块追加
+     * @param columns 按开盘时间递增排列的K线，首根须晚于 {@link #lastOpenTime()}
+     */
+    public synchronized void append(KlineColumns columns) throws IOException {
+        if (columns.size() == 0) return;
+        if (!blocks.isEmpty() && columns.getOpenTime(0) <= lastOpenTime()) {
+            throw new IllegalArgumentException("追加的K线早于归档末尾: " + path);
+        }
+        if (blocks.isEmpty()) writeHeader(path, HEADER_SIZE);
+        Map<Long, Block> written = new TreeMap<>();
+        long offset = length;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int from = 0; from < columns.size(); from += blockBars) {
+                int to = Math.min(columns.size(), from + blockBars);
+                offset = writeBlock(channel, offset, columns, from, to, written);
+            }
+            commit(channel, offset);
+        }
+        // 提交后新块才进入索引
+        blocks.putAll(written);
+        length = offset;
+        if (runs != null) {
+            for (int i = 0; i < columns.size(); i++) index(runs, columns.getOpenTime(i));
+        }
+    }
+
+    /**
+     * 合并开盘时间早于归档末尾的K线（早于首根或落在缺口中），已归档的K线保持不变，合并后整体重写文件
+     * @return 新写入的K线条数
+     */
+    public synchronized int merge(KlineColumns columns) throws IOException {
+        TreeMap<Long, double[]> merged = new TreeMap<>();
+        KlineColumns existing = read(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < existing.size(); i++) {
+            merged.put(existing.getOpenTime(i), values(existing, i));
+        }
+        int before = merged.size();
+        for (int i = 0; i < columns.size(); i++) {
+            merged.putIfAbsent(columns.getOpenTime(i), values(columns, i));
+        }
+        if (merged.size() == before) return 0;
+
+        KlineColumns all = new KlineColumns(merged.size());
+        for (Map.Entry<Long, double[]> entry : merged.entrySet()) {
+            double[] v = entry.getValue();
+            all.add(entry.getKey(), v[0], v[1], v[2], v[3], v[4]);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        writeHeader(temp, HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long offset = HEADER_SIZE;
+            for (int from = 0; from < all.size(); from += blockBars) {
+                offset = writeBlock(channel, offset, all, from, Math.min(all.size(), from + blockBars), new TreeMap<>());
+            }
+            commit(channel, offset);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        blocks.clear();
+        runs = null;
+        open();
+        log.debug("K线归档文件 {} 合并重写: {} -> {} 条", path, before, merged.size());
+        return merged.size() - before;
+    }
+
+    /**
+     * 读取开盘时间落在 [from, to) 内的K线，只解码与区间相交的块
+     */
+    public synchronized KlineColumns read(long from, long to) throws IOException {
+        KlineColumns result = new KlineColumns(256);
+        if (blocks.isEmpty() || from >= to) return result;
+        Long first = blocks.floorKey(from);
+        Map<Long, Block> range = blocks.subMap(first == null ? blocks.firstKey() : first, true, to, false);
+        if (range.isEmpty()) return result;
+        KlineColumns scratch = new KlineColumns(blockBars);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Block block : range.values()) {
+                if (block.lastOpenTime < from) continue;
+                scratch.clear();
+                decode(channel, block, scratch);
+                for (int i = 0; i < scratch.size(); i++) {
+                    long openTime = scratch.getOpenTime(i);
+                    if (openTime >= from && openTime < to) {
+                        result.add(openTime, scratch.getOpen(i), scratch.getHigh(i), scratch.getLow(i),
+                                scratch.getClose(i), scratch.getVolume(i));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取最新的 limit 条K线，从末尾的块向前解码到条数足够为止
+     */
+    public synchronized KlineColumns readLatest(int limit) throws IOException {
+        if (limit <= 0 || blocks.isEmpty()) return new KlineColumns(0);
+        long from = blocks.lastKey();
+        int bars = 0;
+        for (Map.Entry<Long, Block> entry : blocks.descendingMap().entrySet()) {
+            from = entry.getKey();
+            bars += entry.getValue().count;
+            if (bars >= limit) break;
+        }
+        KlineColumns latest = read(from, Long.MAX_VALUE);
+        if (latest.size() <= limit) return latest;
+        KlineColumns tail = new KlineColumns(limit);
+        for (int i = latest.size() - limit; i < latest.size(); i++) {
+            tail.add(latest.getOpenTime(i), latest.getOpen(i), latest.getHigh(i), latest.getLow(i),
+                    latest.getClose(i), latest.getVolume(i));
+        }
+        return tail;
+    }
+
+    /**
+     * 区间 [from, to) 内的K线是否已连续归档
+     */
+    public synchronized boolean covers(long from, long to) throws IOException {
+        Map.Entry<Long, Long> run = runs().floorEntry(from);
+        return run != null && run.getValue() + intervalMillis >= to;
+    }
+
+    /**
+     * 区间 [from, to) 内首根归档K线之后、末根之前的缺口
+     * @return 每个元素为 {缺口首根开盘时间（包含）, 缺口结束时间（不包含）}
+     */
+    public synchronized List<long[]> gaps(long from, long to) throws IOException {
+        return KlineSegment.gaps(runs(), intervalMillis, from, to);
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (Block block : blocks.values()) size += block.count;
+        return size;
+    }
+
+    synchronized int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * 已提交的文件字节数，没有归档时为 0
+     */
+    public synchronized long bytes() {
+        return blocks.isEmpty() ? 0 : length;
+    }
+
+    public synchronized long lastOpenTime() {
+        return blocks.isEmpty() ? -1L : blocks.lastEntry().getValue().lastOpenTime;
+    }
+
+    /**
+     * 打开已有文件：校验文件头，按已提交长度逐帧建立块索引，帧头指向已提交长度之外时截断
+     */
+    private void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getLong(16) != intervalMillis) {
+                throw new IOException("K线归档文件格式不匹配: " + path);
+            }
+            long committed = Math.min(header.getLong(LENGTH_OFFSET), channel.size());
+            long offset = HEADER_SIZE;
+            while (offset + FRAME_HEADER_SIZE + KlineBlockCodec.HEADER_BYTES <= committed) {
+                ByteBuffer frame = readFully(channel, offset, FRAME_HEADER_SIZE + KlineBlockCodec.HEADER_BYTES);
+                int blockLength = frame.getInt(0);
+                long dataOffset = offset + FRAME_HEADER_SIZE;
+                if (blockLength < KlineBlockCodec.HEADER_BYTES || dataOffset + blockLength > committed) break;
+                blocks.put(frame.getLong(FRAME_HEADER_SIZE + 4), new Block(dataOffset, blockLength,
+                        KlineBlockCodec.count(frame, FRAME_HEADER_SIZE), frame.getLong(4)));
+                offset = dataOffset + blockLength;
+            }
+            length = offset;
+            if (length != header.getLong(LENGTH_OFFSET)) {
+                log.warn("K线归档文件 {} 已提交长度 {} 与完整块不一致，截断为 {}", path, header.getLong(LENGTH_OFFSET), length);
+                commit(channel, length);
+            }
+        }
+    }
+
+    private long writeBlock(FileChannel channel, long offset, KlineColumns columns, int from, int to,
+                            Map<Long, Block> index) throws IOException {
+        byte[] block = KlineBlockCodec.encode(columns, from, to);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + block.length).order(ByteOrder.LITTLE_ENDIAN);
+        frame.putInt(block.length).putLong(columns.getOpenTime(to - 1)).put(block).flip();
+        writeFully(channel, offset, frame);
+        index.put(columns.getOpenTime(from), new Block(offset + FRAME_HEADER_SIZE, block.length, to - from,
+                columns.getOpenTime(to - 1)));
+        return offset + frame.capacity();
+    }
+
+    /**
+     * 块帧刷盘后再更新已提交长度
+     */
+    private static void commit(FileChannel channel, long newLength) throws IOException {
+        channel.force(false);
+        ByteBuffer value = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, newLength);
+        writeFully(channel, LENGTH_OFFSET, value);
+        channel.force(false);
+    }
+
+    private void writeHeader(Path target, long committedLength) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockBars).putInt(0).putLong(intervalMillis).putLong(committedLength).flip();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, 0, header);
+            channel.force(false);
+        }
+    }
+
+    private void decode(FileChannel channel, Block block, KlineColumns target) throws IOException {
+        KlineBlockCodec.decode(readFully(channel, block.offset, block.length), 0, target);
+    }
+
+    private TreeMap<Long, Long> runs() throws IOException {
+        if (runs == null) {
+            TreeMap<Long, Long> built = new TreeMap<>();
+            KlineColumns all = read(Long.MIN_VALUE, Long.MAX_VALUE);
+            for (int i = 0; i < all.size(); i++) index(built, all.getOpenTime(i));
+            runs = built;
+        }
+        return runs;
+    }
+
+    private void index(TreeMap<Long, Long> target, long openTime) {
+        Map.Entry<Long, Long> last = target.lastEntry();
+        if (last != null && last.getValue() + intervalMillis == openTime) {
+            target.put(last.getKey(), openTime);
+        } else {
+            target.put(openTime, openTime);
+        }
+    }
+
+    private static double[] values(KlineColumns columns, int i) {
+        return new double[]{columns.getOpen(i), columns.getHigh(i), columns.getLow(i), columns.getClose(i),
+                columns.getVolume(i)};
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("K线归档文件意外结束: " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, long position, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data, position + data.position());
+        }
+    }
+}
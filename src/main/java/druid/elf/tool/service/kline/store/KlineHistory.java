@@ -0,0 +1,161 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.kline.store.codec.KlineColumns;
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个 交易所×交易对×周期 的已保存K线：最近的K线在 {@link KlineSegment} 段文件中按固定宽度记录追加，
+ * 段文件超过两块时把最早的整块封存到 {@link KlineArchive} 压缩归档并从段文件移除，段文件保留至少一块最近的K线。
+ * 归档覆盖开盘时间早于封存边界（归档最后一根之后一个周期）的K线，段文件只保存边界及之后的K线。
+ * 封存先提交归档再重写段文件，两步之间崩溃时段文件中早于边界的重复记录在下次打开时移除
+ */
+@Slf4j
+public class KlineHistory {
+
+    private final KlineSegment segment;
+    private final KlineArchive archive;
+    private final Duration duration;
+    private final long intervalMillis;
+    private final int blockBars;
+
+    public KlineHistory(Path segmentPath, Path archivePath, Duration duration, int blockBars) throws IOException {
+        this.duration = duration;
+        this.intervalMillis = duration.toMillis();
+        this.blockBars = blockBars;
+        this.segment = new KlineSegment(segmentPath, duration);
+        this.archive = new KlineArchive(archivePath, intervalMillis, blockBars);
+        int duplicated = archive.size() > 0 ? segment.dropBefore(sealedBefore()) : 0;
+        if (duplicated > 0) {
+            log.info("K线段文件 {} 移除 {} 条已封存的记录", segmentPath, duplicated);
+        }
+    }
+
+    /**
+     * 写入K线：早于封存边界的部分合并进归档，其余追加到段文件，段文件满两块后封存最早的整块
+     * @param series 按时间从旧到新排列的K线，调用方保证只包含已收盘的K线
+     * @return 新写入的K线条数
+     */
+    public synchronized int append(BarSeries series) throws IOException {
+        if (series.isEmpty()) return 0;
+        int written;
+        if (archive.size() == 0) {
+            written = segment.append(series);
+        } else {
+            long boundary = sealedBefore();
+            KlineColumns sealed = new KlineColumns(16);
+            List<Bar> recent = new ArrayList<>(series.getBarCount());
+            for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+                Bar bar = series.getBar(i);
+                long openTime = KlineBars.openTimeMillis(bar);
+                if (openTime < boundary) {
+                    sealed.add(openTime, bar.getOpenPrice().doubleValue(), bar.getHighPrice().doubleValue(),
+                            bar.getLowPrice().doubleValue(), bar.getClosePrice().doubleValue(), bar.getVolume().doubleValue());
+                } else {
+                    recent.add(bar);
+                }
+            }
+            written = sealed.size() == 0 ? 0 : archive.merge(sealed);
+            if (!recent.isEmpty()) written += segment.append(KlineBars.newSeries(series.getName(), recent));
+        }
+        seal();
+        return written;
+    }
+
+    /**
+     * 读取开盘时间落在 [from, to) 内的K线，归档部分只解码与区间相交的块
+     */
+    public synchronized BarSeries read(String name, long from, long to) throws IOException {
+        long boundary = sealedBefore();
+        KlineColumns older = archive.read(from, Math.min(to, boundary));
+        KlineColumns recent = segment.readColumns(Math.max(from, boundary), to);
+        return toSeries(name, older, recent);
+    }
+
+    /**
+     * 读取最新的 limit 条K线，段文件不足时从归档末尾的块补足
+     */
+    public synchronized BarSeries readLatest(String name, int limit) throws IOException {
+        KlineColumns recent = segment.readLatestColumns(limit);
+        KlineColumns older = recent.size() < limit ? archive.readLatest(limit - recent.size()) : new KlineColumns(0);
+        return toSeries(name, older, recent);
+    }
+
+    /**
+     * 区间 [from, to) 内的K线是否已连续保存
+     */
+    public synchronized boolean covers(long from, long to) throws IOException {
+        long boundary = sealedBefore();
+        if (from >= boundary) return segment.covers(from, to);
+        if (to <= boundary) return archive.covers(from, to);
+        return archive.covers(from, boundary) && segment.covers(boundary, to);
+    }
+
+    /**
+     * 区间 [from, to) 内首根已保存K线之后、末根之前的缺口，包括封存边界与段文件首根之间的缺口
+     * @return 每个元素为 {缺口首根开盘时间（包含）, 缺口结束时间（不包含）}
+     */
+    public synchronized List<long[]> gaps(long from, long to) throws IOException {
+        if (archive.size() == 0) return segment.gaps(from, to);
+        long boundary = sealedBefore();
+        List<long[]> gaps = new ArrayList<>(archive.gaps(from, Math.min(to, boundary)));
+        long first = segment.firstOpenTime();
+        if (first > boundary) {
+            long start = Math.max(from, boundary);
+            long end = Math.min(to, first);
+            if (start < end) gaps.add(new long[]{start, end});
+        }
+        gaps.addAll(segment.gaps(Math.max(from, boundary), to));
+        return gaps;
+    }
+
+    public synchronized int size() {
+        return archive.size() + segment.size();
+    }
+
+    public synchronized long lastOpenTime() {
+        return segment.size() > 0 ? segment.lastOpenTime() : archive.lastOpenTime();
+    }
+
+    public synchronized void flush() {
+        segment.flush();
+    }
+
+    /**
+     * 段文件达到两块时，把最早的整块（保留至少一块）编码追加到归档，再从段文件移除
+     */
+    private void seal() throws IOException {
+        if (segment.size() < 2 * blockBars) return;
+        int bars = (segment.size() - blockBars) / blockBars * blockBars;
+        KlineColumns oldest = segment.readOldestColumns(bars);
+        archive.append(oldest);
+        segment.dropBefore(sealedBefore());
+        log.debug("封存 {} 根K线到归档，归档共 {} 根 {} 字节", bars, archive.size(), archive.bytes());
+    }
+
+    /**
+     * 封存边界：归档最后一根之后一个周期，没有归档时为 {@link Long#MIN_VALUE}
+     */
+    private long sealedBefore() {
+        return archive.size() == 0 ? Long.MIN_VALUE : archive.lastOpenTime() + intervalMillis;
+    }
+
+    private BarSeries toSeries(String name, KlineColumns older, KlineColumns recent) {
+        BarSeries series = KlineBars.newSeries(name);
+        for (KlineColumns part : List.of(older, recent)) {
+            for (int i = 0; i < part.size(); i++) {
+                KlineBars.append(series, part.getOpenTime(i), duration, part.getOpen(i), part.getHigh(i),
+                        part.getLow(i), part.getClose(i), part.getVolume(i));
+            }
+        }
+        return series;
+    }
+}
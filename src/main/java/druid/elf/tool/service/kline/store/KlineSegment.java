@@ -0,0 +1,407 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.kline.store.codec.KlineColumns;
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 单个 交易所×交易对×周期 的K线段文件：固定宽度的二进制记录按开盘时间递增追加，整个文件通过 {@link FileChannel#map} 映射，
+ * 读取直接访问映射内存。
+ * <pre>
+ * 文件头（64字节）: magic(int) version(int) recordSize(int) 保留(int) intervalMillis(long) committedCount(long) 保留
+ * 记录（48字节）  : openTime(long) open high low close volume(double)
+ * </pre>
+ * 追加时先写记录并刷盘，再更新文件头中的已提交条数并刷盘，进程在两步之间崩溃时未提交的记录被忽略。
+ * 内存中维护连续区间索引（开盘时间间隔恰为一个周期的记录视为连续），用于判断某个区间是否已完整落盘。
+ * 合并重写替换文件前先释放新旧两个映射，Windows 不允许替换仍被映射的文件。
+ * 段文件只保存最近的K线，较早的部分由 {@link KlineHistory} 封存到压缩归档后从段文件头部移除
+ */
+@Slf4j
+public class KlineSegment {
+
+    private static final int MAGIC = 0x4B4C5331;     // "KLS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 48;
+    private static final int COUNT_OFFSET = 24;      // 文件头中已提交条数的位置
+    private static final int INITIAL_CAPACITY = 1024; // 新文件预留的记录数
+    private static final Object UNSAFE;              // sun.misc.Unsafe，用于立即释放映射
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法立即释放K线段文件映射，合并重写在 Windows 上可能失败: {}", e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path path;
+    private final long intervalMillis;
+    private final Duration duration;
+    private MappedByteBuffer buffer;                 // 整个文件的映射
+    private int capacity;                            // 映射可容纳的记录数
+    private int count;                               // 已提交的记录数
+    private final TreeMap<Long, Long> runs = new TreeMap<>(); // 连续区间：首根开盘时间 -> 末根开盘时间
+
+    public KlineSegment(Path path, Duration duration) throws IOException {
+        this.path = path;
+        this.duration = duration;
+        this.intervalMillis = duration.toMillis();
+        Files.createDirectories(path.getParent());
+        if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+            open();
+        } else {
+            map(INITIAL_CAPACITY);
+            writeHeader();
+        }
+    }
+
+    /**
+     * 追加开盘时间晚于最后一条记录的K线，已保存的K线被忽略；
+     * 如果序列与已保存部分重叠且重叠段存在未保存的K线（早于第一条记录或落在缺口中），则合并后整体重写文件
+     * @param series 按时间从旧到新排列的K线，调用方保证只包含已收盘的K线
+     * @return 新写入的K线条数
+     */
+    public synchronized int append(BarSeries series) throws IOException {
+        if (series.isEmpty()) return 0;
+        long seriesFirst = KlineBars.openTimeMillis(series.getBar(KlineBars.firstIndex(series)));
+        long seriesLast = KlineBars.lastOpenTimeMillis(series);
+        if (count > 0) {
+            long overlapEnd = Math.min(seriesLast, openTimeAt(count - 1)) + intervalMillis;
+            if (seriesFirst < overlapEnd && !covers(seriesFirst, overlapEnd)) {
+                return rewrite(series);
+            }
+        }
+        long last = count == 0 ? Long.MIN_VALUE : openTimeAt(count - 1);
+        int written = 0;
+        for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+            Bar bar = series.getBar(i);
+            long openTime = KlineBars.openTimeMillis(bar);
+            if (openTime <= last) continue;
+            if (count + written == capacity) remap(capacity * 2);
+            writeRecord(count + written, openTime, bar.getOpenPrice().doubleValue(), bar.getHighPrice().doubleValue(),
+                    bar.getLowPrice().doubleValue(), bar.getClosePrice().doubleValue(), bar.getVolume().doubleValue());
+            index(openTime);
+            last = openTime;
+            written++;
+        }
+        if (written > 0) commit(count + written);
+        return written;
+    }
+
+    /**
+     * 读取开盘时间落在 [from, to) 内的K线
+     */
+    public synchronized BarSeries read(String name, long from, long to) {
+        return toSeries(name, lowerBound(from), lowerBound(to));
+    }
+
+    /**
+     * 读取最新的 limit 条K线
+     */
+    public synchronized BarSeries readLatest(String name, int limit) {
+        return toSeries(name, Math.max(0, count - limit), count);
+    }
+
+    /**
+     * 以列式数组读取开盘时间落在 [from, to) 内的K线
+     */
+    public synchronized KlineColumns readColumns(long from, long to) {
+        return toColumns(lowerBound(from), lowerBound(to));
+    }
+
+    /**
+     * 以列式数组读取最新的 limit 条K线
+     */
+    public synchronized KlineColumns readLatestColumns(int limit) {
+        return toColumns(Math.max(0, count - limit), count);
+    }
+
+    /**
+     * 以列式数组读取最早的 limit 条K线
+     */
+    public synchronized KlineColumns readOldestColumns(int limit) {
+        return toColumns(0, Math.min(limit, count));
+    }
+
+    /**
+     * 移除开盘时间早于 openTime 的记录，剩余记录整体重写
+     * @return 移除的条数
+     */
+    public synchronized int dropBefore(long openTime) throws IOException {
+        int dropped = lowerBound(openTime);
+        if (dropped == 0) return 0;
+        TreeMap<Long, double[]> kept = new TreeMap<>();
+        for (int i = dropped; i < count; i++) {
+            kept.put(openTimeAt(i), valuesAt(i));
+        }
+        replace(kept);
+        return dropped;
+    }
+
+    /**
+     * 区间 [from, to) 内的K线是否已连续落盘
+     */
+    public synchronized boolean covers(long from, long to) {
+        Map.Entry<Long, Long> run = runs.floorEntry(from);
+        return run != null && run.getValue() + intervalMillis >= to;
+    }
+
+    /**
+     * 区间 [from, to) 内首根记录之后、末根记录之前的缺口，不包含尚未写入的尾部
+     * @return 每个元素为 {缺口首根开盘时间（包含）, 缺口结束时间（不包含）}
+     */
+    public synchronized List<long[]> gaps(long from, long to) {
+        return gaps(runs, intervalMillis, from, to);
+    }
+
+    /**
+     * 按连续区间索引计算 [from, to) 内首段之后、末段之前的缺口
+     */
+    static List<long[]> gaps(TreeMap<Long, Long> runs, long intervalMillis, long from, long to) {
+        List<long[]> gaps = new ArrayList<>();
+        if (runs.isEmpty()) return gaps;
+        long cursor = Math.max(from, runs.firstKey());
+        for (Map.Entry<Long, Long> run : runs.entrySet()) {
+            long start = run.getKey();
+            long end = run.getValue() + intervalMillis;
+            if (start >= to) break;
+            if (end <= cursor) continue;
+            if (start > cursor) gaps.add(new long[]{cursor, start});
+            cursor = end;
+        }
+        return gaps;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long firstOpenTime() {
+        return count == 0 ? -1L : openTimeAt(0);
+    }
+
+    public synchronized long lastOpenTime() {
+        return count == 0 ? -1L : openTimeAt(count - 1);
+    }
+
+    /**
+     * 把已映射的内容刷到磁盘
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    private BarSeries toSeries(String name, int begin, int end) {
+        BarSeries series = KlineBars.newSeries(name);
+        for (int i = begin; i < end; i++) {
+            int base = HEADER_SIZE + i * RECORD_SIZE;
+            KlineBars.append(series, buffer.getLong(base), duration, buffer.getDouble(base + 8), buffer.getDouble(base + 16),
+                    buffer.getDouble(base + 24), buffer.getDouble(base + 32), buffer.getDouble(base + 40));
+        }
+        return series;
+    }
+
+    private KlineColumns toColumns(int begin, int end) {
+        KlineColumns columns = new KlineColumns(end - begin);
+        for (int i = begin; i < end; i++) {
+            int base = HEADER_SIZE + i * RECORD_SIZE;
+            columns.add(buffer.getLong(base), buffer.getDouble(base + 8), buffer.getDouble(base + 16),
+                    buffer.getDouble(base + 24), buffer.getDouble(base + 32), buffer.getDouble(base + 40));
+        }
+        return columns;
+    }
+
+    private double[] valuesAt(int index) {
+        int base = HEADER_SIZE + index * RECORD_SIZE;
+        return new double[]{buffer.getDouble(base + 8), buffer.getDouble(base + 16), buffer.getDouble(base + 24),
+                buffer.getDouble(base + 32), buffer.getDouble(base + 40)};
+    }
+
+    /**
+     * 第一条开盘时间不早于 openTime 的记录下标
+     */
+    private int lowerBound(long openTime) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (openTimeAt(mid) < openTime) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private long openTimeAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    private void writeRecord(int index, long openTime, double open, double high, double low, double close, double volume) {
+        int base = HEADER_SIZE + index * RECORD_SIZE;
+        buffer.putLong(base, openTime);
+        buffer.putDouble(base + 8, open);
+        buffer.putDouble(base + 16, high);
+        buffer.putDouble(base + 24, low);
+        buffer.putDouble(base + 32, close);
+        buffer.putDouble(base + 40, volume);
+    }
+
+    /**
+     * 记录刷盘后再更新已提交条数，保证文件头记录的条数之内都是完整记录
+     */
+    private void commit(int newCount) {
+        buffer.force();
+        buffer.putLong(COUNT_OFFSET, newCount);
+        buffer.force();
+        count = newCount;
+    }
+
+    private void index(long openTime) {
+        Map.Entry<Long, Long> last = runs.lastEntry();
+        if (last != null && last.getValue() + intervalMillis == openTime) {
+            runs.put(last.getKey(), openTime);
+        } else {
+            runs.put(openTime, openTime);
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putLong(16, intervalMillis);
+        buffer.putLong(COUNT_OFFSET, 0L);
+        buffer.force();
+        count = 0;
+    }
+
+    /**
+     * 打开已有文件：校验文件头，已提交条数超出文件实际长度时按完整记录数截断，并重建连续区间索引
+     */
+    private void open() throws IOException {
+        long fileRecords = (Files.size(path) - HEADER_SIZE) / RECORD_SIZE;
+        map((int) Math.max(fileRecords, 1));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(8) != RECORD_SIZE || buffer.getLong(16) != intervalMillis) {
+            throw new IOException("K线段文件格式不匹配: " + path);
+        }
+        long committed = buffer.getLong(COUNT_OFFSET);
+        count = (int) Math.max(0, Math.min(committed, fileRecords));
+        if (count != committed) {
+            log.warn("K线段文件 {} 已提交条数 {} 超出文件长度，截断为 {}", path, committed, count);
+            buffer.putLong(COUNT_OFFSET, count);
+            buffer.force();
+        }
+        for (int i = 0; i < count; i++) {
+            index(openTimeAt(i));
+        }
+    }
+
+    private void remap(int newCapacity) throws IOException {
+        buffer.force();
+        map(newCapacity);
+    }
+
+    /**
+     * 立即释放当前映射，释放后在重新映射之前不能再访问 buffer
+     */
+    private void release() {
+        unmap(buffer);
+        buffer = null;
+    }
+
+    private void unmap(MappedByteBuffer mapped) {
+        if (mapped == null || INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, mapped);
+        } catch (ReflectiveOperationException e) {
+            log.warn("释放K线段文件 {} 的映射失败: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 映射文件的前 newCapacity 条记录，映射成功后释放原映射
+     */
+    private void map(int newCapacity) throws IOException {
+        MappedByteBuffer previous = buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭后依然有效，段文件数量多时不必长期占用文件句柄
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        capacity = newCapacity;
+        unmap(previous);
+    }
+
+    /**
+     * 与早于第一条记录的K线合并后整体重写
+     */
+    private int rewrite(BarSeries series) throws IOException {
+        TreeMap<Long, double[]> merged = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            merged.put(openTimeAt(i), valuesAt(i));
+        }
+        int before = merged.size();
+        for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+            Bar bar = series.getBar(i);
+            merged.putIfAbsent(KlineBars.openTimeMillis(bar), new double[]{bar.getOpenPrice().doubleValue(),
+                    bar.getHighPrice().doubleValue(), bar.getLowPrice().doubleValue(), bar.getClosePrice().doubleValue(),
+                    bar.getVolume().doubleValue()});
+        }
+        replace(merged);
+        log.debug("K线段文件 {} 合并重写: {} -> {} 条", path, before, count);
+        return count - before;
+    }
+
+    /**
+     * 把记录写入临时文件，再原子替换原文件
+     */
+    private void replace(TreeMap<Long, double[]> records) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        KlineSegment target = new KlineSegment(temp, duration);
+        target.remap(Math.max(INITIAL_CAPACITY, records.size()));
+        int i = 0;
+        for (Map.Entry<Long, double[]> entry : records.entrySet()) {
+            double[] v = entry.getValue();
+            target.writeRecord(i++, entry.getKey(), v[0], v[1], v[2], v[3], v[4]);
+        }
+        target.commit(records.size());
+        target.release();
+        release();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // 替换失败时重新映射原文件，段仍可继续使用
+            runs.clear();
+            open();
+        }
+    }
+}
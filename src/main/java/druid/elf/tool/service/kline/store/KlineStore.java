@@ -0,0 +1,192 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * K线持久化存储：每个 交易所×交易对×周期 一个内存映射段文件和一个压缩归档文件，位于 H2 数据库文件旁的 ./db/klines 目录。
+ * 只保存已收盘的K线，供滚动序列冷启动和区间回填复用，避免每次重启或回测都重新下载相同的历史。
+ * 段文件只保留最近的K线，较早的K线按块封存到归档（见 {@link KlineHistory}），多年的历史主要以压缩块保存
+ */
+@Slf4j
+@Service
+public class KlineStore {
+
+    @Value("${kline.store.enabled:true}")
+    private boolean enabled;     // 是否启用K线持久化
+    @Value("${kline.store.path:./db/klines}")
+    private String basePath;     // 段文件根目录
+    @Value("${kline.store.block-bars:4096}")
+    private int blockBars;       // 每个压缩块的K线条数，段文件达到两块时封存最早的整块
+
+    private final Map<String, KlineHistory> segments = new ConcurrentHashMap<>(); // 段文件路径 -> 已打开的段
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 写入序列中已收盘的K线，写入失败只记录日志
+     * @param exchangeType 交易所类型
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param series 按时间从旧到新排列的K线，可能包含仍在形成中的最后一根
+     */
+    public void append(ExchangeType exchangeType, String symbol, KlineInterval interval, BarSeries series) {
+        if (!enabled || series == null || series.isEmpty()) return;
+        BarSeries closed = closedBars(series, interval);
+        if (closed.isEmpty()) return;
+        try {
+            int written = segment(exchangeType, symbol, interval, true).append(closed);
+            if (written > 0) {
+                log.debug("{} {} {} 写入 {} 根K线", exchangeType, symbol, interval, written);
+            }
+        } catch (IOException e) {
+            log.warn("{} {} {} K线写入存储失败: {}", exchangeType, symbol, interval, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取最新的 limit 根K线，存储未启用或读取失败时返回空序列
+     */
+    public BarSeries readLatest(ExchangeType exchangeType, String symbol, KlineInterval interval, int limit) {
+        String name = seriesName(exchangeType, symbol, interval);
+        if (!enabled) return KlineBars.newSeries(name);
+        try {
+            KlineHistory segment = segment(exchangeType, symbol, interval, false);
+            return segment == null ? KlineBars.newSeries(name) : segment.readLatest(name, limit);
+        } catch (IOException e) {
+            log.warn("{} K线存储读取失败: {}", name, e.getMessage());
+            return KlineBars.newSeries(name);
+        }
+    }
+
+    /**
+     * 读取开盘时间落在 [from, to) 内的K线，存储未启用或读取失败时返回空序列
+     */
+    public BarSeries readRange(ExchangeType exchangeType, String symbol, KlineInterval interval, long from, long to) {
+        String name = seriesName(exchangeType, symbol, interval);
+        if (!enabled) return KlineBars.newSeries(name);
+        try {
+            KlineHistory segment = segment(exchangeType, symbol, interval, false);
+            return segment == null ? KlineBars.newSeries(name) : segment.read(name, from, to);
+        } catch (IOException e) {
+            log.warn("{} K线存储读取失败: {}", name, e.getMessage());
+            return KlineBars.newSeries(name);
+        }
+    }
+
+    /**
+     * 区间 [from, to) 内的K线是否已连续保存
+     */
+    public boolean covers(ExchangeType exchangeType, String symbol, KlineInterval interval, long from, long to) {
+        if (!enabled) return false;
+        try {
+            KlineHistory segment = segment(exchangeType, symbol, interval, false);
+            return segment != null && segment.covers(from, to);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 区间 [from, to) 内已保存部分中间的缺口，存储未启用或尚无数据时返回空列表
+     * @return 每个元素为 {缺口首根开盘时间（包含）, 缺口结束时间（不包含）}
+     */
+    public List<long[]> gaps(ExchangeType exchangeType, String symbol, KlineInterval interval, long from, long to) {
+        if (!enabled) return List.of();
+        try {
+            KlineHistory segment = segment(exchangeType, symbol, interval, false);
+            return segment == null ? List.of() : segment.gaps(from, to);
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * 最后一根已保存K线的开盘时间，没有时返回 -1
+     */
+    public long lastOpenTime(ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        if (!enabled) return -1L;
+        try {
+            KlineHistory segment = segment(exchangeType, symbol, interval, false);
+            return segment == null ? -1L : segment.lastOpenTime();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 当前已打开的段文件数
+     */
+    public int getOpenSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 容器关闭时把映射内容刷盘
+     */
+    @PreDestroy
+    public void flush() {
+        segments.values().forEach(KlineHistory::flush);
+    }
+
+    /**
+     * 获取已打开的段，未打开时打开文件
+     * @param create 文件不存在时是否创建，只读操作不创建空文件
+     * @return 段，文件不存在且不创建时返回 null
+     */
+    private KlineHistory segment(ExchangeType exchangeType, String symbol, KlineInterval interval, boolean create) throws IOException {
+        String fileName = sanitize(symbol) + "_" + interval.name();
+        Path path = Paths.get(basePath, exchangeType.name(), fileName + ".seg");
+        KlineHistory segment = segments.get(path.toString());
+        if (segment != null) return segment;
+        synchronized (segments) {
+            segment = segments.get(path.toString());
+            if (segment == null) {
+                if (!create && !Files.exists(path)) return null;
+                segment = new KlineHistory(path, path.resolveSibling(fileName + ".klz"), interval.getDuration(), blockBars);
+                segments.put(path.toString(), segment);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * 截取收盘时间不晚于当前时间的K线
+     */
+    private static BarSeries closedBars(BarSeries series, KlineInterval interval) {
+        long closedBefore = System.currentTimeMillis() - interval.getDuration().toMillis();
+        List<Bar> bars = new ArrayList<>(series.getBarCount());
+        for (int i = KlineBars.firstIndex(series); i <= series.getEndIndex(); i++) {
+            Bar bar = series.getBar(i);
+            if (KlineBars.openTimeMillis(bar) > closedBefore) break;
+            bars.add(bar);
+        }
+        return KlineBars.newSeries(series.getName(), bars);
+    }
+
+    private static String sanitize(String symbol) {
+        return symbol.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static String seriesName(ExchangeType exchangeType, String symbol, KlineInterval interval) {
+        return exchangeType.name() + "|" + symbol + "|" + interval.name();
+    }
+}
@@ -0,0 +1,40 @@
+package druid.elf.tool.service.kline.store.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按位读取，高位在前，与 {@link BitOutput} 对应。直接读取传入的缓冲区（可以是内存映射），不复制数据
+ */
+final class BitInput {
+
+    private final ByteBuffer buffer;
+    private final int base;   // 位流在缓冲区中的起始字节
+    private long bitIndex;    // 已读取的位数
+
+    BitInput(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+    }
+
+    boolean readBit() {
+        int b = buffer.get(base + (int) (bitIndex >>> 3));
+        boolean bit = (b & (0x80 >>> (bitIndex & 7))) != 0;
+        bitIndex++;
+        return bit;
+    }
+
+    long readBits(int bits) {
+        long value = 0;
+        for (int remaining = bits; remaining > 0; ) {
+            int b = buffer.get(base + (int) (bitIndex >>> 3)) & 0xFF;
+            int offset = (int) (bitIndex & 7);
+            int available = 8 - offset;
+            int take = Math.min(available, remaining);
+            int chunk = (b >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            bitIndex += take;
+            remaining -= take;
+        }
+        return value;
+    }
+}
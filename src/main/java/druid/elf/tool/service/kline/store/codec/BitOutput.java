@@ -0,0 +1,52 @@
+package druid.elf.tool.service.kline.store.codec;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的字节缓冲区，高位在前
+ */
+final class BitOutput {
+
+    private byte[] bytes;
+    private long bitCount;  // 已写入的位数
+
+    BitOutput(int initialBytes) {
+        this.bytes = new byte[Math.max(16, initialBytes)];
+    }
+
+    void writeBit(boolean bit) {
+        ensure(1);
+        if (bit) {
+            int index = (int) (bitCount >>> 3);
+            bytes[index] |= (byte) (0x80 >>> (bitCount & 7));
+        }
+        bitCount++;
+    }
+
+    /**
+     * 写入 value 的低 bits 位
+     */
+    void writeBits(long value, int bits) {
+        ensure(bits);
+        for (int remaining = bits; remaining > 0; ) {
+            int index = (int) (bitCount >>> 3);
+            int free = 8 - (int) (bitCount & 7);
+            int take = Math.min(free, remaining);
+            int chunk = (int) ((value >>> (remaining - take)) & ((1L << take) - 1));
+            bytes[index] |= (byte) (chunk << (free - take));
+            bitCount += take;
+            remaining -= take;
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+    }
+
+    private void ensure(int bits) {
+        long needed = (bitCount + bits + 7) >>> 3;
+        if (needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.max(needed, bytes.length * 2L));
+        }
+    }
+}
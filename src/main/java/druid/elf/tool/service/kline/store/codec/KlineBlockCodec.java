@@ -0,0 +1,186 @@
+package druid.elf.tool.service.kline.store.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Gorilla 风格的K线块编解码：开盘时间按二阶差分编码，开/高/低/收/量 按与上一值的异或编码。
+ * 规则间隔的时间戳每根只占 1 位，相邻价格的异或结果高低位大多为 0，只保存中间的有效位。
+ * <pre>
+ * 块: count(int) firstOpenTime(long) 位流
+ * 时间位流: 首个间隔 64 位，之后每个二阶差分:
+ *   0                      差分为 0
+ *   10   + 7 位            [-63, 64]
+ *   110  + 9 位            [-255, 256]
+ *   1110 + 12 位           [-2047, 2048]
+ *   1111 + 64 位           其他
+ * 数值位流（按 收/高/低/开/量 顺序逐列）: 首个值 64 位，之后每个值与参考值异或，
+ * 参考值为本列上一值，开盘价的参考值为上一根的收盘价:
+ *   0                      与参考值相同
+ *   10 + 有效位            前导/尾随 0 不少于上一次，沿用上一次的有效位窗口
+ *   11 + 5 位前导0个数 + 6 位有效位长度 + 有效位
+ * </pre>
+ * 块与块之间互不依赖，可以从任意块边界开始解码
+ */
+public final class KlineBlockCodec {
+
+    public static final int HEADER_BYTES = 12;
+    private static final int OPEN = 0;
+    private static final int CLOSE = 3;
+    /** 先编码收盘价，开盘价与上一根收盘价异或（连续行情下通常相同，只占 1 位） */
+    private static final int[] COLUMN_ORDER = {CLOSE, 1, 2, OPEN, 4};
+
+    private KlineBlockCodec() {
+    }
+
+    /**
+     * 编码 [from, to) 范围内的K线为一个块
+     */
+    public static byte[] encode(KlineColumns source, int from, int to) {
+        int count = to - from;
+        if (count <= 0) {
+            throw new IllegalArgumentException("K线块不能为空");
+        }
+        BitOutput out = new BitOutput(count * 8);
+        long[] times = source.openTimes();
+        if (count > 1) {
+            long previousDelta = times[from + 1] - times[from];
+            out.writeBits(previousDelta, 64);
+            for (int i = from + 2; i < to; i++) {
+                long delta = times[i] - times[i - 1];
+                writeDeltaOfDelta(out, delta - previousDelta);
+                previousDelta = delta;
+            }
+        }
+        double[] close = source.column(CLOSE);
+        for (int column : COLUMN_ORDER) {
+            double[] values = source.column(column);
+            writeXor(out, values, column == OPEN ? close : values, from, to);
+        }
+
+        byte[] bits = out.toByteArray();
+        ByteBuffer block = ByteBuffer.allocate(HEADER_BYTES + bits.length).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(count).putLong(times[from]).put(bits);
+        return block.array();
+    }
+
+    /**
+     * 解码一个块并追加到目标数组
+     * @param buffer 包含块的缓冲区（可以是内存映射），字节序须为小端
+     * @param offset 块在缓冲区中的起始位置
+     * @param target 目标列式数组
+     * @return 解码出的K线条数
+     */
+    public static int decode(ByteBuffer buffer, int offset, KlineColumns target) {
+        int count = buffer.getInt(offset);
+        long firstOpenTime = buffer.getLong(offset + 4);
+        int start = target.size();
+        target.ensureCapacity(start + count);
+        BitInput in = new BitInput(buffer, offset + HEADER_BYTES);
+
+        long[] times = target.openTimes();
+        times[start] = firstOpenTime;
+        if (count > 1) {
+            long delta = in.readBits(64);
+            times[start + 1] = firstOpenTime + delta;
+            for (int i = start + 2; i < start + count; i++) {
+                delta += readDeltaOfDelta(in);
+                times[i] = times[i - 1] + delta;
+            }
+        }
+        double[] close = target.column(CLOSE);
+        for (int column : COLUMN_ORDER) {
+            double[] values = target.column(column);
+            readXor(in, values, column == OPEN ? close : values, start, start + count);
+        }
+        target.setSize(start + count);
+        return count;
+    }
+
+    /**
+     * 块内K线条数，无需解码位流
+     */
+    public static int count(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    private static void writeDeltaOfDelta(BitOutput out, long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitInput in) {
+        if (!in.readBit()) return 0;
+        if (!in.readBit()) return signExtend(in.readBits(7), 7);
+        if (!in.readBit()) return signExtend(in.readBits(9), 9);
+        if (!in.readBit()) return signExtend(in.readBits(12), 12);
+        return in.readBits(64);
+    }
+
+    /**
+     * 把 bits 位的补码值扩展为 long；区间上界（如 7 位的 64）按无符号保留
+     */
+    private static long signExtend(long value, int bits) {
+        long max = 1L << (bits - 1);
+        return value > max ? value - (1L << bits) : value;
+    }
+
+    private static void writeXor(BitOutput out, double[] values, double[] reference, int from, int to) {
+        out.writeBits(Double.doubleToRawLongBits(values[from]), 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long xor = Double.doubleToRawLongBits(values[i]) ^ Double.doubleToRawLongBits(reference[i - 1]);
+            if (xor == 0) {
+                out.writeBit(false);
+                continue;
+            }
+            out.writeBit(true);
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    private static void readXor(BitInput in, double[] target, double[] reference, int from, int to) {
+        target[from] = Double.longBitsToDouble(in.readBits(64));
+        int leading = 0;
+        int trailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long value = Double.doubleToRawLongBits(reference[i - 1]);
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                value ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            target[i] = Double.longBitsToDouble(value);
+        }
+    }
+}
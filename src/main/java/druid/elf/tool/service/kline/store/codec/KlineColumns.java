@@ -0,0 +1,109 @@
+package druid.elf.tool.service.kline.store.codec;
+
+import java.util.Arrays;
+
+/**
+ * 列式K线数组：开盘时间与 开/高/低/收/量 分列存放，解码直接写入这些数组
+ */
+public class KlineColumns {
+
+    private long[] openTime;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+
+    public KlineColumns(int capacity) {
+        int length = Math.max(1, capacity);
+        openTime = new long[length];
+        open = new double[length];
+        high = new double[length];
+        low = new double[length];
+        close = new double[length];
+        volume = new double[length];
+    }
+
+    /**
+     * 追加一根K线
+     */
+    public void add(long time, double o, double h, double l, double c, double v) {
+        ensureCapacity(size + 1);
+        openTime[size] = time;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    /**
+     * 清空内容，保留已分配的数组，用于逐块解码时复用
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getOpenTime(int i) {
+        return openTime[i];
+    }
+
+    public double getOpen(int i) {
+        return open[i];
+    }
+
+    public double getHigh(int i) {
+        return high[i];
+    }
+
+    public double getLow(int i) {
+        return low[i];
+    }
+
+    public double getClose(int i) {
+        return close[i];
+    }
+
+    public double getVolume(int i) {
+        return volume[i];
+    }
+
+    /**
+     * 第 column 列（0 开，1 高，2 低，3 收，4 量）的底层数组
+     */
+    double[] column(int column) {
+        return switch (column) {
+            case 0 -> open;
+            case 1 -> high;
+            case 2 -> low;
+            case 3 -> close;
+            case 4 -> volume;
+            default -> throw new IllegalArgumentException("无效的列: " + column);
+        };
+    }
+
+    long[] openTimes() {
+        return openTime;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= openTime.length) return;
+        int length = Math.max(capacity, openTime.length * 2);
+        openTime = Arrays.copyOf(openTime, length);
+        open = Arrays.copyOf(open, length);
+        high = Arrays.copyOf(high, length);
+        low = Arrays.copyOf(low, length);
+        close = Arrays.copyOf(close, length);
+        volume = Arrays.copyOf(volume, length);
+    }
+}
@@ -1,8 +1,10 @@
 package druid.elf.tool.service.strategy;
 
 import druid.elf.tool.entity.TradeSignal;
+import druid.elf.tool.enums.KlineInterval;
 import org.ta4j.core.BarSeries;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 交易策略
@@ -18,4 +20,9 @@ public interface TradeStrategy {
      * 策略名称
      */
     String getStrategyName();
+
+    /**
+     * 策略依赖的K线周期，其中任一周期收盘时才需要重新执行策略
+     */
+    Set<KlineInterval> getRequiredIntervals();
 }
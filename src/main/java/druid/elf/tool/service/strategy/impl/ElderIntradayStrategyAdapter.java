@@ -1,22 +1,19 @@
 package druid.elf.tool.service.strategy.impl;
 
-import druid.elf.tool.dto.KlineDataDTO;
 import druid.elf.tool.dto.PythonTradeSignalDTO;
-import druid.elf.tool.dto.StrategyRequestDTO;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.client.KlineColumnarPayload;
 import druid.elf.tool.service.client.PythonStrategyClientRestTemplate;
 import druid.elf.tool.service.strategy.AbstractTradeStrategy;
 import druid.elf.tool.service.strategy.TradeStrategyDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 埃尔德三重过滤日内短线策略适配器（当日平仓）
@@ -25,6 +22,9 @@ import java.util.Map;
 @Slf4j
 public class ElderIntradayStrategyAdapter extends AbstractTradeStrategy {
 
+    private static final int DEFAULT_TRADES = 50; // JSON格式中K线没有成交笔数时的默认值
+    private static final double TAKER_BUY_RATIO = 0.7; // JSON格式中主动买入量按成交量的该比例估算
+
     private final PythonStrategyClientRestTemplate pythonStrategyClient;
 
     @Autowired
@@ -38,16 +38,9 @@ public class ElderIntradayStrategyAdapter extends AbstractTradeStrategy {
 
         try {
             // 转换数据格式 - 日内策略需要日线、30分钟线、5分钟线
-            Map<String, List<KlineDataDTO>> klineData = convertBarSeriesToKlineData(seriesMap);
-
-            // 构建请求
-            StrategyRequestDTO request = new StrategyRequestDTO();
-            request.setSymbol("BTCUSDT");
-            request.setStrategyName("ElderIntradayStrategy");
-            request.setKlineData(klineData);
-
-            // 调用Python服务
-            PythonTradeSignalDTO pythonResult = pythonStrategyClient.executeStrategy(request);
+            // 优先以列式二进制发送，Python服务不支持时才转换为JSON对象
+            PythonTradeSignalDTO pythonResult = pythonStrategyClient.executeStrategy("BTCUSDT", "ElderIntradayStrategy", seriesMap,
+                    () -> KlineColumnarPayload.toKlineData(seriesMap, DEFAULT_TRADES, TAKER_BUY_RATIO));
 
             if (pythonResult == null) {
                 log.info("埃尔德日内策略未返回交易信号");
@@ -63,68 +56,6 @@ public class ElderIntradayStrategyAdapter extends AbstractTradeStrategy {
         }
     }
 
-    private Map<String, List<KlineDataDTO>> convertBarSeriesToKlineData(Map<String, BarSeries> seriesMap) {
-        Map<String, List<KlineDataDTO>> klineData = new HashMap<>();
-
-        for (Map.Entry<String, BarSeries> entry : seriesMap.entrySet()) {
-            String interval = entry.getKey();
-            BarSeries series = entry.getValue();
-
-            List<KlineDataDTO> klineList = new ArrayList<>();
-            for (int i = 0; i < series.getBarCount(); i++) {
-                Bar bar = series.getBar(i);
-                KlineDataDTO klineDto = new KlineDataDTO();
-                
-                // 根据不同时间周期设置不同的时间间隔
-                long timeInterval = getTimeIntervalByPeriod(interval);
-                long currentTime = System.currentTimeMillis();
-                klineDto.setOpenTime(currentTime - (series.getBarCount() - i) * timeInterval);
-                klineDto.setCloseTime(klineDto.getOpenTime() + timeInterval);
-                
-                // 设置价格数据
-                klineDto.setOpenPrice(BigDecimal.valueOf(bar.getOpenPrice().doubleValue()));
-                klineDto.setHighPrice(BigDecimal.valueOf(bar.getHighPrice().doubleValue()));
-                klineDto.setLowPrice(BigDecimal.valueOf(bar.getLowPrice().doubleValue()));
-                klineDto.setClosePrice(BigDecimal.valueOf(bar.getClosePrice().doubleValue()));
-                klineDto.setVolume(BigDecimal.valueOf(bar.getVolume().doubleValue()));
-                
-                // 设置默认值
-                klineDto.setQuoteAssetVolume(BigDecimal.valueOf(bar.getVolume().doubleValue()));
-                klineDto.setNumberOfTrades(50);
-                klineDto.setTakerBuyBaseAssetVolume(BigDecimal.valueOf(bar.getVolume().doubleValue() * 0.7));
-                klineDto.setTakerBuyQuoteAssetVolume(BigDecimal.valueOf(bar.getVolume().doubleValue() * 0.7));
-
-                klineList.add(klineDto);
-            }
-
-            klineData.put(interval, klineList);
-            log.info("转换{}间隔的K线数据，共{}条", interval, klineList.size());
-        }
-
-        return klineData;
-    }
-
-    private long getTimeIntervalByPeriod(String interval) {
-        switch (interval) {
-            case "_1W":
-                return 7 * 24 * 60 * 60 * 1000L; // 1周
-            case "_1D":
-                return 24 * 60 * 60 * 1000L; // 1天
-            case "_4H":
-                return 4 * 60 * 60 * 1000L; // 4小时
-            case "_1H":
-                return 60 * 60 * 1000L; // 1小时
-            case "_30M":
-                return 30 * 60 * 1000L; // 30分钟
-            case "_15M":
-                return 15 * 60 * 1000L; // 15分钟
-            case "_5M":
-                return 5 * 60 * 1000L; // 5分钟
-            default:
-                return 5 * 60 * 1000L; // 默认5分钟
-        }
-    }
-
     private TradeStrategyDTO convertPythonResultToTradeStrategyDTO(PythonTradeSignalDTO pythonResult) {
         TradeStrategyDTO dto = new TradeStrategyDTO();
         dto.setSignal(pythonResult.getSignal());
@@ -144,4 +75,9 @@ public class ElderIntradayStrategyAdapter extends AbstractTradeStrategy {
     public String getStrategyName() {
         return "埃尔德三重过滤日内短线策略";
     }
-}
\ No newline at end of file
+
+    @Override
+    public Set<KlineInterval> getRequiredIntervals() {
+        return EnumSet.of(KlineInterval._1D, KlineInterval._30M);
+    }
+}
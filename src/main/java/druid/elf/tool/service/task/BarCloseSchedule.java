@@ -0,0 +1,87 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.BarSeriesResampler;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按K线收盘对齐的调度计划：计算各交易所各周期的下一个收盘时间，
+ * 同一时刻收盘的周期（如整点时 30 分钟线和 1 小时线）合并为一次触发。
+ * 收盘时间与 {@link BarSeriesResampler#alignmentOffset} 的周期边界一致
+ */
+final class BarCloseSchedule {
+
+    private BarCloseSchedule() {
+    }
+
+    /**
+     * 周期在 after 之后（不含）的第一个收盘时间（毫秒）
+     */
+    static long nextClose(ExchangeType exchangeType, KlineInterval interval, long after) {
+        long period = interval.getDuration().toMillis();
+        long offset = BarSeriesResampler.alignmentOffset(exchangeType, interval);
+        return Math.floorDiv(after - offset, period) * period + offset + period;
+    }
+
+    /**
+     * after 之后最早的一次收盘及在该时刻收盘的周期
+     * @param intervals 交易所 -> 需要调度的周期
+     * @return 没有任何周期时返回 null
+     */
+    static Firing next(Map<ExchangeType, ? extends Collection<KlineInterval>> intervals, long after) {
+        long earliest = Long.MAX_VALUE;
+        for (Map.Entry<ExchangeType, ? extends Collection<KlineInterval>> entry : intervals.entrySet()) {
+            for (KlineInterval interval : entry.getValue()) {
+                earliest = Math.min(earliest, nextClose(entry.getKey(), interval, after));
+            }
+        }
+        if (earliest == Long.MAX_VALUE) return null;
+        Map<ExchangeType, Set<KlineInterval>> closed = new EnumMap<>(ExchangeType.class);
+        for (Map.Entry<ExchangeType, ? extends Collection<KlineInterval>> entry : intervals.entrySet()) {
+            for (KlineInterval interval : entry.getValue()) {
+                if (nextClose(entry.getKey(), interval, after) == earliest) {
+                    closed.computeIfAbsent(entry.getKey(), k -> EnumSet.noneOf(KlineInterval.class)).add(interval);
+                }
+            }
+        }
+        return new Firing(earliest, closed);
+    }
+
+    /**
+     * 一次触发：收盘时间和各交易所在该时刻（或合并的更早时刻）收盘的周期
+     */
+    static final class Firing {
+        private final long closeTime;
+        private final Map<ExchangeType, Set<KlineInterval>> closed;
+
+        Firing(long closeTime, Map<ExchangeType, Set<KlineInterval>> closed) {
+            this.closeTime = closeTime;
+            this.closed = closed;
+        }
+
+        /**
+         * 与之后的一次触发合并，用于补上执行超时错过的收盘
+         */
+        Firing merge(Firing later) {
+            Map<ExchangeType, Set<KlineInterval>> merged = new EnumMap<>(ExchangeType.class);
+            closed.forEach((exchangeType, intervals) -> merged.put(exchangeType, EnumSet.copyOf(intervals)));
+            later.closed.forEach((exchangeType, intervals) ->
+                    merged.computeIfAbsent(exchangeType, k -> EnumSet.noneOf(KlineInterval.class)).addAll(intervals));
+            return new Firing(Math.max(closeTime, later.closeTime), merged);
+        }
+
+        long getCloseTime() {
+            return closeTime;
+        }
+
+        Map<ExchangeType, Set<KlineInterval>> getClosed() {
+            return closed;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.KlineInterval;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个交易所的信号生成轮次状态：同一时间最多一个轮次在执行，上一轮未结束时新的触发被跳过，
+ * 其收盘周期留给下一轮；超过轮次期限未处理的交易对记录下来，下一轮从这些交易对继续
+ */
+final class ExchangeCycle {
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Set<KlineInterval> deferred = EnumSet.noneOf(KlineInterval.class); // 被跳过的触发留下的收盘周期
+    private final Set<String> resume = ConcurrentHashMap.newKeySet();                 // 上一轮超过期限未处理的交易对
+    private final AtomicInteger processed = new AtomicInteger();  // 本轮已交给策略的交易对数
+    private final AtomicInteger dropped = new AtomicInteger();    // 本轮超过期限丢弃的交易对数
+    private final AtomicLong overlapSkips = new AtomicLong();     // 因上一轮未结束而跳过的触发次数
+    private volatile long startTime = -1L;
+    private volatile long lastDurationMillis = -1L;
+    private volatile int lastProcessed;
+    private volatile int lastDropped;
+
+    /**
+     * 开始新一轮，上一轮仍在执行时返回 false，并把本次的收盘周期留给下一轮
+     * @param closed 刚收盘的周期，为 null 时表示全部周期
+     */
+    boolean tryStart(Set<KlineInterval> closed) {
+        if (!running.compareAndSet(false, true)) {
+            overlapSkips.incrementAndGet();
+            defer(closed);
+            return false;
+        }
+        startTime = System.currentTimeMillis();
+        processed.set(0);
+        dropped.set(0);
+        return true;
+    }
+
+    /**
+     * 合并之前被跳过的收盘周期，合并后清空
+     * @param closed 本轮的收盘周期，为 null 时表示全部周期
+     * @return 本轮应处理的周期，为 null 时表示全部周期
+     */
+    synchronized Set<KlineInterval> takeDeferred(Set<KlineInterval> closed) {
+        if (deferred.isEmpty() || closed == null) {
+            deferred.clear();
+            return closed;
+        }
+        Set<KlineInterval> merged = EnumSet.copyOf(deferred);
+        merged.addAll(closed);
+        deferred.clear();
+        return merged;
+    }
+
+    /**
+     * 把收盘周期留给下一轮
+     */
+    synchronized void defer(Set<KlineInterval> closed) {
+        deferred.addAll(closed == null ? Arrays.asList(KlineInterval.values()) : closed);
+    }
+
+    /**
+     * 取出上一轮超过期限未处理的交易对，取出后清空
+     */
+    Set<String> takeResume() {
+        Set<String> taken = new HashSet<>(resume);
+        resume.removeAll(taken);
+        return taken;
+    }
+
+    void processed() {
+        processed.incrementAndGet();
+    }
+
+    /**
+     * 记录超过期限未处理的交易对，下一轮从它继续
+     */
+    void drop(String symbol) {
+        dropped.incrementAndGet();
+        resume.add(symbol);
+    }
+
+    int getDropped() {
+        return dropped.get();
+    }
+
+    void finish() {
+        lastDurationMillis = System.currentTimeMillis() - startTime;
+        lastProcessed = processed.get();
+        lastDropped = dropped.get();
+        running.set(false);
+    }
+
+    /**
+     * 运行状态和最近一轮的统计
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", running.get());
+        result.put("startTime", startTime);
+        result.put("lastDurationMillis", lastDurationMillis);
+        result.put("lastProcessed", lastProcessed);
+        result.put("lastDropped", lastDropped);
+        result.put("pendingResume", resume.size());
+        result.put("overlapSkips", overlapSkips.get());
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package druid.elf.tool.service.task;
 
+import cn.hutool.core.collection.CollectionUtil;
 import druid.elf.tool.entity.Settings;
 import druid.elf.tool.entity.SettingsProxy;
 import druid.elf.tool.entity.TradeSignal;
@@ -11,12 +12,20 @@ import druid.elf.tool.repository.TradingPairRepository;
 import druid.elf.tool.service.DataService;
 import druid.elf.tool.service.TradeSignalService;
 import druid.elf.tool.service.TradeStrategyService;
+import druid.elf.tool.service.TickerPrefilterService;
 import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamService;
+import druid.elf.tool.service.kline.KlineFetchPlan;
+import druid.elf.tool.service.kline.KlineFetchPlanner;
+import druid.elf.tool.service.kline.KlineSnapshotService;
+import druid.elf.tool.service.kline.RollingKlineService;
 import druid.elf.tool.service.proxy.ProxyPoolManager;
+import druid.elf.tool.service.strategy.AbstractTradeStrategy;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
@@ -25,12 +34,15 @@ import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.ta4j.core.BarSeries;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 
 @Slf4j
@@ -42,30 +54,69 @@ public class IndicatorTask implements SchedulingConfigurer {
     @Autowired
     private TradeSignalService tradeSignalService;
     @Autowired
-    private TradeStrategyService tradeStrategyService;
-    @Autowired
     private TradingPairRepository tradingPairRepository;
     @Autowired
-    private SignalStorageService signalStorageService;
+    private SignalPipeline signalPipeline;
     @Autowired
     private TaskScheduler indicatorTaskScheduler;
     @Autowired
     private TradingPairTask.SyncExecutor tradingPairSyncExecutor;
     @Autowired
     private TradingPairTask.TradingPairSyncService tradingPairSyncService;
+    @Autowired
+    private RollingKlineService rollingKlineService;
+    @Autowired
+    private KlineFetchPlanner klineFetchPlanner;
+    @Autowired
+    private KlineStreamService klineStreamService;
+    @Autowired
+    private TickerPrefilterService tickerPrefilterService;
+    @Autowired
+    private KlineSnapshotService klineSnapshotService;
+    @Autowired
+    private TradeStrategyService tradeStrategyService;
+    @Autowired
+    private StrategyInputFingerprints inputFingerprints;
+    @Autowired
+    private SignalCycleRegistry signalCycleRegistry;
+    @Autowired
+    private PairPriorityScheduler pairPriorityScheduler;
 
+    @Value("${kline.snapshot.pair-max-age-hours:72}")
+    private long pairMaxAgeHours; // 交易对上次同步距今不超过该时长时，启动不再重新同步
+    @Value("${kline.fetch.group-timeout-seconds:60}")
+    private long groupTimeoutSeconds; // 同一交易对各周期并发拉取的整体期限
+    @Value("${kline.schedule.bar-close:true}")
+    private boolean barCloseSchedule;  // 按策略依赖周期的收盘时间触发；关闭时按 fetchFrequency 全量轮询
+    @Value("${kline.schedule.close-delay-seconds:5}")
+    private long closeDelaySeconds;    // 收盘后延迟触发的秒数，等待交易所生成已收盘K线
+    @Value("${kline.cycle.deadline-seconds:600}")
+    private long cycleDeadlineSeconds; // 单个交易所一轮的期限，到期后尚未开始的交易对丢弃并留给下一轮
 
+    private volatile BarCloseSchedule.Firing pendingFiring; // 下一次收盘触发
+    private volatile long lastCloseTime = -1L;               // 上一次已执行的收盘时间
+
+
+    // 每个交易所同一时间最多一个轮次，线程和队列都按交易所数量封顶，超出时拒绝而不是在调度线程上执行
     private final ExecutorService executorService = new ThreadPoolExecutor(
             ExchangeType.values().length,
-            ExchangeType.values().length * 2,
+            ExchangeType.values().length,
             60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(),
-            new ThreadPoolExecutor.CallerRunsPolicy()
+            new ArrayBlockingQueue<>(ExchangeType.values().length),
+            new ThreadPoolExecutor.AbortPolicy()
     );
 
     @PostConstruct
     public void init() {
-        CompletableFuture<Void> tradingPairFuture = tradingPairSyncExecutor.executeSyncAsync();
+        // 先恢复滚动序列快照，首次刷新只请求快照之后的缺口
+        klineSnapshotService.restore();
+        CompletableFuture<Void> tradingPairFuture;
+        if (tradingPairSyncService.isSyncedWithin(Duration.ofHours(pairMaxAgeHours))) {
+            log.info("数据库中的交易对在 {} 小时内已同步，启动时不再重新同步", pairMaxAgeHours);
+            tradingPairFuture = CompletableFuture.completedFuture(null);
+        } else {
+            tradingPairFuture = tradingPairSyncExecutor.executeSyncAsync();
+        }
         tradingPairFuture.thenRunAsync(this::generateAndStoreSignalAsync, executorService)
                 .whenComplete((result, exception) -> {
                     if (exception != null) {
@@ -86,6 +137,10 @@ public class IndicatorTask implements SchedulingConfigurer {
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
         taskRegistrar.setScheduler(indicatorTaskScheduler);
+        if (barCloseSchedule) {
+            taskRegistrar.addTriggerTask(this::generateOnBarClose, triggerContext -> nextBarClose());
+            return;
+        }
         taskRegistrar.addTriggerTask(
                 this::generateAndStoreSignal,
                 triggerContext -> {
@@ -104,38 +159,136 @@ public class IndicatorTask implements SchedulingConfigurer {
         );
     }
 
+    /**
+     * 计算下一次收盘触发时间：取已启用交易所中策略依赖周期最早的收盘时间，加上收盘延迟。
+     * 上一轮执行超时错过的收盘合并为一次立即执行
+     */
+    private Instant nextBarClose() {
+        Map<ExchangeType, List<KlineInterval>> intervals = scheduledIntervals();
+        long now = System.currentTimeMillis();
+        long delay = closeDelaySeconds * 1000L;
+        long after = lastCloseTime >= 0 ? lastCloseTime : now - delay;
+        BarCloseSchedule.Firing firing = BarCloseSchedule.next(intervals, after);
+        if (firing == null) {
+            // 没有启用的交易所或策略，稍后按最新设置重新计算
+            pendingFiring = null;
+            return Instant.ofEpochMilli(now).plus(Duration.ofMinutes(1));
+        }
+        BarCloseSchedule.Firing later;
+        while ((later = BarCloseSchedule.next(intervals, firing.getCloseTime())).getCloseTime() + delay <= now) {
+            firing = firing.merge(later);
+        }
+        pendingFiring = firing;
+        log.debug("下一次收盘触发: {}，收盘周期: {}", Instant.ofEpochMilli(firing.getCloseTime()), firing.getClosed());
+        return Instant.ofEpochMilli(Math.max(now, firing.getCloseTime() + delay));
+    }
+
+    /**
+     * 已启用交易所 -> 全部策略依赖的周期
+     */
+    private Map<ExchangeType, List<KlineInterval>> scheduledIntervals() {
+        Map<ExchangeType, List<KlineInterval>> intervals = new EnumMap<>(ExchangeType.class);
+        Settings settings = tradeSignalService.getSettings();
+        if (settings == null || settings.getExchangeTypes() == null) return intervals;
+        List<KlineInterval> required = TradeStrategyService.requiredIntervals(tradeStrategyService.strategiesFor(null));
+        for (ExchangeType exchangeType : ExchangeType.values()) {
+            if (settings.getExchangeTypes().contains(exchangeType.name()) && !required.isEmpty()) {
+                intervals.put(exchangeType, required);
+            }
+        }
+        return intervals;
+    }
+
+    private void generateOnBarClose() {
+        BarCloseSchedule.Firing firing = pendingFiring;
+        if (firing == null) return;
+        lastCloseTime = firing.getCloseTime();
+        log.info("{} 收盘触发，收盘周期: {}", Instant.ofEpochMilli(firing.getCloseTime()), firing.getClosed());
+        generateAndStoreSignal(firing.getClosed());
+    }
+
     private void generateAndStoreSignal() {
+        generateAndStoreSignal(null);
+    }
+
+    /**
+     * @param closed 交易所 -> 刚收盘的周期，只执行依赖这些周期的策略；为 null 时执行全部交易所的全部策略
+     */
+    private void generateAndStoreSignal(Map<ExchangeType, Set<KlineInterval>> closed) {
         try {
             Settings settings = tradeSignalService.getSettings();
-            Integer frequency = Optional.ofNullable(settings)
-                    .map(Settings::getFetchFrequency)
-                    .filter(f -> f > 0)
-                    .orElse(15);
-            log.info("开始生成交易信号，当前频率：{} 分钟", frequency);
+            if (closed == null) {
+                Integer frequency = Optional.ofNullable(settings)
+                        .map(Settings::getFetchFrequency)
+                        .filter(f -> f > 0)
+                        .orElse(15);
+                log.info("开始生成交易信号，当前频率：{} 分钟", frequency);
+            } else {
+                log.info("开始生成交易信号，收盘周期：{}", closed);
+            }
 
+            StrategyInputFingerprints.Cycle run = inputFingerprints.startCycle();
             List<CompletableFuture<Void>> futures = Arrays.stream(ExchangeType.values())
-                    .map(exchangeType -> CompletableFuture.runAsync(
-                            () -> processExchange(exchangeType,settings), executorService))
+                    .filter(exchangeType -> closed == null || closed.containsKey(exchangeType))
+                    .map(exchangeType -> startCycle(exchangeType, settings, closed == null ? null : closed.get(exchangeType), run))
                     .toList();
 
             CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            inputFingerprints.endCycle(run);
             log.info("本次交易信号生成任务已完成");
         } catch (Exception e) {
             log.error("生成交易信号任务失败", e);
         }
     }
 
+    /**
+     * 开始交易所的一轮处理，上一轮仍在执行时跳过，本次的收盘周期留给下一轮
+     */
+    private CompletableFuture<Void> startCycle(ExchangeType exchangeType, Settings settings, Set<KlineInterval> closed,
+                                               StrategyInputFingerprints.Cycle run) {
+        ExchangeCycle cycle = signalCycleRegistry.get(exchangeType);
+        if (!cycle.tryStart(closed)) {
+            log.warn("{} 上一轮仍在执行，跳过本次触发，收盘周期 {} 留到下一轮", exchangeType, closed == null ? "全部" : closed);
+            return CompletableFuture.completedFuture(null);
+        }
+        Set<KlineInterval> effective = cycle.takeDeferred(closed);
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    processExchange(exchangeType, settings, effective, cycle, run);
+                } finally {
+                    cycle.finish();
+                }
+            }, executorService);
+        } catch (RejectedExecutionException e) {
+            cycle.finish();
+            cycle.defer(effective);
+            log.warn("{} 处理线程已满，跳过本次触发，收盘周期留到下一轮", exchangeType);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
     /**
      * 处理交易所数据，使用局部代理池并在任务完成后关闭
      * @param exchangeType 交易所类型
      * @param settings     设置对象，包含交易所类型和代理列表
+     * @param closed       刚收盘的周期，只拉取和执行依赖这些周期的策略；为 null 时执行全部策略
+     * @param cycle        交易所的轮次状态
+     * @param run          本次触发的策略输入指纹统计
      */
-    private void processExchange(ExchangeType exchangeType, Settings settings) {
+    private void processExchange(ExchangeType exchangeType, Settings settings, Set<KlineInterval> closed, ExchangeCycle cycle,
+                                 StrategyInputFingerprints.Cycle run) {
+        long deadline = System.currentTimeMillis() + cycleDeadlineSeconds * 1000L;
         // 检查交易所类型是否有效
         if (settings == null || !settings.getExchangeTypes().contains(exchangeType.name())) {
             log.info("交易所 {} 不在设置中，跳过处理", exchangeType);
             return;
         }
+        List<AbstractTradeStrategy> strategies = tradeStrategyService.strategiesFor(closed);
+        if (strategies.isEmpty()) {
+            log.info("{} 没有依赖周期 {} 的策略，跳过处理", exchangeType, closed);
+            return;
+        }
 
         // 加载交易对数据
         List<TradingPair> pairs = tradingPairRepository.findByExchange(exchangeType.name());
@@ -150,59 +303,84 @@ public class IndicatorTask implements SchedulingConfigurer {
         }
         log.info("加载 {} 的 {} 条交易对", exchangeType, pairs.size());
 
+        // 一次请求拉取全量行情，剔除成交清淡的交易对后再逐个拉取K线
+        SettingsProxy tickerProxy = CollectionUtil.isNotEmpty(settings.getProxies()) ? settings.getProxies().get(0) : null;
+        pairs = tickerPrefilterService.filter(exchangeType,
+                dataService.createExchangeDataService(exchangeType, tickerProxy), settings, pairs);
+        if (pairs.isEmpty()) {
+            log.info("{} 没有通过行情预筛选的交易对，结束本轮处理", exchangeType);
+            return;
+        }
+        // 只刷新本次执行的策略依赖的周期
+        List<KlineInterval> intervals = TradeStrategyService.requiredIntervals(strategies);
+        // 推送订阅包含本轮降频跳过的平静交易对，避免其频道被反复取消和重新订阅
+        List<String> streamSymbols = pairs.stream().map(TradingPair::getSymbol).toList();
+        // 按层级和活跃度排列，平静交易对降频；上一轮超过期限未处理的交易对在同层中优先
+        pairs = pairPriorityScheduler.prioritize(exchangeType, pairs, cycle.takeResume(), intervals);
+
         // 创建代理池，无代理时单线程运行
         ProxyPoolManager proxyPool = new ProxyPoolManager(settings.getProxies());
         try {
-            // 定义K线间隔，排除1分钟和5分钟
-            List<KlineInterval> intervals = Arrays.stream(KlineInterval.values())
-                    .filter(i -> i != KlineInterval._1M && i != KlineInterval._5M)
-                    .toList();
+            // 规划需要请求的基础周期，可由低周期聚合的周期在本地派生
+            KlineFetchPlan plan = klineFetchPlanner.plan(exchangeType, intervals, 300);
+            if (klineStreamService.isEnabled()) {
+                // 推送模式下订阅全部策略请求周期的K线频道，刷新时序列已由推送更新的不再请求；连接与行情预筛选使用同一代理
+                KlineFetchPlan fullPlan = klineFetchPlanner.plan(exchangeType,
+                        TradeStrategyService.requiredIntervals(tradeStrategyService.strategiesFor(null)), 300);
+                klineStreamService.syncSubscriptions(exchangeType, tickerProxy, streamSymbols,
+                        fullPlan.getFetches().keySet());
+            }
 
-            // 提交任务并获取CompletableFuture列表
+            // 提交拉取任务，拉取完成的交易对进入信号流水线
+            Queue<CompletableFuture<Void>> evaluations = new ConcurrentLinkedQueue<>();
             List<CompletableFuture<Void>> futures = pairs.stream()
                     .map(pair -> proxyPool.submitTaskWithFuture(() -> {
                         String symbol = pair.getSymbol();
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            // 超过本轮期限，剩余交易对不再拉取，避免与下一轮叠加
+                            cycle.drop(symbol);
+                            return;
+                        }
+                        Duration timeout = Duration.ofMillis(Math.min(groupTimeoutSeconds * 1000L, remaining));
                         SettingsProxy proxy = proxyPool.getCurrentProxy();
                         ExchangeDataService service = dataService.createExchangeDataService(exchangeType, proxy);
-                        Map<String, BarSeries> series = new HashMap<>();
-
-                        for (KlineInterval interval : intervals) {
-                            try {
-                                series.put(interval.name(), service.getKlineData(symbol, interval, 300));
-                            } catch (Exception e) {
-                                log.error("获取K线数据失败, 交易所: {}, 符号: {}, 间隔: {}, 代理: {}:{}, 错误: {}",
-                                        exchangeType, symbol, interval,
-                                        proxy != null ? proxy.getIp() : "无",
-                                        proxy != null ? proxy.getPort() : "无", e.getMessage());
-                                break;
-                            }
+                        // 各周期并发拉取，任一周期失败或超时则整组取消，策略只接收完整的多周期快照
+                        Map<KlineInterval, BarSeries> fetched;
+                        try {
+                            fetched = rollingKlineService.refreshAll(service, exchangeType, symbol, plan.getFetches(),
+                                    timeout).join();
+                        } catch (CompletionException | CancellationException e) {
+                            Throwable cause = e.getCause() != null ? e.getCause() : e;
+                            log.error("获取K线数据失败，本轮跳过该交易对, 交易所: {}, 符号: {}, 代理: {}:{}, 错误: {}",
+                                    exchangeType, symbol,
+                                    proxy != null ? proxy.getIp() : "无",
+                                    proxy != null ? proxy.getPort() : "无",
+                                    cause instanceof TimeoutException ? "超过 " + timeout.toSeconds() + " 秒未完成" : cause.getMessage());
+                            return;
                         }
-
-                        List<TradeSignal> signals = tradeStrategyService.generateSignal(series, symbol);
-                        signals.forEach(s -> s.setExchange(exchangeType.name()));
-                        // signals 是否为空都要打印日志
-                        if (!signals.isEmpty()) {
-                            // 不为空的情况
-                            String priceInfo = (signals.get(0) != null && signals.get(0).getPrice() != null)
-                                    ? signals.get(0).getPrice().toString()
-                                    : "无价格数据";
-                            log.info("正在保存 {} 个信号，交易所: {}，交易对: {}，首个信号价格: {}",
-                                    signals.size(),
-                                    exchangeType,
-                                    symbol,
-                                    priceInfo);
-                            signalStorageService.saveSignals(signals, exchangeType, symbol);
-                        } else {
-                            // 为空的情况
-                            log.info("没有信号需要保存，交易所: {}，交易对: {}",
-                                    exchangeType,
-                                    symbol);
+                        Map<String, BarSeries> series = plan.assemble(fetched);
+                        pairPriorityScheduler.record(exchangeType, symbol, series);
+                        // 交给策略阶段后立即处理下一个交易对，待计算队列已满时在这里等待
+                        try {
+                            evaluations.add(signalPipeline.submit(exchangeType, symbol, series, strategies, run));
+                            cycle.processed();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            log.warn("提交策略计算时被中断，交易所: {}，交易对: {}", exchangeType, symbol);
                         }
                     }))
                     .toList();
 
-            // 等待所有任务完成
+            // 等待所有拉取完成，再等待已提交的交易对完成策略计算和入库
             CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            CompletableFuture.allOf(evaluations.toArray(new CompletableFuture[0]))
+                    .exceptionally(e -> null) // 单个交易对失败已在流水线中记录
+                    .join();
+            if (cycle.getDropped() > 0) {
+                log.warn("{} 超过本轮期限 {} 秒，{} 个交易对未处理，下一轮优先处理", exchangeType,
+                        cycleDeadlineSeconds, cycle.getDropped());
+            }
             log.info("完成 {} 的所有交易对处理", exchangeType);
         } catch (Exception e) {
             log.error("处理交易所 {} 失败: {}", exchangeType, e.getMessage());
@@ -238,15 +416,18 @@ class SignalStorageService {
     @Autowired
     private TradeSignalRepository tradeSignalRepository;
 
+    /**
+     * 一次事务保存多个交易对的信号
+     * @param pairCount 信号涉及的交易对数，仅用于日志
+     */
     @Transactional
-    public void saveSignals(List<TradeSignal> signals, ExchangeType exchangeType, String symbol) {
+    public void saveBatch(List<TradeSignal> signals, int pairCount) {
         try {
             tradeSignalRepository.saveAll(signals);
-            log.info("成功保存 {} 条交易信号, exchange: {}, symbol: {}",
-                    signals.size(), exchangeType, symbol);
+            log.info("成功批量保存 {} 个交易对的 {} 条交易信号", pairCount, signals.size());
         } catch (Exception e) {
-            log.error("保存交易信号失败, exchange: {}, symbol: {}", exchangeType, symbol, e);
+            log.error("批量保存交易信号失败, 交易对数: {}", pairCount, e);
             throw e;
         }
     }
-}
\ No newline at end of file
+}
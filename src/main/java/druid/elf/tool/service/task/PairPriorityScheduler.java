@@ -0,0 +1,236 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.entity.TradingPair;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.enums.TopCryptoCoin;
+import druid.elf.tool.service.kline.KlineBars;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 交易对优先级调度：按配置的层级（重点币种在前）和近期活跃度排列一轮中交易对的处理顺序，
+ * 活跃度由最近已收盘K线的实际波动率和成交额得出。活跃度明显低于同交易所中位数的平静交易对降低刷新频率，
+ * 把限流预算留给更可能出信号的交易对；首层交易对和尚无活跃度数据的交易对每轮都刷新。
+ * 降频只推迟本轮最短周期的刷新，按收盘时间而不是拉取时间计算落后的K线数；
+ * 其他周期自上次交给策略以来有新K线收盘时，平静交易对也在本轮刷新
+ */
+@Slf4j
+@Component
+public class PairPriorityScheduler {
+
+    @Value("${kline.priority.enabled:true}")
+    private boolean enabled;              // 是否启用优先级排序和平静交易对降频
+    @Value("${kline.priority.tiers:BTC,ETH}")
+    private String tierConfig;            // 优先级层级（基础货币），分号分隔各层，其后是 TopCryptoCoin 中的其他币种，最后是其余交易对
+    @Value("${kline.priority.volatility-bars:20}")
+    private int volatilityBars;           // 计算活跃度使用的最近已收盘K线条数
+    @Value("${kline.priority.calm-ratio:0.5}")
+    private double calmRatio;             // 活跃度低于同交易所中位数的该比例时视为平静
+    @Value("${kline.priority.calm-refresh-factor:4}")
+    private int calmRefreshFactor;        // 平静交易对的刷新间隔为本轮最短收盘周期的该倍数
+    @Value("${kline.priority.close-tolerance-seconds:60}")
+    private long closeToleranceSeconds;   // 比较收盘时间的容差，不超过周期的一半
+
+    private final Map<String, Integer> tiers = new HashMap<>();              // 基础货币 -> 层级
+    private final Map<String, Double> activities = new ConcurrentHashMap<>();   // 交易所|交易对 -> 活跃度
+    private final Map<String, Map<KlineInterval, Long>> evaluatedCloses = new ConcurrentHashMap<>(); // 交易所|交易对 -> 周期 -> 最近交给策略的已收盘K线收盘时间
+    private final Map<ExchangeType, AtomicInteger> deferred = new ConcurrentHashMap<>(); // 上一轮降频跳过的交易对数
+    private int defaultTier;
+
+    @PostConstruct
+    public void init() {
+        int tier = 0;
+        for (String group : tierConfig.split(";")) {
+            for (String coin : group.split(",")) {
+                if (!coin.isBlank()) tiers.putIfAbsent(coin.trim().toUpperCase(Locale.ROOT), tier);
+            }
+            tier++;
+        }
+        for (String coin : TopCryptoCoin.getAllSymbols()) {
+            tiers.putIfAbsent(coin.toUpperCase(Locale.ROOT), tier);
+        }
+        defaultTier = tier + 1;
+        log.info("交易对优先级层级: {} 个配置层，重点币种 {} 个", tier, tiers.size());
+    }
+
+    /**
+     * 排列本轮交易对：层级升序；同层中上一轮超过期限未处理的在前，其余按活跃度降序，尚无数据的视为最活跃。
+     * 平静交易对的最短周期落后不足 calm-refresh-factor 根K线、且其他周期都没有新K线收盘时本轮跳过
+     * @param resume 上一轮超过期限未处理的交易对
+     * @param intervals 本轮策略依赖的周期
+     * @return 本轮需要处理的交易对
+     */
+    public List<TradingPair> prioritize(ExchangeType exchangeType, List<TradingPair> pairs, Set<String> resume,
+                                        Collection<KlineInterval> intervals) {
+        if (!enabled) return pairs;
+        double median = medianActivity(exchangeType, pairs);
+        long now = System.currentTimeMillis();
+        List<TradingPair> ordered = new ArrayList<>(pairs.size());
+        int skipped = 0;
+        for (TradingPair pair : pairs) {
+            Double activity = activities.get(keyOf(exchangeType, pair.getSymbol()));
+            boolean calm = activity != null && median > 0 && activity < median * calmRatio;
+            if (calm && tierOf(pair) > 0 && !resume.contains(pair.getSymbol())
+                    && deferrable(exchangeType, pair.getSymbol(), intervals, now)) {
+                skipped++;
+                continue;
+            }
+            ordered.add(pair);
+        }
+        ordered.sort(Comparator.<TradingPair>comparingInt(this::tierOf)
+                .thenComparing(pair -> !resume.contains(pair.getSymbol()))
+                .thenComparing(pair -> -scoreOf(exchangeType, pair)));
+        deferred.computeIfAbsent(exchangeType, k -> new AtomicInteger()).set(skipped);
+        if (skipped > 0) {
+            log.info("{} 平静交易对降频，本轮跳过 {} 个，处理 {} 个", exchangeType, skipped, ordered.size());
+        }
+        return ordered;
+    }
+
+    /**
+     * 记录交给策略的各周期最新已收盘K线，并由最短周期更新交易对的活跃度：
+     * 波动率为最近已收盘K线对数收益率的标准差（按每分钟折算），成交额折算为每小时，活跃度 = 波动率 × log10(1 + 每小时成交额)
+     * @param series 本轮交给策略的周期序列，键为周期名称
+     */
+    public void record(ExchangeType exchangeType, String symbol, Map<String, BarSeries> series) {
+        if (!enabled || series.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        Map<KlineInterval, BarSeries> byInterval = new HashMap<>();
+        series.forEach((name, bars) -> byInterval.put(KlineInterval.valueOf(name), bars));
+        Map<KlineInterval, Long> closes = evaluatedCloses.computeIfAbsent(keyOf(exchangeType, symbol),
+                k -> new ConcurrentHashMap<>());
+        byInterval.forEach((interval, bars) -> {
+            long openTime = StrategyInputFingerprints.lastClosedOpenTime(bars, now);
+            if (openTime >= 0) closes.put(interval, openTime + interval.getDuration().toMillis());
+        });
+
+        KlineInterval interval = byInterval.keySet().stream().min(Comparator.comparing(KlineInterval::getDuration)).orElseThrow();
+        BarSeries bars = byInterval.get(interval);
+        List<Bar> closed = new ArrayList<>(volatilityBars + 1);
+        for (int i = bars.getEndIndex(); i >= KlineBars.firstIndex(bars) && closed.size() <= volatilityBars; i--) {
+            Bar bar = bars.getBar(i);
+            if (bar.getEndTime().toInstant().toEpochMilli() <= now) closed.add(bar);
+        }
+        if (closed.size() < 3) return;
+
+        double sum = 0;
+        double sumSquares = 0;
+        double quoteVolume = 0;
+        int returns = 0;
+        for (int i = 0; i < closed.size() - 1; i++) {
+            double close = closed.get(i).getClosePrice().doubleValue();
+            double previous = closed.get(i + 1).getClosePrice().doubleValue();
+            if (close <= 0 || previous <= 0) continue;
+            double r = Math.log(close / previous);
+            sum += r;
+            sumSquares += r * r;
+            quoteVolume += close * closed.get(i).getVolume().doubleValue();
+            returns++;
+        }
+        if (returns < 2) return;
+        double mean = sum / returns;
+        double variance = Math.max(0, (sumSquares - returns * mean * mean) / (returns - 1));
+        double minutes = interval.getDuration().toMinutes();
+        double volatility = Math.sqrt(variance / minutes);
+        double hourlyQuoteVolume = quoteVolume / (returns * minutes / 60.0);
+        activities.put(keyOf(exchangeType, symbol), volatility * Math.log10(1 + hourlyQuoteVolume));
+    }
+
+    /**
+     * 各交易所的活跃度统计和上一轮降频跳过的交易对数
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (ExchangeType exchangeType : ExchangeType.values()) {
+            String prefix = exchangeType + "|";
+            List<Double> scores = activities.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefix))
+                    .map(Map.Entry::getValue)
+                    .sorted()
+                    .toList();
+            if (scores.isEmpty()) continue;
+            double median = scores.get(scores.size() / 2);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("tracked", scores.size());
+            stats.put("medianActivity", median);
+            stats.put("calm", scores.stream().filter(s -> s < median * calmRatio).count());
+            AtomicInteger skipped = deferred.get(exchangeType);
+            stats.put("lastSkipped", skipped == null ? 0 : skipped.get());
+            result.put(exchangeType.name(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * 交易对所在层级，基础货币缺失时从交易对名称前缀匹配
+     */
+    int tierOf(TradingPair pair) {
+        String base = pair.getBaseCurrency();
+        if (base != null && !base.isBlank()) {
+            return tiers.getOrDefault(base.toUpperCase(Locale.ROOT), defaultTier);
+        }
+        String symbol = pair.getSymbol() == null ? "" : pair.getSymbol().toUpperCase(Locale.ROOT);
+        return tiers.entrySet().stream()
+                .filter(e -> symbol.startsWith(e.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .min()
+                .orElse(defaultTier);
+    }
+
+    /**
+     * 平静交易对本轮能否跳过：最短周期自上次交给策略以来收盘不足 calm-refresh-factor 根，
+     * 其余周期都没有新的收盘；缺少某个周期的记录时不跳过
+     */
+    private boolean deferrable(ExchangeType exchangeType, String symbol, Collection<KlineInterval> intervals, long now) {
+        Map<KlineInterval, Long> closes = evaluatedCloses.get(keyOf(exchangeType, symbol));
+        if (closes == null || intervals.isEmpty()) return false;
+        KlineInterval shortest = intervals.stream().min(Comparator.comparing(KlineInterval::getDuration)).orElseThrow();
+        for (KlineInterval interval : intervals) {
+            Long evaluated = closes.get(interval);
+            if (evaluated == null) return false;
+            long period = interval.getDuration().toMillis();
+            long tolerance = Math.min(closeToleranceSeconds * 1000L, period / 2);
+            long latest = BarCloseSchedule.nextClose(exchangeType, interval, now - period); // 不晚于 now 的最近一次收盘
+            long allowed = interval == shortest ? period * calmRefreshFactor - tolerance : tolerance;
+            if (latest - evaluated >= allowed) return false;
+        }
+        return true;
+    }
+
+    private double scoreOf(ExchangeType exchangeType, TradingPair pair) {
+        Double activity = activities.get(keyOf(exchangeType, pair.getSymbol()));
+        return activity == null ? Double.MAX_VALUE : activity;
+    }
+
+    private double medianActivity(ExchangeType exchangeType, Collection<TradingPair> pairs) {
+        double[] scores = pairs.stream()
+                .map(pair -> activities.get(keyOf(exchangeType, pair.getSymbol())))
+                .filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue)
+                .sorted()
+                .toArray();
+        return scores.length == 0 ? 0 : scores[scores.length / 2];
+    }
+
+    private static String keyOf(ExchangeType exchangeType, String symbol) {
+        return exchangeType + "|" + symbol;
+    }
+}
@@ -0,0 +1,36 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.ExchangeType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 各交易所信号生成轮次的状态
+ */
+@Component
+public class SignalCycleRegistry {
+
+    private final Map<ExchangeType, ExchangeCycle> cycles = new EnumMap<>(ExchangeType.class);
+
+    public SignalCycleRegistry() {
+        for (ExchangeType exchangeType : ExchangeType.values()) {
+            cycles.put(exchangeType, new ExchangeCycle());
+        }
+    }
+
+    ExchangeCycle get(ExchangeType exchangeType) {
+        return cycles.get(exchangeType);
+    }
+
+    /**
+     * 每个交易所的轮次状态：是否在执行、最近一轮耗时、处理和丢弃的交易对数
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        cycles.forEach((exchangeType, cycle) -> result.put(exchangeType.name(), cycle.snapshot()));
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.entity.TradeSignal;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.TradeStrategyService;
+import druid.elf.tool.service.strategy.AbstractTradeStrategy;
+import druid.elf.tool.service.task.pipeline.PipelineStage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.BarSeries;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 信号生成流水线：K线拉取（代理线程）→ 策略计算 → 批量入库，阶段之间以有界队列连接。
+ * 拉取线程把多周期快照交给策略阶段后立即拉取下一个交易对，策略计算不占用代理线程，入库不阻塞下一次拉取；
+ * 下游处理不过来时队列填满，上游提交阻塞，整体吞吐由最慢的阶段决定
+ */
+@Slf4j
+@Component
+public class SignalPipeline {
+
+    @Autowired
+    private TradeStrategyService tradeStrategyService;
+    @Autowired
+    private SignalStorageService signalStorageService;
+    @Autowired
+    private StrategyInputFingerprints inputFingerprints;
+
+    @Value("${kline.pipeline.evaluate-threads:4}")
+    private int evaluateThreads;  // 策略计算线程数
+    @Value("${kline.pipeline.evaluate-queue:64}")
+    private int evaluateQueue;    // 待计算队列容量
+    @Value("${kline.pipeline.persist-queue:256}")
+    private int persistQueue;     // 待入库队列容量
+    @Value("${kline.pipeline.persist-batch:100}")
+    private int persistBatch;     // 每次入库最多合并的交易对数
+    @Value("${kline.pipeline.skip-unchanged:true}")
+    private boolean skipUnchanged; // 策略依赖周期没有新K线收盘时跳过执行
+
+    private PipelineStage<Evaluation> evaluateStage;
+    private PipelineStage<Persist> persistStage;
+
+    @PostConstruct
+    public void start() {
+        evaluateStage = new PipelineStage<>("evaluate", evaluateQueue, evaluateThreads, 1,
+                batch -> batch.forEach(this::evaluate));
+        persistStage = new PipelineStage<>("persist", persistQueue, 1, persistBatch, this::persist);
+        log.info("信号流水线已启动，策略线程 {}，待计算队列 {}，待入库队列 {}", evaluateThreads, evaluateQueue, persistQueue);
+    }
+
+    /**
+     * 提交一个交易对的多周期快照，待计算队列已满时阻塞
+     * @param strategies 需要执行的策略
+     * @param cycle 本次触发的指纹统计
+     * @return 该交易对的信号计算并入库（或无信号）后完成
+     * @throws InterruptedException 如果等待队列空间时被中断
+     */
+    public CompletableFuture<Void> submit(ExchangeType exchangeType, String symbol, Map<String, BarSeries> series,
+                                          List<AbstractTradeStrategy> strategies,
+                                          StrategyInputFingerprints.Cycle cycle) throws InterruptedException {
+        Evaluation evaluation = new Evaluation(exchangeType, symbol, series, strategies, cycle);
+        evaluateStage.submit(evaluation);
+        return evaluation.done;
+    }
+
+    /**
+     * 各阶段的队列深度和处理统计
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        result.put(evaluateStage.getName(), evaluateStage.snapshot());
+        result.put(persistStage.getName(), persistStage.snapshot());
+        result.put("fingerprint", inputFingerprints.snapshot());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evaluateStage.shutdown(30_000);
+        persistStage.shutdown(30_000);
+        log.info("信号流水线已关闭");
+    }
+
+    private void evaluate(Evaluation evaluation) {
+        try {
+            // 依赖周期自上次执行以来没有新K线收盘的策略不再执行
+            long now = System.currentTimeMillis();
+            Map<AbstractTradeStrategy, long[]> changed = new LinkedHashMap<>();
+            for (AbstractTradeStrategy strategy : evaluation.strategies) {
+                long[] fingerprint = StrategyInputFingerprints.of(strategy, evaluation.series, now);
+                if (!skipUnchanged || inputFingerprints.changed(evaluation.cycle, evaluation.exchangeType, evaluation.symbol,
+                        strategy, fingerprint)) {
+                    changed.put(strategy, fingerprint);
+                }
+            }
+            if (changed.isEmpty()) {
+                log.debug("输入未变化，跳过策略计算，交易所: {}，交易对: {}", evaluation.exchangeType, evaluation.symbol);
+                evaluation.done.complete(null);
+                return;
+            }
+            Map<AbstractTradeStrategy, TradeSignal> results =
+                    tradeStrategyService.execute(changed.keySet(), evaluation.series, evaluation.symbol);
+            // 只有执行完成的策略在信号入库后记录指纹，失败的策略下一轮重新执行
+            results.keySet().forEach(strategy -> evaluation.completed.put(strategy, changed.get(strategy)));
+            List<TradeSignal> signals = TradeStrategyService.actionable(results.values());
+            signals.forEach(s -> s.setExchange(evaluation.exchangeType.name()));
+            // signals 是否为空都要打印日志
+            if (signals.isEmpty()) {
+                log.info("没有信号需要保存，交易所: {}，交易对: {}", evaluation.exchangeType, evaluation.symbol);
+                succeed(evaluation);
+                return;
+            }
+            String priceInfo = (signals.get(0) != null && signals.get(0).getPrice() != null)
+                    ? signals.get(0).getPrice().toString()
+                    : "无价格数据";
+            log.info("正在保存 {} 个信号，交易所: {}，交易对: {}，首个信号价格: {}",
+                    signals.size(), evaluation.exchangeType, evaluation.symbol, priceInfo);
+            persistStage.submit(new Persist(signals, evaluation));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            evaluation.done.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            log.error("策略计算失败，交易所: {}，交易对: {}", evaluation.exchangeType, evaluation.symbol, e);
+            evaluation.done.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 把一批交易对的信号合并为一次事务写入
+     */
+    private void persist(List<Persist> batch) {
+        List<TradeSignal> signals = new ArrayList<>();
+        batch.forEach(persist -> signals.addAll(persist.signals));
+        try {
+            signalStorageService.saveBatch(signals, batch.size());
+            batch.forEach(persist -> succeed(persist.evaluation));
+        } catch (RuntimeException e) {
+            batch.forEach(persist -> persist.evaluation.done.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 记录执行完成的策略的输入指纹后结束该交易对，记录在完成之前，等待完成的下一轮一定能看到
+     */
+    private void succeed(Evaluation evaluation) {
+        evaluation.completed.forEach((strategy, fingerprint) ->
+                inputFingerprints.record(evaluation.exchangeType, evaluation.symbol, strategy, fingerprint));
+        evaluation.done.complete(null);
+    }
+
+    private static final class Evaluation {
+        private final ExchangeType exchangeType;
+        private final String symbol;
+        private final Map<String, BarSeries> series;
+        private final List<AbstractTradeStrategy> strategies;
+        private final StrategyInputFingerprints.Cycle cycle;
+        private final Map<AbstractTradeStrategy, long[]> completed = new LinkedHashMap<>(); // 执行完成的策略 -> 输入指纹
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Evaluation(ExchangeType exchangeType, String symbol, Map<String, BarSeries> series,
+                           List<AbstractTradeStrategy> strategies, StrategyInputFingerprints.Cycle cycle) {
+            this.exchangeType = exchangeType;
+            this.symbol = symbol;
+            this.series = series;
+            this.strategies = strategies;
+            this.cycle = cycle;
+        }
+    }
+
+    private static final class Persist {
+        private final List<TradeSignal> signals;
+        private final Evaluation evaluation;
+
+        private Persist(List<TradeSignal> signals, Evaluation evaluation) {
+            this.signals = signals;
+            this.evaluation = evaluation;
+        }
+    }
+}
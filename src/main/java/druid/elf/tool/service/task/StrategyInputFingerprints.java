@@ -0,0 +1,117 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.strategy.TradeStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.BarSeries;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 策略输入指纹：按 交易所×交易对×策略 记录上次执行时各依赖周期最后一根已收盘K线的开盘时间。
+ * 指纹不变说明自上次执行以来没有新的K线收盘，策略结果不会变化，跳过执行以省去Python请求和重复信号。
+ * 每次触发的执行和跳过次数记在该次的 {@link Cycle} 中，启动时的执行与收盘触发重叠时互不影响
+ */
+@Slf4j
+@Component
+public class StrategyInputFingerprints {
+
+    private final Map<String, long[]> fingerprints = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> lastCycle = Map.of();
+
+    /**
+     * 计算策略在当前快照下的输入指纹
+     * @param series 周期名称 -> 序列
+     * @param now 当前时间（毫秒），结束时间晚于该时间的K线视为形成中
+     */
+    public static long[] of(TradeStrategy strategy, Map<String, BarSeries> series, long now) {
+        return strategy.getRequiredIntervals().stream()
+                .sorted()
+                .mapToLong(interval -> lastClosedOpenTime(series.get(interval.name()), now))
+                .toArray();
+    }
+
+    /**
+     * 判断指纹是否与上次执行时不同，并计入所属轮次的统计
+     * @param cycle 所属轮次，由 {@link #startCycle()} 返回
+     * @return 需要执行时返回 true
+     */
+    public boolean changed(Cycle cycle, ExchangeType exchangeType, String symbol, TradeStrategy strategy,
+                           long[] fingerprint) {
+        boolean changed = !Arrays.equals(fingerprints.get(keyOf(exchangeType, symbol, strategy)), fingerprint);
+        (changed ? cycle.evaluated : cycle.skipped).incrementAndGet();
+        return changed;
+    }
+
+    /**
+     * 记录策略已在该指纹下执行
+     */
+    public void record(ExchangeType exchangeType, String symbol, TradeStrategy strategy, long[] fingerprint) {
+        fingerprints.put(keyOf(exchangeType, symbol, strategy), fingerprint);
+    }
+
+    /**
+     * 开始新一轮统计
+     * @return 本轮的计数，传给本轮的 {@link #changed} 和 {@link #endCycle}
+     */
+    public Cycle startCycle() {
+        return new Cycle();
+    }
+
+    /**
+     * 结束一轮统计并输出跳过比例
+     */
+    public void endCycle(Cycle run) {
+        long evaluatedCount = run.evaluated.get();
+        long skippedCount = run.skipped.get();
+        long total = evaluatedCount + skippedCount;
+        double ratio = total == 0 ? 0 : (double) skippedCount / total;
+        Map<String, Object> cycle = new LinkedHashMap<>();
+        cycle.put("evaluated", evaluatedCount);
+        cycle.put("skipped", skippedCount);
+        cycle.put("skipRatio", ratio);
+        cycle.put("fingerprints", fingerprints.size());
+        cycle.put("endTime", System.currentTimeMillis());
+        lastCycle = cycle;
+        log.info("本轮策略执行 {} 次，输入未变化跳过 {} 次，跳过比例 {}%", evaluatedCount, skippedCount,
+                String.format("%.1f", ratio * 100));
+    }
+
+    /**
+     * 最近一轮的执行和跳过统计
+     */
+    public Map<String, Object> snapshot() {
+        return lastCycle;
+    }
+
+    /**
+     * 最后一根已收盘K线的开盘时间，序列缺失或没有已收盘K线时返回 -1
+     */
+    static long lastClosedOpenTime(BarSeries series, long now) {
+        if (series == null || series.isEmpty()) return -1L;
+        for (int i = series.getEndIndex(); i >= KlineBars.firstIndex(series); i--) {
+            if (series.getBar(i).getEndTime().toInstant().toEpochMilli() <= now) {
+                return KlineBars.openTimeMillis(series.getBar(i));
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * 一次触发的执行和跳过计数
+     */
+    public static final class Cycle {
+        private final AtomicLong evaluated = new AtomicLong(); // 执行的次数
+        private final AtomicLong skipped = new AtomicLong();   // 跳过的次数
+    }
+
+    private static String keyOf(ExchangeType exchangeType, String symbol, TradeStrategy strategy) {
+        return exchangeType + "|" + symbol + "|" + strategy.getStrategyName();
+    }
+}
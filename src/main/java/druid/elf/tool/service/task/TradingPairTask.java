@@ -17,6 +17,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -67,6 +69,16 @@ public class TradingPairTask {
         @Autowired
         private TradeSignalService tradeSignalService;
 
+        /**
+         * 数据库中已有的交易对是否在 maxAge 内同步过（同步会整表重建，最早的创建时间即上次同步时间）
+         */
+        public boolean isSyncedWithin(Duration maxAge) {
+            return tradingPairRepository.findFirstByOrderByCreatedAtAsc()
+                    .map(TradingPair::getCreatedAt)
+                    .map(createdAt -> createdAt.isAfter(LocalDateTime.now().minus(maxAge)))
+                    .orElse(false);
+        }
+
         @Transactional
         public void executeSync() {
             Settings settings = tradeSignalService.getSettings();
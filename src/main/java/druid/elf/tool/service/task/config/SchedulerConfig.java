@@ -5,6 +5,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 public class SchedulerConfig {
 
@@ -16,4 +20,19 @@ public class SchedulerConfig {
         scheduler.initialize();
         return scheduler;
     }
+
+    /**
+     * 交易所请求定时器：异步请求的限流等待和重试退避在这里调度，少量线程即可支撑大量并发请求
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService exchangeRequestTimer() {
+        AtomicInteger threadNum = new AtomicInteger(1);
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(2, r -> {
+            Thread thread = new Thread(r, "ExchangeRequestTimer-" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
 }
\ No newline at end of file
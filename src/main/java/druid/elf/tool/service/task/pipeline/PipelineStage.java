@@ -0,0 +1,128 @@
+package druid.elf.tool.service.task.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 流水线阶段：有界队列加固定数量的工作线程。队列满时 {@link #submit} 阻塞上游，形成背压；
+ * 工作线程每次取出队列中已有的元素（最多 batchSize 个）一起处理，负载高时自然攒批
+ * @param <T> 队列元素类型
+ */
+@Slf4j
+public class PipelineStage<T> {
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final Consumer<List<T>> handler;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger busy = new AtomicInteger();       // 正在处理的工作线程数
+    private final AtomicLong processed = new AtomicLong();        // 已处理的元素数
+    private final AtomicLong blockedSubmits = new AtomicLong();   // 因队列已满而阻塞的提交次数
+    private volatile boolean running = true;
+
+    /**
+     * @param name 阶段名称，用于线程名和监控
+     * @param capacity 队列容量
+     * @param threads 工作线程数
+     * @param batchSize 每次最多处理的元素数
+     * @param handler 处理一批元素，异常只记录日志，元素自身的结果由 handler 负责
+     */
+    public PipelineStage(String name, int capacity, int threads, int batchSize, Consumer<List<T>> handler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.handler = handler;
+        for (int i = 1; i <= Math.max(1, threads); i++) {
+            Thread worker = new Thread(this::work, "Pipeline-" + name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * 提交元素，队列已满时阻塞直到下游腾出空间
+     * @throws InterruptedException 如果等待时被中断
+     */
+    public void submit(T item) throws InterruptedException {
+        if (!running) throw new IllegalStateException("流水线阶段 " + name + " 已关闭");
+        if (!queue.offer(item)) {
+            blockedSubmits.incrementAndGet();
+            queue.put(item);
+        }
+    }
+
+    /**
+     * 队列深度、容量、忙碌线程数和处理统计
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("depth", queue.size());
+        result.put("capacity", queue.size() + queue.remainingCapacity());
+        result.put("threads", workers.size());
+        result.put("busy", busy.get());
+        result.put("processed", processed.get());
+        result.put("blockedSubmits", blockedSubmits.get());
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 停止接收新元素，处理完队列中剩余的元素后退出，最多等待 timeoutMillis
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (worker.isAlive()) worker.interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("流水线阶段 {} 关闭时仍有 {} 个元素未处理", name, queue.size());
+        }
+    }
+
+    private void work() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                busy.incrementAndGet();
+                try {
+                    handler.accept(batch);
+                } catch (RuntimeException e) {
+                    log.error("流水线阶段 {} 处理 {} 个元素失败", name, batch.size(), e);
+                } finally {
+                    busy.decrementAndGet();
+                    processed.addAndGet(batch.size());
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
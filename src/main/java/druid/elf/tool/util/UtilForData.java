@@ -11,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.AntPathMatcher;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -137,4 +138,16 @@ public class UtilForData {
         return YitIdHelper.nextId()+"";
     }
 
+    /**
+     * 取消派生的 Future 时同时取消源 Future，让取消沿 thenApply/thenCompose 链传递到上游正在进行的请求
+     * @param derived 由 source 派生的 Future
+     * @param source 源 Future
+     * @return derived 本身
+     */
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> derived, CompletableFuture<?> source) {
+        derived.whenComplete((value, error) -> {
+            if (derived.isCancelled()) source.cancel(true);
+        });
+        return derived;
+    }
 }
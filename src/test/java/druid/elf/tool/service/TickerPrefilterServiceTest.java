@@ -0,0 +1,64 @@
+package druid.elf.tool.service;
+
+import druid.elf.tool.dto.TickerDTO;
+import druid.elf.tool.entity.Settings;
+import druid.elf.tool.entity.TradingPair;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 成交额折算为美元稳定币后与同一下限比较
+ */
+class TickerPrefilterServiceTest {
+
+    @Test
+    void quoteVolumeIsConvertedToUsd() throws Exception {
+        TickerPrefilterService prefilter = new TickerPrefilterService();
+        ReflectionTestUtils.setField(prefilter, "enabled", true);
+        ReflectionTestUtils.setField(prefilter, "minQuoteVolume", new BigDecimal("100000"));
+        ReflectionTestUtils.setField(prefilter, "minAbsChangePercent", BigDecimal.ZERO);
+        ReflectionTestUtils.setField(prefilter, "maxAbsChangePercent", BigDecimal.ZERO);
+        ReflectionTestUtils.setField(prefilter, "usdQuoteConfig", "USDT,USDC");
+        prefilter.init();
+
+        List<TradingPair> pairs = List.of(
+                pair("BTCUSDT", "BTC", "USDT"),
+                pair("ETHBTC", "ETH", "BTC"),       // 5 BTC ≈ 25 万美元
+                pair("DOGEBTC", "DOGE", "BTC"),     // 0.5 BTC ≈ 2.5 万美元
+                pair("USDTTRY", "USDT", "TRY"),
+                pair("SOLTRY", "SOL", "TRY"),       // 400 万 TRY ≈ 10 万美元以上
+                pair("THINUSDC", "THIN", "USDC"));
+        ExchangeDataService service = mock(ExchangeDataService.class);
+        when(service.getTickers()).thenReturn(List.of(
+                ticker("BTCUSDT", "50000", "1000000000"),
+                ticker("ETHBTC", "0.05", "5"),
+                ticker("DOGEBTC", "0.000002", "0.5"),
+                ticker("USDTTRY", "32", "50000000"),
+                ticker("SOLTRY", "4800", "4000000"),
+                ticker("THINUSDC", "1", "99999")));
+
+        List<TradingPair> passed = prefilter.filter(ExchangeType.BINANCE, service,
+                new Settings().setCryptoMode("all"), pairs);
+        assertEquals(List.of("BTCUSDT", "ETHBTC", "USDTTRY", "SOLTRY"),
+                passed.stream().map(TradingPair::getSymbol).toList());
+    }
+
+    private static TradingPair pair(String symbol, String base, String quote) {
+        return new TradingPair().setSymbol(symbol).setBaseCurrency(base).setQuoteCurrency(quote);
+    }
+
+    private static TickerDTO ticker(String symbol, String lastPrice, String quoteVolume) {
+        return new TickerDTO().setSymbol(symbol)
+                .setLastPrice(new BigDecimal(lastPrice))
+                .setQuoteVolume(new BigDecimal(quoteVolume));
+    }
+}
@@ -0,0 +1,91 @@
+package druid.elf.tool.service.client;
+
+import druid.elf.tool.dto.KlineDataDTO;
+import druid.elf.tool.service.kline.ColumnarBarSeries;
+import druid.elf.tool.service.kline.KlineBars;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.DoubleNum;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式K线载荷的布局与JSON兼容格式中的真实开盘/收盘时间
+ */
+class KlineColumnarPayloadTest {
+
+    private static final Duration PERIOD = Duration.ofHours(4);
+    private static final long START = 1_700_000_000_000L / PERIOD.toMillis() * PERIOD.toMillis();
+
+    @Test
+    void columnsAreLaidOutContiguously() {
+        Map<String, BarSeries> seriesMap = new LinkedHashMap<>();
+        seriesMap.put("_4H", series(300));
+        byte[] payload = KlineColumnarPayload.encode("BTCUSDT", "ElderSwingStrategy", seriesMap);
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x4B4C4331, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals("BTCUSDT", string(buffer));
+        assertEquals("ElderSwingStrategy", string(buffer));
+        assertEquals(1, buffer.getInt());
+        assertEquals("_4H", string(buffer));
+        int n = buffer.getInt();
+        assertEquals(300, n);
+
+        int openTimes = buffer.position();
+        int closeTimes = openTimes + n * 8;
+        int closes = openTimes + 5 * n * 8;
+        assertEquals(START, buffer.getLong(openTimes));
+        assertEquals(START + 299 * PERIOD.toMillis(), buffer.getLong(openTimes + 299 * 8));
+        assertEquals(START + PERIOD.toMillis(), buffer.getLong(closeTimes));
+        assertEquals(100.5 + 10, buffer.getDouble(closes + 10 * 8));
+        assertEquals(payload.length, openTimes + 9 * n * 8);
+    }
+
+    @Test
+    void wrappedRingSeriesMatchesBarByBarEncoding() {
+        ColumnarBarSeries ring = ColumnarBarSeries.ring("test", 100);
+        BarSeries bars = new BaseBarSeries("test", DoubleNum::valueOf);
+        for (int i = 0; i < 250; i++) {
+            double close = 100.5 + i;
+            ring.append(START + i * PERIOD.toMillis(), PERIOD, close - 1, close + 1, close - 2, close, 10, close * 10, i, false);
+        }
+        for (int i = ring.getBeginIndex(); i <= ring.getEndIndex(); i++) bars.addBar(ring.getBar(i));
+
+        assertArrayEquals(KlineColumnarPayload.encode("BTCUSDT", "s", Map.of("_4H", bars)),
+                KlineColumnarPayload.encode("BTCUSDT", "s", Map.of("_4H", ring)));
+    }
+
+    @Test
+    void jsonFallbackCarriesRealTimes() {
+        List<KlineDataDTO> klines = KlineColumnarPayload.toKlineData(Map.of("_4H", series(3)), 100, 0.6).get("_4H");
+        assertEquals(3, klines.size());
+        assertEquals(START + 2 * PERIOD.toMillis(), klines.get(2).getOpenTime());
+        assertEquals(START + 3 * PERIOD.toMillis(), klines.get(2).getCloseTime());
+    }
+
+    private static BarSeries series(int count) {
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = 0; i < count; i++) {
+            double close = 100.5 + i;
+            KlineBars.append(series, START + i * PERIOD.toMillis(), PERIOD, close - 1, close + 1, close - 2, close, 10);
+        }
+        return series;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
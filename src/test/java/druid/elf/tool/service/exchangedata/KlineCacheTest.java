@@ -0,0 +1,91 @@
+package druid.elf.tool.service.exchangedata;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缓存条目在下一根K线收盘时过期，更深的同一周期结果优先保留，请求条数超过缓存深度时不命中
+ */
+class KlineCacheTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long FORMING_OPEN = 1_700_000_000_000L / HOUR * HOUR; // 形成中K线的开盘时间
+
+    private final MutableClock clock = new MutableClock(FORMING_OPEN + 20 * 60_000L);
+    private final KlineCache cache = new KlineCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxMemoryMb", 16L);
+        ReflectionTestUtils.setField(cache, "clock", clock);
+        cache.init();
+    }
+
+    @Test
+    void entryExpiresAtNextClose() {
+        cache.put(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100, series(100, FORMING_OPEN));
+        assertNotNull(get(100));
+        clock.advance(FORMING_OPEN + HOUR - 1 - clock.millis());
+        assertNotNull(get(100));
+        clock.advance(1);                       // 形成中的K线收盘
+        assertNull(get(100));
+    }
+
+    @Test
+    void nextCloseSkipsClosesAlreadyPassed() {
+        long now = FORMING_OPEN + 20 * 60_000L;
+        assertEquals(FORMING_OPEN + HOUR, KlineCache.nextCloseTime(FORMING_OPEN, HOUR, now));
+        // 序列最后一根已收盘多时（交易所暂无新K线），到当前周期收盘时过期
+        assertEquals(FORMING_OPEN + HOUR, KlineCache.nextCloseTime(FORMING_OPEN - 3 * HOUR, HOUR, now));
+        // 恰在收盘时刻写入，等到下一根收盘
+        assertEquals(FORMING_OPEN + 2 * HOUR, KlineCache.nextCloseTime(FORMING_OPEN, HOUR, FORMING_OPEN + HOUR));
+    }
+
+    @Test
+    void requestedCountMustCoverDemand() {
+        cache.put(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 200, series(200, FORMING_OPEN));
+        BarSeries tail = get(50);
+        assertEquals(50, tail.getBarCount());
+        assertEquals(FORMING_OPEN, KlineBars.lastOpenTimeMillis(tail));
+        assertEquals(200, get(200).getBarCount());
+        assertNull(get(201));
+
+        assertEquals(2L, cache.snapshot().get("hits"));
+        assertEquals(1L, cache.snapshot().get("misses")); // 深度不足计为未命中
+    }
+
+    @Test
+    void deeperEntryWinsUntilNewerBarArrives() {
+        cache.put(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 500, series(500, FORMING_OPEN));
+        cache.put(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100, series(100, FORMING_OPEN));
+        assertEquals(500, get(500).getBarCount());  // 较浅的同一周期结果不覆盖
+
+        clock.advance(HOUR);
+        cache.put(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100, series(100, FORMING_OPEN + HOUR));
+        assertNull(get(500));                       // 较浅但更新的结果替换
+        assertEquals(FORMING_OPEN + HOUR, KlineBars.lastOpenTimeMillis(get(100)));
+    }
+
+    private BarSeries get(int dataCount) {
+        return cache.get(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, dataCount);
+    }
+
+    private static BarSeries series(int count, long lastOpenTime) {
+        Duration period = Duration.ofMillis(HOUR);
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = count - 1; i >= 0; i--) {
+            KlineBars.append(series, lastOpenTime - i * HOUR, period, 100, 101, 99, 100, 1);
+        }
+        return series;
+    }
+}
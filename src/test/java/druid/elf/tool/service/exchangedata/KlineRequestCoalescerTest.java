@@ -0,0 +1,50 @@
+package druid.elf.tool.service.exchangedata;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在途请求在所有调用方取消后取消，包括调用方在请求发出前就已全部取消的情况
+ */
+class KlineRequestCoalescerTest {
+
+    @Test
+    void requestIsCancelledOnlyAfterEveryCallerLeaves() {
+        KlineRequestCoalescer coalescer = new KlineRequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        CompletableFuture<BarSeries> request = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<BarSeries> first = coalescer.latest(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100,
+                () -> { loads.incrementAndGet(); return request; });
+        CompletableFuture<BarSeries> second = coalescer.latest(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 50,
+                () -> { loads.incrementAndGet(); return new CompletableFuture<>(); });
+        assertEquals(1, loads.get());
+
+        first.cancel(true);
+        assertFalse(request.isCancelled());
+        second.cancel(true);
+        assertTrue(request.isCancelled());
+    }
+
+    @Test
+    void requestStartedAfterEveryCallerLeftIsCancelled() {
+        KlineRequestCoalescer.InFlight shared = new KlineRequestCoalescer.InFlight(100);
+        assertTrue(shared.join());
+        shared.leave();
+        // 已被全部调用方取消的在途请求不再接受新的调用方
+        assertFalse(shared.join());
+
+        CompletableFuture<BarSeries> request = new CompletableFuture<>();
+        shared.start(request);
+        assertTrue(request.isCancelled());
+    }
+}
@@ -0,0 +1,141 @@
+package druid.elf.tool.service.exchangedata.circuit;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.MutableClock;
+import druid.elf.tool.service.exchangedata.error.ExchangeErrorCategory;
+import druid.elf.tool.service.exchangedata.error.ExchangeRequestException;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 熔断器状态机：CLOSED -> OPEN -> HALF_OPEN -> CLOSED/OPEN，封禁立即熔断，Retry-After 延长熔断，取消不计入失败
+ */
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 60_000;
+
+    private final MutableClock clock = new MutableClock(1_700_000_000_000L);
+    private final CircuitBreaker breaker = new CircuitBreaker("BINANCE", 3, OPEN_MILLIS, clock);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterTrial() {
+        breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 502, -1));
+        breaker.onFailure(failure(ExchangeErrorCategory.TRANSPORT, 0, -1));
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 503, -1));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertEquals(3, breaker.getConsecutiveFailures());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(OPEN_MILLIS, breaker.remainingOpenMillis());
+
+        clock.advance(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());       // 到期后放行一个试探请求
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());      // 试探期间其余请求快速失败
+
+        breaker.onSuccess();
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedTrialReopens() {
+        open();
+        clock.advance(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(failure(ExchangeErrorCategory.TRANSPORT, 0, -1));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertEquals(OPEN_MILLIS, breaker.remainingOpenMillis());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 500, -1));
+        breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 500, -1));
+        breaker.onSuccess();
+        breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 500, -1));
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void banTripsImmediately() {
+        for (int code : new int[]{403, 418}) {
+            CircuitBreaker banned = new CircuitBreaker("BINANCE", 3, OPEN_MILLIS, clock);
+            banned.onFailure(ExchangeRequestException.fromResponse(ExchangeType.BINANCE, response(code, null)));
+            assertEquals(CircuitState.OPEN, banned.getState(), String.valueOf(code));
+            assertFalse(banned.tryAcquire());
+        }
+    }
+
+    @Test
+    void longerRetryAfterExtendsOpenTime() {
+        breaker.onFailure(ExchangeRequestException.fromResponse(ExchangeType.BINANCE, response(418, "300")));
+        assertEquals(300_000, breaker.remainingOpenMillis());
+        clock.advance(OPEN_MILLIS);
+        assertFalse(breaker.tryAcquire());      // 默认熔断时长已过，仍按 Retry-After 等待
+        clock.advance(300_000 - OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+
+        CircuitBreaker shorter = new CircuitBreaker("OKX", 3, OPEN_MILLIS, clock);
+        shorter.onFailure(ExchangeRequestException.fromResponse(ExchangeType.OKX, response(403, "5")));
+        assertEquals(OPEN_MILLIS, shorter.remainingOpenMillis()); // 更短的 Retry-After 不缩短熔断
+    }
+
+    @Test
+    void cancellationsDoNotCount() {
+        ExchangeRequestException cancelled = ExchangeRequestException.classify(ExchangeType.BINANCE, new IOException("Canceled"));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(cancelled);
+        }
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+
+        // 半开时试探请求被取消，只释放名额，下一个请求继续试探
+        open();
+        clock.advance(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(cancelled);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void clientErrorDuringTrialClosesBreaker() {
+        open();
+        clock.advance(OPEN_MILLIS);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(ExchangeRequestException.fromResponse(ExchangeType.BINANCE, response(400, null)));
+        assertEquals(CircuitState.CLOSED, breaker.getState()); // 收到了交易所响应，连接可用
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) breaker.onFailure(failure(ExchangeErrorCategory.SERVER_ERROR, 500, -1));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    private static ExchangeRequestException failure(ExchangeErrorCategory category, int code, long retryAfterMillis) {
+        return new ExchangeRequestException(ExchangeType.BINANCE, category, code, retryAfterMillis, category.name(), null);
+    }
+
+    private static Response response(int code, String retryAfter) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url("https://example.com/klines").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("status " + code);
+        if (retryAfter != null) builder.header("Retry-After", retryAfter);
+        return builder.build();
+    }
+}
@@ -0,0 +1,131 @@
+package druid.elf.tool.service.exchangedata.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import druid.elf.tool.service.exchangedata.KlineBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式K线解码与原 JsonNode 解析逻辑的一致性校验
+ */
+class KlineParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @FunctionalInterface
+    private interface KlineParser {
+        KlineBuffer parse(InputStream in, int expectedCount) throws IOException;
+    }
+
+    @Test
+    void binanceMatchesTreeParser() throws IOException {
+        assertMatches(new BinanceDataService()::parseKlineData, "binance.json", treeRows(read("binance.json"), false), 5);
+    }
+
+    @Test
+    void okxMatchesTreeParser() throws IOException {
+        JsonNode root = read("okx.json");
+        assertMatches(new OkxDataService()::parseKlineData, "okx.json", treeRows(root.get("data"), true), 4);
+    }
+
+    @Test
+    void bybitMatchesTreeParser() throws IOException {
+        JsonNode root = read("bybit.json");
+        assertMatches(new BybitDataService()::parseKlineData, "bybit.json", treeRows(root.get("result").get("list"), true), 3);
+    }
+
+    @Test
+    void gateIoMatchesTreeParser() throws IOException {
+        List<double[]> expected = new ArrayList<>();
+        for (JsonNode node : read("gateio.json")) {
+            expected.add(new double[]{
+                    Long.parseLong(node.get(0).asText()) * 1000,
+                    Double.parseDouble(node.get(5).asText()),
+                    Double.parseDouble(node.get(3).asText()),
+                    Double.parseDouble(node.get(4).asText()),
+                    Double.parseDouble(node.get(2).asText()),
+                    Double.parseDouble(node.get(1).asText())});
+        }
+        assertMatches(new GateIoDataService()::parseKlineData, "gateio.json", expected, 4);
+    }
+
+    @Test
+    void descendingBufferGrowsBeyondExpectedCount() throws IOException {
+        // 预分配容量小于实际条数时仍保持从旧到新的顺序
+        KlineBuffer buffer = parse(new OkxDataService()::parseKlineData, "okx.json", 1);
+        assertEquals(4, buffer.size());
+        for (int i = 1; i < buffer.size(); i++) {
+            assertTrue(buffer.getOpenTime(i) > buffer.getOpenTime(i - 1));
+        }
+    }
+
+    @Test
+    void okxErrorCodeIsReported() {
+        IOException e = assertThrows(IOException.class, () -> parse(new OkxDataService()::parseKlineData, "okx-error.json", 300));
+        assertTrue(e.getMessage().contains("Instrument ID does not exist"));
+    }
+
+    /**
+     * 原解析逻辑：逐行读取 JsonNode，必要时反转为从旧到新
+     */
+    private List<double[]> treeRows(JsonNode dataNode, boolean newestFirst) {
+        List<JsonNode> klineList = new ArrayList<>();
+        dataNode.forEach(klineList::add);
+        if (newestFirst) {
+            Collections.reverse(klineList);
+        }
+        List<double[]> rows = new ArrayList<>();
+        for (JsonNode node : klineList) {
+            rows.add(new double[]{
+                    Long.parseLong(node.get(0).asText()),
+                    Double.parseDouble(node.get(1).asText()),
+                    Double.parseDouble(node.get(2).asText()),
+                    Double.parseDouble(node.get(3).asText()),
+                    Double.parseDouble(node.get(4).asText()),
+                    Double.parseDouble(node.get(5).asText())});
+        }
+        return rows;
+    }
+
+    private void assertMatches(KlineParser parser, String fixture,
+                               List<double[]> expected, int expectedSize) throws IOException {
+        KlineBuffer buffer = parse(parser, fixture, 300);
+        assertEquals(expectedSize, buffer.size());
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            double[] row = expected.get(i);
+            assertEquals((long) row[0], buffer.getOpenTime(i), "openTime@" + i);
+            assertEquals(row[1], buffer.getOpen(i), "open@" + i);
+            assertEquals(row[2], buffer.getHigh(i), "high@" + i);
+            assertEquals(row[3], buffer.getLow(i), "low@" + i);
+            assertEquals(row[4], buffer.getClose(i), "close@" + i);
+            assertEquals(row[5], buffer.getVolume(i), "volume@" + i);
+        }
+    }
+
+    private KlineBuffer parse(KlineParser parser, String fixture, int expectedCount) throws IOException {
+        try (InputStream in = fixture(fixture)) {
+            return parser.parse(in, expectedCount);
+        }
+    }
+
+    private JsonNode read(String fixture) throws IOException {
+        try (InputStream in = fixture(fixture)) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private InputStream fixture(String name) {
+        InputStream in = getClass().getResourceAsStream("/klines/" + name);
+        assertNotNull(in, "缺少测试数据: " + name);
+        return in;
+    }
+}
@@ -0,0 +1,89 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.service.exchangedata.MutableClock;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 各交易所用量响应头的校正和 429/418 的暂停
+ */
+class ExchangeRateLimiterTest {
+
+    private static final long MINUTE_START = 1_700_000_040_000L; // 整分钟
+
+    private final MutableClock clock = new MutableClock(MINUTE_START + 15_000);
+
+    @Test
+    void binanceUsedWeightHeader() {
+        // 6000/分钟，安全系数 0.8：容量 4800，余量 1200
+        ExchangeRateLimiter limiter = limiter(ExchangeType.BINANCE);
+        limiter.onResponse(response(200, "X-MBX-USED-WEIGHT-1M", "1200"));
+        assertEquals(0.75, limiter.availableRatio(), 1e-9);
+
+        // 已用 5000，窗口剩余 1000 不足余量，等到下一个整分钟
+        limiter.onResponse(response(200, "X-MBX-USED-WEIGHT-1M", "5000"));
+        assertEquals(45_000, limiter.reserve(RequestType.KLINE));
+    }
+
+    @Test
+    void bybitRemainingHeaderIsScaledToDocumentedLimit() {
+        // 600/5秒：服务端剩余一半即 300，扣除余量 120 后剩 180，占容量 480 的 0.375
+        ExchangeRateLimiter limiter = limiter(ExchangeType.BYBIT);
+        limiter.onResponse(response(200, "X-Bapi-Limit-Status", "60", "X-Bapi-Limit", "120",
+                "X-Bapi-Limit-Reset-Timestamp", String.valueOf(clock.millis() + 2_000)));
+        assertEquals(0.375, limiter.availableRatio(), 1e-9);
+    }
+
+    @Test
+    void gateIoExhaustedWindowWaitsForSecondResetTimestamp() {
+        ExchangeRateLimiter limiter = limiter(ExchangeType.GATE_IO);
+        long resetSeconds = clock.millis() / 1000 + 7;
+        limiter.onResponse(response(200, "X-Gate-RateLimit-Requests-Remain", "0", "X-Gate-RateLimit-Limit", "200",
+                "X-Gate-RateLimit-Reset-Timestamp", String.valueOf(resetSeconds)));
+        assertEquals(7_000, limiter.reserve(RequestType.KLINE));
+    }
+
+    @Test
+    void okxWithoutHeadersKeepsLocalBudget() {
+        ExchangeRateLimiter limiter = limiter(ExchangeType.OKX);
+        limiter.onResponse(response(200));
+        assertEquals(1.0, limiter.availableRatio(), 1e-9);
+    }
+
+    @Test
+    void tooManyRequestsPausesForRetryAfter() {
+        ExchangeRateLimiter limiter = limiter(ExchangeType.BINANCE);
+        limiter.onResponse(response(429, "Retry-After", "30"));
+        assertEquals(30_000, limiter.reserve(RequestType.KLINE));
+        clock.advance(30_000);
+        assertEquals(0, limiter.reserve(RequestType.KLINE));
+    }
+
+    @Test
+    void banWithoutRetryAfterPausesForDefault() {
+        ExchangeRateLimiter limiter = limiter(ExchangeType.BINANCE);
+        limiter.onResponse(response(418));
+        assertEquals(60_000, limiter.reserve(RequestType.KLINE));
+    }
+
+    private ExchangeRateLimiter limiter(ExchangeType exchangeType) {
+        return new ExchangeRateLimiter(exchangeType.name(), exchangeType, 0.8, clock);
+    }
+
+    private static Response response(int code, String... headers) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url("https://example.com/klines").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("status " + code);
+        for (int i = 0; i < headers.length; i += 2) {
+            builder.header(headers[i], headers[i + 1]);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,59 @@
+package druid.elf.tool.service.exchangedata.ratelimit;
+
+import druid.elf.tool.service.exchangedata.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 令牌桶的预约透支、按时间补充、按服务端用量校正与限流暂停
+ */
+class TokenBucketTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private final MutableClock clock = new MutableClock(START);
+    // 限额 1000/秒，安全系数 0.5：容量 500，每毫秒补充 0.5
+    private final TokenBucket bucket = new TokenBucket(1000, 1000, 0.5, clock);
+
+    @Test
+    void reservationsOverdrawAndSpreadOut() {
+        assertEquals(0, bucket.reserve(500));
+        assertEquals(20, bucket.reserve(10));   // 透支 10，补充需要 20ms
+        assertEquals(40, bucket.reserve(10));   // 后到的请求排在更后面
+        clock.advance(40);
+        assertEquals(0, bucket.available());
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() {
+        bucket.reserve(300);
+        clock.advance(100);
+        assertEquals(250, bucket.available());
+        clock.advance(10_000);
+        assertEquals(500, bucket.available());
+    }
+
+    @Test
+    void syncOnlyLowersBudgetAndBlocksUntilReset() {
+        bucket.sync(600, 0);                    // 服务端剩余 600，扣除余量 500 后只剩 100
+        assertEquals(100, bucket.available());
+        bucket.sync(900, 0);                    // 高于本地预算时不抬高
+        assertEquals(100, bucket.available());
+
+        bucket.sync(400, START + 3_000);        // 服务端窗口已用尽，等到重置
+        assertEquals(3_000, bucket.reserve(1));
+        clock.advance(3_000);
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void penaltyPausesEvenWithBudgetLeft() {
+        bucket.penalize(5_000);
+        assertEquals(0, bucket.available());
+        assertEquals(5_000, bucket.reserve(0));
+        clock.advance(5_000);
+        assertEquals(0, bucket.reserve(0));
+    }
+}
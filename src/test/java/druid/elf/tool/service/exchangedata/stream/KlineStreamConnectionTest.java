@@ -0,0 +1,115 @@
+package druid.elf.tool.service.exchangedata.stream;
+
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.stream.impl.BinanceKlineStreamProtocol;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地模拟 WebSocket 服务端验证推送连接的订阅、收盘K线回调以及断线重连后的重新订阅
+ */
+class KlineStreamConnectionTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();     // 服务端收到的报文
+    private final BlockingQueue<StreamedKline> closed = new LinkedBlockingQueue<>(); // 客户端回调的收盘K线
+
+    private KlineStreamConnection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (connection != null) connection.stop();
+        timer.shutdownNow();
+        server.shutdown();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    void deliversClosedKlinesAndResubscribesAfterReconnect() throws Exception {
+        // 第一次连接：收到订阅后推送一根未收盘和一根已收盘的K线，随后服务端断开
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ExchangeStub(true,
+                kline(1700000000000L, false), kline(1700000000000L, true))));
+        // 重连后：重新订阅并继续推送
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ExchangeStub(false,
+                kline(1700000900000L, true))));
+
+        connection = new KlineStreamConnection("test", new BinanceKlineStreamProtocol(server.url("/ws").toString()),
+                client, timer, (exchangeType, topic, kline) -> closed.add(kline));
+        connection.subscribe(List.of(new KlineStreamTopic("BTC-USDT", KlineInterval._15M)));
+        connection.start();
+
+        String first = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.contains("\"SUBSCRIBE\"") && first.contains("btcusdt@kline_15m"), first);
+        StreamedKline firstBar = closed.poll(5, TimeUnit.SECONDS);
+        assertNotNull(firstBar);
+        assertEquals(1700000000000L, firstBar.getOpenTime());
+
+        String resubscribe = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(resubscribe, "重连后应重新订阅");
+        assertTrue(resubscribe.contains("btcusdt@kline_15m"), resubscribe);
+        StreamedKline secondBar = closed.poll(5, TimeUnit.SECONDS);
+        assertNotNull(secondBar);
+        assertEquals(1700000900000L, secondBar.getOpenTime());
+        assertEquals(101.5, secondBar.getClose());
+        assertNull(closed.poll(200, TimeUnit.MILLISECONDS), "未收盘的K线不应回调");
+    }
+
+    private static String kline(long openTime, boolean closed) {
+        return "{\"e\":\"kline\",\"E\":" + openTime + ",\"s\":\"BTCUSDT\",\"k\":{\"t\":" + openTime
+                + ",\"T\":" + (openTime + 899999) + ",\"s\":\"BTCUSDT\",\"i\":\"15m\",\"o\":\"100.0\",\"c\":\"101.5\","
+                + "\"h\":\"102.0\",\"l\":\"99.5\",\"v\":\"12.5\",\"x\":" + closed + "}}";
+    }
+
+    /**
+     * 模拟交易所：收到订阅后回执并推送预置消息，可选择推送后主动断开
+     */
+    private class ExchangeStub extends WebSocketListener {
+        private final boolean closeAfterPush;
+        private final String[] pushes;
+
+        ExchangeStub(boolean closeAfterPush, String... pushes) {
+            this.closeAfterPush = closeAfterPush;
+            this.pushes = pushes;
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            received.add(text);
+            webSocket.send("{\"result\":null,\"id\":1}");
+            for (String push : pushes) {
+                webSocket.send(push);
+            }
+            if (closeAfterPush) {
+                webSocket.close(1001, "going away");
+            }
+        }
+    }
+}
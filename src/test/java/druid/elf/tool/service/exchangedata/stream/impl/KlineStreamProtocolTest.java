@@ -0,0 +1,80 @@
+package druid.elf.tool.service.exchangedata.stream.impl;
+
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.stream.AbstractKlineStreamProtocol;
+import druid.elf.tool.service.exchangedata.stream.KlineStreamTopic;
+import druid.elf.tool.service.exchangedata.stream.StreamedKline;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 各交易所推送消息解析，以及解析出的主题标识与订阅主题的一致性
+ */
+class KlineStreamProtocolTest {
+
+    private static final KlineStreamTopic TOPIC = new KlineStreamTopic("BTC-USDT", KlineInterval._1H);
+
+    @Test
+    void binance() throws IOException {
+        assertClosedKline(new BinanceKlineStreamProtocol(),
+                "{\"e\":\"kline\",\"s\":\"BTCUSDT\",\"k\":{\"t\":1700000000000,\"s\":\"BTCUSDT\",\"i\":\"1h\","
+                        + "\"o\":\"1\",\"h\":\"3\",\"l\":\"0.5\",\"c\":\"2\",\"v\":\"10\",\"x\":true}}");
+    }
+
+    @Test
+    void okx() throws IOException {
+        assertClosedKline(new OkxKlineStreamProtocol(),
+                "{\"arg\":{\"channel\":\"candle1H\",\"instId\":\"BTC-USDT\"},"
+                        + "\"data\":[[\"1700000000000\",\"1\",\"3\",\"0.5\",\"2\",\"10\",\"20\",\"20\",\"1\"]]}");
+        assertTrue(new OkxKlineStreamProtocol().parse("pong").isEmpty());
+        assertThrows(IOException.class, () -> new OkxKlineStreamProtocol()
+                .parse("{\"event\":\"error\",\"code\":\"60012\",\"msg\":\"Invalid request\"}"));
+    }
+
+    @Test
+    void bybit() throws IOException {
+        assertClosedKline(new BybitKlineStreamProtocol(),
+                "{\"topic\":\"kline.60.BTCUSDT\",\"type\":\"snapshot\",\"data\":[{\"start\":1700000000000,"
+                        + "\"end\":1700003599999,\"interval\":\"60\",\"open\":\"1\",\"close\":\"2\",\"high\":\"3\","
+                        + "\"low\":\"0.5\",\"volume\":\"10\",\"turnover\":\"20\",\"confirm\":true}]}");
+        assertTrue(new BybitKlineStreamProtocol().parse("{\"success\":true,\"op\":\"subscribe\"}").isEmpty());
+    }
+
+    @Test
+    void gateIo() throws IOException {
+        assertClosedKline(new GateIoKlineStreamProtocol(),
+                "{\"time\":1700003600,\"channel\":\"spot.candlesticks\",\"event\":\"update\",\"result\":{"
+                        + "\"t\":\"1700000000\",\"v\":\"10\",\"c\":\"2\",\"h\":\"3\",\"l\":\"0.5\",\"o\":\"1\","
+                        + "\"n\":\"1h_BTC_USDT\",\"a\":\"5\",\"w\":true}}");
+        assertTrue(new GateIoKlineStreamProtocol()
+                .parse("{\"time\":1700003600,\"channel\":\"spot.candlesticks\",\"event\":\"subscribe\",\"error\":null}").isEmpty());
+    }
+
+    @Test
+    void splitsSubscribeMessagesByBatchLimit() {
+        List<KlineStreamTopic> topics = List.of(
+                new KlineStreamTopic("BTC-USDT", KlineInterval._15M),
+                new KlineStreamTopic("ETH-USDT", KlineInterval._15M),
+                new KlineStreamTopic("SOL-USDT", KlineInterval._15M));
+        assertEquals(1, new BinanceKlineStreamProtocol().buildMessages(topics, true).size());
+        assertEquals(3, new GateIoKlineStreamProtocol().buildMessages(topics, true).size());
+    }
+
+    private static void assertClosedKline(AbstractKlineStreamProtocol protocol, String message) throws IOException {
+        List<StreamedKline> klines = protocol.parse(message);
+        assertEquals(1, klines.size());
+        StreamedKline kline = klines.get(0);
+        assertEquals(protocol.topicKey(TOPIC), kline.getTopicKey());
+        assertEquals(1700000000000L, kline.getOpenTime());
+        assertEquals(1, kline.getOpen());
+        assertEquals(3, kline.getHigh());
+        assertEquals(0.5, kline.getLow());
+        assertEquals(2, kline.getClose());
+        assertEquals(10, kline.getVolume());
+        assertTrue(kline.isClosed());
+    }
+}
@@ -0,0 +1,148 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 各交易所的周期对齐：OKX 日线/周线按香港时间、Gate.io 周线按纪元（周四）、其余周线按周一；
+ * 丢弃开头不完整的周期，保留最后形成中的周期，逐根核对手工计算的 OHLCV
+ */
+class BarSeriesResamplerTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+    private static final long MON_2024_01_01 = 1_704_067_200_000L; // 2024-01-01 00:00 UTC，周一
+    private static final long THU_2023_12_28 = MON_2024_01_01 - 4 * DAY;
+
+    @Test
+    void alignmentOffsets() {
+        assertEquals(0, BarSeriesResampler.alignmentOffset(ExchangeType.BINANCE, KlineInterval._1D));
+        assertEquals(-8 * HOUR, BarSeriesResampler.alignmentOffset(ExchangeType.OKX, KlineInterval._1D));
+        assertEquals(4 * DAY, BarSeriesResampler.alignmentOffset(ExchangeType.BYBIT, KlineInterval._1W));
+        assertEquals(4 * DAY - 8 * HOUR, BarSeriesResampler.alignmentOffset(ExchangeType.OKX, KlineInterval._1W));
+        assertEquals(0, BarSeriesResampler.alignmentOffset(ExchangeType.GATE_IO, KlineInterval._1W));
+        assertEquals(0, BarSeriesResampler.alignmentOffset(ExchangeType.OKX, KlineInterval._4H));
+    }
+
+    @Test
+    void canDeriveOnlyFromSmallerAlignedIntervals() {
+        assertTrue(BarSeriesResampler.canDerive(ExchangeType.BINANCE, KlineInterval._15M, KlineInterval._1H));
+        assertTrue(BarSeriesResampler.canDerive(ExchangeType.OKX, KlineInterval._4H, KlineInterval._1D)); // 16:00 UTC 落在 4H 边界上
+        assertTrue(BarSeriesResampler.canDerive(ExchangeType.GATE_IO, KlineInterval._1D, KlineInterval._1W));
+        assertTrue(BarSeriesResampler.canDerive(ExchangeType.OKX, KlineInterval._1D, KlineInterval._1W));
+        assertFalse(BarSeriesResampler.canDerive(ExchangeType.BINANCE, KlineInterval._1H, KlineInterval._1H));
+        assertFalse(BarSeriesResampler.canDerive(ExchangeType.BINANCE, KlineInterval._1D, KlineInterval._4H));
+    }
+
+    @Test
+    void binanceWeeksStartOnMonday() {
+        BarSeries daily = daily(THU_2023_12_28, 20); // 2023-12-28（周四）至 2024-01-16
+        BarSeries weekly = BarSeriesResampler.resample(ExchangeType.BINANCE, daily, KlineInterval._1W, 10);
+
+        // 12-28 ~ 12-31 属于被截断的上一周，丢弃
+        assertEquals(3, weekly.getBarCount());
+        // 01-01 ~ 01-07（第 4~10 根）
+        assertBar(weekly.getBar(0), MON_2024_01_01, 104, 112, 103, 110.5, 56);
+        // 01-08 ~ 01-14（第 11~17 根）
+        assertBar(weekly.getBar(1), MON_2024_01_01 + 7 * DAY, 111, 120, 109, 117.5, 105);
+        // 01-15 ~ 01-16 仍在形成中（第 18~19 根）
+        assertBar(weekly.getBar(2), MON_2024_01_01 + 14 * DAY, 118, 121, 117, 119.5, 39);
+        assertEquals(Duration.ofDays(7), weekly.getBar(0).getTimePeriod());
+
+        BarSeries latest = BarSeriesResampler.resample(ExchangeType.BINANCE, daily, KlineInterval._1W, 2);
+        assertEquals(2, latest.getBarCount());
+        assertEquals(MON_2024_01_01 + 7 * DAY, KlineBars.openTimeMillis(latest.getBar(0)));
+    }
+
+    @Test
+    void gateIoWeeksStartOnThursday() {
+        BarSeries weekly = BarSeriesResampler.resample(ExchangeType.GATE_IO, daily(THU_2023_12_28, 20),
+                KlineInterval._1W, 10);
+
+        assertEquals(3, weekly.getBarCount());
+        // 12-28 ~ 01-03（第 0~6 根），首根恰为周期起点，保留
+        assertBar(weekly.getBar(0), THU_2023_12_28, 100, 108, 99, 106.5, 28);
+        assertBar(weekly.getBar(1), THU_2023_12_28 + 7 * DAY, 107, 115, 105, 113.5, 77);
+        // 01-11 ~ 01-16（第 14~19 根）
+        assertBar(weekly.getBar(2), THU_2023_12_28 + 14 * DAY, 114, 121, 113, 119.5, 105);
+    }
+
+    @Test
+    void okxDaysStartAtHongKongMidnight() {
+        // 4H K线自 2024-01-01 00:00 UTC 起共 14 根，OKX 日线起于 UTC 16:00
+        BarSeries fourHours = series(MON_2024_01_01, 4 * HOUR, 14);
+        BarSeries days = BarSeriesResampler.resample(ExchangeType.OKX, fourHours, KlineInterval._1D, 10);
+
+        // 00:00 ~ 12:00 属于 12-31 16:00 开盘的日线，被截断丢弃
+        assertEquals(2, days.getBarCount());
+        // 01-01 16:00 ~ 01-02 12:00（第 4~9 根）
+        assertBar(days.getBar(0), MON_2024_01_01 + 16 * HOUR, 104, 111, 103, 109.5, 45);
+        // 01-02 16:00 起（第 10~13 根），形成中
+        assertBar(days.getBar(1), MON_2024_01_01 + 40 * HOUR, 110, 115, 109, 113.5, 50);
+
+        // 同样的 4H K线在币安按 UTC 零点对齐，首日完整
+        BarSeries binanceDays = BarSeriesResampler.resample(ExchangeType.BINANCE, fourHours, KlineInterval._1D, 10);
+        assertEquals(3, binanceDays.getBarCount());
+        assertBar(binanceDays.getBar(0), MON_2024_01_01, 100, 108, 99, 105.5, 21);
+    }
+
+    @Test
+    void okxWeeksStartAtMondayHongKongTime() {
+        // OKX 日线开盘于 UTC 16:00，自 2023-12-30 16:00（香港时间周日）起 10 根
+        long sat = MON_2024_01_01 - 2 * DAY + 16 * HOUR;
+        BarSeries weekly = BarSeriesResampler.resample(ExchangeType.OKX, series(sat, DAY, 10), KlineInterval._1W, 10);
+
+        assertEquals(2, weekly.getBarCount());
+        // 香港时间 01-01 周一 00:00 = 12-31 16:00 UTC（第 1~7 根）
+        assertBar(weekly.getBar(0), sat + DAY, 101, 109, 99, 107.5, 35);
+        assertBar(weekly.getBar(1), sat + 8 * DAY, 108, 111, 107, 109.5, 19);
+    }
+
+    @Test
+    void laterBucketMissingLeadingBarsIsKept() {
+        BarSeries hourly = series(MON_2024_01_01, HOUR, 12);
+        BarSeries gapped = KlineBars.newSeries("gapped");
+        for (int i = 0; i < hourly.getBarCount(); i++) {
+            if (i != 4) gapped.addBar(hourly.getBar(i)); // 04:00 无成交
+        }
+        BarSeries fourHours = BarSeriesResampler.resample(ExchangeType.BYBIT, gapped, KlineInterval._4H, 10);
+
+        assertEquals(3, fourHours.getBarCount());
+        // 04:00 ~ 08:00 缺少首根，以 05:00 的开盘价开盘（第 5~7 根）
+        assertBar(fourHours.getBar(1), MON_2024_01_01 + 4 * HOUR, 105, 109, 103, 107.5, 21);
+    }
+
+    /**
+     * 第 i 根: 开 100+i，高 开+(i%3)+1，低 开-(i%2)-1，收 开+0.5，量 i+1
+     */
+    private static BarSeries series(long start, long periodMillis, int count) {
+        Duration period = Duration.ofMillis(periodMillis);
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = 0; i < count; i++) {
+            double open = 100 + i;
+            KlineBars.append(series, start + i * periodMillis, period, open, open + i % 3 + 1, open - i % 2 - 1,
+                    open + 0.5, i + 1);
+        }
+        return series;
+    }
+
+    private static BarSeries daily(long start, int count) {
+        return series(start, DAY, count);
+    }
+
+    private static void assertBar(Bar bar, long openTime, double open, double high, double low, double close, double volume) {
+        assertEquals(openTime, KlineBars.openTimeMillis(bar));
+        assertEquals(open, bar.getOpenPrice().doubleValue());
+        assertEquals(high, bar.getHighPrice().doubleValue());
+        assertEquals(low, bar.getLowPrice().doubleValue());
+        assertEquals(close, bar.getClosePrice().doubleValue());
+        assertEquals(volume, bar.getVolume().doubleValue());
+    }
+}
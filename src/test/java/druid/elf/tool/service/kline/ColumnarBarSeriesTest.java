@@ -0,0 +1,88 @@
+package druid.elf.tool.service.kline;
+
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.indicators.MACDIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.DoubleNum;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式序列与 BaseBarSeries 的行为一致性校验
+ */
+class ColumnarBarSeriesTest {
+
+    private static final Duration PERIOD = Duration.ofMinutes(15);
+    private static final long START = 1_700_000_100_000L / PERIOD.toMillis() * PERIOD.toMillis();
+
+    @Test
+    void ringModeMatchesMaximumBarCount() {
+        ColumnarBarSeries columnar = ColumnarBarSeries.ring("ring", 50);
+        BarSeries base = new BaseBarSeries("base", DoubleNum::valueOf);
+        base.setMaximumBarCount(50);
+        for (int i = 0; i < 180; i++) {
+            double close = 100 + Math.sin(i / 7.0) * 10;
+            columnar.append(START + i * PERIOD.toMillis(), PERIOD, close - 1, close + 2, close - 2, close, 10 + i);
+            base.addBar(KlineBars.bar(START + i * PERIOD.toMillis(), PERIOD, close - 1, close + 2, close - 2, close, 10 + i));
+        }
+
+        assertEquals(KlineBars.firstIndex(base), columnar.getBeginIndex());
+        assertEquals(base.getEndIndex(), columnar.getEndIndex());
+        assertEquals(base.getRemovedBarsCount(), columnar.getRemovedBarsCount());
+        assertEquals(50, KlineBars.copyOf(base).getBarCount());
+        for (int i = columnar.getBeginIndex(); i <= columnar.getEndIndex(); i++) {
+            Bar expected = base.getBar(i);
+            Bar actual = columnar.getBar(i);
+            assertEquals(expected.getBeginTime().toInstant(), actual.getBeginTime().toInstant());
+            assertEquals(expected.getEndTime().toInstant(), actual.getEndTime().toInstant());
+            assertEquals(expected.getClosePrice(), actual.getClosePrice());
+            assertEquals(expected.getVolume(), actual.getVolume());
+        }
+
+        int end = columnar.getEndIndex();
+        assertEquals(new RSIIndicator(new ClosePriceIndicator(base), 14).getValue(end),
+                new RSIIndicator(new ClosePriceIndicator(columnar), 14).getValue(end));
+        assertEquals(new MACDIndicator(new ClosePriceIndicator(base), 12, 26).getValue(end),
+                new MACDIndicator(new ClosePriceIndicator(columnar), 12, 26).getValue(end));
+    }
+
+    @Test
+    void viewsAreDetachedFromOverwrittenSlots() {
+        ColumnarBarSeries series = ColumnarBarSeries.ring("ring", 3);
+        for (int i = 0; i < 3; i++) {
+            series.append(START + i * PERIOD.toMillis(), PERIOD, i, i, i, i, i);
+        }
+        Bar oldest = series.getBar(0);
+        series.append(START + 3 * PERIOD.toMillis(), PERIOD, 3, 3, 3, 3, 3);
+
+        assertEquals(DoubleNum.valueOf(0), oldest.getClosePrice());
+        assertEquals(1, series.getBeginIndex());
+        assertEquals(3, series.getBarCount());
+        assertEquals(1, series.getClose(0), "已移除的下标返回最旧的一根");
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getBar(4));
+    }
+
+    @Test
+    void replaceAndOrdering() {
+        ColumnarBarSeries series = new ColumnarBarSeries("grow", 1);
+        for (int i = 0; i < 100; i++) {
+            series.append(START + i * PERIOD.toMillis(), PERIOD, i, i, i, i, i);
+        }
+        series.addBar(KlineBars.bar(START + 99 * PERIOD.toMillis(), PERIOD, 1, 2, 0, 1.5, 7), true);
+        assertEquals(100, series.getBarCount());
+        assertEquals(1.5, series.getClose(99));
+        assertThrows(IllegalArgumentException.class,
+                () -> series.append(START, PERIOD, 1, 1, 1, 1, 1));
+
+        BarSeries tail = KlineBars.tail(series, 10);
+        assertInstanceOf(ColumnarBarSeries.class, tail);
+        assertEquals(10, tail.getBarCount());
+        assertEquals(START + 99 * PERIOD.toMillis(), KlineBars.lastOpenTimeMillis(tail));
+    }
+}
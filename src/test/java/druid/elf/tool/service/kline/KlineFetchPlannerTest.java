@@ -0,0 +1,83 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static druid.elf.tool.enums.KlineInterval.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 拉取规划：单页深度决定哪些周期由低周期派生，派生时加深源周期的请求深度
+ */
+class KlineFetchPlannerTest {
+
+    private static final List<KlineInterval> INTERVALS = List.of(_1W, _15M, _1D, _30M, _4H, _1H);
+
+    private final KlineFetchPlanner planner = new KlineFetchPlanner();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "minBars", 100);
+    }
+
+    @Test
+    void okxPageOnlyDerivesThirtyMinutes() {
+        KlineFetchPlan plan = planner.plan(ExchangeType.OKX, INTERVALS, 300);
+
+        // 300 条一页：15M 派生 1H 只有 75 根，4H 派生 1D 只有 50 根，1D 派生 1W 只有 42 根
+        assertEquals(List.of(_15M, _1H, _4H, _1D, _1W), List.copyOf(plan.getFetches().keySet()));
+        assertEquals(Map.of(_30M, _15M), plan.getDerived());
+        plan.getFetches().values().forEach(depth -> assertEquals(300, depth));
+    }
+
+    @Test
+    void thousandBarPagesDeriveFromDeepenedSources() {
+        for (ExchangeType exchangeType : List.of(ExchangeType.BINANCE, ExchangeType.BYBIT, ExchangeType.GATE_IO)) {
+            KlineFetchPlan plan = planner.plan(exchangeType, INTERVALS, 300);
+
+            assertEquals(List.of(_15M, _4H, _1W), List.copyOf(plan.getFetches().keySet()), exchangeType.name());
+            assertEquals(Map.of(_30M, _15M, _1H, _15M, _1D, _4H), plan.getDerived(), exchangeType.name());
+            assertEquals(1000, plan.getFetches().get(_15M)); // 1H 需要 4×300，受单页 1000 限制
+            assertEquals(1000, plan.getFetches().get(_4H));  // 1D 需要 6×300
+            assertEquals(300, plan.getFetches().get(_1W));
+        }
+    }
+
+    @Test
+    void disabledResamplingFetchesEveryInterval() {
+        ReflectionTestUtils.setField(planner, "enabled", false);
+        KlineFetchPlan plan = planner.plan(ExchangeType.BINANCE, INTERVALS, 300);
+
+        assertEquals(List.of(_15M, _30M, _1H, _4H, _1D, _1W), List.copyOf(plan.getFetches().keySet()));
+        assertTrue(plan.getDerived().isEmpty());
+    }
+
+    @Test
+    void assembleResamplesDerivedIntervals() {
+        KlineFetchPlan plan = planner.plan(ExchangeType.BINANCE, List.of(_15M, _1H), 100);
+        assertEquals(Map.of(_1H, _15M), plan.getDerived());
+        assertEquals(400, plan.getFetches().get(_15M));
+
+        long start = 1_704_067_200_000L; // 2024-01-01 00:00 UTC
+        Duration period = _15M.getDuration();
+        BarSeries quarter = KlineBars.newSeries("test");
+        for (int i = 0; i < 400; i++) {
+            KlineBars.append(quarter, start + i * period.toMillis(), period, 100, 101, 99, 100, 1);
+        }
+        Map<String, BarSeries> series = plan.assemble(Map.of(_15M, quarter));
+        assertEquals(100, series.get(_15M.name()).getBarCount());
+        BarSeries hourly = series.get(_1H.name());
+        assertEquals(100, hourly.getBarCount());
+        assertEquals(start, KlineBars.openTimeMillis(hourly.getBar(0)));
+        assertEquals(4, hourly.getBar(0).getVolume().doubleValue());
+    }
+}
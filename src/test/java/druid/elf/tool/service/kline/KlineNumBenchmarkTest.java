@@ -0,0 +1,152 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.enums.KlineNumType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.indicators.ATRIndicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.MACDIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandFacade;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.DoubleNum;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DoubleNum 与 DecimalNum 两种数值类型下指标计算的一致性与耗时对比。
+ * 规模取一轮信号生成的典型负载：300根K线 × 6个周期 × 50个交易对。
+ * 耗时对比受机器负载影响，默认不运行，使用 mvn test -Dbenchmark=true 执行
+ */
+class KlineNumBenchmarkTest {
+
+    private static final int BAR_COUNT = 300;
+    private static final int SERIES_COUNT = 6 * 50;
+    private static final int ROUNDS = 3;
+
+    @AfterEach
+    void resetConfiguration() {
+        KlineBars.resetConfiguration();
+    }
+
+    @Test
+    void barsCarryIntervalDuration() {
+        long openTime = 1_700_000_000_000L;
+        var bar = KlineBars.bar(openTime, KlineInterval._4H.getDuration(), 1, 2, 0.5, 1.5, 10);
+        assertEquals(Duration.ofHours(4), bar.getTimePeriod());
+        assertEquals(openTime, KlineBars.openTimeMillis(bar));
+        assertEquals(openTime + Duration.ofHours(4).toMillis(), bar.getEndTime().toInstant().toEpochMilli());
+    }
+
+    @Test
+    void seriesFollowConfiguredNumType() {
+        KlineBars.overrideNumType(KlineNumType.DECIMAL);
+        assertInstanceOf(DecimalNum.class, series(new Random(1)).getBar(0).getClosePrice());
+        KlineBars.overrideNumType(KlineNumType.DOUBLE);
+        BarSeries series = series(new Random(1));
+        assertInstanceOf(DoubleNum.class, series.getBar(0).getClosePrice());
+        assertInstanceOf(DoubleNum.class, KlineBars.tail(series, 10).numOf(1));
+    }
+
+    @Test
+    void configurationCanOnlyBeSetOnce() {
+        KlineBars.configure(KlineNumType.DOUBLE, true);
+        KlineBars.configure(KlineNumType.DOUBLE, true); // 相同的值可以重复设置
+        assertThrows(IllegalStateException.class, () -> KlineBars.configure(KlineNumType.DECIMAL, true));
+        assertThrows(IllegalStateException.class, () -> KlineBars.configure(KlineNumType.DOUBLE, false));
+        assertEquals(KlineNumType.DOUBLE, KlineBars.getNumType());
+    }
+
+    @Test
+    void doubleMatchesDecimal() {
+        List<BarSeries> decimal = build(KlineNumType.DECIMAL);
+        List<BarSeries> dbl = build(KlineNumType.DOUBLE);
+
+        for (int i = 0; i < 10; i++) {
+            double expected = compute(decimal.get(i));
+            double actual = compute(dbl.get(i));
+            assertEquals(expected, actual, Math.abs(expected) * 1e-9, "指标结果不一致: 序列 " + i);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void doubleIsFaster() {
+        List<BarSeries> decimal = build(KlineNumType.DECIMAL);
+        List<BarSeries> dbl = build(KlineNumType.DOUBLE);
+
+        // 各取多轮中的最小耗时，第一轮兼作预热
+        long decimalNanos = Long.MAX_VALUE;
+        long doubleNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            decimalNanos = Math.min(decimalNanos, time(decimal));
+            doubleNanos = Math.min(doubleNanos, time(dbl));
+        }
+        assertTrue(doubleNanos < decimalNanos, String.format(
+                "DoubleNum 应快于 DecimalNum：%d 个序列 × %d 根K线，DecimalNum %.1f ms，DoubleNum %.1f ms",
+                SERIES_COUNT, BAR_COUNT, decimalNanos / 1e6, doubleNanos / 1e6));
+    }
+
+    private static List<BarSeries> build(KlineNumType type) {
+        KlineBars.overrideNumType(type);
+        Random random = new Random(42);
+        List<BarSeries> result = new ArrayList<>(SERIES_COUNT);
+        for (int i = 0; i < SERIES_COUNT; i++) {
+            result.add(series(random));
+        }
+        return result;
+    }
+
+    private static BarSeries series(Random random) {
+        BarSeries series = KlineBars.newSeries("bench");
+        Duration duration = KlineInterval._15M.getDuration();
+        long openTime = 1_700_000_000_000L;
+        double price = 100 + random.nextDouble() * 100;
+        for (int i = 0; i < BAR_COUNT; i++) {
+            double open = price;
+            double close = open * (1 + (random.nextDouble() - 0.5) * 0.02);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.005);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.005);
+            series.addBar(KlineBars.bar(openTime, duration, open, high, low, close, random.nextDouble() * 1000));
+            openTime += duration.toMillis();
+            price = close;
+        }
+        return series;
+    }
+
+    private static long time(List<BarSeries> seriesList) {
+        long start = System.nanoTime();
+        double sink = 0;
+        for (BarSeries series : seriesList) {
+            sink += compute(series);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertFalse(Double.isNaN(sink));
+        return elapsed;
+    }
+
+    /**
+     * 策略常用的一组指标，每次新建指标对象以避免命中 ta4j 的结果缓存
+     */
+    private static double compute(BarSeries series) {
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+        int end = series.getEndIndex();
+        BollingerBandFacade bollinger = new BollingerBandFacade(series, 20, 2);
+        return new EMAIndicator(close, 13).getValue(end).doubleValue()
+                + new MACDIndicator(close, 12, 26).getValue(end).doubleValue()
+                + new RSIIndicator(close, 14).getValue(end).doubleValue()
+                + new ATRIndicator(series, 14).getValue(end).doubleValue()
+                + bollinger.upper().getValue(end).doubleValue();
+    }
+}
@@ -0,0 +1,57 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滚动序列快照写入后在新实例中恢复
+ */
+class KlineSnapshotServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotAndRestore() {
+        KlineInterval interval = KlineInterval._1H;
+        Duration period = interval.getDuration();
+        String key = RollingKlineService.keyOf(ExchangeType.BINANCE, "BTCUSDT", interval);
+        long start = System.currentTimeMillis() / period.toMillis() * period.toMillis() - 199 * period.toMillis();
+        BarSeries bars = KlineBars.newSeries(key);
+        for (int i = 0; i < 200; i++) {
+            double price = 30000 + i * 1.5;
+            KlineBars.append(bars, start + i * period.toMillis(), period, price, price + 10, price - 10, price + 1.5, 12.5);
+        }
+
+        RollingKlineService source = new RollingKlineService();
+        assertTrue(source.seed(key, 300, bars));
+        assertEquals(1, service(source).snapshot());
+
+        RollingKlineService target = new RollingKlineService();
+        KlineSnapshotService restoring = service(target);
+        assertEquals(1, restoring.restore());
+        assertEquals(0, restoring.restore()); // 只恢复一次
+
+        BarSeries restored = target.get(ExchangeType.BINANCE, "BTCUSDT", interval);
+        assertEquals(200, restored.getBarCount());
+        assertEquals(KlineBars.lastOpenTimeMillis(bars), KlineBars.lastOpenTimeMillis(restored));
+        assertEquals(bars.getLastBar().getClosePrice().doubleValue(), restored.getLastBar().getClosePrice().doubleValue());
+    }
+
+    private KlineSnapshotService service(RollingKlineService rolling) {
+        KlineSnapshotService service = new KlineSnapshotService();
+        ReflectionTestUtils.setField(service, "rollingKlineService", rolling);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "path", dir.resolve("rolling.snap").toString());
+        return service;
+    }
+}
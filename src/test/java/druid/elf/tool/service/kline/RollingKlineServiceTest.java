@@ -0,0 +1,148 @@
+package druid.elf.tool.service.kline;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.exchangedata.ExchangeDataService;
+import druid.elf.tool.service.kline.store.KlineStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 多周期并发刷新：整组完成、失败或超时时取消其余周期；已持有序列的就地修复；推送流送达收盘K线后跳过接口刷新
+ */
+class RollingKlineServiceTest {
+
+    private final RollingKlineService rolling = new RollingKlineService();
+    private final ExchangeDataService service = mock(ExchangeDataService.class);
+    private final Map<KlineInterval, Integer> fetches = new LinkedHashMap<>();
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rolling, "klineStore", new KlineStore()); // 未启用的存储
+        ReflectionTestUtils.setField(rolling, "exchangeRequestTimer", timer);
+        fetches.put(KlineInterval._1H, 100);
+        fetches.put(KlineInterval._4H, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void completesWithAllIntervals() throws Exception {
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(series(KlineInterval._1H)));
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._4H), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(series(KlineInterval._4H)));
+
+        Map<KlineInterval, BarSeries> fetched = rolling.refreshAll(service, ExchangeType.BINANCE, "BTCUSDT",
+                fetches, Duration.ofSeconds(5)).get();
+        assertEquals(fetches.keySet(), fetched.keySet());
+        assertEquals(10, fetched.get(KlineInterval._4H).getBarCount());
+        // 整组完成后期限任务被取消，不在定时器中滞留
+        timer.setRemoveOnCancelPolicy(true);
+        timer.purge();
+        assertTrue(timer.getQueue().isEmpty());
+    }
+
+    @Test
+    void failureCancelsSiblings() {
+        CompletableFuture<BarSeries> pending = new CompletableFuture<>();
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyInt())).thenReturn(pending);
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._4H), anyInt()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("418")));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rolling.refreshAll(service,
+                ExchangeType.BINANCE, "BTCUSDT", fetches, Duration.ofSeconds(5)).get());
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void deadlineCancelsGroup() {
+        CompletableFuture<BarSeries> first = new CompletableFuture<>();
+        CompletableFuture<BarSeries> second = new CompletableFuture<>();
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyInt())).thenReturn(first);
+        when(service.getKlineDataAsync(eq("BTCUSDT"), eq(KlineInterval._4H), anyInt())).thenReturn(second);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rolling.refreshAll(service,
+                ExchangeType.BINANCE, "BTCUSDT", fetches, Duration.ofMillis(50)).get());
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    void repairFillsGapsInPlace() {
+        BarSeries full = series(KlineInterval._1H);
+        BarSeries gapped = KlineBars.newSeries("test");
+        for (int i = 0; i < full.getBarCount(); i++) {
+            if (i != 3 && i != 4) gapped.addBar(full.getBar(i));
+        }
+        String key = RollingKlineService.keyOf(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H);
+        assertTrue(rolling.seed(key, 100, gapped));
+
+        BarSeries repaired = rolling.repair(key, List.of(full.getBar(3), full.getBar(4), full.getBar(5)));
+        assertEquals(10, repaired.getBarCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(KlineBars.openTimeMillis(full.getBar(i)), KlineBars.openTimeMillis(repaired.getBar(i)));
+        }
+        assertEquals(10, rolling.get(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H).getBarCount());
+    }
+
+    @Test
+    void restMergeOfLastBarEndsStreamSkip() throws Exception {
+        BarSeries full = series(KlineInterval._1H);
+        String key = RollingKlineService.keyOf(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H);
+        assertTrue(rolling.seed(key, 100, full.getSubSeries(0, 8)));
+        // 推送流送达的收盘K线已不是最近一根，仍需通过接口补齐
+        assertTrue(rolling.accept(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, full.getBar(7)));
+        BarSeries fresh = full.getSubSeries(8, 10); // 最后一根仍在形成中
+        when(service.getKlineDataSinceAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyLong(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(fresh));
+        assertEquals(10, rolling.refreshAsync(service, ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100).get().getBarCount());
+
+        // 最后一根来自接口合并，不能因为此前收到过推送而跳过
+        rolling.refreshAsync(service, ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100).get();
+        verify(service, times(2)).getKlineDataSinceAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyLong(), anyInt());
+
+        // 推送流送达最后一根后跳过请求
+        assertTrue(rolling.accept(ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, full.getBar(9)));
+        rolling.refreshAsync(service, ExchangeType.BINANCE, "BTCUSDT", KlineInterval._1H, 100).get();
+        verify(service, times(2)).getKlineDataSinceAsync(eq("BTCUSDT"), eq(KlineInterval._1H), anyLong(), anyInt());
+    }
+
+    private static BarSeries series(KlineInterval interval) {
+        Duration period = interval.getDuration();
+        long start = System.currentTimeMillis() / period.toMillis() * period.toMillis() - 9 * period.toMillis();
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = 0; i < 10; i++) {
+            KlineBars.append(series, start + i * period.toMillis(), period, 100, 101, 99, 100.5, 1);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,113 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.kline.store.codec.KlineColumns;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 段文件封存为压缩块、跨封存边界读取、早于边界的回填合并与封存中断后的恢复
+ */
+class KlineHistoryTest {
+
+    private static final Duration PERIOD = Duration.ofMinutes(15);
+    private static final long BAR = PERIOD.toMillis();
+    private static final long START = 1_700_000_000_000L / BAR * BAR;
+    private static final int BLOCK_BARS = 100;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fullBlocksAreSealedIntoArchive() throws IOException {
+        KlineHistory history = history("BTCUSDT_15m");
+        assertEquals(450, history.append(series(0, 450)));
+
+        KlineSegment segment = new KlineSegment(dir.resolve("BTCUSDT_15m.seg"), PERIOD);
+        KlineArchive archive = new KlineArchive(dir.resolve("BTCUSDT_15m.klz"), BAR, BLOCK_BARS);
+        assertEquals(150, segment.size());
+        assertEquals(START + 300 * BAR, segment.firstOpenTime());
+        assertEquals(300, archive.size());
+        assertEquals(3, archive.blockCount());
+        assertTrue(Files.size(dir.resolve("BTCUSDT_15m.klz")) < 300L * KlineSegment.RECORD_SIZE);
+
+        assertEquals(450, history.size());
+        assertEquals(START + 449 * BAR, history.lastOpenTime());
+        BarSeries range = history.read("r", START + 250 * BAR, START + 350 * BAR); // 跨封存边界
+        assertEquals(100, range.getBarCount());
+        for (int i = 0; i < range.getBarCount(); i++) {
+            assertEquals(START + (250 + i) * BAR, KlineBars.openTimeMillis(range.getBar(i)));
+            assertEquals(close(250 + i), range.getBar(i).getClosePrice().doubleValue());
+        }
+        BarSeries latest = history.readLatest("l", 200);                          // 段文件不足，从归档补足
+        assertEquals(200, latest.getBarCount());
+        assertEquals(START + 250 * BAR, KlineBars.openTimeMillis(latest.getBar(0)));
+        assertTrue(history.covers(START, START + 450 * BAR));
+        assertFalse(history.covers(START - BAR, START + 450 * BAR));
+    }
+
+    @Test
+    void olderBarsAreMergedIntoArchive() throws IOException {
+        KlineHistory history = history("ETHUSDT_15m");
+        history.append(series(500, 950));                                  // 封存 [500, 800)
+        assertEquals(50, history.append(series(450, 500)));                // 早于封存边界，合并进归档
+        history.append(series(200, 300));                                  // 与归档之间留下缺口
+
+        List<long[]> gaps = history.gaps(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1, gaps.size());
+        assertArrayEquals(new long[]{START + 300 * BAR, START + 450 * BAR}, gaps.get(0));
+        assertFalse(history.covers(START + 200 * BAR, START + 950 * BAR));
+
+        assertEquals(150, history.append(series(250, 450)));               // 填补缺口，已归档部分不重复写入
+        assertTrue(history.gaps(Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        assertTrue(history.covers(START + 200 * BAR, START + 950 * BAR));
+        BarSeries all = history.read("all", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(750, all.getBarCount());
+        for (int i = 0; i < all.getBarCount(); i++) {
+            assertEquals(START + (200 + i) * BAR, KlineBars.openTimeMillis(all.getBar(i)));
+        }
+    }
+
+    @Test
+    void duplicatesLeftByInterruptedSealAreDroppedOnOpen() throws IOException {
+        Path segmentPath = dir.resolve("SOLUSDT_15m.seg");
+        KlineSegment segment = new KlineSegment(segmentPath, PERIOD);
+        segment.append(series(0, 150));
+        // 模拟归档已提交但段文件尚未重写
+        KlineArchive archive = new KlineArchive(dir.resolve("SOLUSDT_15m.klz"), BAR, BLOCK_BARS);
+        archive.append(segment.readOldestColumns(100));
+
+        KlineHistory history = history("SOLUSDT_15m");
+        assertEquals(150, history.size());
+        assertEquals(50, new KlineSegment(segmentPath, PERIOD).size());
+        KlineColumns sealed = new KlineArchive(dir.resolve("SOLUSDT_15m.klz"), BAR, BLOCK_BARS).read(START, START + 100 * BAR);
+        assertEquals(100, sealed.size());
+        assertEquals(close(99), sealed.getClose(99));
+    }
+
+    private KlineHistory history(String name) throws IOException {
+        return new KlineHistory(dir.resolve(name + ".seg"), dir.resolve(name + ".klz"), PERIOD, BLOCK_BARS);
+    }
+
+    private static BarSeries series(int from, int to) {
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = from; i < to; i++) {
+            double close = close(i);
+            KlineBars.append(series, START + i * BAR, PERIOD, close - 0.5, close + 1, close - 1, close, 10 + i % 7);
+        }
+        return series;
+    }
+
+    private static double close(int i) {
+        return 100 + Math.sin(i / 10.0) * 5;
+    }
+}
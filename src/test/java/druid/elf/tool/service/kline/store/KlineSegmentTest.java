@@ -0,0 +1,108 @@
+package druid.elf.tool.service.kline.store;
+
+import druid.elf.tool.service.kline.KlineBars;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K线段文件的追加、重叠合并与重新打开校验
+ */
+class KlineSegmentTest {
+
+    private static final Duration PERIOD = Duration.ofHours(1);
+    private static final long HOUR = PERIOD.toMillis();
+    private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendReadAndReopen() throws IOException {
+        Path file = dir.resolve("BTCUSDT_1H.seg");
+        KlineSegment segment = new KlineSegment(file, PERIOD);
+        assertEquals(3000, segment.append(series(0, 3000)));   // 超过初始容量，触发重新映射
+        assertEquals(10, segment.append(series(2995, 3010)));  // 与已保存部分重叠，只追加新的
+        assertEquals(3010, segment.size());
+
+        KlineSegment reopened = new KlineSegment(file, PERIOD);
+        assertEquals(3010, reopened.size());
+        assertEquals(START + 3009 * HOUR, reopened.lastOpenTime());
+        BarSeries range = reopened.read("r", START + 100 * HOUR, START + 200 * HOUR);
+        assertEquals(100, range.getBarCount());
+        assertEquals(START + 100 * HOUR, KlineBars.openTimeMillis(range.getBar(range.getBeginIndex())));
+        assertEquals(close(199), range.getLastBar().getClosePrice().doubleValue());
+        assertTrue(reopened.covers(START, START + 3010 * HOUR));
+        assertFalse(reopened.covers(START, START + 3011 * HOUR));
+    }
+
+    @Test
+    void outOfOrderChunksAreMerged() throws IOException {
+        KlineSegment segment = new KlineSegment(dir.resolve("ETHUSDT_1H.seg"), PERIOD);
+        segment.append(series(200, 300));
+        segment.append(series(0, 100));     // 早于第一条记录
+        assertFalse(segment.covers(START, START + 300 * HOUR));
+        segment.append(series(100, 200));   // 填补缺口
+        assertEquals(300, segment.size());
+        assertTrue(segment.covers(START, START + 300 * HOUR));
+
+        BarSeries all = segment.readLatest("all", 1000);
+        for (int i = 0; i < 300; i++) {
+            assertEquals(START + i * HOUR, KlineBars.openTimeMillis(all.getBar(i)));
+        }
+    }
+
+    @Test
+    void uncommittedCountIsTruncatedOnOpen() throws IOException {
+        Path file = dir.resolve("SOLUSDT_1H.seg");
+        KlineSegment segment = new KlineSegment(file, PERIOD);
+        segment.append(series(0, 10));
+
+        // 模拟文件头中的条数指向了未写完的记录
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 1_000_000L);
+            channel.write(count, 24);
+        }
+        KlineSegment reopened = new KlineSegment(file, PERIOD);
+        assertTrue(reopened.size() >= 10 && reopened.size() < 1_000_000);
+    }
+
+    @Test
+    void gapsBetweenSavedRuns() throws IOException {
+        KlineSegment segment = new KlineSegment(dir.resolve("XRPUSDT_1H.seg"), PERIOD);
+        segment.append(series(0, 100));
+        segment.append(series(150, 200));
+        segment.append(series(120, 140)); // 落在缺口中，重写后剩两段缺口
+
+        List<long[]> gaps = segment.gaps(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(2, gaps.size());
+        assertArrayEquals(new long[]{START + 100 * HOUR, START + 120 * HOUR}, gaps.get(0));
+        assertArrayEquals(new long[]{START + 140 * HOUR, START + 150 * HOUR}, gaps.get(1));
+        assertEquals(1, segment.gaps(START + 130 * HOUR, START + 160 * HOUR).size());
+        assertTrue(segment.gaps(START, START + 100 * HOUR).isEmpty());
+    }
+
+    private static BarSeries series(int from, int to) {
+        BarSeries series = KlineBars.newSeries("test");
+        for (int i = from; i < to; i++) {
+            double close = close(i);
+            KlineBars.append(series, START + i * HOUR, PERIOD, close - 1, close + 1, close - 2, close, i);
+        }
+        return series;
+    }
+
+    private static double close(int i) {
+        return 100 + i * 0.5;
+    }
+}
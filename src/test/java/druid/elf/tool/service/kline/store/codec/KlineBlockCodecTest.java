@@ -0,0 +1,98 @@
+package druid.elf.tool.service.kline.store.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压缩K线块的往返一致性、缺口时间戳、块独立解码与压缩率
+ */
+class KlineBlockCodecTest {
+
+    private static final long MINUTES_15 = 15 * 60_000L;
+    private static final long START = 1_700_000_000_000L / MINUTES_15 * MINUTES_15;
+    private static final int BLOCK_SIZE = 512;
+
+    @Test
+    void roundTripWithGaps() {
+        KlineColumns source = randomWalk(5000, true);
+        List<byte[]> blocks = encodeBlocks(source);
+        assertEquals(10, blocks.size());
+
+        KlineColumns decoded = new KlineColumns(16);
+        long bytes = 0;
+        for (byte[] block : blocks) {
+            KlineBlockCodec.decode(ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN), 0, decoded);
+            bytes += block.length;
+        }
+        assertSame(source, decoded);
+
+        double bytesPerBar = (double) bytes / source.size();
+        assertTrue(bytesPerBar < 32, "压缩后每根K线 " + bytesPerBar + " 字节，未达到 32 字节以内（未压缩 48 字节）");
+    }
+
+    @Test
+    void blocksDecodeIndependently() {
+        KlineColumns source = randomWalk(3000, false);
+        List<byte[]> blocks = encodeBlocks(source);
+
+        ByteBuffer buffer = ByteBuffer.wrap(blocks.get(3)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(BLOCK_SIZE, KlineBlockCodec.count(buffer, 0));
+        KlineColumns block = new KlineColumns(16);
+        assertEquals(BLOCK_SIZE, KlineBlockCodec.decode(buffer, 0, block));
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(source.getOpenTime(3 * BLOCK_SIZE + i), block.getOpenTime(i));
+            assertEquals(source.getClose(3 * BLOCK_SIZE + i), block.getClose(i));
+        }
+    }
+
+    private static List<byte[]> encodeBlocks(KlineColumns source) {
+        List<byte[]> blocks = new ArrayList<>();
+        for (int from = 0; from < source.size(); from += BLOCK_SIZE) {
+            blocks.add(KlineBlockCodec.encode(source, from, Math.min(source.size(), from + BLOCK_SIZE)));
+        }
+        return blocks;
+    }
+
+    private static void assertSame(KlineColumns expected, KlineColumns actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getOpenTime(i), actual.getOpenTime(i), "openTime@" + i);
+            assertEquals(expected.getOpen(i), actual.getOpen(i), "open@" + i);
+            assertEquals(expected.getHigh(i), actual.getHigh(i), "high@" + i);
+            assertEquals(expected.getLow(i), actual.getLow(i), "low@" + i);
+            assertEquals(expected.getClose(i), actual.getClose(i), "close@" + i);
+            assertEquals(expected.getVolume(i), actual.getVolume(i), "volume@" + i);
+        }
+    }
+
+    /**
+     * 两位小数的随机游走行情，可选插入停牌缺口
+     */
+    private static KlineColumns randomWalk(int count, boolean gaps) {
+        Random random = new Random(42);
+        KlineColumns columns = new KlineColumns(16);
+        long time = START;
+        double price = 30000;
+        for (int i = 0; i < count; i++) {
+            if (gaps && random.nextInt(200) == 0) {
+                time += MINUTES_15 * (1 + random.nextInt(20));
+            }
+            double open = price;
+            double close = Math.round((open + random.nextGaussian() * 20) * 100) / 100.0;
+            double high = Math.max(open, close) + Math.round(random.nextDouble() * 1000) / 100.0;
+            double low = Math.min(open, close) - Math.round(random.nextDouble() * 1000) / 100.0;
+            double volume = Math.round(random.nextDouble() * 100_000) / 1000.0;
+            columns.add(time, open, high, low, close, volume);
+            price = close;
+            time += MINUTES_15;
+        }
+        return columns;
+    }
+}
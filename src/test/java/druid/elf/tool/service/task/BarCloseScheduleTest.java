@@ -0,0 +1,58 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 收盘时间对齐与同时收盘周期的合并
+ */
+class BarCloseScheduleTest {
+
+    @Test
+    void nextCloseFollowsExchangeBoundaries() {
+        long now = Instant.parse("2024-05-15T10:07:00Z").toEpochMilli(); // 周三
+        assertEquals(Instant.parse("2024-05-15T10:30:00Z").toEpochMilli(),
+                BarCloseSchedule.nextClose(ExchangeType.BINANCE, KlineInterval._30M, now));
+        assertEquals(Instant.parse("2024-05-16T00:00:00Z").toEpochMilli(),
+                BarCloseSchedule.nextClose(ExchangeType.BINANCE, KlineInterval._1D, now));
+        assertEquals(Instant.parse("2024-05-15T16:00:00Z").toEpochMilli(),
+                BarCloseSchedule.nextClose(ExchangeType.OKX, KlineInterval._1D, now));
+        assertEquals(Instant.parse("2024-05-20T00:00:00Z").toEpochMilli(),
+                BarCloseSchedule.nextClose(ExchangeType.BYBIT, KlineInterval._1W, now));
+        // 恰好在收盘时刻时取下一个收盘
+        long boundary = Instant.parse("2024-05-15T10:30:00Z").toEpochMilli();
+        assertEquals(Instant.parse("2024-05-15T11:00:00Z").toEpochMilli(),
+                BarCloseSchedule.nextClose(ExchangeType.BINANCE, KlineInterval._30M, boundary));
+    }
+
+    @Test
+    void simultaneousClosesAreOneFiring() {
+        List<KlineInterval> intervals = List.of(KlineInterval._30M, KlineInterval._4H, KlineInterval._1D);
+        Map<ExchangeType, List<KlineInterval>> scheduled = Map.of(ExchangeType.BINANCE, intervals, ExchangeType.OKX, intervals);
+
+        long after = Instant.parse("2024-05-15T23:45:00Z").toEpochMilli();
+        BarCloseSchedule.Firing midnight = BarCloseSchedule.next(scheduled, after);
+        assertEquals(Instant.parse("2024-05-16T00:00:00Z").toEpochMilli(), midnight.getCloseTime());
+        assertEquals(Set.of(KlineInterval._30M, KlineInterval._4H, KlineInterval._1D), midnight.getClosed().get(ExchangeType.BINANCE));
+        // OKX 日线在 16:00 UTC 收盘，午夜只有 30 分钟线和 4 小时线
+        assertEquals(Set.of(KlineInterval._30M, KlineInterval._4H), midnight.getClosed().get(ExchangeType.OKX));
+
+        BarCloseSchedule.Firing next = BarCloseSchedule.next(scheduled, midnight.getCloseTime());
+        assertEquals(Instant.parse("2024-05-16T00:30:00Z").toEpochMilli(), next.getCloseTime());
+        assertEquals(Set.of(KlineInterval._30M), next.getClosed().get(ExchangeType.BINANCE));
+
+        BarCloseSchedule.Firing merged = next.merge(midnight);
+        assertEquals(next.getCloseTime(), merged.getCloseTime());
+        assertEquals(Set.of(KlineInterval._30M, KlineInterval._4H, KlineInterval._1D), merged.getClosed().get(ExchangeType.BINANCE));
+
+        assertNull(BarCloseSchedule.next(Map.of(), after));
+    }
+}
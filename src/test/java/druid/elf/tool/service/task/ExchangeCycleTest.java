@@ -0,0 +1,53 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.enums.KlineInterval;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 轮次互斥、被跳过触发的收盘周期顺延，以及超过期限的交易对交给下一轮
+ */
+class ExchangeCycleTest {
+
+    @Test
+    void overlappingTriggerIsDeferredToNextCycle() {
+        ExchangeCycle cycle = new ExchangeCycle();
+        assertTrue(cycle.tryStart(EnumSet.of(KlineInterval._30M)));
+        assertNull(cycle.takeDeferred(null));
+        // 上一轮未结束，4 小时线的收盘留给下一轮
+        assertFalse(cycle.tryStart(EnumSet.of(KlineInterval._4H)));
+        cycle.finish();
+
+        assertTrue(cycle.tryStart(EnumSet.of(KlineInterval._30M)));
+        assertEquals(Set.of(KlineInterval._30M, KlineInterval._4H), cycle.takeDeferred(EnumSet.of(KlineInterval._30M)));
+        assertEquals(Set.of(KlineInterval._30M), cycle.takeDeferred(EnumSet.of(KlineInterval._30M)));
+        cycle.finish();
+        assertEquals(1L, cycle.snapshot().get("overlapSkips"));
+    }
+
+    @Test
+    void droppedPairsAreHandedToNextCycle() {
+        ExchangeCycle cycle = new ExchangeCycle();
+        assertTrue(cycle.tryStart(null));
+        assertTrue(cycle.takeResume().isEmpty());
+        cycle.processed();
+        cycle.processed();
+        cycle.drop("C");
+        cycle.drop("D");
+        cycle.finish();
+        assertEquals(2, cycle.snapshot().get("lastProcessed"));
+        assertEquals(2, cycle.snapshot().get("lastDropped"));
+        assertEquals(2, cycle.snapshot().get("pendingResume"));
+
+        assertTrue(cycle.tryStart(null));
+        assertEquals(Set.of("C", "D"), cycle.takeResume());
+        assertEquals(0, cycle.getDropped());
+        // 只交给紧接的一轮
+        assertTrue(cycle.takeResume().isEmpty());
+        cycle.finish();
+    }
+}
@@ -0,0 +1,112 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.entity.TradingPair;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BarSeries;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 层级优先、同层按活跃度排序，平静交易对降频
+ */
+class PairPrioritySchedulerTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final List<KlineInterval> HOURLY = List.of(KlineInterval._1H);
+
+    @Test
+    void tiersFirstThenActivityAndCalmPairsAreDeferred() {
+        PairPriorityScheduler scheduler = newScheduler();
+        TradingPair btc = pair("BTCUSDT", "BTC");
+        TradingPair sol = pair("SOLUSDT", "SOL");       // TopCryptoCoin 中的币种
+        TradingPair quiet = pair("QUIETUSDT", "QUIET");
+        TradingPair wild = pair("WILDUSDT", "WILD");
+        TradingPair fresh = pair("FRESHUSDT", "FRESH");  // 尚无活跃度数据
+        TradingPair flat = pair("FLATUSDT", "FLAT");
+        List<TradingPair> pairs = List.of(quiet, wild, sol, fresh, flat, btc);
+
+        scheduler.record(ExchangeType.BINANCE, "BTCUSDT", hourly(0.05));
+        scheduler.record(ExchangeType.BINANCE, "SOLUSDT", hourly(0.0001));
+        scheduler.record(ExchangeType.BINANCE, "QUIETUSDT", hourly(0.01));
+        scheduler.record(ExchangeType.BINANCE, "WILDUSDT", hourly(0.05));
+        scheduler.record(ExchangeType.BINANCE, "FLATUSDT", hourly(0.0001));
+
+        // FLAT 和 SOL 平静且最新的小时线已交给策略，本轮跳过；只有首层交易对不降频
+        List<TradingPair> ordered = scheduler.prioritize(ExchangeType.BINANCE, pairs, Set.of(), HOURLY);
+        assertEquals(List.of("BTCUSDT", "FRESHUSDT", "WILDUSDT", "QUIETUSDT"), symbols(ordered));
+        assertEquals(2, scheduler.snapshot().get("BINANCE").get("lastSkipped"));
+
+        // 上一轮未处理的交易对在同层中最先，且不降频
+        ordered = scheduler.prioritize(ExchangeType.BINANCE, pairs, Set.of("FLATUSDT"), HOURLY);
+        assertEquals(List.of("BTCUSDT", "FLATUSDT", "FRESHUSDT", "WILDUSDT", "QUIETUSDT"), symbols(ordered));
+
+        // 较长周期有尚未交给策略的收盘时，平静交易对也刷新
+        ordered = scheduler.prioritize(ExchangeType.BINANCE, pairs, Set.of(),
+                List.of(KlineInterval._1H, KlineInterval._4H));
+        assertEquals(6, ordered.size());
+        assertEquals("BTCUSDT", ordered.get(0).getSymbol());
+        assertEquals("SOLUSDT", ordered.get(1).getSymbol());
+
+        // 最短周期落后达到 calm-refresh-factor 根后重新刷新
+        scheduler.record(ExchangeType.BINANCE, "FLATUSDT", hourly(0.0001, 4));
+        ordered = scheduler.prioritize(ExchangeType.BINANCE, pairs, Set.of(), HOURLY);
+        assertTrue(symbols(ordered).contains("FLATUSDT"));
+        assertFalse(symbols(ordered).contains("SOLUSDT"));
+    }
+
+    @Test
+    void tierFallsBackToSymbolPrefix() {
+        PairPriorityScheduler scheduler = newScheduler();
+        assertEquals(0, scheduler.tierOf(pair("ETH-USDT", null)));
+        assertEquals(1, scheduler.tierOf(pair("SOL_USDT", "")));
+        assertEquals(2, scheduler.tierOf(pair("QUIET-USDT", null)));
+    }
+
+    private static PairPriorityScheduler newScheduler() {
+        PairPriorityScheduler scheduler = new PairPriorityScheduler();
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "tierConfig", "BTC,ETH");
+        ReflectionTestUtils.setField(scheduler, "volatilityBars", 20);
+        ReflectionTestUtils.setField(scheduler, "calmRatio", 0.5);
+        ReflectionTestUtils.setField(scheduler, "calmRefreshFactor", 4);
+        ReflectionTestUtils.setField(scheduler, "closeToleranceSeconds", 60L);
+        scheduler.init();
+        return scheduler;
+    }
+
+    private static Map<String, BarSeries> hourly(double swing) {
+        return hourly(swing, 0);
+    }
+
+    /**
+     * 已收盘的小时线，收盘价按给定幅度交替涨跌，成交量相同
+     * @param behind 最后一根比最近一次整点收盘早的小时数
+     */
+    private static Map<String, BarSeries> hourly(double swing, int behind) {
+        long hour = HOUR.toMillis();
+        long start = (System.currentTimeMillis() / hour - 25 - behind) * hour;
+        BarSeries series = KlineBars.newSeries("1h");
+        for (int i = 0; i < 25; i++) {
+            double close = 100 * (i % 2 == 0 ? 1 + swing : 1 - swing);
+            KlineBars.append(series, start + i * hour, HOUR, 100, close + 1, close - 1, close, 1000);
+        }
+        return Map.of(KlineInterval._1H.name(), series);
+    }
+
+    private static TradingPair pair(String symbol, String base) {
+        return new TradingPair().setSymbol(symbol).setBaseCurrency(base);
+    }
+
+    private static List<String> symbols(List<TradingPair> pairs) {
+        return pairs.stream().map(TradingPair::getSymbol).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package druid.elf.tool.service.task;
+
+import druid.elf.tool.entity.TradeSignal;
+import druid.elf.tool.enums.ExchangeType;
+import druid.elf.tool.enums.KlineInterval;
+import druid.elf.tool.service.kline.KlineBars;
+import druid.elf.tool.service.strategy.TradeStrategy;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 形成中的K线不改变指纹，新K线收盘后才重新执行；重叠的触发各自统计
+ */
+class StrategyInputFingerprintsTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @Test
+    void onlyClosedBarsChangeTheFingerprint() {
+        TradeStrategy strategy = new TradeStrategy() {
+            @Override
+            public TradeSignal execute(Map<String, BarSeries> seriesMap, String symbol) {
+                return null;
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "test";
+            }
+
+            @Override
+            public Set<KlineInterval> getRequiredIntervals() {
+                return EnumSet.of(KlineInterval._1H, KlineInterval._4H);
+            }
+        };
+        long start = 1_700_000_000_000L / HOUR * HOUR;
+        BarSeries hourly = KlineBars.newSeries("1h");
+        for (int i = 0; i < 3; i++) {
+            KlineBars.append(hourly, start + i * HOUR, Duration.ofHours(1), 1, 2, 0.5, 1.5, 10);
+        }
+        Map<String, BarSeries> series = Map.of(KlineInterval._1H.name(), hourly);
+
+        // 第三根在 start + 3h 收盘，之前最后一根已收盘的是第二根；4 小时线缺失记为 -1
+        long now = start + 2 * HOUR + HOUR / 2;
+        long[] first = StrategyInputFingerprints.of(strategy, series, now);
+        assertArrayEquals(new long[]{start + HOUR, -1L}, first);
+
+        StrategyInputFingerprints fingerprints = new StrategyInputFingerprints();
+        StrategyInputFingerprints.Cycle run = fingerprints.startCycle();
+        assertTrue(fingerprints.changed(run, ExchangeType.BINANCE, "BTCUSDT", strategy, first));
+        fingerprints.record(ExchangeType.BINANCE, "BTCUSDT", strategy, first);
+        // 形成中的K线更新不影响指纹
+        assertFalse(fingerprints.changed(run, ExchangeType.BINANCE, "BTCUSDT", strategy,
+                StrategyInputFingerprints.of(strategy, series, now + 60_000)));
+        // 其他交易所的同名交易对独立记录
+        assertTrue(fingerprints.changed(run, ExchangeType.OKX, "BTCUSDT", strategy, first));
+        // 与本轮重叠的另一次触发单独计数，不清零本轮的统计
+        StrategyInputFingerprints.Cycle overlapping = fingerprints.startCycle();
+        assertFalse(fingerprints.changed(overlapping, ExchangeType.BINANCE, "BTCUSDT", strategy, first));
+        fingerprints.endCycle(overlapping);
+        assertEquals(0L, fingerprints.snapshot().get("evaluated"));
+        assertEquals(1L, fingerprints.snapshot().get("skipped"));
+        // 第三根收盘后指纹变化
+        assertTrue(fingerprints.changed(run, ExchangeType.BINANCE, "BTCUSDT", strategy,
+                StrategyInputFingerprints.of(strategy, series, start + 3 * HOUR)));
+        fingerprints.endCycle(run);
+
+        Map<String, Object> cycle = fingerprints.snapshot();
+        assertEquals(3L, cycle.get("evaluated"));
+        assertEquals(1L, cycle.get("skipped"));
+        assertEquals(0.25, (double) cycle.get("skipRatio"), 1e-9);
+    }
+}
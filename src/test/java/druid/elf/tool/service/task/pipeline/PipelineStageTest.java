@@ -0,0 +1,62 @@
+package druid.elf.tool.service.task.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界队列的背压与攒批
+ */
+class PipelineStageTest {
+
+    @Test
+    void fullQueueBlocksAndBacklogIsBatched() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 4, 1, 10, batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS); // 第一批卡住，后续元素在队列中积压
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(batch.size());
+        });
+
+        stage.submit(0);
+        waitUntil(() -> (int) stage.snapshot().get("busy") == 1);
+        for (int i = 1; i <= 4; i++) stage.submit(i);
+        assertEquals(4, stage.snapshot().get("depth"));
+
+        Thread blocked = new Thread(() -> {
+            try {
+                stage.submit(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        blocked.start();
+        waitUntil(() -> (long) stage.snapshot().get("blockedSubmits") == 1);
+        assertTrue(blocked.isAlive()); // 队列已满，提交被阻塞
+
+        release.countDown();
+        blocked.join(5000);
+        stage.shutdown(5000);
+        assertEquals(6L, stage.snapshot().get("processed"));
+        assertEquals(1, batchSizes.get(0));
+        assertTrue(batchSizes.size() < 6, "积压的元素应合并处理: " + batchSizes);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("等待超时");
+            Thread.sleep(5);
+        }
+    }
+}